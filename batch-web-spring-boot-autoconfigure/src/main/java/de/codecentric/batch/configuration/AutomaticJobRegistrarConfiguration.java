@@ -17,27 +17,48 @@
 package de.codecentric.batch.configuration;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.configuration.DuplicateJobException;
+import org.springframework.batch.core.configuration.JobRegistry;
 import org.springframework.batch.core.configuration.annotation.ModularBatchConfiguration;
 import org.springframework.batch.core.configuration.support.ApplicationContextFactory;
 import org.springframework.batch.core.configuration.support.AutomaticJobRegistrar;
+import org.springframework.batch.core.configuration.support.DefaultJobLoader;
 import org.springframework.batch.core.configuration.support.GenericApplicationContextFactory;
+import org.springframework.batch.core.job.AbstractJob;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.index.CandidateComponentsIndex;
+import org.springframework.context.index.CandidateComponentsIndexLoader;
 import org.springframework.core.io.Resource;
 import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
 import org.springframework.core.io.support.ResourcePatternResolver;
-import org.springframework.core.type.classreading.CachingMetadataReaderFactory;
 import org.springframework.core.type.classreading.MetadataReader;
 import org.springframework.core.type.classreading.MetadataReaderFactory;
+import org.springframework.core.type.classreading.SimpleMetadataReaderFactory;
+import org.springframework.stereotype.Component;
 import org.springframework.util.ClassUtils;
 import org.springframework.util.SystemPropertyUtils;
 
+import de.codecentric.batch.listener.AddListenerToJobService;
+import de.codecentric.batch.monitoring.RunningExecutionTracker;
+import de.codecentric.batch.registry.LazyJobRegistrar;
+import de.codecentric.batch.registry.ParallelJobRegistrar;
+
 /**
  * Configuration for registration of {@link ApplicationContextFactory} with the {@link AutomaticJobRegistrar} that is
  * instantiated inside the {@link ModularBatchConfiguration}.
@@ -45,7 +66,17 @@ import org.springframework.util.SystemPropertyUtils;
  * This configuration looks for jobs in a modular fashion, meaning that every job configuration file gets its own
  * Child-ApplicationContext. Configuration files can be XML files in the location /META-INF/spring/batch/jobs,
  * overridable via property batch.config.path.xml, and JavaConfig classes in the package spring.batch.jobs, overridable
- * via property batch.config.package.javaconfig.
+ * via property batch.config.package.javaconfig. JavaConfig classes are detected by their annotation metadata, so no
+ * class in the package is initialized during discovery, and the component index generated by spring-context-indexer
+ * is used instead of a classpath scan if the application has one.
+ *
+ * With batch.config.lazy.enabled set to true, the jobs are registered by the {@link LazyJobRegistrar} instead, which
+ * creates the Child-ApplicationContext of a configuration only when one of its jobs is requested, and closes it again
+ * after being idle for batch.config.lazy.ttl. Configurations whose job names can't be determined upfront are still
+ * registered eagerly.
+ *
+ * With batch.config.parallel-refresh.enabled set to true, the eagerly registered configurations are handed to the
+ * {@link ParallelJobRegistrar}, which creates their Child-ApplicationContexts in parallel at startup.
  *
  * Customization is done by adding a Configuration class that extends {@link AutomaticJobRegistrarConfigurationSupport}.
  * This will disable this auto configuration.
@@ -61,6 +92,34 @@ public class AutomaticJobRegistrarConfiguration extends AutomaticJobRegistrarCon
 	@Autowired
 	private BatchConfigurationProperties batchConfig;
 
+	@Autowired
+	private ObjectProvider<LazyJobRegistrar> lazyJobRegistrar;
+
+	@Autowired
+	private ObjectProvider<ParallelJobRegistrar> parallelJobRegistrar;
+
+	/**
+	 * Static, because it's requested while this configuration is initialized.
+	 */
+	@Bean
+	@ConditionalOnProperty("batch.config.lazy.enabled")
+	public static LazyJobRegistrar lazyJobRegistrar(BatchConfigurationProperties batchConfig, JobRegistry jobRegistry,
+			ApplicationContext applicationContext, RunningExecutionTracker runningExecutionTracker,
+			AddListenerToJobService addListenerToJobService) {
+		LazyJobRegistrar lazyJobRegistrar = new LazyJobRegistrar(jobRegistry, applicationContext,
+				runningExecutionTracker, job -> addListenerToJobService.addListenerToJob((AbstractJob) job));
+		lazyJobRegistrar.setTtl(batchConfig.getConfig().getLazy().getTtl());
+		return lazyJobRegistrar;
+	}
+
+	@Bean
+	@ConditionalOnProperty("batch.config.parallel-refresh.enabled")
+	public static ParallelJobRegistrar parallelJobRegistrar(BatchConfigurationProperties batchConfig,
+			JobRegistry jobRegistry, ApplicationContext applicationContext) {
+		return new ParallelJobRegistrar(new DefaultJobLoader(jobRegistry), applicationContext,
+				batchConfig.getConfig().getParallelRefresh().getParallelism());
+	}
+
 	/**
 	 * @see de.codecentric.batch.configuration.AutomaticJobRegistrarConfigurationSupport#addApplicationContextFactories(org.springframework.batch.core.configuration.support.AutomaticJobRegistrar)
 	 */
@@ -70,58 +129,104 @@ public class AutomaticJobRegistrarConfiguration extends AutomaticJobRegistrarCon
 		registerJobsFromJavaConfig(automaticJobRegistrar);
 	}
 
-	protected void registerJobsFromXml(AutomaticJobRegistrar automaticJobRegistrar) throws IOException {
+	protected void registerJobsFromXml(AutomaticJobRegistrar automaticJobRegistrar)
+			throws IOException, DuplicateJobException {
 		// Add all XML-Configurations to the AutomaticJobRegistrar
 		ResourcePatternResolver resourcePatternResolver = new PathMatchingResourcePatternResolver();
 		Resource[] xmlConfigurations = resourcePatternResolver.getResources(batchConfig.getConfig().getPathXml());
+		LazyJobRegistrar lazyJobRegistrar = this.lazyJobRegistrar.getIfAvailable();
 		for (Resource resource : xmlConfigurations) {
-            System.out.println(resource);
+			if (lazyJobRegistrar != null && lazyJobRegistrar.registerXml(resource)) {
+				continue;
+			}
 			LOGGER.info("Register jobs from {}", resource);
-			automaticJobRegistrar.addApplicationContextFactory(new GenericApplicationContextFactory(resource));
+			addApplicationContextFactory(automaticJobRegistrar, new GenericApplicationContextFactory(resource));
 		}
 	}
 
 	protected void registerJobsFromJavaConfig(AutomaticJobRegistrar automaticJobRegistrar)
-			throws ClassNotFoundException, IOException {
+			throws ClassNotFoundException, IOException, DuplicateJobException {
 		List<Class<?>> classes = findMyTypes(batchConfig.getConfig().getPackageJavaconfig());
+		LazyJobRegistrar lazyJobRegistrar = this.lazyJobRegistrar.getIfAvailable();
 		for (Class<?> clazz : classes) {
+			if (lazyJobRegistrar != null && lazyJobRegistrar.registerJavaConfig(clazz)) {
+				continue;
+			}
 			LOGGER.info("Register jobs from {}", clazz);
-			automaticJobRegistrar.addApplicationContextFactory(new GenericApplicationContextFactory(clazz));
+			addApplicationContextFactory(automaticJobRegistrar, new GenericApplicationContextFactory(clazz));
 		}
 	}
 
-	private List<Class<?>> findMyTypes(String basePackage) throws IOException, ClassNotFoundException {
-		ResourcePatternResolver resourcePatternResolver = new PathMatchingResourcePatternResolver();
-		MetadataReaderFactory metadataReaderFactory = new CachingMetadataReaderFactory(resourcePatternResolver);
+	private void addApplicationContextFactory(AutomaticJobRegistrar automaticJobRegistrar,
+			ApplicationContextFactory applicationContextFactory) {
+		ParallelJobRegistrar parallelJobRegistrar = this.parallelJobRegistrar.getIfAvailable();
+		if (parallelJobRegistrar != null) {
+			parallelJobRegistrar.addApplicationContextFactory(applicationContextFactory);
+		} else {
+			automaticJobRegistrar.addApplicationContextFactory(applicationContextFactory);
+		}
+	}
 
+	private List<Class<?>> findMyTypes(String basePackage) throws IOException, ClassNotFoundException {
+		ClassLoader classLoader = ClassUtils.getDefaultClassLoader();
 		List<Class<?>> candidates = new ArrayList<>();
-		String packageSearchPath = ResourcePatternResolver.CLASSPATH_ALL_URL_PREFIX + resolveBasePackage(basePackage)
-				+ "/**/*.class";
-		Resource[] resources = resourcePatternResolver.getResources(packageSearchPath);
-		for (Resource resource : resources) {
-			if (resource.isReadable()) {
-				MetadataReader metadataReader = metadataReaderFactory.getMetadataReader(resource);
-				if (isCandidate(metadataReader)) {
-					candidates.add(Class.forName(metadataReader.getClassMetadata().getClassName()));
-				}
-			}
+		for (String className : findConfigurationClassNames(basePackage, classLoader)) {
+			// Loaded without initialization, that's done when the job's ApplicationContext is refreshed
+			candidates.add(ClassUtils.forName(className, classLoader));
 		}
 		return candidates;
 	}
 
-	private String resolveBasePackage(String basePackage) {
-		return ClassUtils.convertClassNameToResourcePath(SystemPropertyUtils.resolvePlaceholders(basePackage));
+	/**
+	 * Returns the names of all classes annotated with {@link Configuration} in the given package, decided on their
+	 * annotation metadata only, so that no class is loaded. If there's a component index (META-INF/spring.components,
+	 * generated by spring-context-indexer at build time) containing components in the package, the candidates are
+	 * taken from there, otherwise the package is scanned and the class files are read in parallel.
+	 */
+	List<String> findConfigurationClassNames(String basePackage, ClassLoader classLoader) throws IOException {
+		ResourcePatternResolver resourcePatternResolver = new PathMatchingResourcePatternResolver(classLoader);
+		// Each class is read only once, so a caching factory would only add contention
+		MetadataReaderFactory metadataReaderFactory = new SimpleMetadataReaderFactory(resourcePatternResolver);
+		String resolvedPackage = SystemPropertyUtils.resolvePlaceholders(basePackage);
+
+		CandidateComponentsIndex index = CandidateComponentsIndexLoader.loadIndex(classLoader);
+		if (index != null) {
+			Set<String> indexedTypes = index.getCandidateTypes(resolvedPackage, Component.class.getName());
+			if (!indexedTypes.isEmpty()) {
+				LOGGER.debug("Using component index for jobs in package {}", resolvedPackage);
+				List<String> candidates = new ArrayList<>();
+				for (String className : new TreeSet<>(indexedTypes)) {
+					if (isCandidate(metadataReaderFactory.getMetadataReader(className))) {
+						candidates.add(className);
+					}
+				}
+				return candidates;
+			}
+		}
+
+		String packageSearchPath = ResourcePatternResolver.CLASSPATH_ALL_URL_PREFIX
+				+ ClassUtils.convertClassNameToResourcePath(resolvedPackage) + "/**/*.class";
+		Resource[] resources = resourcePatternResolver.getResources(packageSearchPath);
+		try {
+			return Arrays.stream(resources).parallel().filter(Resource::isReadable)
+					.map(resource -> getMetadataReader(metadataReaderFactory, resource))
+					.filter(this::isCandidate).map(metadataReader -> metadataReader.getClassMetadata().getClassName())
+					.collect(Collectors.toList());
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
 	}
 
-	private boolean isCandidate(MetadataReader metadataReader) {
+	private MetadataReader getMetadataReader(MetadataReaderFactory metadataReaderFactory, Resource resource) {
 		try {
-			Class<?> c = Class.forName(metadataReader.getClassMetadata().getClassName());
-			if (c.getAnnotation(Configuration.class) != null) {
-				return true;
-			}
-		} catch (Throwable e) {
+			return metadataReaderFactory.getMetadataReader(resource);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
 		}
-		return false;
+	}
+
+	private boolean isCandidate(MetadataReader metadataReader) {
+		return metadataReader.getAnnotationMetadata().hasAnnotation(Configuration.class.getName());
 	}
 
 }
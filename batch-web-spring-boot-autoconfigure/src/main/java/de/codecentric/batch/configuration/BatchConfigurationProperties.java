@@ -16,7 +16,18 @@
 
 package de.codecentric.batch.configuration;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
 import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import de.codecentric.batch.listener.ProtocolWriter;
+import de.codecentric.batch.logging.DefaultJobLogFileNameCreator.Sharding;
+import de.codecentric.batch.metrics.BatchMeters.Layout;
 
 @ConfigurationProperties("batch")
 public class BatchConfigurationProperties {
@@ -29,13 +40,28 @@ public class BatchConfigurationProperties {
 	/**
 	 * Enable printing of the the default job protocol to the logs.
 	 */
-	private Toggle defaultProtocol = new Toggle(true);
+	private ProtocolProperties defaultProtocol = new ProtocolProperties();
 
 	/**
 	 * Enable writing of a new logfile for each job execution.
 	 */
 	private Toggle logfileSeparation = new Toggle(true);
 
+	/**
+	 * Configures the directory layout and the housekeeping of the separate logfiles.
+	 */
+	private JobLogProperties joblog = new JobLogProperties();
+
+	/**
+	 * Configures the machine-readable protocol of each job execution used for the job statistics.
+	 */
+	private ProtocolStoreProperties protocolStore = new ProtocolStoreProperties();
+
+	/**
+	 * Configures where the BatchMetrics of running steps are kept.
+	 */
+	private MetricsProperties metrics = new MetricsProperties();
+
 	/**
 	 * Configures the jobRepository.
 	 */
@@ -46,7 +72,7 @@ public class BatchConfigurationProperties {
 	 */
 	private TaskExecutorProperties taskExecutor = new TaskExecutorProperties();
 
-	public Toggle getDefaultProtocol() {
+	public ProtocolProperties getDefaultProtocol() {
 		return defaultProtocol;
 	}
 
@@ -54,10 +80,22 @@ public class BatchConfigurationProperties {
 		return logfileSeparation;
 	}
 
+	public ProtocolStoreProperties getProtocolStore() {
+		return protocolStore;
+	}
+
+	public JobLogProperties getJoblog() {
+		return joblog;
+	}
+
 	public JobConfigurationProperties getConfig() {
 		return config;
 	}
 
+	public MetricsProperties getMetrics() {
+		return metrics;
+	}
+
 	public RepositoryConfigurationProperties getRepository() {
 		return repository;
 	}
@@ -66,6 +104,128 @@ public class BatchConfigurationProperties {
 		return taskExecutor;
 	}
 
+	public static class ProtocolProperties extends Toggle {
+
+		/**
+		 * Format of the protocol, TEXT or JSON, which is written in one line.
+		 */
+		private ProtocolWriter.Format format = ProtocolWriter.Format.TEXT;
+
+		/**
+		 * Maximum number of step executions in the protocol, unsuccessful and long running ones first, with their status.
+		 * The others are summed up. Negative for no limit.
+		 */
+		private int maxSteps = -1;
+
+		/**
+		 * Maximum number of entries of each ExecutionContext in the protocol. Negative for no limit.
+		 */
+		private int maxContextEntries = -1;
+
+		/**
+		 * Maximum length of ExecutionContext values and job parameters in the protocol, longer ones are truncated.
+		 * Negative for no limit.
+		 */
+		private int maxValueLength = -1;
+
+		/**
+		 * Whether the protocol of a finished job is rendered and logged by a separate thread.
+		 */
+		private boolean async = false;
+
+		public ProtocolProperties() {
+			super(true);
+		}
+
+		public ProtocolWriter.Format getFormat() {
+			return format;
+		}
+
+		public void setFormat(ProtocolWriter.Format format) {
+			this.format = format;
+		}
+
+		public int getMaxSteps() {
+			return maxSteps;
+		}
+
+		public void setMaxSteps(int maxSteps) {
+			this.maxSteps = maxSteps;
+		}
+
+		public int getMaxContextEntries() {
+			return maxContextEntries;
+		}
+
+		public void setMaxContextEntries(int maxContextEntries) {
+			this.maxContextEntries = maxContextEntries;
+		}
+
+		public int getMaxValueLength() {
+			return maxValueLength;
+		}
+
+		public void setMaxValueLength(int maxValueLength) {
+			this.maxValueLength = maxValueLength;
+		}
+
+		public boolean isAsync() {
+			return async;
+		}
+
+		public void setAsync(boolean async) {
+			this.async = async;
+		}
+
+	}
+
+	public static class ProtocolStoreProperties extends Toggle {
+
+		/**
+		 * Directory of the protocol files, by default the subdirectory protocol of the job log directory.
+		 */
+		private String path;
+
+		/**
+		 * Keys of the job and step ExecutionContexts whose values are stored with the protocol.
+		 */
+		private List<String> contextKeys = new ArrayList<>();
+
+		/**
+		 * Age after which the daily protocol files are deleted.
+		 */
+		private Duration retention = Duration.ofDays(30);
+
+		public ProtocolStoreProperties() {
+			super(false);
+		}
+
+		public String getPath() {
+			return path;
+		}
+
+		public void setPath(String path) {
+			this.path = path;
+		}
+
+		public List<String> getContextKeys() {
+			return contextKeys;
+		}
+
+		public void setContextKeys(List<String> contextKeys) {
+			this.contextKeys = contextKeys;
+		}
+
+		public Duration getRetention() {
+			return retention;
+		}
+
+		public void setRetention(Duration retention) {
+			this.retention = retention;
+		}
+
+	}
+
 	public static class TaskExecutorProperties {
 
 		/**
@@ -109,6 +269,127 @@ public class BatchConfigurationProperties {
 
 	}
 
+	public static class JobLogProperties {
+
+		/**
+		 * Subdirectory per job (job) or per day (date) for the separate logfiles.
+		 */
+		private Sharding sharding = Sharding.NONE;
+
+		/**
+		 * Configures the deletion of old logfiles.
+		 */
+		private HousekeepingProperties housekeeping = new HousekeepingProperties();
+
+		public Sharding getSharding() {
+			return sharding;
+		}
+
+		public void setSharding(Sharding sharding) {
+			this.sharding = sharding;
+		}
+
+		public HousekeepingProperties getHousekeeping() {
+			return housekeeping;
+		}
+
+	}
+
+	public static class HousekeepingProperties {
+
+		/**
+		 * Enable the periodic deletion of old logfiles.
+		 */
+		private boolean enabled = false;
+
+		/**
+		 * Delay between two housekeeping runs.
+		 */
+		private Duration interval = Duration.ofHours(1);
+
+		/**
+		 * Logfiles older than this are deleted, no limit if not set.
+		 */
+		private Duration maxAge;
+
+		/**
+		 * Oldest logfiles are deleted until all logfiles together are smaller than this, no limit if not set.
+		 */
+		private DataSize maxTotalSize;
+
+		/**
+		 * Number of logfiles kept for each job, no limit if not set.
+		 */
+		private Integer maxFilesPerJob;
+
+		/**
+		 * Number of logfiles deleted before pausing.
+		 */
+		private int batchSize = 100;
+
+		/**
+		 * Pause between two batches of deletions to limit the IO load.
+		 */
+		private Duration pause = Duration.ofMillis(100);
+
+		public boolean isEnabled() {
+			return enabled;
+		}
+
+		public void setEnabled(boolean enabled) {
+			this.enabled = enabled;
+		}
+
+		public Duration getInterval() {
+			return interval;
+		}
+
+		public void setInterval(Duration interval) {
+			this.interval = interval;
+		}
+
+		public Duration getMaxAge() {
+			return maxAge;
+		}
+
+		public void setMaxAge(Duration maxAge) {
+			this.maxAge = maxAge;
+		}
+
+		public DataSize getMaxTotalSize() {
+			return maxTotalSize;
+		}
+
+		public void setMaxTotalSize(DataSize maxTotalSize) {
+			this.maxTotalSize = maxTotalSize;
+		}
+
+		public Integer getMaxFilesPerJob() {
+			return maxFilesPerJob;
+		}
+
+		public void setMaxFilesPerJob(Integer maxFilesPerJob) {
+			this.maxFilesPerJob = maxFilesPerJob;
+		}
+
+		public int getBatchSize() {
+			return batchSize;
+		}
+
+		public void setBatchSize(int batchSize) {
+			this.batchSize = batchSize;
+		}
+
+		public Duration getPause() {
+			return pause;
+		}
+
+		public void setPause(Duration pause) {
+			this.pause = pause;
+		}
+
+	}
+
 	public static class JobConfigurationProperties {
 
 		/**
@@ -121,6 +402,16 @@ public class BatchConfigurationProperties {
 		 */
 		private String packageJavaconfig = "spring.batch.jobs";
 
+		/**
+		 * Create the ApplicationContext of a job configuration when one of its jobs is requested for the first time.
+		 */
+		private LazyProperties lazy = new LazyProperties();
+
+		/**
+		 * Create the ApplicationContexts of the job configurations in parallel at startup.
+		 */
+		private ParallelRefreshProperties parallelRefresh = new ParallelRefreshProperties();
+
 		public void setPathXml(String pathXml) {
 			this.pathXml = pathXml;
 		}
@@ -137,6 +428,276 @@ public class BatchConfigurationProperties {
 			return packageJavaconfig;
 		}
 
+		public LazyProperties getLazy() {
+			return lazy;
+		}
+
+		public ParallelRefreshProperties getParallelRefresh() {
+			return parallelRefresh;
+		}
+
+	}
+
+	public static class LazyProperties extends Toggle {
+
+		/**
+		 * Idle time after which the ApplicationContext of a job configuration without running jobs is closed, never if
+		 * not set. Has to be positive.
+		 */
+		private Duration ttl;
+
+		public LazyProperties() {
+			super(false);
+		}
+
+		public Duration getTtl() {
+			return ttl;
+		}
+
+		public void setTtl(Duration ttl) {
+			this.ttl = ttl;
+		}
+
+	}
+
+	public static class ParallelRefreshProperties extends Toggle {
+
+		/**
+		 * Maximum number of job contexts created at the same time.
+		 */
+		private int parallelism = Runtime.getRuntime().availableProcessors();
+
+		public ParallelRefreshProperties() {
+			super(false);
+		}
+
+		public int getParallelism() {
+			return parallelism;
+		}
+
+		public void setParallelism(int parallelism) {
+			this.parallelism = parallelism;
+		}
+
+	}
+
+	public static class MetricsProperties {
+
+		/**
+		 * Where the BatchMetrics of running steps are kept, in the Step-ExecutionContext or in memory.
+		 */
+		private Storage storage = Storage.CONTEXT;
+
+		/**
+		 * Time after which metrics kept in memory are copied to the Step-ExecutionContext with the next modification,
+		 * only at step end if not set.
+		 */
+		private Duration checkpointInterval;
+
+		/**
+		 * Names and tags of the meters, v1 with one meter name and a context tag, v2 with a meter name per kind of
+		 * metric and job, step, status and method tags.
+		 */
+		private Layout layout = Layout.V1;
+
+		/**
+		 * Maximum number of distinct values per tag in the v2 layout, further values are reported as 'other'.
+		 */
+		private int maxTagValues = 100;
+
+		/**
+		 * Records the latency of chunks in a timer publishing percentiles, which the profiling timers publish as well.
+		 */
+		private LatencyProperties latency = new LatencyProperties();
+
+		/**
+		 * Exports the metrics of each job execution when it has finished.
+		 */
+		private ExportProperties export = new ExportProperties();
+
+		public Storage getStorage() {
+			return storage;
+		}
+
+		public void setStorage(Storage storage) {
+			this.storage = storage;
+		}
+
+		public Duration getCheckpointInterval() {
+			return checkpointInterval;
+		}
+
+		public void setCheckpointInterval(Duration checkpointInterval) {
+			this.checkpointInterval = checkpointInterval;
+		}
+
+		public Layout getLayout() {
+			return layout;
+		}
+
+		public void setLayout(Layout layout) {
+			this.layout = layout;
+		}
+
+		public int getMaxTagValues() {
+			return maxTagValues;
+		}
+
+		public void setMaxTagValues(int maxTagValues) {
+			this.maxTagValues = maxTagValues;
+		}
+
+		public LatencyProperties getLatency() {
+			return latency;
+		}
+
+		public ExportProperties getExport() {
+			return export;
+		}
+
+		public enum Storage {
+			/**
+			 * Every modification is written to the Step-ExecutionContext and persisted with the next commit.
+			 */
+			CONTEXT,
+			/**
+			 * The {@link de.codecentric.batch.metrics.StepMetricsStore}, exporting to Micrometer directly.
+			 */
+			MEMORY
+		}
+
+	}
+
+	public static class LatencyProperties extends Toggle {
+
+		/**
+		 * Percentiles published by the chunk latency timer and the timers of the profiled methods.
+		 */
+		private double[] percentiles = { 0.5, 0.95, 0.99 };
+
+		public LatencyProperties() {
+			super(true);
+		}
+
+		public double[] getPercentiles() {
+			return percentiles;
+		}
+
+		public void setPercentiles(double[] percentiles) {
+			this.percentiles = percentiles;
+		}
+
+	}
+
+	public static class ExportProperties {
+
+		/**
+		 * Where the metrics are exported to, log, json-lines and http.
+		 */
+		private Set<Sink> sinks = EnumSet.of(Sink.LOG);
+
+		/**
+		 * Whether the metrics are exported by a separate thread instead of the job thread, the log sink always runs on
+		 * the job thread.
+		 */
+		private boolean async = true;
+
+		/**
+		 * Maximum number of job executions waiting for the asynchronous export, further ones are dropped.
+		 */
+		private int queueCapacity = 1000;
+
+		/**
+		 * Maximum number of job executions passed to the exporters at once.
+		 */
+		private int batchSize = 100;
+
+		/**
+		 * File the json-lines sink appends to, by default metrics.jsonl in the job log directory.
+		 */
+		private String jsonLinesPath;
+
+		/**
+		 * URL the http sink posts the metrics to.
+		 */
+		private String httpUrl;
+
+		/**
+		 * Connect and read timeout of the http sink.
+		 */
+		private Duration httpTimeout = Duration.ofSeconds(5);
+
+		public Set<Sink> getSinks() {
+			return sinks;
+		}
+
+		public void setSinks(Set<Sink> sinks) {
+			this.sinks = sinks;
+		}
+
+		public boolean isAsync() {
+			return async;
+		}
+
+		public void setAsync(boolean async) {
+			this.async = async;
+		}
+
+		public int getQueueCapacity() {
+			return queueCapacity;
+		}
+
+		public void setQueueCapacity(int queueCapacity) {
+			this.queueCapacity = queueCapacity;
+		}
+
+		public int getBatchSize() {
+			return batchSize;
+		}
+
+		public void setBatchSize(int batchSize) {
+			this.batchSize = batchSize;
+		}
+
+		public String getJsonLinesPath() {
+			return jsonLinesPath;
+		}
+
+		public void setJsonLinesPath(String jsonLinesPath) {
+			this.jsonLinesPath = jsonLinesPath;
+		}
+
+		public String getHttpUrl() {
+			return httpUrl;
+		}
+
+		public void setHttpUrl(String httpUrl) {
+			this.httpUrl = httpUrl;
+		}
+
+		public Duration getHttpTimeout() {
+			return httpTimeout;
+		}
+
+		public void setHttpTimeout(Duration httpTimeout) {
+			this.httpTimeout = httpTimeout;
+		}
+
+		public enum Sink {
+			/**
+			 * The {@link de.codecentric.batch.metrics.LoggingMetricsExporter}.
+			 */
+			LOG,
+			/**
+			 * The {@link de.codecentric.batch.metrics.JsonLinesMetricsExporter}.
+			 */
+			JSON_LINES,
+			/**
+			 * The {@link de.codecentric.batch.metrics.HttpMetricsExporter}.
+			 */
+			HTTP
+		}
+
 	}
 
 	public static class RepositoryConfigurationProperties {
@@ -151,6 +712,41 @@ public class BatchConfigurationProperties {
 		 */
 		private String tablePrefix = null;
 
+		/**
+		 * Coalesces the updates of running step executions.
+		 */
+		private WriteBehindProperties writeBehind = new WriteBehindProperties();
+
+		/**
+		 * Caches finished job executions read by the monitoring and operations endpoints.
+		 */
+		private ExplorerCacheProperties explorerCache = new ExplorerCacheProperties();
+
+		/**
+		 * Keeps the batch meta data in memory instead of the DataSource.
+		 */
+		private InMemoryProperties inMemory = new InMemoryProperties();
+
+		/**
+		 * Keeps the batch meta data in memory and appends every change to a journal in the file system.
+		 */
+		private JournalProperties journal = new JournalProperties();
+
+		/**
+		 * Replica of the DataSource the JobExplorer reads finished job executions from.
+		 */
+		private ReadDataSourceProperties readDatasource = new ReadDataSourceProperties();
+
+		/**
+		 * Format of the serialized ExecutionContexts, ignored if there is an ExecutionContextSerializer bean.
+		 */
+		private SerializerType serializer = SerializerType.JSON;
+
+		/**
+		 * Size above which binary ExecutionContexts are compressed.
+		 */
+		private DataSize compressionThreshold = DataSize.ofKilobytes(1);
+
 		public void setIsolationLevelForCreate(String isolationLevelForCreate) {
 			this.isolationLevelForCreate = isolationLevelForCreate;
 		}
@@ -167,6 +763,246 @@ public class BatchConfigurationProperties {
 			return tablePrefix;
 		}
 
+		public WriteBehindProperties getWriteBehind() {
+			return writeBehind;
+		}
+
+		public ExplorerCacheProperties getExplorerCache() {
+			return explorerCache;
+		}
+
+		public InMemoryProperties getInMemory() {
+			return inMemory;
+		}
+
+		public JournalProperties getJournal() {
+			return journal;
+		}
+
+		public ReadDataSourceProperties getReadDatasource() {
+			return readDatasource;
+		}
+
+		public SerializerType getSerializer() {
+			return serializer;
+		}
+
+		public void setSerializer(SerializerType serializer) {
+			this.serializer = serializer;
+		}
+
+		public DataSize getCompressionThreshold() {
+			return compressionThreshold;
+		}
+
+		public void setCompressionThreshold(DataSize compressionThreshold) {
+			this.compressionThreshold = compressionThreshold;
+		}
+
+		public enum SerializerType {
+			/**
+			 * Jackson, Spring Batch's default.
+			 */
+			JSON,
+			/**
+			 * The {@link de.codecentric.batch.repository.BinaryExecutionContextSerializer}, reading existing JSON
+			 * contexts as well.
+			 */
+			BINARY
+		}
+
+	}
+
+	public static class ExplorerCacheProperties extends Toggle {
+
+		/**
+		 * Maximum number of cached job executions.
+		 */
+		private int maxSize = 1000;
+
+		/**
+		 * Time after which a cached job execution is read again.
+		 */
+		private Duration timeToLive = Duration.ofMinutes(10);
+
+		public ExplorerCacheProperties() {
+			super(false);
+		}
+
+		public int getMaxSize() {
+			return maxSize;
+		}
+
+		public void setMaxSize(int maxSize) {
+			this.maxSize = maxSize;
+		}
+
+		public Duration getTimeToLive() {
+			return timeToLive;
+		}
+
+		public void setTimeToLive(Duration timeToLive) {
+			this.timeToLive = timeToLive;
+		}
+
+	}
+
+	public static class InMemoryProperties extends Toggle {
+
+		/**
+		 * Maximum number of finished job executions kept, the oldest ones are removed first.
+		 */
+		private int maxFinishedExecutions = 1000;
+
+		public InMemoryProperties() {
+			super(false);
+		}
+
+		public int getMaxFinishedExecutions() {
+			return maxFinishedExecutions;
+		}
+
+		public void setMaxFinishedExecutions(int maxFinishedExecutions) {
+			this.maxFinishedExecutions = maxFinishedExecutions;
+		}
+
+	}
+
+	public static class JournalProperties extends Toggle {
+
+		/**
+		 * Directory of the journal, by default the subdirectory repository of the job log directory.
+		 */
+		private String path;
+
+		/**
+		 * Whether every change is forced to the disk instead of only being written to the operating system.
+		 */
+		private boolean sync = false;
+
+		/**
+		 * Size of the journal above which it is compacted.
+		 */
+		private DataSize compactionThreshold = DataSize.ofMegabytes(16);
+
+		public JournalProperties() {
+			super(false);
+		}
+
+		public String getPath() {
+			return path;
+		}
+
+		public void setPath(String path) {
+			this.path = path;
+		}
+
+		public boolean isSync() {
+			return sync;
+		}
+
+		public void setSync(boolean sync) {
+			this.sync = sync;
+		}
+
+		public DataSize getCompactionThreshold() {
+			return compactionThreshold;
+		}
+
+		public void setCompactionThreshold(DataSize compactionThreshold) {
+			this.compactionThreshold = compactionThreshold;
+		}
+
+	}
+
+	public static class ReadDataSourceProperties {
+
+		/**
+		 * JDBC URL of the replica, no replica is used if not set.
+		 */
+		private String url;
+
+		/**
+		 * Login username of the replica.
+		 */
+		private String username;
+
+		/**
+		 * Login password of the replica.
+		 */
+		private String password;
+
+		/**
+		 * Fully qualified name of the JDBC driver, detected from the URL by default.
+		 */
+		private String driverClassName;
+
+		public String getUrl() {
+			return url;
+		}
+
+		public void setUrl(String url) {
+			this.url = url;
+		}
+
+		public String getUsername() {
+			return username;
+		}
+
+		public void setUsername(String username) {
+			this.username = username;
+		}
+
+		public String getPassword() {
+			return password;
+		}
+
+		public void setPassword(String password) {
+			this.password = password;
+		}
+
+		public String getDriverClassName() {
+			return driverClassName;
+		}
+
+		public void setDriverClassName(String driverClassName) {
+			this.driverClassName = driverClassName;
+		}
+
+	}
+
+	public static class WriteBehindProperties extends Toggle {
+
+		/**
+		 * Number of commits of a step after which its StepExecution and ExecutionContext are written.
+		 */
+		private int commits = 10;
+
+		/**
+		 * Time after which the StepExecution and ExecutionContext of a step are written with the next commit.
+		 */
+		private Duration interval = Duration.ofSeconds(1);
+
+		public WriteBehindProperties() {
+			super(false);
+		}
+
+		public int getCommits() {
+			return commits;
+		}
+
+		public void setCommits(int commits) {
+			this.commits = commits;
+		}
+
+		public Duration getInterval() {
+			return interval;
+		}
+
+		public void setInterval(Duration interval) {
+			this.interval = interval;
+		}
+
 	}
 
 	public static class Toggle {
@@ -22,11 +22,13 @@ import org.springframework.batch.core.converter.DefaultJobParametersConverter;
 import org.springframework.batch.core.converter.JobParametersConverter;
 import org.springframework.batch.core.job.AbstractJob;
 import org.springframework.batch.core.launch.NoSuchJobException;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.actuate.autoconfigure.metrics.MetricsAutoConfiguration;
 import org.springframework.boot.autoconfigure.AutoConfigureAfter;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.ApplicationContext;
 import org.springframework.context.ApplicationListener;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -35,12 +37,17 @@ import org.springframework.context.annotation.PropertySource;
 import org.springframework.context.event.ContextRefreshedEvent;
 import org.springframework.core.Ordered;
 
+import de.codecentric.batch.configuration.BatchConfigurationProperties.ProtocolProperties;
 import de.codecentric.batch.listener.AddListenerToJobService;
 import de.codecentric.batch.listener.LoggingAfterJobListener;
 import de.codecentric.batch.listener.LoggingListener;
 import de.codecentric.batch.listener.ProtocolListener;
+import de.codecentric.batch.listener.ProtocolWriter;
 import de.codecentric.batch.listener.RunningExecutionTrackerListener;
+import de.codecentric.batch.logging.DefaultJobLogFileNameCreator;
+import de.codecentric.batch.logging.JobLogFileNameCreator;
 import de.codecentric.batch.monitoring.RunningExecutionTracker;
+import de.codecentric.batch.registry.LazyJobRegistrar;
 
 /**
  * This configuration class will be picked up by Spring Boot's auto configuration capabilities as soon as it's on the
@@ -54,12 +61,17 @@ import de.codecentric.batch.monitoring.RunningExecutionTracker;
  * package spring.batch.jobs, overridable via property batch.config.package.javaconfig.<br>
  * In addition to collecting jobs a number of default listeners is added to each job. The
  * {@link de.codecentric.batch.listener.ProtocolListener} adds a protocol to the log. It is activated by default and can
- * be deactivated by setting the property batch.defaultprotocol.enabled to false.<br>
+ * be deactivated by setting the property batch.defaultprotocol.enabled to false. Its size and format are configured
+ * with the other batch.default-protocol properties.<br>
  * {@link de.codecentric.batch.listener.LoggingListener} and
  * {@link de.codecentric.batch.listener.LoggingAfterJobListener} add a log file separation per job run, are activated by
  * default and can be deactivated by setting the property batch.logfileseparation.enabled to false. The
  * {@link de.codecentric.batch.listener.RunningExecutionTrackerListener} is needed for knowing which JobExecutions are
- * currently running on this node.
+ * currently running on this node.<br>
+ * Job logs are placed in subdirectories per job or per day when batch.joblog.sharding is set, and old job logs are
+ * deleted by the {@link JobLogHousekeepingConfiguration} when batch.joblog.housekeeping.enabled is set to true.<br>
+ * With batch.protocol-store.enabled set to true the {@link ProtocolStoreConfiguration} keeps a machine-readable
+ * protocol of each job execution, which the statistics endpoint aggregates.
  *
  * @author Tobias Flohre
  */
@@ -68,7 +80,8 @@ import de.codecentric.batch.monitoring.RunningExecutionTracker;
 @PropertySource("classpath:batch-web-spring-boot-autoconfigure.properties")
 @AutoConfigureAfter({ MetricsAutoConfiguration.class })
 @Import({ WebConfig.class, TaskExecutorBatchConfiguration.class, AutomaticJobRegistrarConfiguration.class,
-        Jsr352BatchConfiguration.class, MetricsConfiguration.class, TaskExecutorConfiguration.class })
+        Jsr352BatchConfiguration.class, MetricsConfiguration.class, TaskExecutorConfiguration.class,
+        JobLogHousekeepingConfiguration.class, ProtocolStoreConfiguration.class })
 @EnableConfigurationProperties({ BatchConfigurationProperties.class })
 public class BatchWebAutoConfiguration implements ApplicationListener<ContextRefreshedEvent>, Ordered {
 
@@ -78,8 +91,20 @@ public class BatchWebAutoConfiguration implements ApplicationListener<ContextRef
     @Autowired
     private JobRegistry jobRegistry;
 
+    @Autowired
+    private ObjectProvider<LazyJobRegistrar> lazyJobRegistrar;
+
+    @Autowired
+    private ApplicationContext applicationContext;
+
     // ################### Listeners automatically added to each job #################################
 
+    @Bean
+    @ConditionalOnMissingBean
+    public JobLogFileNameCreator jobLogFileNameCreator() {
+        return new DefaultJobLogFileNameCreator(batchConfig.getJoblog().getSharding());
+    }
+
     @Bean
     public LoggingListener loggingListener() {
         return new LoggingListener();
@@ -92,7 +117,11 @@ public class BatchWebAutoConfiguration implements ApplicationListener<ContextRef
 
     @Bean
     public ProtocolListener protocolListener() {
-        return new ProtocolListener();
+        ProtocolProperties protocol = batchConfig.getDefaultProtocol();
+        ProtocolListener protocolListener = new ProtocolListener(new ProtocolWriter(protocol.getFormat(),
+                protocol.getMaxSteps(), protocol.getMaxContextEntries(), protocol.getMaxValueLength()));
+        protocolListener.setAsync(protocol.isAsync());
+        return protocolListener;
     }
 
     @Bean
@@ -115,7 +144,17 @@ public class BatchWebAutoConfiguration implements ApplicationListener<ContextRef
 
     @Override
     public void onApplicationEvent(ContextRefreshedEvent event) {
+        if (event.getApplicationContext() != applicationContext) {
+            // Refreshed job contexts propagate their event to this context. All jobs loaded at startup are known
+            // once this context is refreshed, so adding the listeners once is enough.
+            return;
+        }
+        LazyJobRegistrar lazyJobRegistrar = this.lazyJobRegistrar.getIfAvailable();
         jobRegistry.getJobNames().forEach(jobName -> {
+            if (lazyJobRegistrar != null && lazyJobRegistrar.isLazy(jobName)) {
+                // listeners are added when the job's context is created
+                return;
+            }
             try {
                 AbstractJob job = (AbstractJob) jobRegistry.getJob(jobName);
                 this.addListenerToJobService().addListenerToJob(job);
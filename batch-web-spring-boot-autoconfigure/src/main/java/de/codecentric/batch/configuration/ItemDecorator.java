@@ -0,0 +1,51 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.codecentric.batch.configuration;
+
+import org.springframework.batch.item.ItemProcessor;
+import org.springframework.batch.item.ItemReader;
+import org.springframework.batch.item.ItemWriter;
+
+/**
+ * Decorates the ItemReader, ItemProcessor and ItemWriter of every chunk oriented Step, including the readers,
+ * processors and writers that aren't Spring beans. Decorators are provided by {@link ListenerProvider}s and applied
+ * once per Step, when the listeners of the first Job containing it are added. Ordered decorators are applied first.
+ */
+public interface ItemDecorator {
+
+	/**
+	 * Returns the reader to be used by the step, the given reader or a decorator of it.
+	 */
+	public default ItemReader<?> decorateReader(ItemReader<?> reader, String jobName, String stepName) {
+		return reader;
+	}
+
+	/**
+	 * Returns the processor to be used by the step, the given processor or a decorator of it.
+	 */
+	public default ItemProcessor<?, ?> decorateProcessor(ItemProcessor<?, ?> processor, String jobName,
+			String stepName) {
+		return processor;
+	}
+
+	/**
+	 * Returns the writer to be used by the step, the given writer or a decorator of it.
+	 */
+	public default ItemWriter<?> decorateWriter(ItemWriter<?> writer, String jobName, String stepName) {
+		return writer;
+	}
+
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.codecentric.batch.configuration;
+
+import java.nio.file.Paths;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import de.codecentric.batch.configuration.BatchConfigurationProperties.HousekeepingProperties;
+import de.codecentric.batch.logging.DefaultJobLogFileNameCreator;
+import de.codecentric.batch.logging.JobLogFileNameCreator;
+import de.codecentric.batch.logging.JobLogHousekeeping;
+import de.codecentric.batch.logging.JobLogHousekeepingScheduler;
+import de.codecentric.batch.logging.JobLogPath;
+import de.codecentric.batch.monitoring.RunningExecutionTracker;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+
+/**
+ * Configuration for the {@link JobLogHousekeeping}, which deletes old job logs. Can be activated by setting the property
+ * batch.joblog.housekeeping.enabled to true. The housekeeping is run by the {@link JobLogHousekeepingScheduler}.
+ */
+@ConditionalOnProperty("batch.joblog.housekeeping.enabled")
+@Configuration
+public class JobLogHousekeepingConfiguration {
+
+	@Autowired
+	private BatchConfigurationProperties batchConfig;
+
+	@Autowired
+	private RunningExecutionTracker runningExecutionTracker;
+
+	@Autowired
+	private JobLogFileNameCreator jobLogFileNameCreator;
+
+	@Autowired(required = false)
+	private MeterRegistry meterRegistry;
+
+	@Bean
+	public JobLogHousekeeping jobLogHousekeeping() {
+		HousekeepingProperties properties = batchConfig.getJoblog().getHousekeeping();
+		DefaultJobLogFileNameCreator nameCreator = jobLogFileNameCreator instanceof DefaultJobLogFileNameCreator
+				? (DefaultJobLogFileNameCreator) jobLogFileNameCreator
+				: new DefaultJobLogFileNameCreator(batchConfig.getJoblog().getSharding());
+		JobLogHousekeeping housekeeping = new JobLogHousekeeping(Paths.get(JobLogPath.resolve()), nameCreator,
+				runningExecutionTracker, meterRegistry != null ? meterRegistry : Metrics.globalRegistry);
+		housekeeping.setMaxAge(properties.getMaxAge());
+		housekeeping.setMaxTotalSize(
+				properties.getMaxTotalSize() != null ? properties.getMaxTotalSize().toBytes() : null);
+		housekeeping.setMaxFilesPerJob(properties.getMaxFilesPerJob());
+		housekeeping.setBatchSize(properties.getBatchSize());
+		housekeeping.setPause(properties.getPause());
+		return housekeeping;
+	}
+
+	@Bean
+	public JobLogHousekeepingScheduler jobLogHousekeepingScheduler() {
+		return new JobLogHousekeepingScheduler(jobLogHousekeeping(),
+				batchConfig.getJoblog().getHousekeeping().getInterval());
+	}
+
+}
@@ -15,14 +15,18 @@
  */
 package de.codecentric.batch.configuration;
 
+import java.util.Collections;
 import java.util.Set;
 
+import org.springframework.batch.core.ChunkListener;
 import org.springframework.batch.core.JobExecutionListener;
 import org.springframework.batch.core.StepExecutionListener;
 
 /**
  * spring-boot-starter-batch-web automatically registers JobExecutionListeners and StepExecutionListeners at each Job
- * provided by Spring beans implementing this interface.
+ * provided by Spring beans implementing this interface. The listeners are requested once and then added to every Job
+ * and every Step, including Steps nested in flow steps and partition steps, ordered by
+ * {@link org.springframework.core.Ordered} and {@link org.springframework.core.annotation.Order}.
  * 
  * @author Tobias Flohre
  */
@@ -42,4 +46,24 @@ public interface ListenerProvider {
 	 */
 	public Set<StepExecutionListener> stepExecutionListeners();
 
+	/**
+	 * Returns a set of ChunkListeners that will be added to each chunk oriented Step. May not return null.
+	 * 
+	 * @return Returns a set of ChunkListeners that will be added to each chunk oriented Step. May not return null.
+	 */
+	public default Set<ChunkListener> chunkListeners() {
+		return Collections.emptySet();
+	}
+
+	/**
+	 * Returns a set of ItemDecorators that will be applied to the reader, processor and writer of each chunk oriented
+	 * Step. May not return null.
+	 * 
+	 * @return Returns a set of ItemDecorators that will be applied to the reader, processor and writer of each chunk
+	 *         oriented Step. May not return null.
+	 */
+	public default Set<ItemDecorator> itemDecorators() {
+		return Collections.emptySet();
+	}
+
 }
@@ -15,23 +15,66 @@
  */
 package de.codecentric.batch.configuration;
 
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.springframework.batch.core.ChunkListener;
 import org.springframework.batch.core.JobExecutionListener;
 import org.springframework.batch.core.StepExecutionListener;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import de.codecentric.batch.configuration.BatchConfigurationProperties.ExportProperties;
+import de.codecentric.batch.configuration.BatchConfigurationProperties.ExportProperties.Sink;
+import de.codecentric.batch.configuration.BatchConfigurationProperties.MetricsProperties;
+import de.codecentric.batch.configuration.BatchConfigurationProperties.MetricsProperties.Storage;
+import de.codecentric.batch.logging.JobLogPath;
+import de.codecentric.batch.metrics.AsyncMetricsExporter;
+import de.codecentric.batch.metrics.BatchMeters;
 import de.codecentric.batch.metrics.BatchMetricsImpl;
+import de.codecentric.batch.metrics.CommitMetricsListener;
+import de.codecentric.batch.metrics.HttpMetricsExporter;
+import de.codecentric.batch.metrics.JsonLinesMetricsExporter;
+import de.codecentric.batch.metrics.LoggingMetricsExporter;
+import de.codecentric.batch.metrics.MetricsExporter;
 import de.codecentric.batch.metrics.MetricsListener;
+import de.codecentric.batch.metrics.MetricsOutputFormatter;
+import de.codecentric.batch.metrics.ProfilingItemDecorator;
 import de.codecentric.batch.metrics.ReaderProcessorWriterMetricsAspect;
+import de.codecentric.batch.metrics.RepositoryMetricsInterceptor;
+import de.codecentric.batch.metrics.StepLatencyListener;
+import de.codecentric.batch.metrics.StepMetricsStore;
+import de.codecentric.batch.metrics.StepPhaseMetricsAspect;
 import io.micrometer.core.instrument.MeterRegistry;
 
 /**
- * Configuration containing all metrics stuff. Can be activated by setting the property batch.metrics.enabled to true.
+ * Configuration containing all metrics stuff. Can be activated by setting the property batch.metrics.enabled to true. With
+ * batch.metrics.storage=memory the metrics of running steps are kept in a {@link StepMetricsStore}. The names and tags of
+ * the meters are chosen by {@link BatchMeters}, depending on batch.metrics.layout. Readers, processors and writers are
+ * profiled by a {@link ReaderProcessorWriterMetricsAspect} or, with batch.metrics.profiling.decorator.enabled, by a
+ * {@link ProfilingItemDecorator}. Chunk latencies are recorded by a {@link StepLatencyListener} unless
+ * batch.metrics.latency.enabled is false, the time spent in the phases of a step by a {@link StepPhaseMetricsAspect}, a
+ * {@link CommitMetricsListener} and a {@link RepositoryMetricsInterceptor} if batch.metrics.profiling.phases.enabled is
+ * true. The metrics of finished job executions are passed to the sinks configured with batch.metrics.export.sinks and
+ * to all {@link MetricsExporter} beans, by default asynchronously except for the log sink.
  *
  * @author Tobias Flohre
  */
@@ -39,37 +82,171 @@ import io.micrometer.core.instrument.MeterRegistry;
 @Configuration
 public class MetricsConfiguration implements ListenerProvider {
 
+	private static final Logger LOGGER = LoggerFactory.getLogger(MetricsConfiguration.class);
+
 	@Autowired
 	private MeterRegistry meterRegistry;
 
+	@Autowired
+	private BatchConfigurationProperties batchConfig;
+
+	private BatchMeters batchMeters;
+
+	@Autowired(required = false)
+	private MetricsOutputFormatter metricsOutputFormatter;
+
+	@Autowired(required = false)
+	private List<MetricsExporter> metricsExporters;
+
+	@Autowired
+	private ObjectProvider<ObjectMapper> objectMapper;
+
+	@Autowired
+	private ObjectProvider<CommitMetricsListener> commitMetricsListener;
+
+	@Autowired
+	private ObjectProvider<ProfilingItemDecorator> profilingItemDecorator;
+
+	private StepMetricsStore stepMetricsStore;
+
+	private MetricsExporter metricsExporter;
+
+	private AsyncMetricsExporter asyncMetricsExporter;
+
+	@PostConstruct
+	public void initialize() throws MalformedURLException {
+		MetricsProperties metrics = batchConfig.getMetrics();
+		batchMeters = new BatchMeters(meterRegistry, metrics.getLayout(), metrics.getMaxTagValues());
+		if (metrics.getLatency().isEnabled()) {
+			batchMeters.setMethodPercentiles(metrics.getLatency().getPercentiles());
+		}
+		if (metrics.getStorage() == Storage.MEMORY) {
+			stepMetricsStore = new StepMetricsStore(batchMeters, metrics.getCheckpointInterval());
+		}
+		metricsExporter = createMetricsExporter(metrics.getExport());
+	}
+
+	@PreDestroy
+	public void close() {
+		if (asyncMetricsExporter != null) {
+			asyncMetricsExporter.close();
+		}
+	}
+
+	private MetricsExporter createMetricsExporter(ExportProperties export) throws MalformedURLException {
+		// exporters called on the job thread, the log sink always is, so the metrics end up in the log of the job
+		List<MetricsExporter> jobThreadExporters = new ArrayList<>();
+		if (export.getSinks().contains(Sink.LOG)) {
+			jobThreadExporters.add(metricsOutputFormatter != null ? new LoggingMetricsExporter(metricsOutputFormatter)
+					: new LoggingMetricsExporter());
+		}
+		List<MetricsExporter> exporters = new ArrayList<>();
+		if (export.getSinks().contains(Sink.JSON_LINES)) {
+			Path path = export.getJsonLinesPath() != null ? Paths.get(export.getJsonLinesPath())
+					: Paths.get(JobLogPath.resolve(), "metrics.jsonl");
+			exporters.add(new JsonLinesMetricsExporter(path, objectMapper.getIfAvailable(ObjectMapper::new)));
+		}
+		if (export.getSinks().contains(Sink.HTTP)) {
+			if (export.getHttpUrl() == null) {
+				throw new IllegalStateException("batch.metrics.export.http-url has to be set for the http sink");
+			}
+			exporters.add(new HttpMetricsExporter(new URL(export.getHttpUrl()), export.getHttpTimeout(),
+					objectMapper.getIfAvailable(ObjectMapper::new)));
+		}
+		if (metricsExporters != null) {
+			exporters.addAll(metricsExporters);
+		}
+		if (!export.isAsync()) {
+			jobThreadExporters.addAll(exporters);
+		} else if (!exporters.isEmpty()) {
+			asyncMetricsExporter = new AsyncMetricsExporter(exporters, export.getQueueCapacity(),
+					export.getBatchSize());
+			jobThreadExporters.add(asyncMetricsExporter);
+		}
+		return snapshots -> {
+			for (MetricsExporter exporter : jobThreadExporters) {
+				try {
+					exporter.export(snapshots);
+				} catch (Exception e) {
+					LOGGER.warn("Exporting the metrics with {} failed", exporter, e);
+				}
+			}
+		};
+	}
+
 	@Bean
 	public BatchMetricsImpl batchMetrics() {
-		return new BatchMetricsImpl();
+		return new BatchMetricsImpl(stepMetricsStore);
 	}
 
 	@ConditionalOnProperty("batch.metrics.profiling.readprocesswrite.enabled")
 	@Bean
 	public ReaderProcessorWriterMetricsAspect batchMetricsAspects() {
-		return new ReaderProcessorWriterMetricsAspect(meterRegistry);
+		return new ReaderProcessorWriterMetricsAspect(batchMeters);
+	}
+
+	@ConditionalOnProperty("batch.metrics.profiling.decorator.enabled")
+	@Bean
+	public ProfilingItemDecorator profilingItemDecorator() {
+		return new ProfilingItemDecorator(batchMeters);
+	}
+
+	@ConditionalOnProperty("batch.metrics.profiling.phases.enabled")
+	@Bean
+	public StepPhaseMetricsAspect stepPhaseMetricsAspect() {
+		return new StepPhaseMetricsAspect(batchMeters);
+	}
+
+	@ConditionalOnProperty("batch.metrics.profiling.phases.enabled")
+	@Bean
+	public CommitMetricsListener commitMetricsListener() {
+		return new CommitMetricsListener(batchMeters);
+	}
+
+	@ConditionalOnProperty("batch.metrics.profiling.phases.enabled")
+	@Bean
+	public RepositoryMetricsInterceptor repositoryMetricsInterceptor() {
+		return new RepositoryMetricsInterceptor(batchMeters);
 	}
 
 	@Bean
 	public MetricsListener metricsListener() {
-		return new MetricsListener(meterRegistry);
+		MetricsListener metricsListener = new MetricsListener(batchMeters, stepMetricsStore);
+		metricsListener.setMetricsExporter(metricsExporter);
+		return metricsListener;
 	}
 
 	@Override
 	public Set<JobExecutionListener> jobExecutionListeners() {
-		Set<JobExecutionListener> listeners = new HashSet<>();
-		listeners.add(metricsListener());
-		return listeners;
+		return Collections.singleton(metricsListener());
 	}
 
 	@Override
 	public Set<StepExecutionListener> stepExecutionListeners() {
-		Set<StepExecutionListener> listeners = new HashSet<>();
-		listeners.add(metricsListener());
-		return listeners;
+		return Collections.singleton(metricsListener());
+	}
+
+	@ConditionalOnProperty(name = "batch.metrics.latency.enabled", matchIfMissing = true)
+	@Bean
+	public StepLatencyListener stepLatencyListener() {
+		return new StepLatencyListener(batchMeters, batchConfig.getMetrics().getLatency().getPercentiles());
+	}
+
+	@Override
+	public Set<ChunkListener> chunkListeners() {
+		Set<ChunkListener> chunkListeners = new HashSet<>();
+		if (batchConfig.getMetrics().getLatency().isEnabled()) {
+			chunkListeners.add(stepLatencyListener());
+		}
+		commitMetricsListener.ifAvailable(chunkListeners::add);
+		return chunkListeners;
+	}
+
+	@Override
+	public Set<ItemDecorator> itemDecorators() {
+		Set<ItemDecorator> itemDecorators = new HashSet<>();
+		profilingItemDecorator.ifAvailable(itemDecorators::add);
+		return itemDecorators;
 	}
 
 }
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.codecentric.batch.configuration;
+
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.Set;
+
+import org.springframework.batch.core.JobExecutionListener;
+import org.springframework.batch.core.StepExecutionListener;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import de.codecentric.batch.configuration.BatchConfigurationProperties.ProtocolStoreProperties;
+import de.codecentric.batch.listener.ProtocolStoreListener;
+import de.codecentric.batch.logging.JobLogPath;
+import de.codecentric.batch.monitoring.ProtocolStore;
+
+/**
+ * Configuration for the {@link ProtocolStore}, which keeps a machine-readable protocol of each job execution for the
+ * statistics endpoint. Can be activated by setting the property batch.protocol-store.enabled to true. The files are
+ * written to batch.protocol-store.path, by default to the subdirectory protocol of the job log directory.
+ */
+@ConditionalOnProperty("batch.protocol-store.enabled")
+@Configuration
+public class ProtocolStoreConfiguration implements ListenerProvider {
+
+	@Autowired
+	private BatchConfigurationProperties batchConfig;
+
+	@Bean
+	public ProtocolStore protocolStore() {
+		ProtocolStoreProperties properties = batchConfig.getProtocolStore();
+		String path = properties.getPath() != null ? properties.getPath()
+				: Paths.get(JobLogPath.resolve(), "protocol").toString();
+		ProtocolStore protocolStore = new ProtocolStore(Paths.get(path), properties.getContextKeys());
+		protocolStore.setRetention(properties.getRetention());
+		return protocolStore;
+	}
+
+	@Bean
+	public ProtocolStoreListener protocolStoreListener() {
+		return new ProtocolStoreListener(protocolStore());
+	}
+
+	@Override
+	public Set<JobExecutionListener> jobExecutionListeners() {
+		return Collections.singleton(protocolStoreListener());
+	}
+
+	@Override
+	public Set<StepExecutionListener> stepExecutionListeners() {
+		return Collections.emptySet();
+	}
+
+}
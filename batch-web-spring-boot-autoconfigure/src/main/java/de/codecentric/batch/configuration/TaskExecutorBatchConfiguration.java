@@ -16,11 +16,17 @@
 
 package de.codecentric.batch.configuration;
 
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Paths;
+
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.sql.DataSource;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.aop.framework.ProxyFactory;
 import org.springframework.batch.core.configuration.annotation.BatchConfigurer;
 import org.springframework.batch.core.explore.JobExplorer;
 import org.springframework.batch.core.explore.support.JobExplorerFactoryBean;
@@ -28,17 +34,38 @@ import org.springframework.batch.core.explore.support.MapJobExplorerFactoryBean;
 import org.springframework.batch.core.launch.JobLauncher;
 import org.springframework.batch.core.launch.support.SimpleJobLauncher;
 import org.springframework.batch.core.repository.ExecutionContextSerializer;
+import org.springframework.batch.core.repository.dao.AbstractJdbcBatchMetadataDao;
+import org.springframework.batch.core.repository.dao.Jackson2ExecutionContextStringSerializer;
 import org.springframework.batch.core.repository.JobRepository;
 import org.springframework.batch.core.repository.support.JobRepositoryFactoryBean;
 import org.springframework.batch.core.repository.support.MapJobRepositoryFactoryBean;
 import org.springframework.batch.support.transaction.ResourcelessTransactionManager;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.task.TaskExecutor;
 import org.springframework.jdbc.datasource.DataSourceTransactionManager;
 import org.springframework.transaction.PlatformTransactionManager;
 
+import de.codecentric.batch.configuration.BatchConfigurationProperties.ExplorerCacheProperties;
+import de.codecentric.batch.configuration.BatchConfigurationProperties.InMemoryProperties;
+import de.codecentric.batch.configuration.BatchConfigurationProperties.JournalProperties;
+import de.codecentric.batch.configuration.BatchConfigurationProperties.ReadDataSourceProperties;
+import de.codecentric.batch.configuration.BatchConfigurationProperties.RepositoryConfigurationProperties.SerializerType;
+import de.codecentric.batch.configuration.BatchConfigurationProperties.WriteBehindProperties;
+import de.codecentric.batch.logging.JobLogPath;
+import de.codecentric.batch.metrics.RepositoryMetricsInterceptor;
+import de.codecentric.batch.repository.BinaryExecutionContextSerializer;
+import de.codecentric.batch.repository.CachingJobExplorer;
+import de.codecentric.batch.repository.CoalescingJobRepository;
+import de.codecentric.batch.repository.InMemoryJobStore;
+import de.codecentric.batch.repository.JdbcJobExecutionReader;
+import de.codecentric.batch.repository.JournalingJobStore;
+import de.codecentric.batch.repository.RoutingJobExplorer;
+
 /**
  * This batch infrastructure configuration is quite similar to the
  * {@link org.springframework.batch.core.configuration.annotation.DefaultBatchConfigurer}, it only references a
@@ -73,9 +100,19 @@ public class TaskExecutorBatchConfiguration implements BatchConfigurer {
 
 	private JobExplorer jobExplorer;
 
+	private JobExplorer monitoringJobExplorer;
+
 	@Autowired(required = false)
 	private ExecutionContextSerializer serializer;
 
+	private JournalingJobStore journalingJobStore;
+
+	// Created by MetricsConfiguration if the phases of the steps are profiled.
+	@Autowired
+	private ObjectProvider<RepositoryMetricsInterceptor> repositoryMetricsInterceptor;
+
+	private DataSource readDataSource;
+
 	@Autowired
 	public void setDataSource(DataSource dataSource) {
 		this.dataSource = dataSource;
@@ -101,6 +138,33 @@ public class TaskExecutorBatchConfiguration implements BatchConfigurer {
 		return jobExplorer;
 	}
 
+	/**
+	 * The JobExplorer for the monitoring endpoint and the status of the operations endpoint, which caches finished job
+	 * executions if batch.repository.explorer-cache.enabled is set and reads them from the replica if
+	 * batch.repository.read-datasource.url is set. It isn't exposed as the JobExplorer of the application, because
+	 * launching the next job instance and the operations endpoint have to see the latest state of the primary, and the
+	 * JobOperator modifies the job executions it reads.
+	 */
+	public JobExplorer getMonitoringJobExplorer() {
+		return monitoringJobExplorer != null ? monitoringJobExplorer : jobExplorer;
+	}
+
+	/**
+	 * Reads job executions for the monitoring endpoint without loading all ExecutionContexts at once, null if the batch
+	 * meta data isn't stored in a DataSource.
+	 */
+	@Bean
+	public JdbcJobExecutionReader jdbcJobExecutionReader() {
+		if (dataSource == null || batchConfig.getRepository().getInMemory().isEnabled()
+				|| batchConfig.getRepository().getJournal().isEnabled()) {
+			return null;
+		}
+		String tablePrefix = batchConfig.getRepository().getTablePrefix();
+		return new JdbcJobExecutionReader(dataSource, readDataSource,
+				tablePrefix != null ? tablePrefix : AbstractJdbcBatchMetadataDao.DEFAULT_TABLE_PREFIX,
+				serializer != null ? serializer : new Jackson2ExecutionContextStringSerializer());
+	}
+
 	private JobLauncher createJobLauncher() throws Exception {
 		SimpleJobLauncher simpleJobLauncher = new SimpleJobLauncher();
 		simpleJobLauncher.setJobRepository(jobRepository);
@@ -123,12 +187,45 @@ public class TaskExecutorBatchConfiguration implements BatchConfigurer {
 			factory.setTablePrefix(tablePrefix);
 		}
 		factory.afterPropertiesSet();
+		WriteBehindProperties writeBehind = batchConfig.getRepository().getWriteBehind();
+		if (writeBehind.isEnabled()) {
+			return new CoalescingJobRepository(factory.getObject(), writeBehind.getCommits(),
+					writeBehind.getInterval());
+		}
 		return factory.getObject();
 	}
 
 	@PostConstruct
 	public void initialize() throws Exception {
-		if (dataSource == null) {
+		if (serializer == null && batchConfig.getRepository().getSerializer() == SerializerType.BINARY) {
+			serializer = new BinaryExecutionContextSerializer(
+					(int) batchConfig.getRepository().getCompressionThreshold().toBytes());
+		}
+		InMemoryProperties inMemory = batchConfig.getRepository().getInMemory();
+		JournalProperties journal = batchConfig.getRepository().getJournal();
+		if (inMemory.isEnabled() || journal.isEnabled()) {
+			LOGGER.info("Using an in-memory JobRepository");
+
+			// the steps may still write to the DataSource
+			if (this.transactionManager == null) {
+				this.transactionManager = dataSource != null ? new DataSourceTransactionManager(dataSource)
+						: new ResourcelessTransactionManager();
+			}
+
+			InMemoryJobStore jobStore;
+			if (journal.isEnabled()) {
+				String path = journal.getPath() != null ? journal.getPath()
+						: Paths.get(JobLogPath.resolve(), "repository").toString();
+				jobStore = new JournalingJobStore(inMemory.getMaxFinishedExecutions(), Paths.get(path),
+						serializer != null ? serializer : new Jackson2ExecutionContextStringSerializer(),
+						journal.getCompactionThreshold().toBytes(), journal.isSync());
+				this.journalingJobStore = (JournalingJobStore) jobStore;
+			} else {
+				jobStore = new InMemoryJobStore(inMemory.getMaxFinishedExecutions());
+			}
+			this.jobRepository = jobStore.getJobRepository();
+			this.jobExplorer = jobStore.getJobExplorer();
+		} else if (dataSource == null) {
 			LOGGER.warn("No datasource was provided...using a Map based JobRepository");
 
 			if (this.transactionManager == null) {
@@ -149,18 +246,64 @@ public class TaskExecutorBatchConfiguration implements BatchConfigurer {
 
 			this.jobRepository = createJobRepository();
 
-			JobExplorerFactoryBean jobExplorerFactoryBean = new JobExplorerFactoryBean();
-			jobExplorerFactoryBean.setDataSource(this.dataSource);
-			jobExplorerFactoryBean.setSerializer(serializer);
-			String tablePrefix = batchConfig.getRepository().getTablePrefix();
-			if (tablePrefix != null) {
-				jobExplorerFactoryBean.setTablePrefix(tablePrefix);
+			this.jobExplorer = createJobExplorer(this.dataSource);
+			JobExplorer monitoringJobExplorer = this.jobExplorer;
+			ReadDataSourceProperties readDatasource = batchConfig.getRepository().getReadDatasource();
+			if (readDatasource.getUrl() != null) {
+				DataSourceBuilder<?> readDataSourceBuilder = DataSourceBuilder.create().url(readDatasource.getUrl())
+						.username(readDatasource.getUsername()).password(readDatasource.getPassword());
+				if (readDatasource.getDriverClassName() != null) {
+					readDataSourceBuilder.driverClassName(readDatasource.getDriverClassName());
+				}
+				this.readDataSource = readDataSourceBuilder.build();
+				monitoringJobExplorer = new RoutingJobExplorer(this.jobExplorer, createJobExplorer(readDataSource));
 			}
-			jobExplorerFactoryBean.afterPropertiesSet();
-			this.jobExplorer = jobExplorerFactoryBean.getObject();
+			this.monitoringJobExplorer = cache(monitoringJobExplorer);
+		}
+
+		RepositoryMetricsInterceptor interceptor = repositoryMetricsInterceptor.getIfAvailable();
+		if (interceptor != null) {
+			ProxyFactory proxyFactory = new ProxyFactory();
+			proxyFactory.setTarget(this.jobRepository);
+			proxyFactory.addInterface(JobRepository.class);
+			proxyFactory.addAdvice(interceptor);
+			this.jobRepository = (JobRepository) proxyFactory.getProxy();
 		}
 
 		this.jobLauncher = createJobLauncher();
 	}
 
+	private JobExplorer cache(JobExplorer jobExplorer) {
+		ExplorerCacheProperties explorerCache = batchConfig.getRepository().getExplorerCache();
+		if (!explorerCache.isEnabled()) {
+			return jobExplorer;
+		}
+		String tablePrefix = batchConfig.getRepository().getTablePrefix();
+		return new CachingJobExplorer(jobExplorer, dataSource,
+				tablePrefix != null ? tablePrefix : AbstractJdbcBatchMetadataDao.DEFAULT_TABLE_PREFIX,
+				explorerCache.getMaxSize(), explorerCache.getTimeToLive());
+	}
+
+	private JobExplorer createJobExplorer(DataSource dataSource) throws Exception {
+		JobExplorerFactoryBean jobExplorerFactoryBean = new JobExplorerFactoryBean();
+		jobExplorerFactoryBean.setDataSource(dataSource);
+		jobExplorerFactoryBean.setSerializer(serializer);
+		String tablePrefix = batchConfig.getRepository().getTablePrefix();
+		if (tablePrefix != null) {
+			jobExplorerFactoryBean.setTablePrefix(tablePrefix);
+		}
+		jobExplorerFactoryBean.afterPropertiesSet();
+		return jobExplorerFactoryBean.getObject();
+	}
+
+	@PreDestroy
+	public void close() throws IOException {
+		if (journalingJobStore != null) {
+			journalingJobStore.close();
+		}
+		if (readDataSource instanceof Closeable) {
+			((Closeable) readDataSource).close();
+		}
+	}
+
 }
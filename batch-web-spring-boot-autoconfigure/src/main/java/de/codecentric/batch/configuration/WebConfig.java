@@ -18,6 +18,7 @@ package de.codecentric.batch.configuration;
 
 import java.util.List;
 
+import de.codecentric.batch.monitoring.ProtocolStore;
 import de.codecentric.batch.monitoring.RunningExecutionTracker;
 import org.springframework.batch.core.StepExecution;
 import org.springframework.batch.core.configuration.JobRegistry;
@@ -26,6 +27,7 @@ import org.springframework.batch.core.jsr.launch.JsrJobOperator;
 import org.springframework.batch.core.launch.JobLauncher;
 import org.springframework.batch.core.launch.JobOperator;
 import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -33,6 +35,11 @@ import org.springframework.http.converter.HttpMessageConverter;
 import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import de.codecentric.batch.repository.CachingJobExplorer;
+import de.codecentric.batch.repository.JdbcJobExecutionReader;
+import de.codecentric.batch.web.JobExecutionJsonWriter;
 import de.codecentric.batch.web.JobMonitoringController;
 import de.codecentric.batch.web.JobOperationsController;
 
@@ -66,6 +73,20 @@ public class WebConfig implements WebMvcConfigurer {
     @Autowired(required = false)
     private JsrJobOperator jsrJobOperator;
 
+    @Autowired(required = false)
+    private ProtocolStore protocolStore;
+
+    @Autowired(required = false)
+    private JdbcJobExecutionReader jobExecutionReader;
+
+    // Caches finished job executions and reads from the replica if there is one, only the monitoring endpoint and the
+    // status of the operations endpoint use it.
+    @Autowired
+    private ObjectProvider<TaskExecutorBatchConfiguration> batchConfiguration;
+
+    @Autowired
+    private ObjectProvider<ObjectMapper> objectMapper;
+
     @Override
     public void configureMessageConverters(List<HttpMessageConverter<?>> converters) {
         for (HttpMessageConverter<?> httpMessageConverter : converters) {
@@ -78,12 +99,28 @@ public class WebConfig implements WebMvcConfigurer {
 
     @Bean
     public JobMonitoringController jobMonitoringController() {
-        return new JobMonitoringController(jobOperator, jobExplorer, runningExecutionTracker);
+        TaskExecutorBatchConfiguration taskExecutorBatchConfiguration = batchConfiguration.getIfAvailable();
+        JobExplorer monitoringJobExplorer = taskExecutorBatchConfiguration != null
+                ? taskExecutorBatchConfiguration.getMonitoringJobExplorer() : jobExplorer;
+        JobMonitoringController jobMonitoringController = new JobMonitoringController(jobOperator,
+                monitoringJobExplorer, runningExecutionTracker, protocolStore);
+        jobMonitoringController.setJobExecutionReader(jobExecutionReader);
+        jobMonitoringController.setJobExecutionJsonWriter(
+                new JobExecutionJsonWriter(objectMapper.getIfAvailable(ObjectMapper::new)));
+        return jobMonitoringController;
     }
 
     @Bean
     public JobOperationsController jobOperationsController() {
-        return new JobOperationsController(jobOperator, jobExplorer, jobRegistry, jobRepository, jobLauncher, jsrJobOperator);
+        JobOperationsController jobOperationsController = new JobOperationsController(jobOperator, jobExplorer,
+                jobRegistry, jobRepository, jobLauncher, jsrJobOperator);
+        TaskExecutorBatchConfiguration taskExecutorBatchConfiguration = batchConfiguration.getIfAvailable();
+        if (taskExecutorBatchConfiguration != null
+                && taskExecutorBatchConfiguration.getMonitoringJobExplorer() instanceof CachingJobExplorer) {
+            jobOperationsController.setStatusJobExplorer(
+                    (CachingJobExplorer) taskExecutorBatchConfiguration.getMonitoringJobExplorer());
+        }
+        return jobOperationsController;
     }
 
 }
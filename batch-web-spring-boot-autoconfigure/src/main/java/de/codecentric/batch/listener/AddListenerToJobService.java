@@ -15,20 +15,55 @@
  */
 package de.codecentric.batch.listener;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.WeakHashMap;
 
+import org.springframework.batch.core.ChunkListener;
 import org.springframework.batch.core.JobExecutionListener;
+import org.springframework.batch.core.Step;
 import org.springframework.batch.core.StepExecutionListener;
 import org.springframework.batch.core.job.AbstractJob;
+import org.springframework.batch.core.job.flow.Flow;
+import org.springframework.batch.core.job.flow.FlowHolder;
+import org.springframework.batch.core.job.flow.FlowStep;
+import org.springframework.batch.core.job.flow.State;
+import org.springframework.batch.core.partition.support.PartitionStep;
 import org.springframework.batch.core.step.AbstractStep;
+import org.springframework.batch.core.step.StepHolder;
+import org.springframework.batch.core.step.StepLocator;
+import org.springframework.batch.core.step.item.ChunkOrientedTasklet;
+import org.springframework.batch.core.step.tasklet.Tasklet;
+import org.springframework.batch.core.step.tasklet.TaskletStep;
+import org.springframework.batch.item.ItemProcessor;
+import org.springframework.batch.item.ItemReader;
+import org.springframework.batch.item.ItemWriter;
+import org.springframework.beans.PropertyAccessor;
+import org.springframework.beans.PropertyAccessorFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.AnnotationAwareOrderComparator;
+import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.core.annotation.Order;
 
+import de.codecentric.batch.configuration.ItemDecorator;
 import de.codecentric.batch.configuration.ListenerProvider;
 
 /**
  * This service adds listeners to jobs. Listeners provided by beans implementing ListenerProvider are added
  * automatically.
  * 
+ * The listeners are resolved once, on the first job, into a listener plan, so adding them to a job, which happens on
+ * every start of a JSR-352 job, doesn't call the ListenerProviders again. Listeners are registered in the order of the
+ * ListenerProviders, Spring Batch itself runs the {@link Ordered} and {@link Order} ones first. Step listeners are added
+ * to all steps of the job including the steps nested in flow steps and the worker steps of partition steps, chunk
+ * listeners to all of those steps that are tasklet steps. The readers, processors and writers of the chunk oriented
+ * steps are replaced by their {@link ItemDecorator}s. Each step is handled only once, so steps shared by jobs are
+ * neither decorated twice nor walked again.
+ * 
  * @author Tobias Flohre
  */
 public class AddListenerToJobService {
@@ -51,6 +86,13 @@ public class AddListenerToJobService {
 
 	private LoggingAfterJobListener loggingAfterJobListener;
 
+	private volatile ListenerPlan listenerPlan;
+
+	/**
+	 * The steps the listeners have been added to, weakly referenced because JSR-352 jobs get new steps on every start.
+	 */
+	private final Set<Step> handledSteps = Collections.synchronizedSet(Collections.newSetFromMap(new WeakHashMap<>()));
+
 	public AddListenerToJobService(boolean addProtocolListener, boolean addLoggingListener,
 			ProtocolListener protocolListener, RunningExecutionTrackerListener runningExecutionTrackerListener,
 			LoggingListener loggingListener, LoggingAfterJobListener loggingAfterJobListener) {
@@ -63,36 +105,224 @@ public class AddListenerToJobService {
 		this.loggingAfterJobListener = loggingAfterJobListener;
 	}
 
+	/**
+	 * Adds the listeners of the cached plan to the job and those of its steps that haven't been handled yet. The
+	 * JSR-352 operator creates a new job with new steps for every launch, while other jobs are passed here only once
+	 * when they are registered.
+	 */
 	public void addListenerToJob(AbstractJob job) {
+		ListenerPlan plan = getListenerPlan();
+		for (JobExecutionListener jobExecutionListener : plan.jobExecutionListeners) {
+			job.registerJobExecutionListener(jobExecutionListener);
+		}
+		if (plan.stepExecutionListeners.length == 0 && plan.chunkListeners.length == 0
+				&& plan.itemDecorators.length == 0) {
+			return;
+		}
+		for (String stepName : job.getStepNames()) {
+			addListenerToStep(job.getName(), job.getStep(stepName), plan);
+		}
+	}
+
+	private void addListenerToStep(String jobName, Step step, ListenerPlan plan) {
+		if (step == null || !handledSteps.add(step)) {
+			return;
+		}
+		if (step instanceof AbstractStep) {
+			for (StepExecutionListener stepExecutionListener : plan.stepExecutionListeners) {
+				((AbstractStep) step).registerStepExecutionListener(stepExecutionListener);
+			}
+		}
+		if (step instanceof TaskletStep) {
+			for (ChunkListener chunkListener : plan.chunkListeners) {
+				((TaskletStep) step).registerChunkListener(chunkListener);
+			}
+			if (plan.itemDecorators.length > 0) {
+				decorateItems(jobName, (TaskletStep) step, plan);
+			}
+		}
+		if (step instanceof FlowStep) {
+			Object flow = PropertyAccessorFactory.forDirectFieldAccess(step).getPropertyValue("flow");
+			if (flow instanceof Flow) {
+				addListenerToFlow(jobName, (Flow) flow, plan);
+			}
+		} else if (step instanceof PartitionStep) {
+			Object partitionHandler = PropertyAccessorFactory.forDirectFieldAccess(step)
+					.getPropertyValue("partitionHandler");
+			addListenerToStep(jobName, getWorkerStep(partitionHandler), plan);
+		}
+	}
+
+	private void addListenerToFlow(String jobName, Flow flow, ListenerPlan plan) {
+		for (State state : flow.getStates()) {
+			if (state instanceof StepLocator) {
+				StepLocator stepLocator = (StepLocator) state;
+				for (String stepName : stepLocator.getStepNames()) {
+					addListenerToStep(jobName, stepLocator.getStep(stepName), plan);
+				}
+			} else if (state instanceof StepHolder) {
+				addListenerToStep(jobName, ((StepHolder) state).getStep(), plan);
+			} else if (state instanceof FlowHolder) {
+				for (Flow subflow : ((FlowHolder) state).getFlows()) {
+					addListenerToFlow(jobName, subflow, plan);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Replaces the reader, processor and writer in the chunk provider and chunk processor of a chunk oriented step by
+	 * their decorators. The chunk provider and processor of Spring Batch and of JSR-352 keep them in fields with the same
+	 * names but have no setters for all of them.
+	 */
+	private void decorateItems(String jobName, TaskletStep step, ListenerPlan plan) {
+		Tasklet tasklet = step.getTasklet();
+		if (!(tasklet instanceof ChunkOrientedTasklet)) {
+			return;
+		}
+		PropertyAccessor taskletAccessor = PropertyAccessorFactory.forDirectFieldAccess(tasklet);
+		for (String chunkHandler : new String[] { "chunkProvider", "chunkProcessor" }) {
+			Object handler = taskletAccessor.getPropertyValue(chunkHandler);
+			if (handler == null) {
+				continue;
+			}
+			PropertyAccessor accessor = PropertyAccessorFactory.forDirectFieldAccess(handler);
+			String stepName = step.getName();
+			ItemReader<?> reader = getItem(accessor, "itemReader");
+			if (reader != null) {
+				for (ItemDecorator itemDecorator : plan.itemDecorators) {
+					reader = itemDecorator.decorateReader(reader, jobName, stepName);
+				}
+				accessor.setPropertyValue("itemReader", reader);
+			}
+			ItemProcessor<?, ?> processor = getItem(accessor, "itemProcessor");
+			if (processor != null) {
+				for (ItemDecorator itemDecorator : plan.itemDecorators) {
+					processor = itemDecorator.decorateProcessor(processor, jobName, stepName);
+				}
+				accessor.setPropertyValue("itemProcessor", processor);
+			}
+			ItemWriter<?> writer = getItem(accessor, "itemWriter");
+			if (writer != null) {
+				for (ItemDecorator itemDecorator : plan.itemDecorators) {
+					writer = itemDecorator.decorateWriter(writer, jobName, stepName);
+				}
+				accessor.setPropertyValue("itemWriter", writer);
+			}
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T> T getItem(PropertyAccessor accessor, String field) {
+		return accessor.isReadableProperty(field) ? (T) accessor.getPropertyValue(field) : null;
+	}
+
+	/**
+	 * The worker step of the TaskExecutorPartitionHandler and the JSR-352 partition handler. Remote partition handlers
+	 * don't have one, their steps are defined where they are executed.
+	 */
+	private Step getWorkerStep(Object partitionHandler) {
+		if (partitionHandler instanceof StepHolder) {
+			return ((StepHolder) partitionHandler).getStep();
+		}
+		if (partitionHandler != null) {
+			PropertyAccessor propertyAccessor = PropertyAccessorFactory.forDirectFieldAccess(partitionHandler);
+			if (propertyAccessor.isReadableProperty("step")) {
+				Object step = propertyAccessor.getPropertyValue("step");
+				return step instanceof Step ? (Step) step : null;
+			}
+		}
+		return null;
+	}
+
+	private ListenerPlan getListenerPlan() {
+		ListenerPlan plan = listenerPlan;
+		if (plan == null) {
+			synchronized (this) {
+				plan = listenerPlan;
+				if (plan == null) {
+					plan = createListenerPlan();
+					listenerPlan = plan;
+				}
+			}
+		}
+		return plan;
+	}
+
+	private ListenerPlan createListenerPlan() {
+		Set<JobExecutionListener> jobExecutionListeners = new LinkedHashSet<>();
+		Set<StepExecutionListener> stepExecutionListeners = new LinkedHashSet<>();
+		Set<ChunkListener> chunkListeners = new LinkedHashSet<>();
+		Set<ItemDecorator> itemDecorators = new LinkedHashSet<>();
 		if (addProtocolListener) {
-			job.registerJobExecutionListener(protocolListener);
+			jobExecutionListeners.add(protocolListener);
 		}
-		job.registerJobExecutionListener(runningExecutionTrackerListener);
+		jobExecutionListeners.add(runningExecutionTrackerListener);
 		if (addLoggingListener) {
-			job.registerJobExecutionListener(loggingListener);
-			job.registerJobExecutionListener(loggingAfterJobListener);
-			for (String stepName : job.getStepNames()) {
-				AbstractStep step = (AbstractStep) job.getStep(stepName);
-				step.registerStepExecutionListener(loggingListener);
-			}
+			jobExecutionListeners.add(loggingListener);
+			jobExecutionListeners.add(loggingAfterJobListener);
+			stepExecutionListeners.add(loggingListener);
 		}
 		if (listenerProviders != null) {
 			for (ListenerProvider listenerProvider : listenerProviders) {
-				for (JobExecutionListener jobExecutionListener : listenerProvider.jobExecutionListeners()) {
-					job.registerJobExecutionListener(jobExecutionListener);
-				}
-				for (StepExecutionListener stepExecutionListener : listenerProvider.stepExecutionListeners()) {
-					for (String stepName : job.getStepNames()) {
-						AbstractStep step = (AbstractStep) job.getStep(stepName);
-						step.registerStepExecutionListener(stepExecutionListener);
-					}
-				}
+				jobExecutionListeners.addAll(listenerProvider.jobExecutionListeners());
+				stepExecutionListeners.addAll(listenerProvider.stepExecutionListeners());
+				chunkListeners.addAll(listenerProvider.chunkListeners());
+				itemDecorators.addAll(listenerProvider.itemDecorators());
 			}
 		}
+		return new ListenerPlan(jobExecutionListeners.toArray(new JobExecutionListener[0]),
+				stepExecutionListeners.toArray(new StepExecutionListener[0]),
+				chunkListeners.toArray(new ChunkListener[0]), order(itemDecorators).toArray(new ItemDecorator[0]));
+	}
+
+	/**
+	 * Orders the decorators the way Spring Batch orders listeners: the ordered ones first, sorted by their order, then
+	 * the others in the order they were provided.
+	 */
+	private static <T> List<T> order(Set<T> decorators) {
+		List<T> ordered = new ArrayList<>();
+		List<T> unordered = new ArrayList<>();
+		for (T decorator : decorators) {
+			if (decorator instanceof Ordered
+					|| AnnotationUtils.isAnnotationDeclaredLocally(Order.class, decorator.getClass())) {
+				ordered.add(decorator);
+			} else {
+				unordered.add(decorator);
+			}
+		}
+		AnnotationAwareOrderComparator.sort(ordered);
+		ordered.addAll(unordered);
+		return ordered;
 	}
 
 	public void setListenerProviders(Set<ListenerProvider> listenerProviders) {
 		this.listenerProviders = listenerProviders;
+		this.listenerPlan = null;
+	}
+
+	/**
+	 * The listeners added to each job and each of its steps, in the order they are registered.
+	 */
+	private static final class ListenerPlan {
+
+		private final JobExecutionListener[] jobExecutionListeners;
+
+		private final StepExecutionListener[] stepExecutionListeners;
+
+		private final ChunkListener[] chunkListeners;
+
+		private final ItemDecorator[] itemDecorators;
+
+		private ListenerPlan(JobExecutionListener[] jobExecutionListeners,
+				StepExecutionListener[] stepExecutionListeners, ChunkListener[] chunkListeners,
+				ItemDecorator[] itemDecorators) {
+			this.jobExecutionListeners = jobExecutionListeners;
+			this.stepExecutionListeners = stepExecutionListeners;
+			this.chunkListeners = chunkListeners;
+			this.itemDecorators = itemDecorators;
+		}
+
 	}
 
-}
\ No newline at end of file
+}
@@ -3,26 +3,43 @@ package de.codecentric.batch.listener;
 import java.io.File;
 
 import org.apache.commons.lang3.StringUtils;
-import org.springframework.boot.context.event.ApplicationPreparedEvent;
+import org.springframework.boot.context.event.ApplicationEnvironmentPreparedEvent;
 import org.springframework.context.ApplicationListener;
 import org.springframework.core.Ordered;
+import org.springframework.core.env.Environment;
 
 /**
- * This ApplicationListener makes the batch.joblog.path available before the LoggingSystem is started.
+ * This ApplicationListener makes the batch.joblog.path available before the LoggingSystem is started. The same goes
+ * for batch.joblog.queue-size, batch.joblog.overflow-policy, batch.joblog.compression and batch.joblog.max-block-size,
+ * which configure the {@link de.codecentric.batch.logging.AsyncJobLogAppender} as JOB_LOG_QUEUE_SIZE,
+ * JOB_LOG_OVERFLOW_POLICY, JOB_LOG_COMPRESSION and JOB_LOG_MAX_BLOCK_SIZE.
  *
  * @author Johannes Stelzer
  */
-public class JobLoggingApplicationListener implements ApplicationListener<ApplicationPreparedEvent>, Ordered {
+public class JobLoggingApplicationListener implements ApplicationListener<ApplicationEnvironmentPreparedEvent>, Ordered {
 
 	@Override
-	public void onApplicationEvent(ApplicationPreparedEvent event) {
-		String jobLogPath = event.getApplicationContext().getEnvironment().getProperty("batch.joblog.path");
+	public void onApplicationEvent(ApplicationEnvironmentPreparedEvent event) {
+		Environment environment = event.getEnvironment();
+		String jobLogPath = environment.getProperty("batch.joblog.path");
 		if (!StringUtils.isEmpty(jobLogPath)) {
 			if (!jobLogPath.endsWith(File.separator)) {
 				jobLogPath = jobLogPath + File.separator;
 			}
 			System.setProperty("JOB_LOG_PATH", jobLogPath);
 		}
+		setSystemProperty(environment, "batch.joblog.queue-size", "JOB_LOG_QUEUE_SIZE");
+		setSystemProperty(environment, "batch.joblog.overflow-policy", "JOB_LOG_OVERFLOW_POLICY");
+		setSystemProperty(environment, "batch.joblog.compression", "JOB_LOG_COMPRESSION");
+		setSystemProperty(environment, "batch.joblog.max-block-size", "JOB_LOG_MAX_BLOCK_SIZE");
+	}
+
+	private void setSystemProperty(Environment environment, String property, String systemProperty) {
+		String value = environment.getProperty(property);
+		if (!StringUtils.isEmpty(value)) {
+			// Enum values are case sensitive in the logback configuration
+			System.setProperty(systemProperty, value.trim().toUpperCase());
+		}
 	}
 
 	@Override
@@ -24,7 +24,9 @@ import org.springframework.batch.core.StepExecution;
 import org.springframework.batch.core.StepExecutionListener;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.Ordered;
+import org.springframework.util.ClassUtils;
 
+import de.codecentric.batch.logging.AsyncJobLogAppender;
 import de.codecentric.batch.logging.DefaultJobLogFileNameCreator;
 import de.codecentric.batch.logging.JobLogFileNameCreator;
 
@@ -39,6 +41,12 @@ import de.codecentric.batch.logging.JobLogFileNameCreator;
  * The log file name is determined by a {@link JobLogFileNameCreator}. It's default implementation
  * {@link DefaultJobLogFileNameCreator} is used when there's no other bean of this type in the ApplicationContext.
  * 
+ * The name of the step is written to the MDC as well, it is used for the index of compressed job logs.
+ * 
+ * Being the first listener, its afterJob method is the last one called, so it closes the job log of an
+ * {@link AsyncJobLogAppender} there, which writes all log events of the job execution to the file before the job ends.
+ * A protocol summary logged asynchronously by the {@link ProtocolListener} is waited for before.
+ * 
  * @author Tobias Flohre
  *
  */
@@ -46,8 +54,15 @@ public class LoggingListener implements JobExecutionListener, StepExecutionListe
 
 	private JobLogFileNameCreator jobLogFileNameCreator = new DefaultJobLogFileNameCreator();
 
+	private ProtocolListener protocolListener;
+
 	public static final String JOBLOG_FILENAME = "jobLogFileName";
 
+	public static final String JOBLOG_STEPNAME = "jobLogStepName";
+
+	private static final boolean LOGBACK_PRESENT = ClassUtils.isPresent("ch.qos.logback.classic.LoggerContext",
+			LoggingListener.class.getClassLoader());
+
 	@Override
 	public void beforeJob(JobExecution jobExecution) {
 		insertValuesIntoMDC(jobExecution);
@@ -60,15 +75,23 @@ public class LoggingListener implements JobExecutionListener, StepExecutionListe
 	@Override
 	public void afterJob(JobExecution jobExecution) {
 		removeValuesFromMDC();
+		if (protocolListener != null) {
+			protocolListener.awaitSummary(jobExecution);
+		}
+		if (LOGBACK_PRESENT) {
+			AsyncJobLogAppender.closeJobLog(jobLogFileNameCreator.getBaseName(jobExecution));
+		}
 	}
 
 	private void removeValuesFromMDC() {
 		MDC.remove(JOBLOG_FILENAME);
+		MDC.remove(JOBLOG_STEPNAME);
 	}
 
 	@Override
 	public void beforeStep(StepExecution stepExecution) {
 		insertValuesIntoMDC(stepExecution.getJobExecution());
+		MDC.put(JOBLOG_STEPNAME, stepExecution.getStepName());
 	}
 
 	@Override
@@ -87,4 +110,9 @@ public class LoggingListener implements JobExecutionListener, StepExecutionListe
 		this.jobLogFileNameCreator = jobLogFileNameCreator;
 	}
 
+	@Autowired(required = false)
+	public void setProtocolListener(ProtocolListener protocolListener) {
+		this.protocolListener = protocolListener;
+	}
+
 }
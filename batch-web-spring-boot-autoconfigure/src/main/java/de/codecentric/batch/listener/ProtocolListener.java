@@ -16,87 +16,117 @@
 
 package de.codecentric.batch.listener;
 
-import java.util.Iterator;
-import java.util.Map.Entry;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
-import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
 import org.springframework.batch.core.JobExecution;
 import org.springframework.batch.core.JobExecutionListener;
-import org.springframework.batch.core.JobParameter;
-import org.springframework.batch.core.JobParameters;
-import org.springframework.batch.core.StepExecution;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.core.Ordered;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 
 /**
- * This listener adds a protocol header and a protocol summary to the log.
+ * This listener adds a protocol header and a protocol summary to the log. The protocol is rendered by a
+ * {@link ProtocolWriter}, which bounds its size and renders text or JSON.
+ * 
+ * With {@link #setAsync(boolean)} the summary is rendered and logged by a separate thread instead of the job thread,
+ * with the MDC of the job thread so that it still ends up in the job's log file. The {@link LoggingListener} waits for
+ * the summary with {@link #awaitSummary(JobExecution)} before it closes the job log. When that thread falls behind by
+ * more than 100 protocols, the job thread renders its protocol itself.
  * 
  * @author Tobias Flohre
  * @author Dennis Schulte
  * 
  */
-public class ProtocolListener implements JobExecutionListener, Ordered {
-
-	private static final int DEFAULT_WIDTH = 80;
+public class ProtocolListener implements JobExecutionListener, Ordered, DisposableBean {
 
 	private static final Logger LOGGER = LoggerFactory.getLogger(ProtocolListener.class);
 
+	private static final int ASYNC_QUEUE_SIZE = 100;
+
+	private static final long AWAIT_TIMEOUT_SECONDS = 10;
+
+	private final ProtocolWriter protocolWriter;
+
+	private volatile ThreadPoolExecutor executor;
+
+	private final Map<Long, CompletableFuture<Void>> pendingSummaries = new ConcurrentHashMap<>();
+
+	public ProtocolListener() {
+		this(new ProtocolWriter());
+	}
+
+	public ProtocolListener(ProtocolWriter protocolWriter) {
+		this.protocolWriter = protocolWriter;
+	}
+
 	@Override
 	public void afterJob(JobExecution jobExecution) {
-		StringBuilder protocol = new StringBuilder();
-		protocol.append("\n");
-		protocol.append(createFilledLine('*'));
-		protocol.append(createFilledLine('-'));
-		protocol.append("Protocol for " + jobExecution.getJobInstance().getJobName() + " \n");
-		protocol.append("  Started:      " + jobExecution.getStartTime() + "\n");
-		protocol.append("  Finished:     " + jobExecution.getEndTime() + "\n");
-		protocol.append("  Exit-Code:    " + jobExecution.getExitStatus().getExitCode() + "\n");
-		protocol.append("  Exit-Descr:   " + jobExecution.getExitStatus().getExitDescription() + "\n");
-		protocol.append("  Status:       " + jobExecution.getStatus() + "\n");
-		protocol.append("  Content of Job-ExecutionContext:\n");
-		for (Entry<String, Object> entry : jobExecution.getExecutionContext().entrySet()) {
-			protocol.append("  " + entry.getKey() + "=" + entry.getValue() + "\n");
+		if (!LOGGER.isInfoEnabled()) {
+			return;
 		}
-		protocol.append("  Job-Parameter: \n");
-		JobParameters jp = jobExecution.getJobParameters();
-		for (Iterator<Entry<String, JobParameter>> iter = jp.getParameters().entrySet().iterator(); iter.hasNext();) {
-			Entry<String, JobParameter> entry = iter.next();
-			protocol.append("  " + entry.getKey() + "=" + entry.getValue() + "\n");
+		ThreadPoolExecutor executor = this.executor;
+		if (executor == null) {
+			LOGGER.info(protocolWriter.writeSummary(jobExecution));
+			return;
 		}
-		protocol.append(createFilledLine('-'));
-		for (StepExecution stepExecution : jobExecution.getStepExecutions()) {
-			protocol.append("Step " + stepExecution.getStepName() + " \n");
-			protocol.append("  ReadCount:    " + stepExecution.getReadCount() + "\n");
-			protocol.append("  WriteCount:   " + stepExecution.getWriteCount() + "\n");
-			protocol.append("  Commits:      " + stepExecution.getCommitCount() + "\n");
-			protocol.append("  SkipCount:    " + stepExecution.getSkipCount() + "\n");
-			protocol.append("  Rollbacks:    " + stepExecution.getRollbackCount() + "\n");
-			protocol.append("  Filter:       " + stepExecution.getFilterCount() + "\n");
-			protocol.append("  Content of Step-ExecutionContext:\n");
-			for (Entry<String, Object> entry : stepExecution.getExecutionContext().entrySet()) {
-				protocol.append("  " + entry.getKey() + "=" + entry.getValue() + "\n");
+		Map<String, String> contextMap = MDC.getCopyOfContextMap();
+		CompletableFuture<Void> written = new CompletableFuture<>();
+		pendingSummaries.put(jobExecution.getId(), written);
+		executor.execute(() -> {
+			Map<String, String> previousContextMap = MDC.getCopyOfContextMap();
+			setContextMap(contextMap);
+			try {
+				LOGGER.info(protocolWriter.writeSummary(jobExecution));
+			} finally {
+				setContextMap(previousContextMap);
+				pendingSummaries.remove(jobExecution.getId(), written);
+				written.complete(null);
 			}
-			protocol.append(createFilledLine('-'));
+		});
+	}
+
+	/**
+	 * Waits until the summary of the job execution has been logged by the asynchronous thread, at most ten seconds.
+	 * Returns immediately if the summary is logged synchronously or has already been logged.
+	 */
+	public void awaitSummary(JobExecution jobExecution) {
+		CompletableFuture<Void> written = pendingSummaries.get(jobExecution.getId());
+		if (written == null) {
+			return;
+		}
+		try {
+			written.get(AWAIT_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException | TimeoutException e) {
+			LOGGER.warn("Protocol of job execution {} not written within {} seconds", jobExecution.getId(),
+					AWAIT_TIMEOUT_SECONDS);
+		}
+	}
+
+	private void setContextMap(Map<String, String> contextMap) {
+		if (contextMap != null) {
+			MDC.setContextMap(contextMap);
+		} else {
+			MDC.clear();
 		}
-		protocol.append(createFilledLine('*'));
-		LOGGER.info(protocol.toString());
 	}
 
 	@Override
 	public void beforeJob(JobExecution jobExecution) {
-		StringBuilder protocol = new StringBuilder();
-		protocol.append(createFilledLine('-'));
-		protocol.append("Job " + jobExecution.getJobInstance().getJobName() + " started with Job-Execution-Id "
-				+ jobExecution.getId() + " \n");
-		protocol.append("Job-Parameter: \n");
-		JobParameters jp = jobExecution.getJobParameters();
-		for (Iterator<Entry<String, JobParameter>> iter = jp.getParameters().entrySet().iterator(); iter.hasNext();) {
-			Entry<String, JobParameter> entry = iter.next();
-			protocol.append("  " + entry.getKey() + "=" + entry.getValue() + "\n");
+		if (LOGGER.isInfoEnabled()) {
+			LOGGER.info(protocolWriter.writeHeader(jobExecution));
 		}
-		protocol.append(createFilledLine('-'));
-		LOGGER.info(protocol.toString());
 	}
 
 	@Override
@@ -104,13 +134,39 @@ public class ProtocolListener implements JobExecutionListener, Ordered {
 		return Ordered.HIGHEST_PRECEDENCE + 10;
 	}
 
+	public ProtocolWriter getProtocolWriter() {
+		return protocolWriter;
+	}
+
+	public synchronized void setAsync(boolean async) {
+		if (async && executor == null) {
+			CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("protocol-writer-");
+			threadFactory.setDaemon(true);
+			executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+					new ArrayBlockingQueue<>(ASYNC_QUEUE_SIZE), threadFactory, new ThreadPoolExecutor.CallerRunsPolicy());
+		} else if (!async && executor != null) {
+			destroy();
+		}
+	}
+
+	public boolean isAsync() {
+		return executor != null;
+	}
+
 	/**
-	 * Create line with defined char
-	 * 
-	 * @param filler
+	 * Waits for the protocols not written yet.
 	 */
-	private String createFilledLine(char filler) {
-		return StringUtils.leftPad("", DEFAULT_WIDTH, filler) + "\n";
+	@Override
+	public synchronized void destroy() {
+		if (executor != null) {
+			executor.shutdown();
+			try {
+				executor.awaitTermination(AWAIT_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			executor = null;
+		}
 	}
 
 }
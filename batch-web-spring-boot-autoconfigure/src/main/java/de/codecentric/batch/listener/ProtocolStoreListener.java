@@ -0,0 +1,56 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.codecentric.batch.listener;
+
+import java.io.IOException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobExecutionListener;
+
+import de.codecentric.batch.monitoring.ProtocolStore;
+
+/**
+ * This listener appends the protocol of each finished job execution to the {@link ProtocolStore}. Failing to write the
+ * protocol doesn't fail the job.
+ */
+public class ProtocolStoreListener implements JobExecutionListener {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(ProtocolStoreListener.class);
+
+	private final ProtocolStore protocolStore;
+
+	public ProtocolStoreListener(ProtocolStore protocolStore) {
+		this.protocolStore = protocolStore;
+	}
+
+	@Override
+	public void beforeJob(JobExecution jobExecution) {
+	}
+
+	@Override
+	public void afterJob(JobExecution jobExecution) {
+		try {
+			protocolStore.write(jobExecution);
+		} catch (IOException | RuntimeException e) {
+			LOGGER.warn("Could not write protocol of job execution {} to {}", jobExecution.getId(),
+					protocolStore.getDirectory(), e);
+		}
+	}
+
+}
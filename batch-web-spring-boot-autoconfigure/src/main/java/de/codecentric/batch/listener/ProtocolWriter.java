@@ -0,0 +1,354 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.codecentric.batch.listener;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobParameter;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.item.ExecutionContext;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+/**
+ * Renders the protocol of a job execution as text or as a single line of JSON, streaming it into one buffer.
+ * <p>
+ * The output can be bounded: only the {@link #getMaxSteps()} most relevant step executions are rendered - unsuccessful
+ * ones first, then the longest running - with their status, and the others are summed up in one line. Of each
+ * ExecutionContext only the first {@link #getMaxContextEntries()} entries are rendered, and values are truncated to
+ * {@link #getMaxValueLength()} characters. A negative limit means no limit, which is the default.
+ */
+public class ProtocolWriter {
+
+	public enum Format {
+		TEXT, JSON
+	}
+
+	private static final String STAR_LINE = "********************************************************************************\n";
+
+	private static final String DASH_LINE = "--------------------------------------------------------------------------------\n";
+
+	private static final String TRUNCATED = "...";
+
+	private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+	/**
+	 * Unsuccessful step executions first, then the longest running.
+	 */
+	private static final Comparator<StepExecution> RELEVANCE = Comparator
+			.comparing((StepExecution stepExecution) -> stepExecution.getStatus() == BatchStatus.COMPLETED)
+			.thenComparing(Comparator.comparingLong(ProtocolWriter::duration).reversed());
+
+	private final Format format;
+
+	private final int maxSteps;
+
+	private final int maxContextEntries;
+
+	private final int maxValueLength;
+
+	public ProtocolWriter() {
+		this(Format.TEXT, -1, -1, -1);
+	}
+
+	public ProtocolWriter(Format format, int maxSteps, int maxContextEntries, int maxValueLength) {
+		this.format = format;
+		this.maxSteps = maxSteps;
+		this.maxContextEntries = maxContextEntries;
+		this.maxValueLength = maxValueLength;
+	}
+
+	/**
+	 * The protocol written when the job starts.
+	 */
+	public String writeHeader(JobExecution jobExecution) {
+		if (format == Format.JSON) {
+			return writeJson(jobExecution, false);
+		}
+		StringBuilder protocol = new StringBuilder(512);
+		protocol.append(DASH_LINE);
+		protocol.append("Job ").append(jobExecution.getJobInstance().getJobName())
+				.append(" started with Job-Execution-Id ").append(jobExecution.getId()).append(" \n");
+		protocol.append("Job-Parameter: \n");
+		appendParameters(protocol, jobExecution);
+		protocol.append(DASH_LINE);
+		return protocol.toString();
+	}
+
+	/**
+	 * The protocol written when the job has finished.
+	 */
+	public String writeSummary(JobExecution jobExecution) {
+		if (format == Format.JSON) {
+			return writeJson(jobExecution, true);
+		}
+		Collection<StepExecution> stepExecutions = jobExecution.getStepExecutions();
+		List<StepExecution> selectedSteps = selectSteps(stepExecutions);
+		StringBuilder protocol = new StringBuilder(1024 + selectedSteps.size() * 512);
+		protocol.append('\n');
+		protocol.append(STAR_LINE);
+		protocol.append(DASH_LINE);
+		protocol.append("Protocol for ").append(jobExecution.getJobInstance().getJobName()).append(" \n");
+		protocol.append("  Started:      ").append(jobExecution.getStartTime()).append('\n');
+		protocol.append("  Finished:     ").append(jobExecution.getEndTime()).append('\n');
+		protocol.append("  Exit-Code:    ").append(jobExecution.getExitStatus().getExitCode()).append('\n');
+		protocol.append("  Exit-Descr:   ").append(jobExecution.getExitStatus().getExitDescription()).append('\n');
+		protocol.append("  Status:       ").append(jobExecution.getStatus()).append('\n');
+		protocol.append("  Content of Job-ExecutionContext:\n");
+		appendExecutionContext(protocol, jobExecution.getExecutionContext());
+		protocol.append("  Job-Parameter: \n");
+		appendParameters(protocol, jobExecution);
+		protocol.append(DASH_LINE);
+		for (StepExecution stepExecution : selectedSteps) {
+			protocol.append("Step ").append(stepExecution.getStepName()).append(" \n");
+			if (maxSteps >= 0) {
+				protocol.append("  Status:       ").append(stepExecution.getStatus()).append('\n');
+			}
+			protocol.append("  ReadCount:    ").append(stepExecution.getReadCount()).append('\n');
+			protocol.append("  WriteCount:   ").append(stepExecution.getWriteCount()).append('\n');
+			protocol.append("  Commits:      ").append(stepExecution.getCommitCount()).append('\n');
+			protocol.append("  SkipCount:    ").append(stepExecution.getSkipCount()).append('\n');
+			protocol.append("  Rollbacks:    ").append(stepExecution.getRollbackCount()).append('\n');
+			protocol.append("  Filter:       ").append(stepExecution.getFilterCount()).append('\n');
+			protocol.append("  Content of Step-ExecutionContext:\n");
+			appendExecutionContext(protocol, stepExecution.getExecutionContext());
+			protocol.append(DASH_LINE);
+		}
+		if (selectedSteps.size() < stepExecutions.size()) {
+			OmittedSteps omittedSteps = new OmittedSteps(stepExecutions, selectedSteps);
+			protocol.append(omittedSteps.count).append(" more steps\n");
+			protocol.append("  ReadCount:    ").append(omittedSteps.readCount).append('\n');
+			protocol.append("  WriteCount:   ").append(omittedSteps.writeCount).append('\n');
+			protocol.append("  SkipCount:    ").append(omittedSteps.skipCount).append('\n');
+			protocol.append(DASH_LINE);
+		}
+		protocol.append(STAR_LINE);
+		return protocol.toString();
+	}
+
+	private void appendParameters(StringBuilder protocol, JobExecution jobExecution) {
+		for (Entry<String, JobParameter> entry : jobExecution.getJobParameters().getParameters().entrySet()) {
+			protocol.append("  ").append(entry.getKey()).append('=');
+			appendTruncated(protocol, String.valueOf(entry.getValue()));
+			protocol.append('\n');
+		}
+	}
+
+	private void appendExecutionContext(StringBuilder protocol, ExecutionContext executionContext) {
+		int entries = 0;
+		for (Entry<String, Object> entry : executionContext.entrySet()) {
+			if (maxContextEntries >= 0 && entries == maxContextEntries) {
+				protocol.append("  ... ").append(executionContext.size() - entries).append(" more entries\n");
+				return;
+			}
+			protocol.append("  ").append(entry.getKey()).append('=');
+			appendTruncated(protocol, String.valueOf(entry.getValue()));
+			protocol.append('\n');
+			entries++;
+		}
+	}
+
+	private void appendTruncated(StringBuilder protocol, String value) {
+		if (maxValueLength >= 0 && value.length() > maxValueLength) {
+			protocol.append(value, 0, maxValueLength).append(TRUNCATED);
+		} else {
+			protocol.append(value);
+		}
+	}
+
+	private String writeJson(JobExecution jobExecution, boolean summary) {
+		StringWriter writer = new StringWriter(summary ? 1024 : 256);
+		try (JsonGenerator json = JSON_FACTORY.createGenerator(writer)) {
+			json.writeStartObject();
+			json.writeStringField("event", summary ? "finished" : "started");
+			json.writeStringField("job", jobExecution.getJobInstance().getJobName());
+			json.writeNumberField("executionId", jobExecution.getId());
+			json.writeObjectFieldStart("parameters");
+			for (Entry<String, JobParameter> entry : jobExecution.getJobParameters().getParameters().entrySet()) {
+				json.writeStringField(entry.getKey(), truncate(String.valueOf(entry.getValue())));
+			}
+			json.writeEndObject();
+			if (summary) {
+				writeJsonSummary(json, jobExecution);
+			}
+			json.writeEndObject();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return writer.toString();
+	}
+
+	private void writeJsonSummary(JsonGenerator json, JobExecution jobExecution) throws IOException {
+		writeDate(json, "started", jobExecution.getStartTime());
+		writeDate(json, "finished", jobExecution.getEndTime());
+		json.writeStringField("exitCode", jobExecution.getExitStatus().getExitCode());
+		json.writeStringField("exitDescription", jobExecution.getExitStatus().getExitDescription());
+		json.writeStringField("status", jobExecution.getStatus().name());
+		writeJsonExecutionContext(json, jobExecution.getExecutionContext());
+		Collection<StepExecution> stepExecutions = jobExecution.getStepExecutions();
+		List<StepExecution> selectedSteps = selectSteps(stepExecutions);
+		json.writeArrayFieldStart("steps");
+		for (StepExecution stepExecution : selectedSteps) {
+			json.writeStartObject();
+			json.writeStringField("name", stepExecution.getStepName());
+			json.writeStringField("status", stepExecution.getStatus().name());
+			json.writeNumberField("readCount", stepExecution.getReadCount());
+			json.writeNumberField("writeCount", stepExecution.getWriteCount());
+			json.writeNumberField("commitCount", stepExecution.getCommitCount());
+			json.writeNumberField("skipCount", stepExecution.getSkipCount());
+			json.writeNumberField("rollbackCount", stepExecution.getRollbackCount());
+			json.writeNumberField("filterCount", stepExecution.getFilterCount());
+			writeJsonExecutionContext(json, stepExecution.getExecutionContext());
+			json.writeEndObject();
+		}
+		json.writeEndArray();
+		if (selectedSteps.size() < stepExecutions.size()) {
+			OmittedSteps omittedSteps = new OmittedSteps(stepExecutions, selectedSteps);
+			json.writeObjectFieldStart("omittedSteps");
+			json.writeNumberField("count", omittedSteps.count);
+			json.writeNumberField("readCount", omittedSteps.readCount);
+			json.writeNumberField("writeCount", omittedSteps.writeCount);
+			json.writeNumberField("skipCount", omittedSteps.skipCount);
+			json.writeEndObject();
+		}
+	}
+
+	private void writeJsonExecutionContext(JsonGenerator json, ExecutionContext executionContext) throws IOException {
+		json.writeObjectFieldStart("executionContext");
+		int entries = 0;
+		for (Entry<String, Object> entry : executionContext.entrySet()) {
+			if (maxContextEntries >= 0 && entries == maxContextEntries) {
+				json.writeNumberField("omittedEntries", executionContext.size() - entries);
+				break;
+			}
+			json.writeStringField(entry.getKey(), truncate(String.valueOf(entry.getValue())));
+			entries++;
+		}
+		json.writeEndObject();
+	}
+
+	private void writeDate(JsonGenerator json, String fieldName, Date date) throws IOException {
+		if (date != null) {
+			json.writeStringField(fieldName, date.toInstant().toString());
+		}
+	}
+
+	private String truncate(String value) {
+		if (maxValueLength >= 0 && value.length() > maxValueLength) {
+			return value.substring(0, maxValueLength) + TRUNCATED;
+		}
+		return value;
+	}
+
+	/**
+	 * The most relevant step executions in their original order.
+	 */
+	private List<StepExecution> selectSteps(Collection<StepExecution> stepExecutions) {
+		if (maxSteps < 0 || stepExecutions.size() <= maxSteps) {
+			return stepExecutions instanceof List ? (List<StepExecution>) stepExecutions
+					: new ArrayList<>(stepExecutions);
+		}
+		if (maxSteps == 0) {
+			return Collections.emptyList();
+		}
+		PriorityQueue<StepExecution> mostRelevant = new PriorityQueue<>(maxSteps + 1, RELEVANCE.reversed());
+		for (StepExecution stepExecution : stepExecutions) {
+			mostRelevant.add(stepExecution);
+			if (mostRelevant.size() > maxSteps) {
+				mostRelevant.poll();
+			}
+		}
+		Set<StepExecution> selected = Collections.newSetFromMap(new IdentityHashMap<>(maxSteps * 2));
+		selected.addAll(mostRelevant);
+		List<StepExecution> selectedSteps = new ArrayList<>(maxSteps);
+		for (StepExecution stepExecution : stepExecutions) {
+			if (selected.contains(stepExecution)) {
+				selectedSteps.add(stepExecution);
+			}
+		}
+		return selectedSteps;
+	}
+
+	private static long duration(StepExecution stepExecution) {
+		if (stepExecution.getStartTime() == null) {
+			return 0;
+		}
+		long end = stepExecution.getEndTime() != null ? stepExecution.getEndTime().getTime()
+				: System.currentTimeMillis();
+		return end - stepExecution.getStartTime().getTime();
+	}
+
+	public Format getFormat() {
+		return format;
+	}
+
+	public int getMaxSteps() {
+		return maxSteps;
+	}
+
+	public int getMaxContextEntries() {
+		return maxContextEntries;
+	}
+
+	public int getMaxValueLength() {
+		return maxValueLength;
+	}
+
+	/**
+	 * Sums of the step executions that aren't rendered.
+	 */
+	private static final class OmittedSteps {
+
+		private int count;
+
+		private long readCount;
+
+		private long writeCount;
+
+		private long skipCount;
+
+		private OmittedSteps(Collection<StepExecution> stepExecutions, List<StepExecution> selectedSteps) {
+			Set<StepExecution> selected = Collections.newSetFromMap(new IdentityHashMap<>(selectedSteps.size() * 2));
+			selected.addAll(selectedSteps);
+			for (StepExecution stepExecution : stepExecutions) {
+				if (!selected.contains(stepExecution)) {
+					count++;
+					readCount += stepExecution.getReadCount();
+					writeCount += stepExecution.getWriteCount();
+					skipCount += stepExecution.getSkipCount();
+				}
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,555 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.codecentric.batch.logging;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.UnsynchronizedAppenderBase;
+import ch.qos.logback.core.encoder.Encoder;
+
+/**
+ * Logback appender writing the log events of each job execution asynchronously to a separate file. It replaces a
+ * SiftingAppender with nested FileAppenders, which writes every log event synchronously in the logging thread.
+ * <p>
+ * The job log is determined by the MDC value with the name given in {@link #setKey(String)}, jobLogFileName by default,
+ * which is set by the {@link de.codecentric.batch.listener.LoggingListener}. Each job log has a bounded queue of
+ * {@link #setQueueSize(int)} events and its own worker thread, that drains the queue in batches, writes the events to
+ * the file and flushes after each batch. When the queue is full, the logging thread blocks until the worker catches
+ * up, or, with {@link OverflowPolicy#DROP}, events below level WARN are discarded.
+ * <p>
+ * When the job execution has finished, the {@link de.codecentric.batch.listener.LoggingListener} closes its job log via
+ * {@link #closeJobLog(String)}, which waits until all queued events are written. Log events arriving after that reopen
+ * the file in append mode, job logs without events for {@link #setMaxIdleTime(long)} milliseconds are closed as well.
+ * The worker of a reopened job log waits until the worker of the closed one has finished, so that a file never has two
+ * writers.
+ * <p>
+ * With {@link Compression#GZIP} the job log is rolled into gzip compressed blocks with an index of the time range and
+ * the steps of each block, which the {@link JobLogReader} uses to return the lines of a step or time range.
+ */
+public class AsyncJobLogAppender extends UnsynchronizedAppenderBase<ILoggingEvent> {
+
+	/**
+	 * Behaviour when the queue of a job log is full.
+	 */
+	public enum OverflowPolicy {
+
+		/**
+		 * The logging thread waits until there's space in the queue.
+		 */
+		BLOCK,
+
+		/**
+		 * Events below level WARN are discarded, events of level WARN and ERROR wait until there's space in the queue.
+		 */
+		DROP
+
+	}
+
+	/**
+	 * Compression of the job logs.
+	 */
+	public enum Compression {
+
+		/**
+		 * Events are appended to the .log file.
+		 */
+		NONE,
+
+		/**
+		 * Events are written to the .log file first, which is rolled into a block of the .log.gz file when it reaches
+		 * the maximum block size, when another step starts logging and when the job log is closed, see
+		 * {@link CompressedJobLogWriter}.
+		 */
+		GZIP
+
+	}
+
+	private static final Set<AsyncJobLogAppender> STARTED_APPENDERS = new CopyOnWriteArraySet<>();
+
+	private static final int MAX_BATCH_SIZE = 1024;
+
+	private static final long POLL_INTERVAL_MILLIS = 100;
+
+	private final ConcurrentMap<String, JobLog> jobLogs = new ConcurrentHashMap<>();
+
+	// Closed job logs whose workers are still writing, the last one per name
+	private final ConcurrentMap<String, JobLog> closingJobLogs = new ConcurrentHashMap<>();
+
+	private Encoder<ILoggingEvent> encoder;
+
+	private String directory = "";
+
+	private String key = "jobLogFileName";
+
+	private String defaultValue = "batch-default";
+
+	private String stepKey = "jobLogStepName";
+
+	private String extension = ".log";
+
+	private int queueSize = 8192;
+
+	private OverflowPolicy overflowPolicy = OverflowPolicy.BLOCK;
+
+	private int maxFlushTime = 1000;
+
+	private long maxIdleTime = 60000;
+
+	private boolean includeCallerData = false;
+
+	private Compression compression = Compression.NONE;
+
+	private long minBlockSize = 64 * 1024;
+
+	private long maxBlockSize = 1024 * 1024;
+
+	/**
+	 * Closes the job log with the given name in all started appenders, waiting until all of its queued events are
+	 * written.
+	 *
+	 * @param jobLogName
+	 *            the value of the MDC key, usually the base name created by the {@link JobLogFileNameCreator}
+	 */
+	public static void closeJobLog(String jobLogName) {
+		for (AsyncJobLogAppender appender : STARTED_APPENDERS) {
+			appender.close(jobLogName);
+		}
+	}
+
+	@Override
+	public void start() {
+		if (encoder == null) {
+			addError("No encoder set for the appender named [" + name + "].");
+			return;
+		}
+		if (queueSize < 1) {
+			addError("Invalid queue size [" + queueSize + "]");
+			return;
+		}
+		super.start();
+		STARTED_APPENDERS.add(this);
+	}
+
+	@Override
+	public void stop() {
+		if (!isStarted()) {
+			return;
+		}
+		STARTED_APPENDERS.remove(this);
+		super.stop();
+		for (String jobLogName : jobLogs.keySet()) {
+			close(jobLogName);
+		}
+	}
+
+	@Override
+	protected void append(ILoggingEvent event) {
+		// Everything the event needs from the logging thread has to be captured here
+		event.prepareForDeferredProcessing();
+		if (includeCallerData) {
+			event.getCallerData();
+		}
+		String jobLogName = event.getMDCPropertyMap().get(key);
+		if (jobLogName == null) {
+			jobLogName = defaultValue;
+		}
+		while (true) {
+			JobLog jobLog = jobLogs.computeIfAbsent(jobLogName, JobLog::new);
+			if (jobLog.offer(event)) {
+				return;
+			}
+			// The job log has been closed in the meantime, open it again
+			jobLogs.remove(jobLogName, jobLog);
+		}
+	}
+
+	/**
+	 * Closes the job log with the given name, waiting at most {@link #setMaxFlushTime(int)} milliseconds until all of
+	 * its queued events are written.
+	 */
+	public void close(String jobLogName) {
+		JobLog jobLog = jobLogs.get(jobLogName);
+		if (jobLog != null) {
+			jobLog.close();
+			jobLogs.remove(jobLogName, jobLog);
+		}
+	}
+
+	public Encoder<ILoggingEvent> getEncoder() {
+		return encoder;
+	}
+
+	public void setEncoder(Encoder<ILoggingEvent> encoder) {
+		this.encoder = encoder;
+	}
+
+	public String getDirectory() {
+		return directory;
+	}
+
+	/**
+	 * Directory of the job logs, the file name is the MDC value followed by the extension.
+	 */
+	public void setDirectory(String directory) {
+		this.directory = directory;
+	}
+
+	public String getKey() {
+		return key;
+	}
+
+	public void setKey(String key) {
+		this.key = key;
+	}
+
+	public String getDefaultValue() {
+		return defaultValue;
+	}
+
+	/**
+	 * Name of the job log for events without the MDC key.
+	 */
+	public void setDefaultValue(String defaultValue) {
+		this.defaultValue = defaultValue;
+	}
+
+	public String getStepKey() {
+		return stepKey;
+	}
+
+	/**
+	 * MDC key of the step name, used for the index of compressed job logs.
+	 */
+	public void setStepKey(String stepKey) {
+		this.stepKey = stepKey;
+	}
+
+	public String getExtension() {
+		return extension;
+	}
+
+	public void setExtension(String extension) {
+		this.extension = extension;
+	}
+
+	public int getQueueSize() {
+		return queueSize;
+	}
+
+	public void setQueueSize(int queueSize) {
+		this.queueSize = queueSize;
+	}
+
+	public OverflowPolicy getOverflowPolicy() {
+		return overflowPolicy;
+	}
+
+	public void setOverflowPolicy(OverflowPolicy overflowPolicy) {
+		this.overflowPolicy = overflowPolicy;
+	}
+
+	public int getMaxFlushTime() {
+		return maxFlushTime;
+	}
+
+	public void setMaxFlushTime(int maxFlushTime) {
+		this.maxFlushTime = maxFlushTime;
+	}
+
+	public long getMaxIdleTime() {
+		return maxIdleTime;
+	}
+
+	public void setMaxIdleTime(long maxIdleTime) {
+		this.maxIdleTime = maxIdleTime;
+	}
+
+	public boolean isIncludeCallerData() {
+		return includeCallerData;
+	}
+
+	public void setIncludeCallerData(boolean includeCallerData) {
+		this.includeCallerData = includeCallerData;
+	}
+
+	public Compression getCompression() {
+		return compression;
+	}
+
+	public void setCompression(Compression compression) {
+		this.compression = compression;
+	}
+
+	public long getMinBlockSize() {
+		return minBlockSize;
+	}
+
+	/**
+	 * Minimum number of uncompressed bytes in a block of a compressed job log before a step change starts a new block.
+	 */
+	public void setMinBlockSize(long minBlockSize) {
+		this.minBlockSize = minBlockSize;
+	}
+
+	public long getMaxBlockSize() {
+		return maxBlockSize;
+	}
+
+	/**
+	 * Number of uncompressed bytes after which a compressed job log starts a new block.
+	 */
+	public void setMaxBlockSize(long maxBlockSize) {
+		this.maxBlockSize = maxBlockSize;
+	}
+
+	/**
+	 * Queue and worker thread of a single job log. The read lock is held while an event is queued, so that closing the
+	 * job log with the write lock guarantees that no event is queued afterwards.
+	 */
+	private class JobLog implements Runnable {
+
+		private final String jobLogName;
+
+		private final BlockingQueue<ILoggingEvent> queue = new ArrayBlockingQueue<>(queueSize);
+
+		private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+		private final AtomicLong droppedEvents = new AtomicLong();
+
+		private final Thread worker;
+
+		// The closed job log of the same name, whose worker has to finish before this one opens the file
+		private JobLog predecessor;
+
+		private volatile boolean closed;
+
+		JobLog(String jobLogName) {
+			this.jobLogName = jobLogName;
+			this.predecessor = closingJobLogs.get(jobLogName);
+			this.worker = new Thread(this, "AsyncJobLogAppender-" + jobLogName);
+			this.worker.setDaemon(true);
+			this.worker.start();
+		}
+
+		boolean offer(ILoggingEvent event) {
+			lock.readLock().lock();
+			try {
+				if (closed) {
+					return false;
+				}
+				if (overflowPolicy == OverflowPolicy.DROP && !event.getLevel().isGreaterOrEqual(Level.WARN)) {
+					if (!queue.offer(event)) {
+						droppedEvents.incrementAndGet();
+					}
+				} else {
+					putUninterruptibly(event);
+				}
+				return true;
+			} finally {
+				lock.readLock().unlock();
+			}
+		}
+
+		private void putUninterruptibly(ILoggingEvent event) {
+			boolean interrupted = false;
+			try {
+				while (true) {
+					try {
+						queue.put(event);
+						return;
+					} catch (InterruptedException e) {
+						interrupted = true;
+					}
+				}
+			} finally {
+				if (interrupted) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		}
+
+		void close() {
+			lock.writeLock().lock();
+			try {
+				markClosed();
+			} finally {
+				lock.writeLock().unlock();
+			}
+			try {
+				worker.join(maxFlushTime);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			if (worker.isAlive()) {
+				addWarn("Job log [" + jobLogName + "] has not been written completely within " + maxFlushTime
+						+ " ms, the remaining events are written in the background.");
+			}
+		}
+
+		/**
+		 * Marks the job log as closed while holding the write lock, it is registered as closing before any event can
+		 * open a new job log of the same name.
+		 */
+		private void markClosed() {
+			if (!closed) {
+				closingJobLogs.put(jobLogName, this);
+				closed = true;
+			}
+		}
+
+		@Override
+		public void run() {
+			try {
+				awaitPredecessor();
+			} catch (InterruptedException e) {
+				addWarn("Worker of job log [" + jobLogName + "] has been interrupted, queued events are discarded.");
+				closingJobLogs.remove(jobLogName, this);
+				return;
+			}
+			File file = new File(directory, jobLogName + extension);
+			JobLogWriter writer = open(file);
+			List<ILoggingEvent> batch = new ArrayList<>();
+			long lastEvent = System.currentTimeMillis();
+			try {
+				while (true) {
+					ILoggingEvent event = queue.poll(POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+					if (event != null) {
+						batch.add(event);
+						queue.drainTo(batch, MAX_BATCH_SIZE - 1);
+						writer = write(file, writer, batch);
+						batch.clear();
+						lastEvent = System.currentTimeMillis();
+					} else if (closed) {
+						// No more events are queued after closing, but some may have arrived after the poll
+						queue.drainTo(batch);
+						writer = write(file, writer, batch);
+						break;
+					} else if (System.currentTimeMillis() - lastEvent > maxIdleTime && lock.writeLock().tryLock()) {
+						try {
+							markClosed();
+						} finally {
+							lock.writeLock().unlock();
+						}
+						jobLogs.remove(jobLogName, this);
+					}
+				}
+			} catch (InterruptedException e) {
+				addWarn("Worker of job log [" + jobLogName + "] has been interrupted, queued events are discarded.");
+			} finally {
+				close(file, writer);
+				closingJobLogs.remove(jobLogName, this);
+			}
+		}
+
+		private void awaitPredecessor() throws InterruptedException {
+			if (predecessor != null) {
+				predecessor.worker.join();
+				// Not kept, so that a job log reopened again and again doesn't hold on to all of its predecessors
+				predecessor = null;
+			}
+		}
+
+		private JobLogWriter open(File file) {
+			try {
+				File parent = file.getAbsoluteFile().getParentFile();
+				if (parent != null && !parent.exists() && !parent.mkdirs()) {
+					addError("Failed to create directory [" + parent + "] of job log [" + jobLogName + "]");
+				}
+				JobLogWriter writer = compression == Compression.GZIP
+						? new CompressedJobLogWriter(file, minBlockSize, maxBlockSize)
+						: new PlainJobLogWriter(file);
+				write(writer, encoder.headerBytes(), null);
+				return writer;
+			} catch (IOException e) {
+				addError("Failed to open job log [" + file + "], its events are discarded.", e);
+				return null;
+			}
+		}
+
+		/**
+		 * Writes and flushes a batch of events. Returns null when writing failed, subsequent events are discarded then,
+		 * but the queue is still drained so that logging threads never block forever.
+		 */
+		private JobLogWriter write(File file, JobLogWriter writer, List<ILoggingEvent> events) {
+			if (writer == null) {
+				return null;
+			}
+			try {
+				for (ILoggingEvent event : events) {
+					write(writer, encoder.encode(event), event);
+				}
+				writer.flush();
+				return writer;
+			} catch (IOException e) {
+				addError("Failed to write to job log [" + file + "], its events are discarded.", e);
+				closeQuietly(writer);
+				return null;
+			}
+		}
+
+		private void write(JobLogWriter writer, byte[] bytes, ILoggingEvent event) throws IOException {
+			if (bytes != null && bytes.length > 0) {
+				if (event == null) {
+					writer.write(bytes, -1, null);
+				} else {
+					writer.write(bytes, event.getTimeStamp(), event.getMDCPropertyMap().get(stepKey));
+				}
+			}
+		}
+
+		private void close(File file, JobLogWriter writer) {
+			long dropped = droppedEvents.get();
+			if (dropped > 0) {
+				addWarn(dropped + " events of job log [" + file + "] have been discarded, because its queue was full.");
+			}
+			if (writer != null) {
+				try {
+					write(writer, encoder.footerBytes(), null);
+					writer.flush();
+				} catch (IOException e) {
+					addError("Failed to write to job log [" + file + "]", e);
+				}
+				closeQuietly(writer);
+			}
+		}
+
+		private void closeQuietly(JobLogWriter writer) {
+			try {
+				writer.close();
+			} catch (IOException e) {
+				addError("Failed to close job log [" + jobLogName + "]", e);
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.codecentric.batch.logging;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes the events to an uncompressed file first, which is rolled into a block of the compressed log file when it
+ * reaches the maximum block size, when a different step starts logging and when the job log is closed. Every block is
+ * a separate gzip member appended to the .log.gz file, so the file can be read with any gzip tool, and every block gets
+ * an entry in the .log.idx file, see {@link JobLogBlock}. The uncompressed file only exists while the job log is open.
+ * <p>
+ * A block starts on a step change only when the current block has reached the minimum block size, so that partitions
+ * logging concurrently don't end up in tiny blocks. Such a block is listed for all steps that logged into it, and its
+ * {@link JobLogBlock.Segment}s tell which bytes belong to which step and time.
+ */
+class CompressedJobLogWriter implements JobLogWriter {
+
+	static final String COMPRESSED_SUFFIX = ".gz";
+
+	static final String INDEX_SUFFIX = ".idx";
+
+	private final File file;
+
+	private final File compressedFile;
+
+	private final File indexFile;
+
+	private final long minBlockSize;
+
+	private final long maxBlockSize;
+
+	private OutputStream out;
+
+	private long blockSize;
+
+	private long firstTimestamp = -1;
+
+	private long lastTimestamp = -1;
+
+	private final Set<String> steps = new LinkedHashSet<>();
+
+	private final List<JobLogBlock.Segment> segments = new ArrayList<>();
+
+	private long segmentLength;
+
+	private long segmentTimestamp = -1;
+
+	private String segmentStep;
+
+	CompressedJobLogWriter(File file, long minBlockSize, long maxBlockSize) throws IOException {
+		this.file = file;
+		this.compressedFile = new File(file.getPath() + COMPRESSED_SUFFIX);
+		this.indexFile = new File(file.getPath() + INDEX_SUFFIX);
+		this.minBlockSize = minBlockSize;
+		this.maxBlockSize = maxBlockSize;
+		// Left over from a previous run that wasn't closed properly, it becomes part of the first block
+		this.blockSize = file.length();
+		this.segmentLength = blockSize;
+		this.out = new BufferedOutputStream(new FileOutputStream(file, true), 8192);
+	}
+
+	@Override
+	public void write(byte[] bytes, long timestamp, String step) throws IOException {
+		boolean hasStep = step != null && !step.isEmpty();
+		boolean newStep = hasStep && !steps.contains(step);
+		if (blockSize >= maxBlockSize || (newStep && blockSize >= minBlockSize)) {
+			rollBlock();
+			out = new BufferedOutputStream(new FileOutputStream(file, false), 8192);
+		}
+		out.write(bytes);
+		blockSize += bytes.length;
+		String segmentStep = hasStep ? step : null;
+		if (segmentLength > 0 && (timestamp != segmentTimestamp || !Objects.equals(segmentStep, this.segmentStep))) {
+			endSegment();
+		}
+		segmentLength += bytes.length;
+		segmentTimestamp = timestamp;
+		this.segmentStep = segmentStep;
+		if (timestamp >= 0) {
+			if (firstTimestamp < 0) {
+				firstTimestamp = timestamp;
+			}
+			lastTimestamp = timestamp;
+		}
+		if (hasStep) {
+			steps.add(step);
+		}
+	}
+
+	@Override
+	public void flush() throws IOException {
+		out.flush();
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (blockSize > 0) {
+			rollBlock();
+		} else {
+			out.close();
+		}
+		Files.deleteIfExists(file.toPath());
+	}
+
+	/**
+	 * Closes the uncompressed file and compresses it into a new block.
+	 */
+	private void rollBlock() throws IOException {
+		out.close();
+		long offset = compressedFile.length();
+		try (GZIPOutputStream gzip = new GZIPOutputStream(new FileOutputStream(compressedFile, true), 65536)) {
+			Files.copy(file.toPath(), gzip);
+		}
+		long now = System.currentTimeMillis();
+		endSegment();
+		JobLogBlock block = new JobLogBlock(offset, compressedFile.length() - offset,
+				firstTimestamp < 0 ? now : firstTimestamp, lastTimestamp < 0 ? now : lastTimestamp, steps, segments);
+		try (Writer index = new OutputStreamWriter(new FileOutputStream(indexFile, true), StandardCharsets.UTF_8)) {
+			index.write(block.toIndexLine());
+			index.write('\n');
+		}
+		blockSize = 0;
+		firstTimestamp = -1;
+		lastTimestamp = -1;
+		steps.clear();
+		segments.clear();
+	}
+
+	private void endSegment() {
+		if (segmentLength > 0) {
+			segments.add(new JobLogBlock.Segment(segmentLength, segmentTimestamp, segmentStep));
+		}
+		segmentLength = 0;
+		segmentTimestamp = -1;
+		segmentStep = null;
+	}
+
+}
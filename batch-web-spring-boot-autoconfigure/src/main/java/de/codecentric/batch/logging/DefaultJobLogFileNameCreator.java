@@ -16,11 +16,17 @@
 
 package de.codecentric.batch.logging;
 
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Date;
+
 import org.springframework.batch.core.JobExecution;
 
 /**
  * Default implementation used when there's no other Spring bean implementing {@link JobLogFileNameCreator} in the
- * ApplicationContext.
+ * ApplicationContext. Job logs are named batch-&lt;jobName&gt;-&lt;executionId&gt;.log. With a {@link Sharding} other
+ * than NONE they are placed in a subdirectory per job or per day of the creation of the job execution, so that no single
+ * directory grows with every job execution.
  *
  * @author Tobias Flohre
  * @author Dennis Schulte
@@ -28,8 +34,27 @@ import org.springframework.batch.core.JobExecution;
  */
 public class DefaultJobLogFileNameCreator implements JobLogFileNameCreator {
 
+	public static final String PREFIX = "batch-";
+
 	private static final String DEFAULT_EXTENSION = ".log";
 
+	private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd")
+			.withZone(ZoneId.systemDefault());
+
+	public enum Sharding {
+		NONE, JOB, DATE
+	}
+
+	private final Sharding sharding;
+
+	public DefaultJobLogFileNameCreator() {
+		this(Sharding.NONE);
+	}
+
+	public DefaultJobLogFileNameCreator(Sharding sharding) {
+		this.sharding = sharding;
+	}
+
 	@Override
 	public String getName(JobExecution jobExecution) {
 		return getBaseName(jobExecution) + getExtension();
@@ -37,7 +62,24 @@ public class DefaultJobLogFileNameCreator implements JobLogFileNameCreator {
 
 	@Override
 	public String getBaseName(JobExecution jobExecution) {
-		return "batch-" + jobExecution.getJobInstance().getJobName() + "-" + Long.toString(jobExecution.getId());
+		String jobName = jobExecution.getJobInstance().getJobName();
+		return getDirectory(jobExecution, jobName) + PREFIX + jobName + "-" + Long.toString(jobExecution.getId());
+	}
+
+	private String getDirectory(JobExecution jobExecution, String jobName) {
+		switch (sharding) {
+		case JOB:
+			return jobName + "/";
+		case DATE:
+			Date createTime = jobExecution.getCreateTime() != null ? jobExecution.getCreateTime() : new Date();
+			return DATE_FORMAT.format(createTime.toInstant()) + "/";
+		default:
+			return "";
+		}
+	}
+
+	public Sharding getSharding() {
+		return sharding;
 	}
 
 	@Override
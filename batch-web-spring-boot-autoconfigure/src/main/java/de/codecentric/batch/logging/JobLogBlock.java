@@ -0,0 +1,247 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.codecentric.batch.logging;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Entry of the index of a compressed job log, describing one block. A block is a gzip member in the .log.gz file,
+ * starting at {@link #getOffset()} with {@link #getLength()} compressed bytes. The index is a text file with the
+ * extension .log.idx containing one tab separated line per block.
+ * <p>
+ * The {@link Segment}s of a block describe its uncompressed content event by event, consecutive events of the same step
+ * logged in the same millisecond sharing a segment, so that the {@link JobLogReader} returns only the matching events
+ * of a block. Blocks written before segments were indexed have none and are returned completely.
+ */
+public class JobLogBlock {
+
+	private static final String SEPARATOR = "\t";
+
+	private static final String STEP_SEPARATOR = ",";
+
+	private static final String SEGMENT_SEPARATOR = ",";
+
+	private static final String SEGMENT_FIELD_SEPARATOR = ":";
+
+	private static final String NO_VALUE = "-";
+
+	private static final String ENCODING = "UTF-8";
+
+	private final long offset;
+
+	private final long length;
+
+	private final long firstTimestamp;
+
+	private final long lastTimestamp;
+
+	private final Set<String> steps;
+
+	private final List<Segment> segments;
+
+	public JobLogBlock(long offset, long length, long firstTimestamp, long lastTimestamp, Set<String> steps) {
+		this(offset, length, firstTimestamp, lastTimestamp, steps, Collections.emptyList());
+	}
+
+	public JobLogBlock(long offset, long length, long firstTimestamp, long lastTimestamp, Set<String> steps,
+			List<Segment> segments) {
+		this.offset = offset;
+		this.length = length;
+		this.firstTimestamp = firstTimestamp;
+		this.lastTimestamp = lastTimestamp;
+		this.steps = Collections.unmodifiableSet(new LinkedHashSet<>(steps));
+		this.segments = Collections.unmodifiableList(new ArrayList<>(segments));
+	}
+
+	public long getOffset() {
+		return offset;
+	}
+
+	public long getLength() {
+		return length;
+	}
+
+	public long getFirstTimestamp() {
+		return firstTimestamp;
+	}
+
+	public long getLastTimestamp() {
+		return lastTimestamp;
+	}
+
+	/**
+	 * Names of the steps that logged into this block.
+	 */
+	public Set<String> getSteps() {
+		return steps;
+	}
+
+	/**
+	 * Segments of the uncompressed content of this block in the order they were written, empty if they are unknown.
+	 */
+	public List<Segment> getSegments() {
+		return segments;
+	}
+
+	/**
+	 * Whether this block contains events of the given step logged between from and to. Every parameter may be null.
+	 */
+	public boolean matches(String step, Date from, Date to) {
+		if (step != null && !steps.contains(step)) {
+			return false;
+		}
+		if (from != null && lastTimestamp < from.getTime()) {
+			return false;
+		}
+		return to == null || firstTimestamp <= to.getTime();
+	}
+
+	String toIndexLine() {
+		StringBuilder line = new StringBuilder();
+		line.append(offset).append(SEPARATOR).append(length).append(SEPARATOR).append(firstTimestamp)
+				.append(SEPARATOR).append(lastTimestamp).append(SEPARATOR);
+		String separator = "";
+		for (String step : steps) {
+			line.append(separator).append(encode(step));
+			separator = STEP_SEPARATOR;
+		}
+		if (!segments.isEmpty()) {
+			List<String> stepList = new ArrayList<>(steps);
+			line.append(SEPARATOR);
+			separator = "";
+			for (Segment segment : segments) {
+				// timestamps relative to the first one and steps as position in the list of steps keep the line short
+				line.append(separator).append(segment.getLength()).append(SEGMENT_FIELD_SEPARATOR)
+						.append(segment.getTimestamp() < 0 ? NO_VALUE : segment.getTimestamp() - firstTimestamp)
+						.append(SEGMENT_FIELD_SEPARATOR)
+						.append(segment.getStep() == null ? NO_VALUE : stepList.indexOf(segment.getStep()));
+				separator = SEGMENT_SEPARATOR;
+			}
+		}
+		return line.toString();
+	}
+
+	static JobLogBlock fromIndexLine(String line) {
+		String[] fields = line.split(SEPARATOR, -1);
+		if (fields.length != 5 && fields.length != 6) {
+			throw new IllegalArgumentException("Invalid job log index entry: " + line);
+		}
+		Set<String> steps = new LinkedHashSet<>();
+		if (!fields[4].isEmpty()) {
+			for (String step : fields[4].split(STEP_SEPARATOR)) {
+				steps.add(decode(step));
+			}
+		}
+		long firstTimestamp = Long.parseLong(fields[2]);
+		List<Segment> segments = new ArrayList<>();
+		if (fields.length == 6 && !fields[5].isEmpty()) {
+			List<String> stepList = new ArrayList<>(steps);
+			for (String segment : fields[5].split(SEGMENT_SEPARATOR)) {
+				String[] segmentFields = segment.split(SEGMENT_FIELD_SEPARATOR);
+				if (segmentFields.length != 3) {
+					throw new IllegalArgumentException("Invalid job log index entry: " + line);
+				}
+				segments.add(new Segment(Long.parseLong(segmentFields[0]),
+						NO_VALUE.equals(segmentFields[1]) ? -1 : firstTimestamp + Long.parseLong(segmentFields[1]),
+						NO_VALUE.equals(segmentFields[2]) ? null
+								: stepList.get(Integer.parseInt(segmentFields[2]))));
+			}
+		}
+		return new JobLogBlock(Long.parseLong(fields[0]), Long.parseLong(fields[1]), firstTimestamp,
+				Long.parseLong(fields[3]), steps, segments);
+	}
+
+	private static String encode(String step) {
+		try {
+			return URLEncoder.encode(step, ENCODING);
+		} catch (UnsupportedEncodingException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static String decode(String step) {
+		try {
+			return URLDecoder.decode(step, ENCODING);
+		} catch (UnsupportedEncodingException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Consecutive uncompressed bytes of a block written for events of one step in one millisecond, or for a header or
+	 * footer of the encoder, which have neither a step nor a timestamp.
+	 */
+	public static class Segment {
+
+		private final long length;
+
+		private final long timestamp;
+
+		private final String step;
+
+		public Segment(long length, long timestamp, String step) {
+			this.length = length;
+			this.timestamp = timestamp;
+			this.step = step;
+		}
+
+		public long getLength() {
+			return length;
+		}
+
+		/**
+		 * @return the time the events were logged, or -1 for headers and footers
+		 */
+		public long getTimestamp() {
+			return timestamp;
+		}
+
+		/**
+		 * @return the step the events were logged in, or null
+		 */
+		public String getStep() {
+			return step;
+		}
+
+		/**
+		 * Whether the events of this segment belong to the given step and were logged between from and to. Every
+		 * parameter may be null, segments without a step or timestamp only match if the respective parameter is null.
+		 */
+		public boolean matches(String step, Date from, Date to) {
+			if (step != null && !step.equals(this.step)) {
+				return false;
+			}
+			if ((from != null || to != null) && timestamp < 0) {
+				return false;
+			}
+			if (from != null && timestamp < from.getTime()) {
+				return false;
+			}
+			return to == null || timestamp <= to.getTime();
+		}
+
+	}
+
+}
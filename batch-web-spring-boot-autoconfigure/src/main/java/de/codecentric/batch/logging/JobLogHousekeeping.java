@@ -0,0 +1,312 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.codecentric.batch.logging;
+
+import java.io.IOException;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.codecentric.batch.monitoring.RunningExecutionTracker;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Deletes old job logs written by the {@link AsyncJobLogAppender} with the names of the
+ * {@link DefaultJobLogFileNameCreator}. A job log consists of the log file and, if compressed, its .gz and .idx files,
+ * which are always deleted together. Three retention rules are applied in this order, each of them only if configured:
+ * job logs older than maxAge are deleted, then all but the newest maxFilesPerJob job logs of each job, then the oldest
+ * job logs until the remaining ones are smaller than maxTotalSize. Job logs of executions running on this node are
+ * never deleted.
+ * <p>
+ * Deletions are done in batches of batchSize job logs with a pause in between, so that a run with a large backlog
+ * doesn't saturate the disk. Subdirectories created by a {@link DefaultJobLogFileNameCreator.Sharding} are removed
+ * once they are empty.
+ * <p>
+ * Every run is measured in the MeterRegistry: the timer batch.joblog.housekeeping.duration, the counters
+ * batch.joblog.housekeeping.deleted.files and batch.joblog.housekeeping.deleted.bytes and the gauges
+ * batch.joblog.housekeeping.files and batch.joblog.housekeeping.bytes with the job logs remaining after the last run.
+ */
+public class JobLogHousekeeping implements Runnable {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(JobLogHousekeeping.class);
+
+	public static final String METRIC_NAME = "batch.joblog.housekeeping";
+
+	private static final String[] SUFFIXES = { CompressedJobLogWriter.COMPRESSED_SUFFIX,
+			CompressedJobLogWriter.INDEX_SUFFIX };
+
+	private final Path directory;
+
+	private final int maxDepth;
+
+	private final String extension;
+
+	private final RunningExecutionTracker runningExecutionTracker;
+
+	private Duration maxAge;
+
+	private Long maxTotalSize;
+
+	private Integer maxFilesPerJob;
+
+	private int batchSize = 100;
+
+	private Duration pause = Duration.ofMillis(100);
+
+	private final Timer duration;
+
+	private final Counter deletedFiles;
+
+	private final Counter deletedBytes;
+
+	private final AtomicLong files = new AtomicLong();
+
+	private final AtomicLong bytes = new AtomicLong();
+
+	public JobLogHousekeeping(Path directory, DefaultJobLogFileNameCreator jobLogFileNameCreator,
+			RunningExecutionTracker runningExecutionTracker, MeterRegistry meterRegistry) {
+		this.directory = directory;
+		this.maxDepth = jobLogFileNameCreator.getSharding() == DefaultJobLogFileNameCreator.Sharding.NONE ? 1 : 2;
+		this.extension = jobLogFileNameCreator.getExtension();
+		this.runningExecutionTracker = runningExecutionTracker;
+		this.duration = meterRegistry.timer(METRIC_NAME + ".duration");
+		this.deletedFiles = meterRegistry.counter(METRIC_NAME + ".deleted.files");
+		this.deletedBytes = meterRegistry.counter(METRIC_NAME + ".deleted.bytes");
+		meterRegistry.gauge(METRIC_NAME + ".files", files);
+		meterRegistry.gauge(METRIC_NAME + ".bytes", bytes);
+	}
+
+	@Override
+	public void run() {
+		if (!Files.isDirectory(directory)) {
+			return;
+		}
+		long start = System.nanoTime();
+		try {
+			List<JobLogFiles> jobLogs = collect();
+			List<JobLogFiles> expired = selectExpired(jobLogs, System.currentTimeMillis());
+			delete(expired);
+			LOGGER.debug("Deleted {} job logs in {}, {} remaining", expired.size(), directory, files.get());
+		} catch (IOException e) {
+			LOGGER.warn("Housekeeping of job logs in {} failed", directory, e);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			duration.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+		}
+	}
+
+	private List<JobLogFiles> collect() throws IOException {
+		Set<Long> runningExecutionIds = runningExecutionTracker.getAllRunningExecutionIds();
+		Map<Path, JobLogFiles> jobLogs = new HashMap<>();
+		Files.walkFileTree(directory, EnumSet.noneOf(FileVisitOption.class), maxDepth, new SimpleFileVisitor<Path>() {
+
+			@Override
+			public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+				if (attributes.isRegularFile()) {
+					Path logFile = toLogFile(file);
+					if (logFile != null) {
+						JobLogFiles jobLog = jobLogs.computeIfAbsent(logFile, JobLogFiles::new);
+						if (jobLog.executionId == null || runningExecutionIds.contains(jobLog.executionId)) {
+							jobLogs.remove(logFile);
+						} else {
+							jobLog.add(file, attributes);
+						}
+					}
+				}
+				return FileVisitResult.CONTINUE;
+			}
+
+			@Override
+			public FileVisitResult visitFileFailed(Path file, IOException e) {
+				// Files may vanish while walking, e.g. when a compressed job log is rolled
+				return FileVisitResult.CONTINUE;
+			}
+
+		});
+		return new ArrayList<>(jobLogs.values());
+	}
+
+	/**
+	 * Returns the path of the uncompressed log file for one of the files of a job log, or null if the file doesn't
+	 * belong to a job log.
+	 */
+	private Path toLogFile(Path file) {
+		String name = file.getFileName().toString();
+		for (String suffix : SUFFIXES) {
+			if (name.endsWith(suffix)) {
+				name = name.substring(0, name.length() - suffix.length());
+				break;
+			}
+		}
+		if (!name.startsWith(DefaultJobLogFileNameCreator.PREFIX) || !name.endsWith(extension)) {
+			return null;
+		}
+		return file.resolveSibling(name);
+	}
+
+	List<JobLogFiles> selectExpired(List<JobLogFiles> jobLogs, long now) {
+		Set<JobLogFiles> expired = new LinkedHashSet<>();
+		List<JobLogFiles> remaining = new ArrayList<>(jobLogs);
+		// newest first
+		remaining.sort(Comparator.comparingLong((JobLogFiles jobLog) -> jobLog.lastModified).reversed());
+		if (maxAge != null) {
+			long oldest = now - maxAge.toMillis();
+			remaining.stream().filter(jobLog -> jobLog.lastModified < oldest).forEach(expired::add);
+			remaining.removeAll(expired);
+		}
+		if (maxFilesPerJob != null) {
+			Map<String, Integer> count = new HashMap<>();
+			for (JobLogFiles jobLog : remaining) {
+				if (count.merge(jobLog.jobName, 1, Integer::sum) > maxFilesPerJob) {
+					expired.add(jobLog);
+				}
+			}
+			remaining.removeAll(expired);
+		}
+		long totalSize = remaining.stream().mapToLong(jobLog -> jobLog.size).sum();
+		if (maxTotalSize != null) {
+			for (int i = remaining.size() - 1; i >= 0 && totalSize > maxTotalSize; i--) {
+				JobLogFiles jobLog = remaining.get(i);
+				expired.add(jobLog);
+				totalSize -= jobLog.size;
+			}
+			remaining.removeAll(expired);
+		}
+		files.set(remaining.size());
+		bytes.set(totalSize);
+		return new ArrayList<>(expired);
+	}
+
+	private void delete(List<JobLogFiles> expired) throws InterruptedException {
+		Set<Path> directories = new LinkedHashSet<>();
+		int deletedInBatch = 0;
+		for (JobLogFiles jobLog : expired) {
+			if (deletedInBatch == batchSize) {
+				Thread.sleep(pause.toMillis());
+				deletedInBatch = 0;
+			}
+			for (Path file : jobLog.files) {
+				try {
+					long size = Files.size(file);
+					if (Files.deleteIfExists(file)) {
+						deletedFiles.increment();
+						deletedBytes.increment(size);
+					}
+				} catch (IOException e) {
+					LOGGER.warn("Could not delete job log file {}", file, e);
+				}
+			}
+			if (!jobLog.logFile.getParent().equals(directory)) {
+				directories.add(jobLog.logFile.getParent());
+			}
+			deletedInBatch++;
+		}
+		for (Path shard : directories) {
+			try {
+				Files.deleteIfExists(shard);
+			} catch (DirectoryNotEmptyException e) {
+				// still in use
+			} catch (IOException e) {
+				LOGGER.warn("Could not delete job log directory {}", shard, e);
+			}
+		}
+	}
+
+	public void setMaxAge(Duration maxAge) {
+		this.maxAge = maxAge;
+	}
+
+	public void setMaxTotalSize(Long maxTotalSize) {
+		this.maxTotalSize = maxTotalSize;
+	}
+
+	public void setMaxFilesPerJob(Integer maxFilesPerJob) {
+		this.maxFilesPerJob = maxFilesPerJob;
+	}
+
+	public void setBatchSize(int batchSize) {
+		this.batchSize = Math.max(1, batchSize);
+	}
+
+	public void setPause(Duration pause) {
+		this.pause = pause;
+	}
+
+	/**
+	 * All files belonging to the job log of one job execution.
+	 */
+	static class JobLogFiles {
+
+		private final Path logFile;
+
+		private final String jobName;
+
+		private final Long executionId;
+
+		private final List<Path> files = new ArrayList<>(3);
+
+		private long lastModified;
+
+		private long size;
+
+		JobLogFiles(Path logFile) {
+			this.logFile = logFile;
+			String name = logFile.getFileName().toString();
+			int separator = name.lastIndexOf('-');
+			int end = name.lastIndexOf('.');
+			Long id = null;
+			if (separator > DefaultJobLogFileNameCreator.PREFIX.length() && end > separator) {
+				try {
+					id = Long.valueOf(name.substring(separator + 1, end));
+				} catch (NumberFormatException e) {
+					// not a job log
+				}
+			}
+			this.executionId = id;
+			this.jobName = id == null ? null : name.substring(DefaultJobLogFileNameCreator.PREFIX.length(), separator);
+		}
+
+		void add(Path file, BasicFileAttributes attributes) {
+			files.add(file);
+			lastModified = Math.max(lastModified, attributes.lastModifiedTime().toMillis());
+			size += attributes.size();
+		}
+
+	}
+
+}
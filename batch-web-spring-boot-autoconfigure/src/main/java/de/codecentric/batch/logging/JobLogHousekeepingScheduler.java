@@ -0,0 +1,71 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.codecentric.batch.logging;
+
+import java.time.Duration;
+import java.util.Date;
+
+import org.springframework.context.SmartLifecycle;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+/**
+ * Runs the {@link JobLogHousekeeping} with a fixed delay on its own single thread while the ApplicationContext is
+ * running, so it neither competes with jobs for the threads of the taskExecutor nor needs scheduling to be enabled in
+ * the application. The first run is after the interval, but after one minute at the latest.
+ */
+public class JobLogHousekeepingScheduler implements SmartLifecycle {
+
+	private static final Duration MAX_INITIAL_DELAY = Duration.ofMinutes(1);
+
+	private final JobLogHousekeeping housekeeping;
+
+	private final Duration interval;
+
+	private ThreadPoolTaskScheduler scheduler;
+
+	public JobLogHousekeepingScheduler(JobLogHousekeeping housekeeping, Duration interval) {
+		this.housekeeping = housekeeping;
+		this.interval = interval;
+	}
+
+	@Override
+	public synchronized void start() {
+		if (scheduler != null) {
+			return;
+		}
+		scheduler = new ThreadPoolTaskScheduler();
+		scheduler.setThreadNamePrefix("joblog-housekeeping-");
+		scheduler.setDaemon(true);
+		scheduler.initialize();
+		Duration initialDelay = interval.compareTo(MAX_INITIAL_DELAY) < 0 ? interval : MAX_INITIAL_DELAY;
+		scheduler.scheduleWithFixedDelay(housekeeping, new Date(System.currentTimeMillis() + initialDelay.toMillis()),
+				interval.toMillis());
+	}
+
+	@Override
+	public synchronized void stop() {
+		if (scheduler != null) {
+			scheduler.shutdown();
+			scheduler = null;
+		}
+	}
+
+	@Override
+	public synchronized boolean isRunning() {
+		return scheduler != null;
+	}
+
+}
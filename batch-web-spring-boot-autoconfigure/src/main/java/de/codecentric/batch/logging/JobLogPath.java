@@ -0,0 +1,44 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.codecentric.batch.logging;
+
+/**
+ * Resolves the directory of the job logs: the first one set of JOB_LOG_PATH and LOG_PATH, as system property or
+ * environment variable, else java.io.tmpdir. The JOBLOGGER in logback-batch-base.xml defines its directory with the
+ * {@link JobLogPathPropertyDefiner}, and every other component reading or deleting job logs uses {@link #resolve()}, so
+ * they all agree on it. This class doesn't depend on logback, so it may be used by applications logging without it.
+ */
+public final class JobLogPath {
+
+	private static final String[] VARIABLES = { "JOB_LOG_PATH", "LOG_PATH" };
+
+	private JobLogPath() {
+	}
+
+	public static String resolve() {
+		for (String variable : VARIABLES) {
+			String value = System.getProperty(variable);
+			if (value == null) {
+				value = System.getenv(variable);
+			}
+			if (value != null && !value.isEmpty()) {
+				return value;
+			}
+		}
+		return System.getProperty("java.io.tmpdir", "/tmp");
+	}
+
+}
@@ -0,0 +1,186 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.codecentric.batch.logging;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import org.springframework.util.StreamUtils;
+
+/**
+ * Reads job logs written by the {@link AsyncJobLogAppender}, compressed or not. Compressed job logs may be filtered by
+ * step and time range, only the blocks matching the filter are decompressed, and of those only the events of the step
+ * and time range are returned, using the {@link JobLogBlock.Segment}s of the block. Blocks indexed without segments,
+ * the uncompressed tail of a running job execution and job logs without an index are returned completely.
+ */
+public class JobLogReader {
+
+	/**
+	 * Copies the job log to the given stream.
+	 *
+	 * @param file
+	 *            the uncompressed job log file, the compressed file and the index are found next to it
+	 * @param step
+	 *            only events of this step are returned, may be null
+	 * @param from
+	 *            only events logged at or after this point in time are returned, may be null
+	 * @param to
+	 *            only events logged at or before this point in time are returned, may be null
+	 * @throws FileNotFoundException
+	 *             if there's neither a compressed nor an uncompressed job log
+	 */
+	public void copy(File file, String step, Date from, Date to, OutputStream out) throws IOException {
+		File compressedFile = new File(file.getPath() + CompressedJobLogWriter.COMPRESSED_SUFFIX);
+		File indexFile = new File(file.getPath() + CompressedJobLogWriter.INDEX_SUFFIX);
+		if (!compressedFile.exists()) {
+			copyUncompressed(file, out);
+			return;
+		}
+		if (indexFile.exists()) {
+			try (RandomAccessFile compressed = new RandomAccessFile(compressedFile, "r")) {
+				for (JobLogBlock block : readIndex(indexFile)) {
+					if (block.matches(step, from, to)) {
+						compressed.seek(block.getOffset());
+						// The bounded stream doesn't close the file when the block has been decompressed
+						InputStream in = new BoundedInputStream(Channels.newInputStream(compressed.getChannel()),
+								block.getLength());
+						if (block.getSegments().isEmpty() || (step == null && from == null && to == null)) {
+							copyDecompressed(in, out);
+						} else {
+							copyDecompressed(in, block.getSegments(), step, from, to, out);
+						}
+					}
+				}
+			}
+		} else {
+			// Without an index all blocks are decompressed, GZIPInputStream reads concatenated members
+			try (InputStream in = new FileInputStream(compressedFile)) {
+				copyDecompressed(in, out);
+			}
+		}
+		if (file.exists()) {
+			copyUncompressed(file, out);
+		}
+	}
+
+	/**
+	 * Reads the blocks of a compressed job log from its index.
+	 */
+	public List<JobLogBlock> readIndex(File indexFile) throws IOException {
+		List<JobLogBlock> blocks = new ArrayList<>();
+		for (String line : Files.readAllLines(indexFile.toPath(), StandardCharsets.UTF_8)) {
+			if (!line.isEmpty()) {
+				blocks.add(JobLogBlock.fromIndexLine(line));
+			}
+		}
+		return blocks;
+	}
+
+	private void copyUncompressed(File file, OutputStream out) throws IOException {
+		try (InputStream in = new FileInputStream(file)) {
+			StreamUtils.copy(in, out);
+		}
+	}
+
+	private void copyDecompressed(InputStream in, OutputStream out) throws IOException {
+		try (GZIPInputStream gzip = new GZIPInputStream(in, 65536)) {
+			StreamUtils.copy(gzip, out);
+		}
+	}
+
+	/**
+	 * Decompresses a block and copies the segments matching the filter, skipping the others.
+	 */
+	private void copyDecompressed(InputStream in, List<JobLogBlock.Segment> segments, String step, Date from, Date to,
+			OutputStream out) throws IOException {
+		byte[] buffer = new byte[StreamUtils.BUFFER_SIZE];
+		try (GZIPInputStream gzip = new GZIPInputStream(in, 65536)) {
+			for (JobLogBlock.Segment segment : segments) {
+				boolean matches = segment.matches(step, from, to);
+				long remaining = segment.getLength();
+				while (remaining > 0) {
+					int read = gzip.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+					if (read < 0) {
+						return;
+					}
+					if (matches) {
+						out.write(buffer, 0, read);
+					}
+					remaining -= read;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Restricts reading to the compressed bytes of a single block.
+	 */
+	private static class BoundedInputStream extends InputStream {
+
+		private final InputStream in;
+
+		private long remaining;
+
+		BoundedInputStream(InputStream in, long length) {
+			this.in = in;
+			this.remaining = length;
+		}
+
+		@Override
+		public int read() throws IOException {
+			if (remaining <= 0) {
+				return -1;
+			}
+			int b = in.read();
+			if (b >= 0) {
+				remaining--;
+			}
+			return b;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			if (remaining <= 0) {
+				return -1;
+			}
+			int read = in.read(b, off, (int) Math.min(len, remaining));
+			if (read > 0) {
+				remaining -= read;
+			}
+			return read;
+		}
+
+		@Override
+		public int available() throws IOException {
+			return (int) Math.min(in.available(), remaining);
+		}
+
+	}
+
+}
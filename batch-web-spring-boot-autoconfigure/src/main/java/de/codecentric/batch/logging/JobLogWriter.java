@@ -0,0 +1,41 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.codecentric.batch.logging;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Writes the encoded log events of one job log to its file(s), used by the {@link AsyncJobLogAppender}.
+ */
+interface JobLogWriter extends Closeable {
+
+	/**
+	 * Writes the encoded bytes of an event.
+	 *
+	 * @param bytes
+	 *            the encoded event, or a header or footer of the encoder
+	 * @param timestamp
+	 *            the timestamp of the event, or -1 for headers and footers
+	 * @param step
+	 *            the step the event has been logged in, may be null
+	 */
+	void write(byte[] bytes, long timestamp, String step) throws IOException;
+
+	void flush() throws IOException;
+
+}
@@ -15,15 +15,15 @@
  */
 package de.codecentric.batch.metrics;
 
-import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.springframework.batch.core.StepExecution;
 import org.springframework.batch.core.scope.context.StepContext;
 import org.springframework.batch.core.scope.context.StepSynchronizationManager;
-import org.springframework.util.ClassUtils;
 
-import io.micrometer.core.instrument.ImmutableTag;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Timer;
 
@@ -40,32 +40,64 @@ import io.micrometer.core.instrument.Timer;
  * because jobs reside in child application contexts and don't inherit this kind of configuration from the parent.
  * proxyTargetClass=true means using CGLIB as proxy mechanism which allows us to proxy classes without interfaces.
  * 
+ * {@link #profilePhase(ProceedingJoinPoint, String)} adds the duration of a call to the time the step spends in a phase
+ * instead, see {@link StepPhaseMetricsAspect}.
+ * 
  * @author Tobias Flohre
  */
 public abstract class AbstractBatchMetricsAspect {
 
-	private MeterRegistry meterRegistry;
+	private static final String PHASE_TIMERS = AbstractBatchMetricsAspect.class.getName() + ".PHASE_TIMERS";
+
+	private BatchMeters batchMeters;
 
 	public AbstractBatchMetricsAspect(MeterRegistry meterRegistry) {
-		this.meterRegistry = meterRegistry;
+		this(new BatchMeters(meterRegistry));
+	}
+
+	public AbstractBatchMetricsAspect(BatchMeters batchMeters) {
+		this.batchMeters = batchMeters;
 	}
 
 	protected Object profileMethod(ProceedingJoinPoint pjp) throws Throwable {
-		Timer.Sample sample = Timer.start(meterRegistry);
+		Timer.Sample sample = Timer.start(batchMeters.getMeterRegistry());
 		try {
 			return pjp.proceed();
 		} finally {
-			sample.stop(meterRegistry.timer(MetricsListener.METRIC_NAME, Arrays.asList(//
-					new ImmutableTag("context", getStepIdentifier()), //
-					new ImmutableTag("method", ClassUtils.getShortName(pjp.getTarget().getClass()) + "."
-							+ pjp.getSignature().getName()))));
+			StepContext stepContext = StepSynchronizationManager.getContext();
+			StepExecution stepExecution = stepContext.getStepExecution();
+			sample.stop(batchMeters.methodTimer(stepContext.getJobName(), stepExecution.getStepName(),
+					pjp.getTarget().getClass(), pjp.getSignature().getName()));
 		}
 	}
 
-	private String getStepIdentifier() {
+	/**
+	 * Adds the duration of the call to the timer of the phase in the current step. Calls outside of a step, like the
+	 * commits of other transactions, are not timed. The timers are kept in the StepContext, so a call only costs a
+	 * lookup by the phase.
+	 */
+	protected Object profilePhase(ProceedingJoinPoint pjp, String phase) throws Throwable {
 		StepContext stepContext = StepSynchronizationManager.getContext();
-		StepExecution stepExecution = StepSynchronizationManager.getContext().getStepExecution();
-		return stepContext.getJobName() + "." + stepExecution.getStepName();
+		if (stepContext == null) {
+			return pjp.proceed();
+		}
+		long start = System.nanoTime();
+		try {
+			return pjp.proceed();
+		} finally {
+			phaseTimer(stepContext, phase).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private Timer phaseTimer(StepContext stepContext, String phase) {
+		Map<String, Timer> timers = (Map<String, Timer>) stepContext.getAttribute(PHASE_TIMERS);
+		if (timers == null) {
+			timers = new ConcurrentHashMap<>();
+			stepContext.setAttribute(PHASE_TIMERS, timers);
+		}
+		return timers.computeIfAbsent(phase, key -> batchMeters.phaseTimer(stepContext.getJobName(),
+				stepContext.getStepExecution().getStepName(), key));
 	}
 
 }
\ No newline at end of file
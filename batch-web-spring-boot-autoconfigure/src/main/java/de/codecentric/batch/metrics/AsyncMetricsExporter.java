@@ -0,0 +1,120 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.codecentric.batch.metrics;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Hands the snapshots over to a bounded queue and returns, so the job thread doesn't wait for the export. A single
+ * thread takes up to batchSize snapshots at a time from the queue and passes them to each of the exporters. A failing
+ * exporter is logged and doesn't keep the other exporters from getting the snapshots. Snapshots arriving while the queue
+ * is full are dropped and counted, so a slow sink can't make the job threads wait or fill the heap.
+ */
+public class AsyncMetricsExporter implements MetricsExporter, Closeable {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(AsyncMetricsExporter.class);
+
+	private static final long CLOSE_TIMEOUT_MILLIS = 10000;
+
+	private final List<MetricsExporter> exporters;
+
+	private final BlockingQueue<JobMetricsSnapshot> queue;
+
+	private final int batchSize;
+
+	private final AtomicLong droppedCount = new AtomicLong();
+
+	private final Thread thread;
+
+	private volatile boolean closed;
+
+	public AsyncMetricsExporter(List<MetricsExporter> exporters, int queueCapacity, int batchSize) {
+		this.exporters = new ArrayList<>(exporters);
+		this.queue = new ArrayBlockingQueue<>(queueCapacity);
+		this.batchSize = batchSize;
+		this.thread = new Thread(this::run, "batch-metrics-export");
+		this.thread.setDaemon(true);
+		this.thread.start();
+	}
+
+	@Override
+	public void export(List<JobMetricsSnapshot> snapshots) {
+		for (JobMetricsSnapshot snapshot : snapshots) {
+			if (closed || !queue.offer(snapshot)) {
+				LOGGER.warn("Dropped the metrics of job execution {}, the export queue is full or closed",
+						snapshot.getJobExecutionId());
+				droppedCount.incrementAndGet();
+			}
+		}
+	}
+
+	/**
+	 * @return number of snapshots dropped because the queue was full
+	 */
+	public long getDroppedCount() {
+		return droppedCount.get();
+	}
+
+	/**
+	 * Exports the snapshots in the queue and stops the export thread.
+	 */
+	@Override
+	public void close() {
+		closed = true;
+		try {
+			thread.join(CLOSE_TIMEOUT_MILLIS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void run() {
+		while (!closed || !queue.isEmpty()) {
+			JobMetricsSnapshot first;
+			try {
+				first = queue.poll(100, TimeUnit.MILLISECONDS);
+			} catch (InterruptedException e) {
+				return;
+			}
+			if (first != null) {
+				List<JobMetricsSnapshot> batch = new ArrayList<>(batchSize);
+				batch.add(first);
+				queue.drainTo(batch, batchSize - 1);
+				deliver(batch);
+			}
+		}
+	}
+
+	private void deliver(List<JobMetricsSnapshot> batch) {
+		for (MetricsExporter exporter : exporters) {
+			try {
+				exporter.export(batch);
+			} catch (Exception e) {
+				LOGGER.warn("Exporting the metrics of {} job executions with {} failed", batch.size(), exporter, e);
+			}
+		}
+	}
+
+}
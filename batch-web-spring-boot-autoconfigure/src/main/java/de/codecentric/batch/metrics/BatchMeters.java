@@ -0,0 +1,423 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.codecentric.batch.metrics;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.util.ClassUtils;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.search.Search;
+
+/**
+ * Names and tags the meters of the {@link MetricsListener}, the {@link StepMetricsStore} and the
+ * {@link AbstractBatchMetricsAspect}s.
+ * <p>
+ * With {@link Layout#V1} everything is a {@value MetricsListener#METRIC_NAME} meter, tagged with the job and step name
+ * as {@code context=jobName.stepName} and the kind of metric as {@code name}. With {@link Layout#V2} every kind of
+ * metric has its own meter name and job, step, status and method are separate tags, so they can be aggregated and
+ * filtered by monitoring systems like Prometheus:
+ * <ul>
+ * <li>{@code batch.job.duration} with the tags job and status</li>
+ * <li>{@code batch.step.duration}, {@code batch.step.items} and {@code batch.step.item.duration} with the tags job,
+ * step and status</li>
+ * <li>{@code batch.step.metric} with the tags job, step and metric for the {@link BatchMetrics} and other numbers in the
+ * Step-ExecutionContext</li>
+ * <li>the timer {@code batch.step.chunk.latency} with the tags job and step</li>
+ * <li>the timer {@code batch.step.phase} with the tags job, step and phase</li>
+ * <li>{@code batch.partition.duration} and {@code batch.partition.items} with the tags job, step and partition for each
+ * partition of a partitioned step, the step being the worker step</li>
+ * <li>{@code batch.partitions.count}, {@code batch.partitions.items}, {@code batch.partitions.duration.max},
+ * {@code batch.partitions.duration.median} and {@code batch.partitions.skew} with the tags job and step for the rollup
+ * of all partitions of a worker step</li>
+ * <li>the timers {@code batch.item.read}, {@code batch.item.process} and {@code batch.item.write} for the profiled
+ * read, process and write methods, {@code batch.method} for other profiled methods, with the tags job, step and
+ * method</li>
+ * </ul>
+ * The batch meters added to the registry, also by other components like custom aspects, are indexed by job and step,
+ * so {@link #snapshot(JobExecution)} finds the meters of a job execution without searching the registry. In V2 the
+ * number of distinct values of each tag is capped, values beyond the cap are reported as {@value #OTHER_TAG_VALUE},
+ * so that a job with generated step names or metric names can't flood the registry.
+ */
+public class BatchMeters {
+
+	public static final String OTHER_TAG_VALUE = "other";
+
+	public static final String JOB_DURATION = "batch.job.duration";
+
+	public static final String STEP_DURATION = "batch.step.duration";
+
+	public static final String STEP_ITEMS = "batch.step.items";
+
+	public static final String STEP_ITEM_DURATION = "batch.step.item.duration";
+
+	public static final String STEP_METRIC = "batch.step.metric";
+
+	public static final String STEP_CHUNK_LATENCY = "batch.step.chunk.latency";
+
+	public static final String STEP_PHASE = "batch.step.phase";
+
+	public static final String PARTITION_DURATION = "batch.partition.duration";
+
+	public static final String PARTITION_ITEMS = "batch.partition.items";
+
+	public static final String PARTITIONS_COUNT = "batch.partitions.count";
+
+	public static final String PARTITIONS_ITEMS = "batch.partitions.items";
+
+	public static final String PARTITIONS_DURATION_MAX = "batch.partitions.duration.max";
+
+	public static final String PARTITIONS_DURATION_MEDIAN = "batch.partitions.duration.median";
+
+	public static final String PARTITIONS_SKEW = "batch.partitions.skew";
+
+	public static final String ITEM_READ = "batch.item.read";
+
+	public static final String ITEM_PROCESS = "batch.item.process";
+
+	public static final String ITEM_WRITE = "batch.item.write";
+
+	public static final String METHOD = "batch.method";
+
+	private static final String MILLISECONDS = "milliseconds";
+
+	private static final String PARTITION_SEPARATOR = ":";
+
+	private final MeterRegistry meterRegistry;
+
+	private final Layout layout;
+
+	private final int maxTagValues;
+
+	private final Map<String, Set<String>> tagValues = new ConcurrentHashMap<>();
+
+	private final Map<String, GaugeValue> gauges = new ConcurrentHashMap<>();
+
+	private final Map<String, Set<Meter>> meters = new ConcurrentHashMap<>();
+
+	private double[] methodPercentiles = new double[0];
+
+	/**
+	 * Uses the {@link Layout#V1} layout.
+	 */
+	public BatchMeters(MeterRegistry meterRegistry) {
+		this(meterRegistry, Layout.V1, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * @param maxTagValues
+	 *            maximum number of distinct values per tag in the {@link Layout#V2} layout
+	 */
+	public BatchMeters(MeterRegistry meterRegistry, Layout layout, int maxTagValues) {
+		this.meterRegistry = meterRegistry;
+		this.layout = layout;
+		this.maxTagValues = maxTagValues;
+		meterRegistry.config().onMeterAdded(this::index).onMeterRemoved(this::unindex);
+	}
+
+	public MeterRegistry getMeterRegistry() {
+		return meterRegistry;
+	}
+
+	public Layout getLayout() {
+		return layout;
+	}
+
+	/**
+	 * Sets the percentiles published by the timers of profiled methods, so the latency distribution of reading,
+	 * processing and writing single items is visible. Has to be set before the first timer is created.
+	 */
+	public void setMethodPercentiles(double... methodPercentiles) {
+		this.methodPercentiles = methodPercentiles;
+	}
+
+	/**
+	 * Returns the gauge value of the metric of a step, registering the gauge with the first call.
+	 */
+	public GaugeValue stepMetric(String jobName, String stepName, String metricName) {
+		if (layout == Layout.V1) {
+			return gauge(MetricsListener.METRIC_NAME, null,
+					Tags.of("context", jobName + "." + stepName, "name", metricName));
+		}
+		return gauge(STEP_METRIC, null, Tags.of("job", tagValue("job", jobName), "step", tagValue("step", stepName),
+				"metric", tagValue("metric", metricName)));
+	}
+
+	/**
+	 * Returns the gauge value of the duration, item count or duration per item of a step in the {@link Layout#V2}
+	 * layout.
+	 *
+	 * @param name
+	 *            {@link #STEP_DURATION}, {@link #STEP_ITEMS} or {@link #STEP_ITEM_DURATION}
+	 */
+	public GaugeValue stepGauge(String name, String jobName, String stepName, String status) {
+		return gauge(name, STEP_ITEMS.equals(name) ? "items" : MILLISECONDS, Tags.of("job", tagValue("job", jobName),
+				"step", tagValue("step", stepName), "status", tagValue("status", status)));
+	}
+
+	/**
+	 * Returns the gauge value of the duration or item count of one partition of a worker step in the {@link Layout#V2}
+	 * layout. In {@link Layout#V1} the partitions are exported like steps named {@code stepName:partitionName}.
+	 *
+	 * @param name
+	 *            {@link #PARTITION_DURATION} or {@link #PARTITION_ITEMS}
+	 */
+	public GaugeValue partitionGauge(String name, String jobName, String stepName, String partitionName) {
+		return gauge(name, PARTITION_ITEMS.equals(name) ? "items" : MILLISECONDS,
+				Tags.of("job", tagValue("job", jobName), "step", tagValue("step", stepName), "partition",
+						tagValue("partition", partitionName)));
+	}
+
+	/**
+	 * Returns the gauge value of the rollup of all partitions of a worker step. In {@link Layout#V1} the rollup is a
+	 * {@value MetricsListener#METRIC_NAME} meter named like the V2 meter without the prefix {@code batch.}.
+	 *
+	 * @param name
+	 *            {@link #PARTITIONS_COUNT}, {@link #PARTITIONS_ITEMS}, {@link #PARTITIONS_DURATION_MAX},
+	 *            {@link #PARTITIONS_DURATION_MEDIAN} or {@link #PARTITIONS_SKEW}
+	 */
+	public GaugeValue partitionsGauge(String name, String jobName, String stepName) {
+		if (layout == Layout.V1) {
+			return gauge(MetricsListener.METRIC_NAME, null, Tags.of("context", jobName + "." + stepName, "name",
+					name.substring(name.indexOf('.') + 1)));
+		}
+		String baseUnit = PARTITIONS_DURATION_MAX.equals(name) || PARTITIONS_DURATION_MEDIAN.equals(name)
+				? MILLISECONDS
+				: PARTITIONS_ITEMS.equals(name) ? "items" : null;
+		return gauge(name, baseUnit, Tags.of("job", tagValue("job", jobName), "step", tagValue("step", stepName)));
+	}
+
+	/**
+	 * Returns the name of the worker step of a step execution created for a partition, named
+	 * {@code stepName:partitionName} by Spring Batch, or null if the step execution is not a partition.
+	 */
+	public static String workerStepName(String stepName) {
+		int separator = stepName.indexOf(PARTITION_SEPARATOR);
+		return separator > 0 && separator < stepName.length() - 1 ? stepName.substring(0, separator) : null;
+	}
+
+	/**
+	 * Returns the gauge value of the duration of a job in the {@link Layout#V2} layout.
+	 */
+	public GaugeValue jobDuration(String jobName, String status) {
+		return gauge(JOB_DURATION, MILLISECONDS,
+				Tags.of("job", tagValue("job", jobName), "status", tagValue("status", status)));
+	}
+
+	/**
+	 * Returns the timer for a profiled method called in a step, publishing the method percentiles.
+	 */
+	public Timer methodTimer(String jobName, String stepName, Class<?> targetClass, String methodName) {
+		String method = ClassUtils.getShortName(targetClass) + "." + methodName;
+		Timer.Builder builder;
+		if (layout == Layout.V1) {
+			builder = Timer.builder(MetricsListener.METRIC_NAME).tag("context", jobName + "." + stepName)
+					.tag("method", method);
+		} else {
+			builder = Timer.builder(timerName(methodName)).tag("job", tagValue("job", jobName))
+					.tag("step", tagValue("step", stepName)).tag("method", tagValue("method", method));
+		}
+		return builder.publishPercentiles(methodPercentiles).register(meterRegistry);
+	}
+
+	/**
+	 * Returns the timer {@link #STEP_CHUNK_LATENCY} for the latency of the chunks of a step, publishing the given
+	 * percentiles. In the {@link Layout#V1} layout the timer is called
+	 * {@value MetricsListener#METRIC_NAME}.chunk.latency.
+	 */
+	public Timer latencyTimer(String jobName, String stepName, double... percentiles) {
+		Timer.Builder builder;
+		if (layout == Layout.V1) {
+			builder = Timer.builder(MetricsListener.METRIC_NAME + ".chunk.latency").tag("context",
+					jobName + "." + stepName);
+		} else {
+			builder = Timer.builder(STEP_CHUNK_LATENCY).tag("job", tagValue("job", jobName)).tag("step",
+					tagValue("step", stepName));
+		}
+		return builder.publishPercentiles(percentiles).register(meterRegistry);
+	}
+
+	/**
+	 * Returns the timer for the time a step spends in one phase, like reading or committing. In the {@link Layout#V1}
+	 * layout the timer is called {@value MetricsListener#METRIC_NAME}.phase.
+	 */
+	public Timer phaseTimer(String jobName, String stepName, String phase) {
+		if (layout == Layout.V1) {
+			return meterRegistry.timer(MetricsListener.METRIC_NAME + ".phase", "context", jobName + "." + stepName,
+					"phase", phase);
+		}
+		return meterRegistry.timer(STEP_PHASE, "job", tagValue("job", jobName), "step", tagValue("step", stepName),
+				"phase", phase);
+	}
+
+	/**
+	 * Takes a snapshot of the meters of a job execution, the meters of the job and of the steps executed by it, without
+	 * searching the registry. The timers are cumulative over all executions of the job.
+	 */
+	public JobMetricsSnapshot snapshot(JobExecution jobExecution) {
+		String jobName = jobExecution.getJobInstance().getJobName();
+		Set<Meter> executionMeters = new LinkedHashSet<>(meters(jobName, null));
+		for (StepExecution stepExecution : jobExecution.getStepExecutions()) {
+			executionMeters.addAll(meters(jobName, stepExecution.getStepName()));
+			String workerStepName = workerStepName(stepExecution.getStepName());
+			if (workerStepName != null) {
+				// the partition series and the rollup are tagged with the worker step
+				executionMeters.addAll(meters(jobName, workerStepName));
+			}
+		}
+		return new JobMetricsSnapshot(jobExecution, executionMeters);
+	}
+
+	/**
+	 * Whether the meter is one of the batch meters of this layout.
+	 */
+	public boolean isBatchMeter(String name) {
+		if (layout == Layout.V1) {
+			return name.equals(MetricsListener.METRIC_NAME) || name.startsWith(MetricsListener.METRIC_NAME + ".");
+		}
+		return name.startsWith("batch.job.") || name.startsWith("batch.step.") || name.startsWith("batch.item.")
+				|| name.startsWith("batch.partition.") || name.startsWith("batch.partitions.") || name.equals(METHOD);
+	}
+
+	/**
+	 * Searches all meters of this layout, for logging them.
+	 */
+	public Search search() {
+		return Search.in(meterRegistry).name(this::isBatchMeter);
+	}
+
+	private static String timerName(String methodName) {
+		switch (methodName) {
+		case "read":
+			return ITEM_READ;
+		case "process":
+			return ITEM_PROCESS;
+		case "write":
+			return ITEM_WRITE;
+		default:
+			return METHOD;
+		}
+	}
+
+	private String tagValue(String key, String value) {
+		Set<String> values = tagValues.computeIfAbsent(key, k -> ConcurrentHashMap.newKeySet());
+		if (values.contains(value)) {
+			return value;
+		}
+		synchronized (values) {
+			if (values.size() < maxTagValues) {
+				values.add(value);
+				return value;
+			}
+		}
+		return values.contains(value) ? value : OTHER_TAG_VALUE;
+	}
+
+	private GaugeValue gauge(String name, String baseUnit, Tags tags) {
+		return gauges.computeIfAbsent(name + tags, key -> {
+			GaugeValue value = new GaugeValue();
+			Gauge.builder(name, value, GaugeValue::doubleValue).tags(tags).baseUnit(baseUnit).strongReference(true)
+					.register(meterRegistry);
+			return value;
+		});
+	}
+
+	private void index(Meter meter) {
+		String key = meterKey(meter.getId());
+		if (key != null) {
+			meters.computeIfAbsent(key, k -> ConcurrentHashMap.newKeySet()).add(meter);
+		}
+	}
+
+	private void unindex(Meter meter) {
+		String key = meterKey(meter.getId());
+		if (key != null) {
+			meters.getOrDefault(key, Collections.emptySet()).remove(meter);
+		}
+	}
+
+	private String meterKey(Meter.Id id) {
+		if (!isBatchMeter(id.getName())) {
+			return null;
+		}
+		if (layout == Layout.V1) {
+			return id.getTag("context");
+		}
+		String job = id.getTag("job");
+		String step = id.getTag("step");
+		return job == null ? null : step == null ? job : job + "\0" + step;
+	}
+
+	private Set<Meter> meters(String jobName, String stepName) {
+		String key;
+		if (layout == Layout.V1) {
+			key = stepName == null ? jobName : jobName + "." + stepName;
+		} else {
+			// the tag values of the meters, without adding new ones
+			key = stepName == null ? existingTagValue("job", jobName)
+					: existingTagValue("job", jobName) + "\0" + existingTagValue("step", stepName);
+		}
+		return meters.getOrDefault(key, Collections.emptySet());
+	}
+
+	private String existingTagValue(String key, String value) {
+		Set<String> values = tagValues.get(key);
+		return values == null || values.size() < maxTagValues || values.contains(value) ? value : OTHER_TAG_VALUE;
+	}
+
+	public enum Layout {
+		/**
+		 * One meter name {@value MetricsListener#METRIC_NAME} with the tags context and name.
+		 */
+		V1,
+		/**
+		 * A meter name per kind of metric with the tags job, step, status and method.
+		 */
+		V2
+	}
+
+	/**
+	 * The value of a gauge, the gauge shows the last value set.
+	 */
+	public static class GaugeValue {
+
+		private volatile Number value = 0L;
+
+		public Number get() {
+			return value;
+		}
+
+		public void set(Number value) {
+			this.value = value;
+		}
+
+		private double doubleValue() {
+			return value.doubleValue();
+		}
+
+	}
+
+}
@@ -40,9 +40,20 @@ public class BatchMetricsImpl extends TransactionSynchronizationAdapter implemen
 
 	private final Object serviceKey;
 
+	private final StepMetricsStore stepMetricsStore;
+
 	public BatchMetricsImpl() {
+		this(null);
+	}
+
+	/**
+	 * @param stepMetricsStore
+	 *            keeps the metrics of running steps, if null they are stored in the Step-ExecutionContext directly
+	 */
+	public BatchMetricsImpl(StepMetricsStore stepMetricsStore) {
 		this.serviceKey = new Object();
 		this.metricContainer = new ThreadLocal<MetricContainer>();
+		this.stepMetricsStore = stepMetricsStore;
 	}
 
 	@Override
@@ -160,6 +171,10 @@ public class BatchMetricsImpl extends TransactionSynchronizationAdapter implemen
 
 	synchronized private void modifyCounter(String metricName, Long value) {
 		StepExecution stepExecution = getStepExecution();
+		if (stepMetricsStore != null) {
+			stepMetricsStore.increment(stepExecution, metricName, value);
+			return;
+		}
 		Long oldValue = 0L;
 		if (stepExecution.getExecutionContext().containsKey(metricName)) {
 			oldValue = stepExecution.getExecutionContext().getLong(metricName);
@@ -169,6 +184,10 @@ public class BatchMetricsImpl extends TransactionSynchronizationAdapter implemen
 
 	private void remove(String metricName) {
 		StepExecution stepExecution = getStepExecution();
+		if (stepMetricsStore != null) {
+			stepMetricsStore.remove(stepExecution, metricName);
+			return;
+		}
 		if (stepExecution.getExecutionContext().containsKey(metricName)) {
 			stepExecution.getExecutionContext().remove(metricName);
 		}
@@ -176,6 +195,10 @@ public class BatchMetricsImpl extends TransactionSynchronizationAdapter implemen
 
 	private void set(String metricName, double value) {
 		StepExecution stepExecution = getStepExecution();
+		if (stepMetricsStore != null) {
+			stepMetricsStore.set(stepExecution, metricName, value);
+			return;
+		}
 		stepExecution.getExecutionContext().put(metricName, value);
 	}
 
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.codecentric.batch.metrics;
+
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.listener.ChunkListenerSupport;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Records the commit of each chunk transaction in the {@value StepPhaseMetricsAspect#COMMIT} phase of the
+ * {@link StepPhaseMetricsAspect}. The commit methods of Spring's transaction managers are final and can't be advised,
+ * so the listener registers a TransactionSynchronization with the chunk transaction instead, which measures from
+ * beforeCompletion to afterCompletion. Rolled back chunks are not recorded.
+ */
+public class CommitMetricsListener extends ChunkListenerSupport {
+
+	private final BatchMeters batchMeters;
+
+	public CommitMetricsListener(BatchMeters batchMeters) {
+		this.batchMeters = batchMeters;
+	}
+
+	@Override
+	public void beforeChunk(ChunkContext context) {
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			return;
+		}
+		StepExecution stepExecution = context.getStepContext().getStepExecution();
+		Timer timer = batchMeters.phaseTimer(stepExecution.getJobExecution().getJobInstance().getJobName(),
+				stepExecution.getStepName(), StepPhaseMetricsAspect.COMMIT);
+		TransactionSynchronizationManager.registerSynchronization(new CommitTimer(timer));
+	}
+
+	private static class CommitTimer implements TransactionSynchronization {
+
+		private final Timer timer;
+
+		private long start;
+
+		CommitTimer(Timer timer) {
+			this.timer = timer;
+		}
+
+		@Override
+		public void beforeCompletion() {
+			start = System.nanoTime();
+		}
+
+		@Override
+		public void afterCompletion(int status) {
+			if (status == STATUS_COMMITTED) {
+				timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+			}
+		}
+
+	}
+
+}
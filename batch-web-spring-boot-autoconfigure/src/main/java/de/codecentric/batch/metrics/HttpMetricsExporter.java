@@ -0,0 +1,81 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.codecentric.batch.metrics;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Posts the snapshots of a batch in one request to a URL, in the same JSON lines format as the
+ * {@link JsonLinesMetricsExporter}, with the content type application/x-ndjson. Meant for a collector running next to
+ * the application, like a push gateway or an agent, not for pushing over slow networks. A response status other than
+ * 2xx fails the export.
+ */
+public class HttpMetricsExporter implements MetricsExporter {
+
+	private final URL url;
+
+	private final int timeoutMillis;
+
+	private final ObjectMapper objectMapper;
+
+	public HttpMetricsExporter(URL url, Duration timeout, ObjectMapper objectMapper) {
+		this.url = url;
+		this.timeoutMillis = (int) timeout.toMillis();
+		this.objectMapper = objectMapper;
+	}
+
+	@Override
+	public void export(List<JobMetricsSnapshot> snapshots) throws IOException {
+		HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+		connection.setRequestMethod("POST");
+		connection.setConnectTimeout(timeoutMillis);
+		connection.setReadTimeout(timeoutMillis);
+		connection.setDoOutput(true);
+		connection.setRequestProperty("Content-Type", "application/x-ndjson; charset=utf-8");
+		try (Writer writer = new OutputStreamWriter(connection.getOutputStream(), StandardCharsets.UTF_8)) {
+			JsonLinesMetricsExporter.writeLines(objectMapper, snapshots, writer);
+		}
+		int status = connection.getResponseCode();
+		// the response is read completely so the connection is kept alive for the next batch
+		try (InputStream response = status < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+			if (response != null) {
+				byte[] buffer = new byte[1024];
+				while (response.read(buffer) != -1) {
+					// discard
+				}
+			}
+		}
+		if (status < 200 || status >= 300) {
+			throw new IOException("Pushing metrics to " + url + " failed with status " + status);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "HttpMetricsExporter [" + url + "]";
+	}
+
+}
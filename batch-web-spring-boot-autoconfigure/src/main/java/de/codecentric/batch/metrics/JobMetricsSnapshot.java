@@ -0,0 +1,180 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.codecentric.batch.metrics;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.springframework.batch.core.JobExecution;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Measurement;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+
+/**
+ * The meters of one job execution and their values at the end of the job execution, taken on the job thread so that
+ * an asynchronous {@link MetricsExporter} exports these values even if the next execution of the job has already
+ * started.
+ * <p>
+ * The meters are selected by job and step name, so the values are cumulative: timers and the partition series
+ * accumulate over all executions of the job since the application has started, like they do in the registry. Only
+ * the gauges of the job and its steps show the values of this job execution.
+ */
+public class JobMetricsSnapshot {
+
+	private final String jobName;
+
+	private final Long jobExecutionId;
+
+	private final String status;
+
+	private final long timestamp;
+
+	private final List<Gauge> gauges = new ArrayList<>();
+
+	private final List<Timer> timers = new ArrayList<>();
+
+	private final List<MeterValues> meters = new ArrayList<>();
+
+	public JobMetricsSnapshot(JobExecution jobExecution, Collection<? extends Meter> meters) {
+		this.jobName = jobExecution.getJobInstance().getJobName();
+		this.jobExecutionId = jobExecution.getId();
+		this.status = jobExecution.getStatus().name();
+		this.timestamp = System.currentTimeMillis();
+		for (Meter meter : meters) {
+			if (meter instanceof Gauge) {
+				gauges.add((Gauge) meter);
+			} else if (meter instanceof Timer) {
+				timers.add((Timer) meter);
+			}
+			this.meters.add(new MeterValues(meter));
+		}
+	}
+
+	public String getJobName() {
+		return jobName;
+	}
+
+	public Long getJobExecutionId() {
+		return jobExecutionId;
+	}
+
+	public String getStatus() {
+		return status;
+	}
+
+	/**
+	 * @return time the snapshot was taken in milliseconds since the epoch
+	 */
+	public long getTimestamp() {
+		return timestamp;
+	}
+
+	/**
+	 * @return the live gauges of the job execution, only read on the job thread by the default
+	 *         {@link MetricsOutputFormatter#format(JobMetricsSnapshot)}
+	 */
+	List<Gauge> gauges() {
+		return Collections.unmodifiableList(gauges);
+	}
+
+	/**
+	 * @return the live timers of the job execution, only read on the job thread by the default
+	 *         {@link MetricsOutputFormatter#format(JobMetricsSnapshot)}
+	 */
+	List<Timer> timers() {
+		return Collections.unmodifiableList(timers);
+	}
+
+	/**
+	 * @return the values of all meters of the job execution at the time the snapshot was taken, cumulative for timers
+	 */
+	public List<MeterValues> getMeters() {
+		return Collections.unmodifiableList(meters);
+	}
+
+	/**
+	 * Name, tags and values of a meter. The values are keyed by the statistic in lower case, like value, count,
+	 * total_time and max, timer values are in the base time unit of the registry. Percentiles are keyed by the
+	 * percentile, like 0.99.
+	 */
+	public static class MeterValues {
+
+		private final String name;
+
+		private final String type;
+
+		private final String baseUnit;
+
+		private final Map<String, String> tags = new LinkedHashMap<>();
+
+		private final Map<String, Double> values = new LinkedHashMap<>();
+
+		private final Map<String, Double> percentiles = new LinkedHashMap<>();
+
+		private MeterValues(Meter meter) {
+			this.name = meter.getId().getName();
+			this.type = meter.getId().getType().name().toLowerCase(Locale.ROOT);
+			this.baseUnit = meter.getId().getBaseUnit();
+			for (Tag tag : meter.getId().getTagsAsIterable()) {
+				tags.put(tag.getKey(), tag.getValue());
+			}
+			for (Measurement measurement : meter.measure()) {
+				values.put(measurement.getStatistic().name().toLowerCase(Locale.ROOT), measurement.getValue());
+			}
+			if (meter instanceof Timer) {
+				Timer timer = (Timer) meter;
+				for (ValueAtPercentile percentile : timer.takeSnapshot().percentileValues()) {
+					percentiles.put(Double.toString(percentile.percentile()), percentile.value(timer.baseTimeUnit()));
+				}
+			}
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public String getType() {
+			return type;
+		}
+
+		public String getBaseUnit() {
+			return baseUnit;
+		}
+
+		public Map<String, String> getTags() {
+			return Collections.unmodifiableMap(tags);
+		}
+
+		public Map<String, Double> getValues() {
+			return Collections.unmodifiableMap(values);
+		}
+
+		public Map<String, Double> getPercentiles() {
+			return Collections.unmodifiableMap(percentiles);
+		}
+
+	}
+
+}
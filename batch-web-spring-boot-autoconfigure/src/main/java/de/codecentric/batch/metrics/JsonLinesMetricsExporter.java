@@ -0,0 +1,75 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.codecentric.batch.metrics;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Appends one JSON object per job execution to a file, all snapshots of a batch with one write.
+ */
+public class JsonLinesMetricsExporter implements MetricsExporter {
+
+	private final Path file;
+
+	private final ObjectMapper objectMapper;
+
+	public JsonLinesMetricsExporter(Path file, ObjectMapper objectMapper) {
+		this.file = file;
+		this.objectMapper = objectMapper;
+	}
+
+	@Override
+	public synchronized void export(List<JobMetricsSnapshot> snapshots) throws IOException {
+		Path directory = file.toAbsolutePath().getParent();
+		if (directory != null) {
+			Files.createDirectories(directory);
+		}
+		try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+				StandardOpenOption.APPEND)) {
+			writeLines(objectMapper, snapshots, writer);
+		}
+	}
+
+	/**
+	 * Writes each snapshot as a JSON object followed by a line break.
+	 */
+	static void writeLines(ObjectMapper objectMapper, List<JobMetricsSnapshot> snapshots, Writer writer)
+			throws IOException {
+		for (JobMetricsSnapshot snapshot : snapshots) {
+			try (JsonGenerator generator = objectMapper.getFactory().createGenerator(writer)) {
+				generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+				generator.writeStartObject();
+				generator.writeStringField("job", snapshot.getJobName());
+				generator.writeNumberField("jobExecutionId", snapshot.getJobExecutionId());
+				generator.writeStringField("status", snapshot.getStatus());
+				generator.writeNumberField("timestamp", snapshot.getTimestamp());
+				generator.writeObjectField("meters", snapshot.getMeters());
+				generator.writeEndObject();
+			}
+			writer.write('\n');
+		}
+	}
+
+}
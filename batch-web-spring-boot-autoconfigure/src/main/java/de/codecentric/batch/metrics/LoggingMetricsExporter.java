@@ -0,0 +1,94 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.codecentric.batch.metrics;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.codecentric.batch.metrics.JobMetricsSnapshot.MeterValues;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Logs the gauges and timers of each job execution formatted by a {@link MetricsOutputFormatter}, with the logger of
+ * the {@link MetricsListener} that used to log them. It is called on the job thread, so the metrics end up in the log
+ * of the job. The default format shows the values captured in the {@link JobMetricsSnapshot}.
+ */
+public class LoggingMetricsExporter implements MetricsExporter {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(MetricsListener.class);
+
+	private final MetricsOutputFormatter metricsOutputFormatter;
+
+	public LoggingMetricsExporter() {
+		this(new SimpleMetricsOutputFormatter());
+	}
+
+	public LoggingMetricsExporter(MetricsOutputFormatter metricsOutputFormatter) {
+		this.metricsOutputFormatter = metricsOutputFormatter;
+	}
+
+	@Override
+	public void export(List<JobMetricsSnapshot> snapshots) {
+		for (JobMetricsSnapshot snapshot : snapshots) {
+			LOGGER.info(metricsOutputFormatter.format(snapshot));
+		}
+	}
+
+	// tag::contains[]
+	private static class SimpleMetricsOutputFormatter implements MetricsOutputFormatter {
+
+		@Override
+		public String format(Collection<Gauge> gauges, Collection<Timer> timers) {
+			StringBuilder builder = new StringBuilder("\n########## Metrics Start ##########\n");
+			gauges.stream().forEach(gauge -> {
+				builder.append("Gauge [" + gauge.getId() + "]: ");
+				builder.append(gauge.value() + "\n");
+			});
+			timers.stream().forEach(timer -> {
+				builder.append("Timer [" + timer.getId() + "]: ");
+				builder.append(
+						"totalTime=" + timer.totalTime(timer.baseTimeUnit()) + " " + timer.baseTimeUnit() + "\n");
+			});
+			builder.append("########## Metrics End ############");
+			return builder.toString();
+		}
+
+		@Override
+		public String format(JobMetricsSnapshot snapshot) {
+			StringBuilder builder = new StringBuilder("\n########## Metrics Start ##########\n");
+			for (MeterValues meter : snapshot.getMeters()) {
+				Map<String, Double> values = meter.getValues();
+				if ("gauge".equals(meter.getType())) {
+					builder.append("Gauge [" + meter.getName() + meter.getTags() + "]: ");
+					builder.append(values.get("value") + "\n");
+				} else if ("timer".equals(meter.getType())) {
+					builder.append("Timer [" + meter.getName() + meter.getTags() + "]: ");
+					builder.append("totalTime=" + values.get("total_time") + " " + meter.getBaseUnit() + "\n");
+				}
+			}
+			builder.append("########## Metrics End ############");
+			return builder.toString();
+		}
+
+	}
+	// end::contains[]
+
+}
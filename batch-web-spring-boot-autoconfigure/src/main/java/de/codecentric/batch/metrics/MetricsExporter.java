@@ -0,0 +1,34 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.codecentric.batch.metrics;
+
+import java.util.List;
+
+/**
+ * Used in {@link MetricsListener} to export the metrics of a job execution after it has finished. Components
+ * implementing this interface may be added to the ApplicationContext, they are called in addition to the exporters
+ * configured with batch.metrics.export.sinks. By default they are called asynchronously by an
+ * {@link AsyncMetricsExporter}, with the snapshots of several job executions at once if the export falls behind.
+ */
+public interface MetricsExporter {
+
+	/**
+	 * @param snapshots
+	 *            the metrics of one or more finished job executions, in the order the job executions finished
+	 */
+	public void export(List<JobMetricsSnapshot> snapshots) throws Exception;
+
+}
@@ -15,8 +15,12 @@
  */
 package de.codecentric.batch.metrics;
 
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 
@@ -29,21 +33,25 @@ import org.springframework.batch.core.StepExecution;
 import org.springframework.batch.core.listener.StepExecutionListenerSupport;
 import org.springframework.core.Ordered;
 
-import io.micrometer.core.instrument.Gauge;
 import io.micrometer.core.instrument.ImmutableTag;
 import io.micrometer.core.instrument.MeterRegistry;
-import io.micrometer.core.instrument.Timer;
-import io.micrometer.core.instrument.search.Search;
 
 /**
  * This listener exports all metrics with the prefix 'counter.batch.{jobName}.{jobExecutionId}.{stepName} and all gauges
- * with the prefix 'gauge.batch.{jobName}.{stepName}' to the Step- ExecutionContext without the prefix. All metrics and
- * gauges are logged as well. For overriding the default format of the logging a component implementing
- * {@link MetricsOutputFormatter} may be added to the ApplicationContext.
+ * with the prefix 'gauge.batch.{jobName}.{stepName}' to the Step- ExecutionContext without the prefix. The metrics of the
+ * job execution are passed to a {@link MetricsExporter} when the job has finished, by default they are logged. For
+ * overriding the default format of the logging a component implementing {@link MetricsOutputFormatter} may be added to
+ * the ApplicationContext.
  *
  * Counters are cumulated over several StepExecutions belonging to one Step in one JobInstance, important for restarted
  * jobs.
  *
+ * The StepExecutions of a partitioned step are named 'workerStep:partition'. With the {@link BatchMeters.Layout#V2}
+ * layout each partition gets its own series tagged with the worker step and the partition. When the manager step has
+ * finished, the partitions of each worker step are rolled up: the number of partitions, the items, the slowest and the
+ * median duration, the skew as slowest divided by median duration and the sums of the numbers in the
+ * Step-ExecutionContexts of the partitions, see {@link BatchMeters#partitionsGauge(String, String, String)}.
+ *
  * @author Tobias Flohre
  * @author Dennis Schulte
  */
@@ -55,10 +63,36 @@ public class MetricsListener extends StepExecutionListenerSupport implements Ord
 
 	private MeterRegistry meterRegistry;
 
-	private MetricsOutputFormatter metricsOutputFormatter = new SimpleMetricsOutputFormatter();
+	private final BatchMeters batchMeters;
+
+	private MetricsExporter metricsExporter = new LoggingMetricsExporter();
+
+	private final StepMetricsStore stepMetricsStore;
 
 	public MetricsListener(MeterRegistry meterRegistry) {
-		this.meterRegistry = meterRegistry;
+		this(meterRegistry, null);
+	}
+
+	/**
+	 * @param stepMetricsStore
+	 *            the metrics of a step are copied from this store to the Step-ExecutionContext before they are exported,
+	 *            may be null
+	 */
+	public MetricsListener(MeterRegistry meterRegistry, StepMetricsStore stepMetricsStore) {
+		this(new BatchMeters(meterRegistry), stepMetricsStore);
+	}
+
+	/**
+	 * @param batchMeters
+	 *            decides about the names and tags of the meters
+	 * @param stepMetricsStore
+	 *            the metrics of a step are copied from this store to the Step-ExecutionContext before they are exported,
+	 *            may be null
+	 */
+	public MetricsListener(BatchMeters batchMeters, StepMetricsStore stepMetricsStore) {
+		this.meterRegistry = batchMeters.getMeterRegistry();
+		this.batchMeters = batchMeters;
+		this.stepMetricsStore = stepMetricsStore;
 	}
 
 	@Override
@@ -68,23 +102,33 @@ public class MetricsListener extends StepExecutionListenerSupport implements Ord
 
 	@Override
 	public ExitStatus afterStep(StepExecution stepExecution) {
+		if (stepMetricsStore != null) {
+			stepMetricsStore.release(stepExecution);
+		}
 		// Calculate step execution time
 		// Why is stepExecution.getEndTime().getTime() not available here? (see AbstractStep)
 		long stepDuration = System.currentTimeMillis() - stepExecution.getStartTime().getTime();
+		long itemCount = stepExecution.getWriteCount() + stepExecution.getSkipCount();
+		// Calculate execution time per item
+		long durationPerItem = 0;
+		if (itemCount > 0) {
+			durationPerItem = stepDuration / itemCount;
+		}
+		if (BatchMeters.workerStepName(stepExecution.getStepName()) == null) {
+			exportPartitions(stepExecution);
+		}
+		if (batchMeters.getLayout() == BatchMeters.Layout.V2) {
+			exportDimensional(stepExecution, stepDuration, itemCount, durationPerItem);
+			return null;
+		}
 		meterRegistry.gauge(METRIC_NAME, Arrays.asList(//
 				new ImmutableTag("context", getStepExecutionIdentifier(stepExecution)), //
 				new ImmutableTag("name", "duration")//
 		), stepDuration);
-		long itemCount = stepExecution.getWriteCount() + stepExecution.getSkipCount();
 		meterRegistry.gauge(METRIC_NAME, Arrays.asList(//
 				new ImmutableTag("context", getStepExecutionIdentifier(stepExecution)), //
 				new ImmutableTag("name", "item.count")//
 		), itemCount);
-		// Calculate execution time per item
-		long durationPerItem = 0;
-		if (itemCount > 0) {
-			durationPerItem = stepDuration / itemCount;
-		}
 		meterRegistry.gauge(METRIC_NAME, Arrays.asList(//
 				new ImmutableTag("context", getStepExecutionIdentifier(stepExecution)), //
 				new ImmutableTag("name", "item.duration")//
@@ -102,49 +146,102 @@ public class MetricsListener extends StepExecutionListenerSupport implements Ord
 		return null;
 	}
 
-	@Override
-	public void afterJob(JobExecution jobExecution) {
-		long jobDuration = jobExecution.getEndTime().getTime() - jobExecution.getStartTime().getTime();
-		meterRegistry.gauge(METRIC_NAME, Arrays.asList(//
-				new ImmutableTag("context", jobExecution.getJobInstance().getJobName()), //
-				new ImmutableTag("name", "duration")//
-		), jobDuration);
-		// What the f*** is that Thread.sleep doing here? ;-)
-		// Metrics are written asynchronously to Spring Boot's repository. In our tests we experienced
-		// that sometimes batch execution was so fast that this listener couldn't export the metrics
-		// because they hadn't been written. It all happened in the same millisecond. So we added
-		// a Thread.sleep of 100 milliseconds which gives us enough safety and doesn't hurt anyone.
-		try {
-			Thread.sleep(100);
-		} catch (InterruptedException e) {
-			throw new RuntimeException(e);
+	private void exportDimensional(StepExecution stepExecution, long stepDuration, long itemCount,
+			long durationPerItem) {
+		String jobName = stepExecution.getJobExecution().getJobInstance().getJobName();
+		String stepName = stepExecution.getStepName();
+		String workerStepName = BatchMeters.workerStepName(stepName);
+		if (workerStepName != null) {
+			// the numbers in the ExecutionContext are summed up by the rollup of the partitions
+			String partitionName = stepName.substring(workerStepName.length() + 1);
+			batchMeters.partitionGauge(BatchMeters.PARTITION_DURATION, jobName, workerStepName, partitionName)
+					.set(stepDuration);
+			batchMeters.partitionGauge(BatchMeters.PARTITION_ITEMS, jobName, workerStepName, partitionName)
+					.set(itemCount);
+			return;
+		}
+		String status = stepExecution.getStatus().name();
+		batchMeters.stepGauge(BatchMeters.STEP_DURATION, jobName, stepName, status).set(stepDuration);
+		batchMeters.stepGauge(BatchMeters.STEP_ITEMS, jobName, stepName, status).set(itemCount);
+		batchMeters.stepGauge(BatchMeters.STEP_ITEM_DURATION, jobName, stepName, status).set(durationPerItem);
+		for (Entry<String, Object> metric : stepExecution.getExecutionContext().entrySet()) {
+			if (metric.getValue() instanceof Number) {
+				batchMeters.stepMetric(jobName, stepName, metric.getKey()).set((Number) metric.getValue());
+			}
 		}
-		// Export Metrics to Console
-		Search search = meterRegistry.find(METRIC_NAME);
-		LOGGER.info(metricsOutputFormatter.format(search.gauges(), search.timers()));
 	}
 
-	// tag::contains[]
-	private static class SimpleMetricsOutputFormatter implements MetricsOutputFormatter {
-
-		@Override
-		public String format(Collection<Gauge> gauges, Collection<Timer> timers) {
-			StringBuilder builder = new StringBuilder("\n########## Metrics Start ##########\n");
-			gauges.stream().forEach(gauge -> {
-				builder.append("Gauge [" + gauge.getId() + "]: ");
-				builder.append(gauge.value() + "\n");
-			});
-			timers.stream().forEach(timer -> {
-				builder.append("Timer [" + timer.getId() + "]: ");
-				builder.append(
-						"totalTime=" + timer.totalTime(timer.baseTimeUnit()) + " " + timer.baseTimeUnit() + "\n");
-			});
-			builder.append("########## Metrics End ############");
-			return builder.toString();
+	/**
+	 * Rolls up the finished partitions started within the given step, which is a manager step if there are any. The
+	 * partitions are grouped by worker step, the rollup of a worker step running in a parallel flow may be updated by
+	 * another step finishing in the meantime, until its own manager step has finished.
+	 */
+	private void exportPartitions(StepExecution stepExecution) {
+		Map<String, List<StepExecution>> partitions = new LinkedHashMap<>();
+		for (StepExecution partition : stepExecution.getJobExecution().getStepExecutions()) {
+			String workerStepName = BatchMeters.workerStepName(partition.getStepName());
+			if (workerStepName != null && partition.getEndTime() != null
+					&& !partition.getStartTime().before(stepExecution.getStartTime())) {
+				partitions.computeIfAbsent(workerStepName, k -> new ArrayList<>()).add(partition);
+			}
+		}
+		String jobName = stepExecution.getJobExecution().getJobInstance().getJobName();
+		for (Entry<String, List<StepExecution>> worker : partitions.entrySet()) {
+			exportRollup(jobName, worker.getKey(), worker.getValue());
 		}
+	}
 
+	private void exportRollup(String jobName, String workerStepName, List<StepExecution> partitions) {
+		long itemCount = 0;
+		long[] durations = new long[partitions.size()];
+		Map<String, Double> metrics = new LinkedHashMap<>();
+		for (int i = 0; i < durations.length; i++) {
+			StepExecution partition = partitions.get(i);
+			itemCount += partition.getWriteCount() + partition.getSkipCount();
+			// at least a millisecond, so that the skew of very short partitions is defined
+			durations[i] = Math.max(1, partition.getEndTime().getTime() - partition.getStartTime().getTime());
+			for (Entry<String, Object> metric : partition.getExecutionContext().entrySet()) {
+				if (metric.getValue() instanceof Number) {
+					metrics.merge(metric.getKey(), ((Number) metric.getValue()).doubleValue(), Double::sum);
+				}
+			}
+		}
+		Arrays.sort(durations);
+		long maxDuration = durations[durations.length - 1];
+		double medianDuration = durations.length % 2 == 1 ? durations[durations.length / 2]
+				: (durations[durations.length / 2 - 1] + durations[durations.length / 2]) / 2.0;
+		batchMeters.partitionsGauge(BatchMeters.PARTITIONS_COUNT, jobName, workerStepName).set(durations.length);
+		batchMeters.partitionsGauge(BatchMeters.PARTITIONS_ITEMS, jobName, workerStepName).set(itemCount);
+		batchMeters.partitionsGauge(BatchMeters.PARTITIONS_DURATION_MAX, jobName, workerStepName).set(maxDuration);
+		batchMeters.partitionsGauge(BatchMeters.PARTITIONS_DURATION_MEDIAN, jobName, workerStepName)
+				.set(medianDuration);
+		batchMeters.partitionsGauge(BatchMeters.PARTITIONS_SKEW, jobName, workerStepName)
+				.set(maxDuration / medianDuration);
+		for (Entry<String, Double> metric : metrics.entrySet()) {
+			batchMeters.stepMetric(jobName, workerStepName, metric.getKey()).set(metric.getValue());
+		}
+	}
+
+	@Override
+	public void afterJob(JobExecution jobExecution) {
+		long jobDuration = jobExecution.getEndTime().getTime() - jobExecution.getStartTime().getTime();
+		if (batchMeters.getLayout() == BatchMeters.Layout.V2) {
+			batchMeters.jobDuration(jobExecution.getJobInstance().getJobName(), jobExecution.getStatus().name())
+					.set(jobDuration);
+		} else {
+			meterRegistry.gauge(METRIC_NAME, Arrays.asList(//
+					new ImmutableTag("context", jobExecution.getJobInstance().getJobName()), //
+					new ImmutableTag("name", "duration")//
+			), jobDuration);
+		}
+		// the meters are read directly, so they are up to date as soon as the job has finished
+		JobMetricsSnapshot snapshot = batchMeters.snapshot(jobExecution);
+		try {
+			metricsExporter.export(Collections.singletonList(snapshot));
+		} catch (Exception e) {
+			LOGGER.warn("Exporting the metrics of job execution {} failed", jobExecution.getId(), e);
+		}
 	}
-	// end::contains[]
 
 	@Override
 	public int getOrder() {
@@ -155,7 +252,18 @@ public class MetricsListener extends StepExecutionListenerSupport implements Ord
 		return stepExecution.getJobExecution().getJobInstance().getJobName() + "." + stepExecution.getStepName();
 	}
 
+	/**
+	 * Logs the metrics with the given formatter instead of the default format, replacing the exporter.
+	 */
 	public void setMetricsOutputFormatter(MetricsOutputFormatter metricsOutputFormatter) {
-		this.metricsOutputFormatter = metricsOutputFormatter;
+		this.metricsExporter = new LoggingMetricsExporter(metricsOutputFormatter);
+	}
+
+	/**
+	 * Sets the exporter called with the metrics of each finished job execution, by default a
+	 * {@link LoggingMetricsExporter}.
+	 */
+	public void setMetricsExporter(MetricsExporter metricsExporter) {
+		this.metricsExporter = metricsExporter;
 	}
 }
@@ -30,4 +30,13 @@ public interface MetricsOutputFormatter {
 
 	public String format(Collection<Gauge> gauges, Collection<Timer> timers);
 
+	/**
+	 * Formats the metrics of one job execution. By default the gauges and timers of the snapshot are formatted with
+	 * their current values, which are still the values of the snapshot, because the log sink is called on the job
+	 * thread right after the snapshot has been taken. Like those, the values of the timers are cumulative.
+	 */
+	public default String format(JobMetricsSnapshot snapshot) {
+		return format(snapshot.gauges(), snapshot.timers());
+	}
+
 }
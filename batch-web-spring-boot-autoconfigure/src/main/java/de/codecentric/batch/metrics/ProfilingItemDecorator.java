@@ -0,0 +1,145 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.codecentric.batch.metrics;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.aop.framework.AopProxyUtils;
+import org.springframework.batch.item.ItemProcessor;
+import org.springframework.batch.item.ItemReader;
+import org.springframework.batch.item.ItemWriter;
+import org.springframework.batch.item.support.PassThroughItemProcessor;
+
+import de.codecentric.batch.configuration.ItemDecorator;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Profiles the readers, processors and writers of all chunk oriented steps like the
+ * {@link ReaderProcessorWriterMetricsAspect}, with the same timers, but by decorating them when the job is registered
+ * instead of proxying Spring beans. So readers, processors and writers that aren't beans are profiled as well, and a
+ * call costs a direct method call and two calls to {@link System#nanoTime()}, the timer is looked up once per step.
+ * <p>
+ * The timers are tagged with the name of the step, not the name of the StepExecution, so the partitions of a
+ * partitioned step share their timers. A step used by several jobs is profiled for the first of them.
+ */
+public class ProfilingItemDecorator implements ItemDecorator {
+
+	private final BatchMeters batchMeters;
+
+	public ProfilingItemDecorator(BatchMeters batchMeters) {
+		this.batchMeters = batchMeters;
+	}
+
+	@Override
+	public ItemReader<?> decorateReader(ItemReader<?> reader, String jobName, String stepName) {
+		if (reader instanceof ProfilingItemReader) {
+			return reader;
+		}
+		return new ProfilingItemReader<>(reader, timer(jobName, stepName, reader, "read"));
+	}
+
+	@Override
+	public ItemProcessor<?, ?> decorateProcessor(ItemProcessor<?, ?> processor, String jobName, String stepName) {
+		// the default processor of steps without one
+		if (processor instanceof ProfilingItemProcessor || processor instanceof PassThroughItemProcessor) {
+			return processor;
+		}
+		return new ProfilingItemProcessor<>(processor, timer(jobName, stepName, processor, "process"));
+	}
+
+	@Override
+	public ItemWriter<?> decorateWriter(ItemWriter<?> writer, String jobName, String stepName) {
+		if (writer instanceof ProfilingItemWriter) {
+			return writer;
+		}
+		return new ProfilingItemWriter<>(writer, timer(jobName, stepName, writer, "write"));
+	}
+
+	private Timer timer(String jobName, String stepName, Object item, String methodName) {
+		return batchMeters.methodTimer(jobName, stepName, AopProxyUtils.ultimateTargetClass(item), methodName);
+	}
+
+	private static class ProfilingItemReader<T> implements ItemReader<T> {
+
+		private final ItemReader<T> delegate;
+
+		private final Timer timer;
+
+		ProfilingItemReader(ItemReader<T> delegate, Timer timer) {
+			this.delegate = delegate;
+			this.timer = timer;
+		}
+
+		@Override
+		public T read() throws Exception {
+			long start = System.nanoTime();
+			try {
+				return delegate.read();
+			} finally {
+				timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+			}
+		}
+
+	}
+
+	private static class ProfilingItemProcessor<I, O> implements ItemProcessor<I, O> {
+
+		private final ItemProcessor<I, O> delegate;
+
+		private final Timer timer;
+
+		ProfilingItemProcessor(ItemProcessor<I, O> delegate, Timer timer) {
+			this.delegate = delegate;
+			this.timer = timer;
+		}
+
+		@Override
+		public O process(I item) throws Exception {
+			long start = System.nanoTime();
+			try {
+				return delegate.process(item);
+			} finally {
+				timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+			}
+		}
+
+	}
+
+	private static class ProfilingItemWriter<T> implements ItemWriter<T> {
+
+		private final ItemWriter<T> delegate;
+
+		private final Timer timer;
+
+		ProfilingItemWriter(ItemWriter<T> delegate, Timer timer) {
+			this.delegate = delegate;
+			this.timer = timer;
+		}
+
+		@Override
+		public void write(List<? extends T> items) throws Exception {
+			long start = System.nanoTime();
+			try {
+				delegate.write(items);
+			} finally {
+				timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+			}
+		}
+
+	}
+
+}
@@ -33,6 +33,10 @@ public class ReaderProcessorWriterMetricsAspect extends AbstractBatchMetricsAspe
 		super(meterRegistry);
 	}
 
+	public ReaderProcessorWriterMetricsAspect(BatchMeters batchMeters) {
+		super(batchMeters);
+	}
+
 	@Around("execution(* org.springframework.batch.item.ItemReader.read(..))")
 	public Object profileReadMethods(ProceedingJoinPoint pjp) throws Throwable {
 		return profileMethod(pjp);
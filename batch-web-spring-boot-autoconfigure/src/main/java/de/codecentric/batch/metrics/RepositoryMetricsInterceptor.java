@@ -0,0 +1,55 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.codecentric.batch.metrics;
+
+import java.util.concurrent.TimeUnit;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.batch.core.scope.context.StepContext;
+import org.springframework.batch.core.scope.context.StepSynchronizationManager;
+
+/**
+ * Records the updates of the StepExecution and its ExecutionContext in the JobRepository in the
+ * {@value StepPhaseMetricsAspect#REPOSITORY} phase of the {@link StepPhaseMetricsAspect}. The steps built by the
+ * StepBuilderFactory use the JobRepository of the BatchConfigurer, not the jobRepository bean, so it can't be advised
+ * by an aspect. The interceptor is added to the JobRepository by the BatchConfigurer of the starter instead, with a
+ * custom BatchConfigurer it may be added with a ProxyFactory. Updates outside of a step are not recorded.
+ */
+public class RepositoryMetricsInterceptor implements MethodInterceptor {
+
+	private final BatchMeters batchMeters;
+
+	public RepositoryMetricsInterceptor(BatchMeters batchMeters) {
+		this.batchMeters = batchMeters;
+	}
+
+	@Override
+	public Object invoke(MethodInvocation invocation) throws Throwable {
+		StepContext stepContext = StepSynchronizationManager.getContext();
+		if (stepContext == null || !invocation.getMethod().getName().startsWith("update")) {
+			return invocation.proceed();
+		}
+		long start = System.nanoTime();
+		try {
+			return invocation.proceed();
+		} finally {
+			batchMeters.phaseTimer(stepContext.getJobName(), stepContext.getStepExecution().getStepName(),
+					StepPhaseMetricsAspect.REPOSITORY).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+		}
+	}
+
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.codecentric.batch.metrics;
+
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.listener.ChunkListenerSupport;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.core.Ordered;
+
+/**
+ * Records the latency of each successful chunk in a timer publishing percentiles, so the tail latency of a step shows
+ * up instead of only the average duration per item the {@link MetricsListener} exports. A chunk only knows its own
+ * duration, the time spent reading, processing and writing single items is measured by the
+ * {@link ReaderProcessorWriterMetricsAspect} or the {@link ProfilingItemDecorator}.
+ * <p>
+ * The histograms behind the percentiles are Micrometer's time window histograms, with a fixed size per step independent
+ * of the number of chunks.
+ */
+public class StepLatencyListener extends ChunkListenerSupport implements Ordered {
+
+	private static final String START_TIME = StepLatencyListener.class.getName() + ".startTime";
+
+	private final BatchMeters batchMeters;
+
+	private final double[] percentiles;
+
+	/**
+	 * @param percentiles
+	 *            percentiles published by the timer, like 0.5, 0.95 and 0.99
+	 */
+	public StepLatencyListener(BatchMeters batchMeters, double... percentiles) {
+		this.batchMeters = batchMeters;
+		this.percentiles = percentiles;
+	}
+
+	@Override
+	public void beforeChunk(ChunkContext context) {
+		context.setAttribute(START_TIME, System.nanoTime());
+	}
+
+	@Override
+	public void afterChunk(ChunkContext context) {
+		Object startTime = context.removeAttribute(START_TIME);
+		if (startTime == null) {
+			return;
+		}
+		long duration = System.nanoTime() - (Long) startTime;
+		StepExecution stepExecution = context.getStepContext().getStepExecution();
+		String jobName = stepExecution.getJobExecution().getJobInstance().getJobName();
+		String stepName = stepExecution.getStepName();
+		batchMeters.latencyTimer(jobName, stepName, percentiles).record(duration, TimeUnit.NANOSECONDS);
+	}
+
+	@Override
+	public int getOrder() {
+		return Ordered.LOWEST_PRECEDENCE - 1;
+	}
+
+}
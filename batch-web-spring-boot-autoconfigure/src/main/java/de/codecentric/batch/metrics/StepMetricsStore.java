@@ -0,0 +1,160 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.codecentric.batch.metrics;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.item.ExecutionContext;
+
+import de.codecentric.batch.metrics.BatchMeters.GaugeValue;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Keeps the metrics of the {@link BatchMetricsImpl} of running steps in memory instead of the Step-ExecutionContext, so
+ * they aren't serialized with every commit. Each metric is exported as a gauge with the same name and tags the
+ * {@link MetricsListener} uses, see {@link BatchMeters}, as soon as it is modified for the first time.
+ * <p>
+ * The metrics are copied to the ExecutionContext when the step ends, by the {@link MetricsListener}, and optionally with
+ * the first modification after the checkpoint interval has elapsed. A restarted step continues with the values of the
+ * last checkpoint.
+ */
+public class StepMetricsStore {
+
+	private final BatchMeters batchMeters;
+
+	private final long checkpointIntervalMillis;
+
+	private final Map<StepExecution, StepMetrics> stepMetrics = Collections.synchronizedMap(new IdentityHashMap<>());
+
+	/**
+	 * @param checkpointInterval
+	 *            time after which the metrics are copied to the ExecutionContext with the next modification, only at
+	 *            step end if null
+	 */
+	public StepMetricsStore(MeterRegistry meterRegistry, Duration checkpointInterval) {
+		this(new BatchMeters(meterRegistry), checkpointInterval);
+	}
+
+	/**
+	 * @param checkpointInterval
+	 *            time after which the metrics are copied to the ExecutionContext with the next modification, only at
+	 *            step end if null
+	 */
+	public StepMetricsStore(BatchMeters batchMeters, Duration checkpointInterval) {
+		this.batchMeters = batchMeters;
+		this.checkpointIntervalMillis = checkpointInterval != null ? checkpointInterval.toMillis() : -1;
+	}
+
+	public void increment(StepExecution stepExecution, String metricName, long value) {
+		StepMetrics metrics = getStepMetrics(stepExecution);
+		synchronized (metrics) {
+			GaugeValue metric = getMetricValue(stepExecution, metrics, metricName);
+			Number oldValue = metric.get();
+			metric.set((oldValue instanceof Long ? (Long) oldValue : 0L) + value);
+			checkpointIfDue(stepExecution, metrics);
+		}
+	}
+
+	public void set(StepExecution stepExecution, String metricName, double value) {
+		StepMetrics metrics = getStepMetrics(stepExecution);
+		synchronized (metrics) {
+			getMetricValue(stepExecution, metrics, metricName).set(value);
+			checkpointIfDue(stepExecution, metrics);
+		}
+	}
+
+	public void remove(StepExecution stepExecution, String metricName) {
+		StepMetrics metrics = getStepMetrics(stepExecution);
+		synchronized (metrics) {
+			GaugeValue metric = metrics.values.remove(metricName);
+			if (metric != null) {
+				metric.set(Double.NaN);
+			}
+			stepExecution.getExecutionContext().remove(metricName);
+		}
+	}
+
+	/**
+	 * Copies the metrics of the step execution to its ExecutionContext.
+	 */
+	public void checkpoint(StepExecution stepExecution) {
+		StepMetrics metrics = stepMetrics.get(stepExecution);
+		if (metrics != null) {
+			synchronized (metrics) {
+				checkpoint(stepExecution, metrics);
+			}
+		}
+	}
+
+	/**
+	 * Copies the metrics of the step execution to its ExecutionContext and forgets them. The gauges keep their last
+	 * value.
+	 */
+	public void release(StepExecution stepExecution) {
+		checkpoint(stepExecution);
+		stepMetrics.remove(stepExecution);
+	}
+
+	private StepMetrics getStepMetrics(StepExecution stepExecution) {
+		return stepMetrics.computeIfAbsent(stepExecution, key -> new StepMetrics(System.currentTimeMillis()));
+	}
+
+	private GaugeValue getMetricValue(StepExecution stepExecution, StepMetrics metrics, String metricName) {
+		GaugeValue metric = metrics.values.get(metricName);
+		if (metric == null) {
+			metric = batchMeters.stepMetric(stepExecution.getJobExecution().getJobInstance().getJobName(),
+					stepExecution.getStepName(), metricName);
+			// a restarted step continues with the last checkpoint
+			Object checkpoint = stepExecution.getExecutionContext().get(metricName);
+			metric.set(checkpoint instanceof Number ? (Number) checkpoint : 0L);
+			metrics.values.put(metricName, metric);
+		}
+		return metric;
+	}
+
+	private void checkpointIfDue(StepExecution stepExecution, StepMetrics metrics) {
+		if (checkpointIntervalMillis >= 0
+				&& System.currentTimeMillis() - metrics.lastCheckpoint >= checkpointIntervalMillis) {
+			checkpoint(stepExecution, metrics);
+		}
+	}
+
+	private void checkpoint(StepExecution stepExecution, StepMetrics metrics) {
+		ExecutionContext executionContext = stepExecution.getExecutionContext();
+		for (Map.Entry<String, GaugeValue> metric : metrics.values.entrySet()) {
+			executionContext.put(metric.getKey(), metric.getValue().get());
+		}
+		metrics.lastCheckpoint = System.currentTimeMillis();
+	}
+
+	private static class StepMetrics {
+
+		private final Map<String, GaugeValue> values = new LinkedHashMap<>();
+
+		private long lastCheckpoint;
+
+		private StepMetrics(long lastCheckpoint) {
+			this.lastCheckpoint = lastCheckpoint;
+		}
+
+	}
+
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.codecentric.batch.metrics;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+
+/**
+ * Breaks the time of a step down into the phases {@value #READ}, {@value #PROCESS}, {@value #WRITE}, {@value #COMMIT}
+ * of the chunk transactions, {@value #REPOSITORY} for updating the StepExecution and its ExecutionContext in the
+ * JobRepository, {@value #STREAM} for open, update and close of the ItemStreams and {@value #LISTENER} for the
+ * StepExecutionListeners, ChunkListeners, item listeners, SkipListeners and RetryListeners. Each phase is a timer
+ * tagged with the phase, see {@link BatchMeters#phaseTimer(String, String, String)}.
+ * <p>
+ * The aspect profiles the readers, processors, writers, streams and listeners of the jobs, which needs auto-proxying
+ * enabled in the job configurations, see {@link AbstractBatchMetricsAspect}. The commits are recorded by the
+ * {@link CommitMetricsListener} and the repository updates by the {@link RepositoryMetricsInterceptor}, the transaction
+ * manager and the JobRepository used by the steps can't be advised. Listeners implemented with annotations are not
+ * profiled, and a phase called within another phase, like a repository update within a listener, is counted in both.
+ */
+@Aspect
+public class StepPhaseMetricsAspect extends AbstractBatchMetricsAspect {
+
+	public static final String READ = "read";
+
+	public static final String PROCESS = "process";
+
+	public static final String WRITE = "write";
+
+	public static final String COMMIT = "commit";
+
+	public static final String REPOSITORY = "repository";
+
+	public static final String STREAM = "stream";
+
+	public static final String LISTENER = "listener";
+
+	public StepPhaseMetricsAspect(BatchMeters batchMeters) {
+		super(batchMeters);
+	}
+
+	@Around("execution(* org.springframework.batch.item.ItemReader.read(..))")
+	public Object profileRead(ProceedingJoinPoint pjp) throws Throwable {
+		return profilePhase(pjp, READ);
+	}
+
+	@Around("execution(* org.springframework.batch.item.ItemProcessor.process(..))")
+	public Object profileProcess(ProceedingJoinPoint pjp) throws Throwable {
+		return profilePhase(pjp, PROCESS);
+	}
+
+	@Around("execution(* org.springframework.batch.item.ItemWriter.write(..))")
+	public Object profileWrite(ProceedingJoinPoint pjp) throws Throwable {
+		return profilePhase(pjp, WRITE);
+	}
+
+	@Around("execution(* org.springframework.batch.item.ItemStream.*(..))")
+	public Object profileStream(ProceedingJoinPoint pjp) throws Throwable {
+		return profilePhase(pjp, STREAM);
+	}
+
+	// the listeners of the metrics would only profile the profiling
+	@Around("(execution(* org.springframework.batch.core.StepExecutionListener.*(..))"
+			+ " || execution(* org.springframework.batch.core.ChunkListener.*(..))"
+			+ " || execution(* org.springframework.batch.core.ItemReadListener.*(..))"
+			+ " || execution(* org.springframework.batch.core.ItemProcessListener.*(..))"
+			+ " || execution(* org.springframework.batch.core.ItemWriteListener.*(..))"
+			+ " || execution(* org.springframework.batch.core.SkipListener.*(..))"
+			+ " || execution(* org.springframework.retry.RetryListener.*(..)))"
+			+ " && !target(de.codecentric.batch.metrics.MetricsListener)"
+			+ " && !target(de.codecentric.batch.metrics.StepLatencyListener)"
+			+ " && !target(de.codecentric.batch.metrics.CommitMetricsListener)")
+	public Object profileListener(ProceedingJoinPoint pjp) throws Throwable {
+		return profilePhase(pjp, LISTENER);
+	}
+
+}
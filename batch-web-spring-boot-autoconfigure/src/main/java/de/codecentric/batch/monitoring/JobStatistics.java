@@ -0,0 +1,175 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.codecentric.batch.monitoring;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Aggregates over the last runs of a job, computed by the {@link ProtocolStore}.
+ */
+public class JobStatistics {
+
+	private final String jobName;
+
+	private final int runs;
+
+	private final int failedRuns;
+
+	private final Distribution duration;
+
+	private final Map<String, StepStatistics> steps = new TreeMap<>();
+
+	public JobStatistics(String jobName, int runs, int failedRuns, Distribution duration) {
+		this.jobName = jobName;
+		this.runs = runs;
+		this.failedRuns = failedRuns;
+		this.duration = duration;
+	}
+
+	public String getJobName() {
+		return jobName;
+	}
+
+	/**
+	 * Number of job executions the statistics are computed from.
+	 */
+	public int getRuns() {
+		return runs;
+	}
+
+	public int getFailedRuns() {
+		return failedRuns;
+	}
+
+	/**
+	 * Duration of the job executions in milliseconds.
+	 */
+	public Distribution getDuration() {
+		return duration;
+	}
+
+	public Map<String, StepStatistics> getSteps() {
+		return steps;
+	}
+
+	public static class StepStatistics {
+
+		private final int executions;
+
+		private final Distribution duration;
+
+		private final Distribution readCount;
+
+		private final Distribution writeCount;
+
+		private final long skipCount;
+
+		private final long rollbackCount;
+
+		public StepStatistics(int executions, Distribution duration, Distribution readCount, Distribution writeCount,
+				long skipCount, long rollbackCount) {
+			this.executions = executions;
+			this.duration = duration;
+			this.readCount = readCount;
+			this.writeCount = writeCount;
+			this.skipCount = skipCount;
+			this.rollbackCount = rollbackCount;
+		}
+
+		public int getExecutions() {
+			return executions;
+		}
+
+		/**
+		 * Duration of the step executions in milliseconds.
+		 */
+		public Distribution getDuration() {
+			return duration;
+		}
+
+		public Distribution getReadCount() {
+			return readCount;
+		}
+
+		public Distribution getWriteCount() {
+			return writeCount;
+		}
+
+		/**
+		 * Sum of the skips of all step executions.
+		 */
+		public long getSkipCount() {
+			return skipCount;
+		}
+
+		/**
+		 * Sum of the rollbacks of all step executions.
+		 */
+		public long getRollbackCount() {
+			return rollbackCount;
+		}
+
+	}
+
+	/**
+	 * Percentiles of a value using the nearest-rank method.
+	 */
+	public static class Distribution {
+
+		private final long p50;
+
+		private final long p99;
+
+		private final long max;
+
+		private Distribution(long p50, long p99, long max) {
+			this.p50 = p50;
+			this.p99 = p99;
+			this.max = max;
+		}
+
+		public static Distribution of(long[] values) {
+			if (values.length == 0) {
+				return new Distribution(0, 0, 0);
+			}
+			long[] sorted = values.clone();
+			Arrays.sort(sorted);
+			return new Distribution(percentile(sorted, 0.5), percentile(sorted, 0.99), sorted[sorted.length - 1]);
+		}
+
+		private static long percentile(long[] sorted, double percentile) {
+			int rank = (int) Math.ceil(percentile * sorted.length);
+			return sorted[Math.max(rank, 1) - 1];
+		}
+
+		public long getP50() {
+			return p50;
+		}
+
+		public long getP99() {
+			return p99;
+		}
+
+		public long getMax() {
+			return max;
+		}
+
+	}
+
+}
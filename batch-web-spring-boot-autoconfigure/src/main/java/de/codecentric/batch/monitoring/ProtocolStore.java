@@ -0,0 +1,411 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.codecentric.batch.monitoring;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.util.Assert;
+
+import de.codecentric.batch.monitoring.JobStatistics.Distribution;
+import de.codecentric.batch.monitoring.JobStatistics.StepStatistics;
+
+/**
+ * Append-only store of job protocols on the local file system, independent of the batch repository tables. Every
+ * finished job execution is appended as one CSV row for the job and one for each step execution to the file of the
+ * current day, protocol-yyyy-MM-dd.csv, with the columns
+ * <p>
+ * kind (JOB or STEP), jobExecutionId, jobName, stepName, start (epoch millis), durationMs, status, exitCode, readCount,
+ * writeCount, commitCount, rollbackCount, skipCount, filterCount, context
+ * <p>
+ * where context contains the configured ExecutionContext keys as key=value pairs separated by '|'. The counts of a job
+ * row are the sums of its steps. Files older than the retention are deleted when the file of a new day is started.
+ * <p>
+ * {@link #getStatistics(String, int)} reads the files from the newest backwards until it found the requested number of
+ * runs of a job.
+ */
+public class ProtocolStore implements DisposableBean {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(ProtocolStore.class);
+
+	static final String FILE_PREFIX = "protocol-";
+
+	static final String FILE_SUFFIX = ".csv";
+
+	private static final String HEADER = "kind,jobExecutionId,jobName,stepName,start,durationMs,status,exitCode,"
+			+ "readCount,writeCount,commitCount,rollbackCount,skipCount,filterCount,context\n";
+
+	private static final String JOB = "JOB";
+
+	private static final String STEP = "STEP";
+
+	private final Path directory;
+
+	private final Collection<String> contextKeys;
+
+	private final Clock clock;
+
+	private Duration retention;
+
+	private LocalDate currentDay;
+
+	private Writer writer;
+
+	public ProtocolStore(Path directory, Collection<String> contextKeys) {
+		this(directory, contextKeys, Clock.systemDefaultZone());
+	}
+
+	ProtocolStore(Path directory, Collection<String> contextKeys, Clock clock) {
+		this.directory = directory;
+		this.contextKeys = contextKeys;
+		this.clock = clock;
+	}
+
+	/**
+	 * Appends the protocol of the finished job execution.
+	 */
+	public synchronized void write(JobExecution jobExecution) throws IOException {
+		StringBuilder rows = new StringBuilder(256 * (1 + jobExecution.getStepExecutions().size()));
+		long readCount = 0, writeCount = 0, commitCount = 0, rollbackCount = 0, skipCount = 0, filterCount = 0;
+		for (StepExecution stepExecution : jobExecution.getStepExecutions()) {
+			readCount += stepExecution.getReadCount();
+			writeCount += stepExecution.getWriteCount();
+			commitCount += stepExecution.getCommitCount();
+			rollbackCount += stepExecution.getRollbackCount();
+			skipCount += stepExecution.getSkipCount();
+			filterCount += stepExecution.getFilterCount();
+		}
+		String jobName = jobExecution.getJobInstance().getJobName();
+		appendRow(rows, JOB, jobExecution.getId(), jobName, "", jobExecution.getStartTime(),
+				jobExecution.getEndTime(), jobExecution.getStatus(), jobExecution.getExitStatus().getExitCode(),
+				readCount, writeCount, commitCount, rollbackCount, skipCount, filterCount,
+				jobExecution.getExecutionContext());
+		for (StepExecution stepExecution : jobExecution.getStepExecutions()) {
+			appendRow(rows, STEP, jobExecution.getId(), jobName, stepExecution.getStepName(),
+					stepExecution.getStartTime(), stepExecution.getEndTime(), stepExecution.getStatus(),
+					stepExecution.getExitStatus().getExitCode(), stepExecution.getReadCount(),
+					stepExecution.getWriteCount(), stepExecution.getCommitCount(), stepExecution.getRollbackCount(),
+					stepExecution.getSkipCount(), stepExecution.getFilterCount(), stepExecution.getExecutionContext());
+		}
+		Writer writer = getWriter();
+		writer.write(rows.toString());
+		writer.flush();
+	}
+
+	private void appendRow(StringBuilder rows, String kind, Long jobExecutionId, String jobName, String stepName,
+			Date start, Date end, BatchStatus status, String exitCode, long readCount, long writeCount,
+			long commitCount, long rollbackCount, long skipCount, long filterCount, ExecutionContext context) {
+		long startMillis = start != null ? start.getTime() : clock.millis();
+		long duration = (end != null ? end.getTime() : clock.millis()) - startMillis;
+		rows.append(kind).append(',').append(jobExecutionId).append(',');
+		appendValue(rows, jobName);
+		rows.append(',');
+		appendValue(rows, stepName);
+		rows.append(',').append(startMillis).append(',').append(duration).append(',').append(status).append(',');
+		appendValue(rows, exitCode);
+		rows.append(',').append(readCount).append(',').append(writeCount).append(',').append(commitCount).append(',')
+				.append(rollbackCount).append(',').append(skipCount).append(',').append(filterCount).append(',');
+		StringBuilder contextValues = new StringBuilder();
+		for (String contextKey : contextKeys) {
+			if (context.containsKey(contextKey)) {
+				if (contextValues.length() > 0) {
+					contextValues.append('|');
+				}
+				contextValues.append(contextKey).append('=').append(context.get(contextKey));
+			}
+		}
+		appendValue(rows, contextValues.toString());
+		rows.append('\n');
+	}
+
+	private void appendValue(StringBuilder rows, String value) {
+		if (value == null) {
+			return;
+		}
+		String singleLine = value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0
+				? value.replace('\n', ' ').replace('\r', ' ')
+				: value;
+		if (singleLine.indexOf(',') >= 0 || singleLine.indexOf('"') >= 0) {
+			rows.append('"').append(singleLine.replace("\"", "\"\"")).append('"');
+		} else {
+			rows.append(singleLine);
+		}
+	}
+
+	private Writer getWriter() throws IOException {
+		LocalDate today = LocalDate.now(clock);
+		if (writer == null || !today.equals(currentDay)) {
+			close();
+			Files.createDirectories(directory);
+			Path file = directory.resolve(FILE_PREFIX + today + FILE_SUFFIX);
+			boolean newFile = !Files.exists(file);
+			writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+					StandardOpenOption.APPEND);
+			if (newFile) {
+				writer.write(HEADER);
+			}
+			currentDay = today;
+			deleteExpiredFiles(today);
+		}
+		return writer;
+	}
+
+	private void deleteExpiredFiles(LocalDate today) {
+		if (retention == null) {
+			return;
+		}
+		LocalDate oldest = today.minusDays(retention.toDays());
+		for (Path file : listFiles()) {
+			LocalDate day = getDay(file);
+			if (day != null && day.isBefore(oldest)) {
+				try {
+					Files.deleteIfExists(file);
+				} catch (IOException e) {
+					LOGGER.warn("Could not delete protocol file {}", file, e);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Computes the statistics of the given number of most recent runs of the job.
+	 *
+	 * @param runs
+	 *            at least 1
+	 */
+	public JobStatistics getStatistics(String jobName, int runs) throws IOException {
+		Assert.isTrue(runs > 0, "runs must be at least 1");
+		List<Path> files = listFiles();
+		Collections.sort(files, Collections.reverseOrder());
+		List<Row> jobRows = new ArrayList<>();
+		Map<Long, List<Row>> stepRows = new LinkedHashMap<>();
+		for (Path file : files) {
+			List<Row> fileJobRows = new ArrayList<>();
+			try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+				String line;
+				while ((line = reader.readLine()) != null) {
+					Row row = Row.parse(line, jobName);
+					if (row == null) {
+						continue;
+					}
+					if (row.job) {
+						fileJobRows.add(row);
+					} else {
+						stepRows.computeIfAbsent(row.jobExecutionId, id -> new ArrayList<>()).add(row);
+					}
+				}
+			}
+			Collections.reverse(fileJobRows);
+			jobRows.addAll(fileJobRows);
+			if (jobRows.size() >= runs) {
+				break;
+			}
+		}
+		List<Row> lastRuns = jobRows.subList(0, Math.min(runs, jobRows.size()));
+		long[] durations = new long[lastRuns.size()];
+		int failedRuns = 0;
+		Set<Long> jobExecutionIds = new HashSet<>();
+		for (int i = 0; i < lastRuns.size(); i++) {
+			Row row = lastRuns.get(i);
+			durations[i] = row.duration;
+			if (BatchStatus.FAILED.name().equals(row.status)) {
+				failedRuns++;
+			}
+			jobExecutionIds.add(row.jobExecutionId);
+		}
+		JobStatistics statistics = new JobStatistics(jobName, lastRuns.size(), failedRuns, Distribution.of(durations));
+		Map<String, List<Row>> rowsByStep = new LinkedHashMap<>();
+		for (Long jobExecutionId : jobExecutionIds) {
+			for (Row row : stepRows.getOrDefault(jobExecutionId, Collections.emptyList())) {
+				rowsByStep.computeIfAbsent(row.stepName, stepName -> new ArrayList<>()).add(row);
+			}
+		}
+		rowsByStep.forEach((stepName, rows) -> statistics.getSteps().put(stepName, toStepStatistics(rows)));
+		return statistics;
+	}
+
+	private StepStatistics toStepStatistics(List<Row> rows) {
+		long[] durations = new long[rows.size()];
+		long[] readCounts = new long[rows.size()];
+		long[] writeCounts = new long[rows.size()];
+		long skipCount = 0, rollbackCount = 0;
+		for (int i = 0; i < rows.size(); i++) {
+			Row row = rows.get(i);
+			durations[i] = row.duration;
+			readCounts[i] = row.readCount;
+			writeCounts[i] = row.writeCount;
+			skipCount += row.skipCount;
+			rollbackCount += row.rollbackCount;
+		}
+		return new StepStatistics(rows.size(), Distribution.of(durations), Distribution.of(readCounts),
+				Distribution.of(writeCounts), skipCount, rollbackCount);
+	}
+
+	private List<Path> listFiles() {
+		List<Path> files = new ArrayList<>();
+		if (!Files.isDirectory(directory)) {
+			return files;
+		}
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, FILE_PREFIX + "*" + FILE_SUFFIX)) {
+			stream.forEach(files::add);
+		} catch (IOException e) {
+			LOGGER.warn("Could not list protocol files in {}", directory, e);
+		}
+		return files;
+	}
+
+	private static LocalDate getDay(Path file) {
+		String fileName = file.getFileName().toString();
+		try {
+			return LocalDate.parse(
+					fileName.substring(FILE_PREFIX.length(), fileName.length() - FILE_SUFFIX.length()));
+		} catch (DateTimeParseException | IndexOutOfBoundsException e) {
+			return null;
+		}
+	}
+
+	public Path getDirectory() {
+		return directory;
+	}
+
+	/**
+	 * Files of days older than the retention are deleted, none if not set.
+	 */
+	public void setRetention(Duration retention) {
+		this.retention = retention;
+	}
+
+	public synchronized void close() throws IOException {
+		if (writer != null) {
+			writer.close();
+			writer = null;
+		}
+	}
+
+	@Override
+	public void destroy() throws IOException {
+		close();
+	}
+
+	/**
+	 * The columns of a row needed for the statistics.
+	 */
+	private static final class Row {
+
+		private boolean job;
+
+		private long jobExecutionId;
+
+		private String stepName;
+
+		private long duration;
+
+		private String status;
+
+		private long readCount;
+
+		private long writeCount;
+
+		private long rollbackCount;
+
+		private long skipCount;
+
+		/**
+		 * @return null for the header, malformed rows and rows of other jobs
+		 */
+		private static Row parse(String line, String jobName) {
+			if (!line.contains(jobName)) {
+				return null;
+			}
+			List<String> columns = split(line);
+			if (columns.size() < 14 || !jobName.equals(columns.get(2))) {
+				return null;
+			}
+			try {
+				Row row = new Row();
+				row.job = JOB.equals(columns.get(0));
+				row.jobExecutionId = Long.parseLong(columns.get(1));
+				row.stepName = columns.get(3);
+				row.duration = Long.parseLong(columns.get(5));
+				row.status = columns.get(6);
+				row.readCount = Long.parseLong(columns.get(8));
+				row.writeCount = Long.parseLong(columns.get(9));
+				row.rollbackCount = Long.parseLong(columns.get(11));
+				row.skipCount = Long.parseLong(columns.get(12));
+				return row;
+			} catch (NumberFormatException e) {
+				return null;
+			}
+		}
+
+		private static List<String> split(String line) {
+			List<String> columns = new ArrayList<>(15);
+			StringBuilder column = new StringBuilder();
+			boolean quoted = false;
+			for (int i = 0; i < line.length(); i++) {
+				char c = line.charAt(i);
+				if (quoted) {
+					if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+						column.append('"');
+						i++;
+					} else if (c == '"') {
+						quoted = false;
+					} else {
+						column.append(c);
+					}
+				} else if (c == '"') {
+					quoted = true;
+				} else if (c == ',') {
+					columns.add(column.toString());
+					column.setLength(0);
+				} else {
+					column.append(c);
+				}
+			}
+			columns.add(column.toString());
+			return columns;
+		}
+
+	}
+
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.codecentric.batch.registry;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.configuration.support.ApplicationContextFactory;
+import org.springframework.batch.core.job.AbstractJob;
+import org.springframework.batch.core.listener.JobExecutionListenerSupport;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * The child ApplicationContext of one job configuration, created when one of its jobs is requested for the first time
+ * and closed again by {@link #evictIfIdle(long, Predicate)}. On creation, the jobs of the context are verified against
+ * the job names it was registered with.
+ * <p>
+ * Every job handed out counts as in flight until its execution has finished, so the context isn't closed between
+ * handing out a job and its execution being tracked as running. A job that is handed out but never executed, for
+ * example for stopping it, stops counting after {@link #HANDOUT_TIMEOUT_MILLIS}.
+ */
+class LazyJobContext {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(LazyJobContext.class);
+
+	static final long HANDOUT_TIMEOUT_MILLIS = 10 * 60 * 1000;
+
+	private final ApplicationContextFactory applicationContextFactory;
+
+	private final Set<String> jobNames;
+
+	private final Consumer<Job> jobInitializer;
+
+	private ConfigurableApplicationContext applicationContext;
+
+	private Map<String, Job> jobs;
+
+	private volatile long lastAccess;
+
+	private int inFlight;
+
+	private long lastHandout;
+
+	LazyJobContext(ApplicationContextFactory applicationContextFactory, Set<String> jobNames,
+			Consumer<Job> jobInitializer) {
+		this.applicationContextFactory = applicationContextFactory;
+		this.jobNames = jobNames;
+		this.jobInitializer = jobInitializer;
+	}
+
+	Set<String> getJobNames() {
+		return jobNames;
+	}
+
+	synchronized Job getJob(String jobName) {
+		lastAccess = System.currentTimeMillis();
+		if (applicationContext == null) {
+			long start = System.currentTimeMillis();
+			ConfigurableApplicationContext context = applicationContextFactory.createApplicationContext();
+			Map<String, Job> jobsByName = new HashMap<>();
+			for (Job job : context.getBeansOfType(Job.class).values()) {
+				jobsByName.put(job.getName(), job);
+			}
+			if (!jobsByName.keySet().equals(jobNames)) {
+				// the jobs were determined by a scan of the configuration, which has missed or invented a job
+				context.close();
+				throw new IllegalStateException("Context created from " + applicationContextFactory
+						+ " contains the jobs " + jobsByName.keySet() + " instead of the jobs " + jobNames
+						+ " registered lazily, register the configuration eagerly with batch.config.lazy.enabled=false");
+			}
+			jobsByName.values().stream().distinct().forEach(jobInitializer);
+			for (Job job : jobsByName.values()) {
+				if (job instanceof AbstractJob) {
+					((AbstractJob) job).registerJobExecutionListener(new InFlightListener());
+				}
+			}
+			applicationContext = context;
+			jobs = jobsByName;
+			LOGGER.info("Created context for jobs {} from {} in {} ms", jobNames, applicationContextFactory,
+					System.currentTimeMillis() - start);
+		}
+		Job job = jobs.get(jobName);
+		if (job != null) {
+			inFlight++;
+			lastHandout = lastAccess;
+		}
+		return job;
+	}
+
+	private synchronized void finished() {
+		if (inFlight > 0) {
+			inFlight--;
+		}
+	}
+
+	/**
+	 * Closes the ApplicationContext if it wasn't accessed since idleSince and none of its jobs is running.
+	 *
+	 * @return true if the ApplicationContext was closed
+	 */
+	synchronized boolean evictIfIdle(long idleSince, Predicate<String> running) {
+		if (applicationContext == null || lastAccess > idleSince || jobNames.stream().anyMatch(running)) {
+			return false;
+		}
+		if (inFlight > 0 && System.currentTimeMillis() - lastHandout < HANDOUT_TIMEOUT_MILLIS) {
+			return false;
+		}
+		LOGGER.info("Closing idle context for jobs {}", jobNames);
+		close();
+		return true;
+	}
+
+	synchronized void close() {
+		if (applicationContext != null) {
+			applicationContext.close();
+			applicationContext = null;
+			jobs = null;
+			inFlight = 0;
+		}
+	}
+
+	synchronized boolean isActive() {
+		return applicationContext != null;
+	}
+
+	/**
+	 * Ends the handout of a job when its execution has finished.
+	 */
+	private class InFlightListener extends JobExecutionListenerSupport {
+
+		@Override
+		public void afterJob(JobExecution jobExecution) {
+			finished();
+		}
+
+	}
+
+}
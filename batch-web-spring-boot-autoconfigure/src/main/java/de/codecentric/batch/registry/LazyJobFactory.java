@@ -0,0 +1,47 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.codecentric.batch.registry;
+
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.configuration.JobFactory;
+
+/**
+ * {@link JobFactory} registered in the JobRegistry for a job whose ApplicationContext is only created when the job is
+ * requested.
+ */
+public class LazyJobFactory implements JobFactory {
+
+	private final String jobName;
+
+	private final LazyJobContext jobContext;
+
+	LazyJobFactory(String jobName, LazyJobContext jobContext) {
+		this.jobName = jobName;
+		this.jobContext = jobContext;
+	}
+
+	@Override
+	public Job createJob() {
+		return jobContext.getJob(jobName);
+	}
+
+	@Override
+	public String getJobName() {
+		return jobName;
+	}
+
+}
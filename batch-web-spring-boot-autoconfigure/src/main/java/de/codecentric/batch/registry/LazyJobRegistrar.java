@@ -0,0 +1,459 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.codecentric.batch.registry;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.asm.ClassReader;
+import org.springframework.asm.ClassVisitor;
+import org.springframework.asm.Handle;
+import org.springframework.asm.Label;
+import org.springframework.asm.MethodVisitor;
+import org.springframework.asm.SpringAsmInfo;
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.configuration.DuplicateJobException;
+import org.springframework.batch.core.configuration.JobRegistry;
+import org.springframework.batch.core.configuration.support.GenericApplicationContextFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.FactoryBean;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.Import;
+import org.springframework.context.annotation.ImportBeanDefinitionRegistrar;
+import org.springframework.context.annotation.ImportResource;
+import org.springframework.context.annotation.ImportSelector;
+import org.springframework.core.io.Resource;
+import org.springframework.core.type.AnnotationMetadata;
+import org.springframework.core.type.MethodMetadata;
+import org.springframework.core.type.classreading.MetadataReader;
+import org.springframework.core.type.classreading.MetadataReaderFactory;
+import org.springframework.core.type.classreading.SimpleMetadataReaderFactory;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.util.Assert;
+import org.springframework.util.ClassUtils;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.xml.sax.SAXException;
+
+import de.codecentric.batch.monitoring.RunningExecutionTracker;
+
+/**
+ * Registers jobs in the {@link JobRegistry} without creating their ApplicationContext. Only the job names are
+ * determined at startup: from the ids of the &lt;batch:job&gt; elements in XML configurations, and from the String
+ * literals passed to JobBuilderFactory.get or new JobBuilder in the {@link Bean} methods returning a {@link Job} in
+ * JavaConfig classes. Configurations where not every job can be found this way, because they import other
+ * configurations, scan for components, define jobs as plain beans or compute job names, are left to eager
+ * registration. The ApplicationContext of a configuration is created when one of its jobs is requested from the
+ * JobRegistry for the first time. If its jobs differ from the ones found at startup, an IllegalStateException is
+ * thrown.
+ * <p>
+ * With a ttl, contexts that weren't requested for that long and have no running job on this node are closed and will
+ * be created again on the next request, so that only the jobs actually in use occupy memory. The eviction runs on its
+ * own thread while the ApplicationContext is running. A context whose job has been handed out and hasn't finished yet
+ * isn't closed either, even if the job isn't registered as running yet.
+ */
+public class LazyJobRegistrar implements SmartLifecycle, DisposableBean {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(LazyJobRegistrar.class);
+
+	private static final String BATCH_NAMESPACE = "http://www.springframework.org/schema/batch";
+
+	private static final String BEANS_NAMESPACE = "http://www.springframework.org/schema/beans";
+
+	private static final String CONTEXT_NAMESPACE = "http://www.springframework.org/schema/context";
+
+	private static final String JOB_BUILDER_FACTORY = "org/springframework/batch/core/configuration/annotation/JobBuilderFactory";
+
+	private static final String JOB_BUILDER = "org/springframework/batch/core/job/builder/JobBuilder";
+
+	private static final Duration MAX_EVICTION_INTERVAL = Duration.ofMinutes(1);
+
+	private final JobRegistry jobRegistry;
+
+	private final ApplicationContext applicationContext;
+
+	private final RunningExecutionTracker runningExecutionTracker;
+
+	private final Consumer<Job> jobInitializer;
+
+	private final Map<String, LazyJobContext> jobContexts = new ConcurrentHashMap<>();
+
+	private final MetadataReaderFactory metadataReaderFactory = new SimpleMetadataReaderFactory();
+
+	private ThreadPoolTaskScheduler scheduler;
+
+	private Duration ttl;
+
+	/**
+	 * @param jobInitializer
+	 *            called for every job after its ApplicationContext has been created, for example for adding listeners
+	 */
+	public LazyJobRegistrar(JobRegistry jobRegistry, ApplicationContext applicationContext,
+			RunningExecutionTracker runningExecutionTracker, Consumer<Job> jobInitializer) {
+		this.jobRegistry = jobRegistry;
+		this.applicationContext = applicationContext;
+		this.runningExecutionTracker = runningExecutionTracker;
+		this.jobInitializer = jobInitializer;
+	}
+
+	/**
+	 * Registers the jobs defined in the given XML configuration.
+	 *
+	 * @return false if no job could be found in the configuration, which then has to be registered eagerly
+	 */
+	public boolean registerXml(Resource resource) throws IOException, DuplicateJobException {
+		return register(new GenericApplicationContextFactory(resource), findJobNames(resource));
+	}
+
+	/**
+	 * Registers the jobs defined in the given JavaConfig class.
+	 *
+	 * @return false if no job could be found in the configuration, which then has to be registered eagerly
+	 */
+	public boolean registerJavaConfig(Class<?> configurationClass) throws IOException, DuplicateJobException {
+		return register(new GenericApplicationContextFactory(configurationClass), findJobNames(configurationClass));
+	}
+
+	private boolean register(GenericApplicationContextFactory applicationContextFactory, Set<String> jobNames)
+			throws DuplicateJobException {
+		if (jobNames.isEmpty()) {
+			return false;
+		}
+		applicationContextFactory.setApplicationContext(applicationContext);
+		LazyJobContext jobContext = new LazyJobContext(applicationContextFactory, jobNames, jobInitializer);
+		for (String jobName : jobNames) {
+			LOGGER.info("Register job {} from {} lazily", jobName, applicationContextFactory);
+			jobRegistry.register(new LazyJobFactory(jobName, jobContext));
+			jobContexts.put(jobName, jobContext);
+		}
+		return true;
+	}
+
+	/**
+	 * Finds the ids of the &lt;batch:job&gt; elements, or returns an empty set if the configuration might define jobs in
+	 * other ways: by importing other configurations, by scanning for components or by &lt;bean&gt; elements that are or
+	 * may create a {@link Job}.
+	 */
+	Set<String> findJobNames(Resource resource) throws IOException {
+		Set<String> jobNames = new LinkedHashSet<>();
+		try (InputStream inputStream = resource.getInputStream()) {
+			DocumentBuilderFactory documentBuilderFactory = DocumentBuilderFactory.newInstance();
+			documentBuilderFactory.setNamespaceAware(true);
+			documentBuilderFactory.setFeature("http://apache.org/xml/features/nonvalidating/load-external-dtd", false);
+			DocumentBuilder documentBuilder = documentBuilderFactory.newDocumentBuilder();
+			Document document = documentBuilder.parse(inputStream);
+			if (!collectJobNames(document.getDocumentElement(), jobNames)) {
+				LOGGER.info("Could not determine all jobs in {}", resource);
+				return Collections.emptySet();
+			}
+		} catch (ParserConfigurationException | SAXException e) {
+			LOGGER.warn("Could not determine job names in {}", resource, e);
+			return Collections.emptySet();
+		}
+		return jobNames;
+	}
+
+	private boolean collectJobNames(Element parent, Set<String> jobNames) {
+		for (Node node = parent.getFirstChild(); node != null; node = node.getNextSibling()) {
+			if (!(node instanceof Element)) {
+				continue;
+			}
+			Element element = (Element) node;
+			String namespace = element.getNamespaceURI();
+			String name = element.getLocalName();
+			if (BATCH_NAMESPACE.equals(namespace) && "job".equals(name)) {
+				if (!"true".equals(element.getAttribute("abstract"))) {
+					if (element.getAttribute("id").isEmpty()) {
+						return false;
+					}
+					jobNames.add(element.getAttribute("id"));
+				}
+			} else if (BEANS_NAMESPACE.equals(namespace)) {
+				if ("import".equals(name) || "beans".equals(name) && !collectJobNames(element, jobNames)
+						|| "bean".equals(name) && mayBeJob(element)) {
+					return false;
+				}
+			} else if (CONTEXT_NAMESPACE.equals(namespace) && "component-scan".equals(name)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private boolean mayBeJob(Element bean) {
+		if ("true".equals(bean.getAttribute("abstract"))) {
+			return false;
+		}
+		String className = bean.getAttribute("class");
+		if (className.isEmpty() || !bean.getAttribute("factory-method").isEmpty()) {
+			// created by a factory or inherited from a parent, the type is unknown
+			return true;
+		}
+		try {
+			Class<?> beanClass = ClassUtils.forName(className, applicationContext.getClassLoader());
+			return Job.class.isAssignableFrom(beanClass) || FactoryBean.class.isAssignableFrom(beanClass);
+		} catch (ClassNotFoundException | LinkageError e) {
+			return true;
+		}
+	}
+
+	/**
+	 * Finds the names of the jobs of the {@link Bean} methods of the class, its superclasses, interfaces, member classes
+	 * and imported configurations, or returns an empty set if any job name can't be determined or the configuration
+	 * scans for components or imports XML configurations, selectors or registrars.
+	 */
+	Set<String> findJobNames(Class<?> configurationClass) throws IOException {
+		Set<String> jobNames = new LinkedHashSet<>();
+		if (!collectJobNames(configurationClass.getName(), configurationClass.getClassLoader(), jobNames,
+				new HashSet<>())) {
+			return Collections.emptySet();
+		}
+		return jobNames;
+	}
+
+	private boolean collectJobNames(String className, ClassLoader classLoader, Set<String> jobNames,
+			Set<String> visited) throws IOException {
+		if (className == null || className.startsWith("java.") || !visited.add(className)) {
+			return true;
+		}
+		MetadataReader metadataReader = metadataReaderFactory.getMetadataReader(className);
+		AnnotationMetadata metadata = metadataReader.getAnnotationMetadata();
+		if (metadata.isAnnotated(ComponentScan.class.getName())
+				|| metadata.hasAnnotation(ImportResource.class.getName())) {
+			LOGGER.info("Could not determine all jobs of {}, it scans for components or imports XML", className);
+			return false;
+		}
+		Map<String, String> jobNamesByMethod = null;
+		for (MethodMetadata method : metadata.getAnnotatedMethods(Bean.class.getName())) {
+			Class<?> returnType = resolve(method.getReturnTypeName(), classLoader);
+			if (returnType == null || FactoryBean.class.isAssignableFrom(returnType)
+					|| returnType.isAssignableFrom(Job.class) && returnType != Job.class) {
+				LOGGER.info("Could not determine whether {}.{}() returns a job", className, method.getMethodName());
+				return false;
+			}
+			if (Job.class.isAssignableFrom(returnType)) {
+				if (jobNamesByMethod == null) {
+					jobNamesByMethod = findJobBuilderNames(metadataReader.getResource());
+				}
+				String jobName = jobNamesByMethod.get(method.getMethodName());
+				if (jobName == null) {
+					LOGGER.info("Could not determine job name of {}.{}()", className, method.getMethodName());
+					return false;
+				}
+				jobNames.add(jobName);
+			}
+		}
+		List<String> relatedClassNames = new ArrayList<>();
+		relatedClassNames.add(metadata.getSuperClassName());
+		relatedClassNames.addAll(Arrays.asList(metadata.getInterfaceNames()));
+		relatedClassNames.addAll(Arrays.asList(metadata.getMemberClassNames()));
+		if (metadata.hasAnnotation(Import.class.getName())) {
+			for (String importedClassName : (String[]) metadata.getAnnotationAttributes(Import.class.getName(), true)
+					.get("value")) {
+				Class<?> importedClass = resolve(importedClassName, classLoader);
+				if (importedClass == null || ImportSelector.class.isAssignableFrom(importedClass)
+						|| ImportBeanDefinitionRegistrar.class.isAssignableFrom(importedClass)) {
+					LOGGER.info("Could not determine all jobs of {}, it imports {}", className, importedClassName);
+					return false;
+				}
+				relatedClassNames.add(importedClassName);
+			}
+		}
+		for (String relatedClassName : relatedClassNames) {
+			if (!collectJobNames(relatedClassName, classLoader, jobNames, visited)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Finds the names given to JobBuilderFactory.get(String) or new JobBuilder(String) as String literal in each
+	 * method of the class. The literal has to be the last instruction before the call, so that a computed name is never
+	 * mistaken for a literal used earlier in the method.
+	 */
+	private Map<String, String> findJobBuilderNames(Resource classFile) throws IOException {
+		Map<String, String> jobNames = new HashMap<>();
+		try (InputStream inputStream = classFile.getInputStream()) {
+			new ClassReader(inputStream).accept(new ClassVisitor(SpringAsmInfo.ASM_VERSION) {
+
+				@Override
+				public MethodVisitor visitMethod(int access, String methodName, String descriptor, String signature,
+						String[] exceptions) {
+					return new MethodVisitor(SpringAsmInfo.ASM_VERSION) {
+
+						private String lastString;
+
+						@Override
+						public void visitLdcInsn(Object value) {
+							lastString = value instanceof String ? (String) value : null;
+						}
+
+						@Override
+						public void visitMethodInsn(int opcode, String owner, String name, String methodDescriptor,
+								boolean isInterface) {
+							if (lastString != null && (JOB_BUILDER_FACTORY.equals(owner) && "get".equals(name)
+									|| JOB_BUILDER.equals(owner) && "<init>".equals(name))) {
+								jobNames.putIfAbsent(methodName, lastString);
+							}
+							lastString = null;
+						}
+
+						@Override
+						public void visitInsn(int opcode) {
+							lastString = null;
+						}
+
+						@Override
+						public void visitIntInsn(int opcode, int operand) {
+							lastString = null;
+						}
+
+						@Override
+						public void visitVarInsn(int opcode, int var) {
+							lastString = null;
+						}
+
+						@Override
+						public void visitTypeInsn(int opcode, String type) {
+							lastString = null;
+						}
+
+						@Override
+						public void visitFieldInsn(int opcode, String owner, String name, String fieldDescriptor) {
+							lastString = null;
+						}
+
+						@Override
+						public void visitInvokeDynamicInsn(String name, String indyDescriptor, Handle bootstrapMethod,
+								Object... bootstrapMethodArguments) {
+							lastString = null;
+						}
+
+						@Override
+						public void visitJumpInsn(int opcode, Label label) {
+							lastString = null;
+						}
+
+					};
+				}
+
+			}, ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+		}
+		return jobNames;
+	}
+
+	private Class<?> resolve(String typeName, ClassLoader classLoader) {
+		try {
+			return ClassUtils.forName(typeName, classLoader);
+		} catch (ClassNotFoundException | LinkageError e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Whether the job is registered lazily, meaning that requesting it from the JobRegistry may create its
+	 * ApplicationContext.
+	 */
+	public boolean isLazy(String jobName) {
+		return jobContexts.containsKey(jobName);
+	}
+
+	/**
+	 * Number of job configurations whose ApplicationContext currently exists.
+	 */
+	public long getActiveContexts() {
+		return jobContexts.values().stream().distinct().filter(LazyJobContext::isActive).count();
+	}
+
+	/**
+	 * @param ttl
+	 *            idle time after which a context is closed, never if null
+	 */
+	public void setTtl(Duration ttl) {
+		Assert.isTrue(ttl == null || !(ttl.isNegative() || ttl.isZero()), "The ttl must be positive: " + ttl);
+		this.ttl = ttl;
+	}
+
+	@Override
+	public synchronized void start() {
+		if (ttl == null || scheduler != null) {
+			return;
+		}
+		scheduler = new ThreadPoolTaskScheduler();
+		scheduler.setThreadNamePrefix("lazy-job-eviction-");
+		scheduler.setDaemon(true);
+		scheduler.initialize();
+		Duration interval = ttl.compareTo(MAX_EVICTION_INTERVAL) < 0 ? ttl : MAX_EVICTION_INTERVAL;
+		scheduler.scheduleWithFixedDelay(this::evictIdleContexts, interval.toMillis());
+	}
+
+	@Override
+	public synchronized void stop() {
+		if (scheduler != null) {
+			scheduler.shutdown();
+			scheduler = null;
+		}
+	}
+
+	@Override
+	public synchronized boolean isRunning() {
+		return scheduler != null;
+	}
+
+	/**
+	 * Closes all contexts that weren't requested within the ttl and have no running job.
+	 */
+	public void evictIdleContexts() {
+		if (ttl == null) {
+			return;
+		}
+		long idleSince = System.currentTimeMillis() - ttl.toMillis();
+		jobContexts.values().stream().distinct().forEach(jobContext -> jobContext.evictIfIdle(idleSince,
+				jobName -> !runningExecutionTracker.getRunningExecutionIdsForJobName(jobName).isEmpty()));
+	}
+
+	@Override
+	public void destroy() {
+		stop();
+		List<LazyJobContext> contexts = new ArrayList<>(jobContexts.values());
+		contexts.stream().distinct().forEach(LazyJobContext::close);
+	}
+
+}
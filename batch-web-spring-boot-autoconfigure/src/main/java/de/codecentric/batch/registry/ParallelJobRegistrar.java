@@ -0,0 +1,154 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.codecentric.batch.registry;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.configuration.DuplicateJobException;
+import org.springframework.batch.core.configuration.support.ApplicationContextFactory;
+import org.springframework.batch.core.configuration.support.AutomaticJobRegistrar;
+import org.springframework.batch.core.configuration.support.JobLoader;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.ApplicationContextAware;
+import org.springframework.context.SmartLifecycle;
+
+/**
+ * Alternative to the {@link AutomaticJobRegistrar} that creates the ApplicationContexts of the job configurations on a
+ * ForkJoinPool with a bounded parallelism instead of one after another. Like the {@link AutomaticJobRegistrar}, it
+ * loads the jobs when the parent ApplicationContext is started, and closes their contexts when it's stopped.
+ * <p>
+ * The time each context took to be created is logged and available via {@link #getRefreshTimes()}.
+ */
+public class ParallelJobRegistrar implements SmartLifecycle {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(ParallelJobRegistrar.class);
+
+	private final JobLoader jobLoader;
+
+	private final ApplicationContext applicationContext;
+
+	private final int parallelism;
+
+	private final List<ApplicationContextFactory> applicationContextFactories = new ArrayList<>();
+
+	private final Map<String, Long> refreshTimes = Collections.synchronizedMap(new LinkedHashMap<>());
+
+	private volatile boolean running;
+
+	public ParallelJobRegistrar(JobLoader jobLoader, ApplicationContext applicationContext, int parallelism) {
+		this.jobLoader = jobLoader;
+		this.applicationContext = applicationContext;
+		this.parallelism = parallelism;
+	}
+
+	public void addApplicationContextFactory(ApplicationContextFactory applicationContextFactory) {
+		if (applicationContextFactory instanceof ApplicationContextAware) {
+			((ApplicationContextAware) applicationContextFactory).setApplicationContext(applicationContext);
+		}
+		applicationContextFactories.add(applicationContextFactory);
+	}
+
+	@Override
+	public synchronized void start() {
+		if (running) {
+			return;
+		}
+		long start = System.currentTimeMillis();
+		ClassLoader classLoader = applicationContext.getClassLoader();
+		AtomicInteger threadCount = new AtomicInteger();
+		ForkJoinPool pool = new ForkJoinPool(parallelism, forkJoinPool -> {
+			ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(forkJoinPool);
+			thread.setName("job-context-refresh-" + threadCount.incrementAndGet());
+			thread.setContextClassLoader(classLoader);
+			return thread;
+		}, null, false);
+		try {
+			List<Callable<Void>> tasks = applicationContextFactories.stream()
+					.map(applicationContextFactory -> (Callable<Void>) () -> load(applicationContextFactory))
+					.collect(Collectors.toList());
+			for (Future<Void> future : pool.invokeAll(tasks)) {
+				future.get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while loading jobs", e);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("Could not load jobs", e.getCause());
+		} finally {
+			pool.shutdown();
+		}
+		running = true;
+		LOGGER.info("Created {} job contexts in {} ms with parallelism {}", applicationContextFactories.size(),
+				System.currentTimeMillis() - start, parallelism);
+	}
+
+	private Void load(ApplicationContextFactory applicationContextFactory) throws DuplicateJobException {
+		long start = System.currentTimeMillis();
+		Collection<Job> jobs = jobLoader.load(applicationContextFactory);
+		long duration = System.currentTimeMillis() - start;
+		List<String> jobNames = jobs.stream().map(Job::getName).collect(Collectors.toList());
+		for (String jobName : jobNames) {
+			refreshTimes.put(jobName, duration);
+		}
+		LOGGER.info("Created context for jobs {} from {} in {} ms", jobNames, applicationContextFactory, duration);
+		return null;
+	}
+
+	/**
+	 * Time in milliseconds it took to create the ApplicationContext of each job.
+	 */
+	public Map<String, Long> getRefreshTimes() {
+		synchronized (refreshTimes) {
+			return new LinkedHashMap<>(refreshTimes);
+		}
+	}
+
+	@Override
+	public synchronized void stop() {
+		jobLoader.clear();
+		running = false;
+	}
+
+	@Override
+	public boolean isRunning() {
+		return running;
+	}
+
+	/**
+	 * Same phase as the {@link AutomaticJobRegistrar}.
+	 */
+	@Override
+	public int getPhase() {
+		return Integer.MIN_VALUE + 1000;
+	}
+
+}
@@ -0,0 +1,395 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.codecentric.batch.repository;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.springframework.batch.core.repository.ExecutionContextSerializer;
+import org.springframework.batch.core.repository.dao.Jackson2ExecutionContextStringSerializer;
+import org.springframework.util.StreamUtils;
+
+/**
+ * {@link ExecutionContextSerializer} writing a compact, type tagged binary format. Numbers are written as variable
+ * length integers, so the counters of the {@link de.codecentric.batch.metrics.BatchMetrics} mostly take two or three
+ * bytes instead of their decimal representation plus the type information Jackson adds. Payloads larger than the
+ * compression threshold are deflated.
+ * <p>
+ * The JDBC DAOs of Spring Batch store the serialized context as a String, so the binary payload is Base64 encoded behind
+ * a short prefix. Contexts without the prefix, like the ones written before switching to this serializer, are read by
+ * the fallback serializer. Contexts containing values other than Strings, primitive wrappers and Dates are written by
+ * the fallback serializer as well.
+ */
+public class BinaryExecutionContextSerializer implements ExecutionContextSerializer {
+
+	private static final byte[] PREFIX = "BIN1".getBytes(StandardCharsets.US_ASCII);
+
+	private static final byte PLAIN = 'P';
+
+	private static final byte DEFLATED = 'D';
+
+	private static final byte NULL = 0;
+
+	private static final byte STRING = 1;
+
+	private static final byte INTEGER = 2;
+
+	private static final byte LONG = 3;
+
+	private static final byte DOUBLE = 4;
+
+	private static final byte FLOAT = 5;
+
+	private static final byte TRUE = 6;
+
+	private static final byte FALSE = 7;
+
+	private static final byte SHORT = 8;
+
+	private static final byte BYTE = 9;
+
+	private static final byte DATE = 10;
+
+	private final int compressionThreshold;
+
+	private final ExecutionContextSerializer fallback;
+
+	public BinaryExecutionContextSerializer() {
+		this(1024);
+	}
+
+	/**
+	 * @param compressionThreshold
+	 *            payloads with more bytes are deflated, never if negative
+	 */
+	public BinaryExecutionContextSerializer(int compressionThreshold) {
+		this(compressionThreshold, new Jackson2ExecutionContextStringSerializer());
+	}
+
+	/**
+	 * @param fallback
+	 *            used for reading contexts not written by this serializer and writing contexts with unsupported values
+	 */
+	public BinaryExecutionContextSerializer(int compressionThreshold, ExecutionContextSerializer fallback) {
+		this.compressionThreshold = compressionThreshold;
+		this.fallback = fallback;
+	}
+
+	@Override
+	public void serialize(Map<String, Object> context, OutputStream out) throws IOException {
+		if (!context.values().stream().allMatch(BinaryExecutionContextSerializer::isSupported)) {
+			fallback.serialize(context, out);
+			return;
+		}
+		Output output = new Output(32 + context.size() * 32);
+		output.writeVarLong(context.size());
+		for (Map.Entry<String, Object> entry : context.entrySet()) {
+			output.writeString(entry.getKey());
+			writeValue(output, entry.getValue());
+		}
+		byte[] payload = output.toByteArray();
+		byte encoding = PLAIN;
+		if (compressionThreshold >= 0 && payload.length > compressionThreshold) {
+			byte[] deflated = deflate(payload);
+			if (deflated.length < payload.length) {
+				payload = deflated;
+				encoding = DEFLATED;
+			}
+		}
+		out.write(PREFIX);
+		out.write(encoding);
+		out.write(Base64.getEncoder().encode(payload));
+	}
+
+	@Override
+	public Map<String, Object> deserialize(InputStream in) throws IOException {
+		byte[] bytes = StreamUtils.copyToByteArray(in);
+		if (!hasPrefix(bytes)) {
+			return fallback.deserialize(new ByteArrayInputStream(bytes));
+		}
+		byte encoding = bytes[PREFIX.length];
+		ByteBuffer decoded = Base64.getDecoder()
+				.decode(ByteBuffer.wrap(bytes, PREFIX.length + 1, bytes.length - PREFIX.length - 1));
+		byte[] payload = new byte[decoded.remaining()];
+		decoded.get(payload);
+		if (encoding == DEFLATED) {
+			payload = inflate(payload);
+		} else if (encoding != PLAIN) {
+			throw new IOException("Unknown encoding of binary execution context: " + (char) encoding);
+		}
+		Input input = new Input(payload);
+		int size = (int) input.readVarLong();
+		Map<String, Object> context = new HashMap<>(size * 4 / 3 + 1);
+		for (int i = 0; i < size; i++) {
+			String key = input.readString();
+			context.put(key, readValue(input));
+		}
+		return context;
+	}
+
+	private static boolean hasPrefix(byte[] bytes) {
+		if (bytes.length <= PREFIX.length) {
+			return false;
+		}
+		for (int i = 0; i < PREFIX.length; i++) {
+			if (bytes[i] != PREFIX[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean isSupported(Object value) {
+		if (value == null) {
+			return true;
+		}
+		Class<?> type = value.getClass();
+		return type == String.class || type == Integer.class || type == Long.class || type == Double.class
+				|| type == Float.class || type == Boolean.class || type == Short.class || type == Byte.class
+				|| type == Date.class;
+	}
+
+	private static void writeValue(Output output, Object value) {
+		if (value == null) {
+			output.writeByte(NULL);
+		} else if (value instanceof String) {
+			output.writeByte(STRING);
+			output.writeString((String) value);
+		} else if (value instanceof Long) {
+			output.writeByte(LONG);
+			output.writeVarLong(zigZag((Long) value));
+		} else if (value instanceof Integer) {
+			output.writeByte(INTEGER);
+			output.writeVarLong(zigZag((Integer) value));
+		} else if (value instanceof Double) {
+			output.writeByte(DOUBLE);
+			output.writeFixedLong(Double.doubleToLongBits((Double) value));
+		} else if (value instanceof Float) {
+			output.writeByte(FLOAT);
+			output.writeVarLong(Float.floatToIntBits((Float) value) & 0xFFFFFFFFL);
+		} else if (value instanceof Boolean) {
+			output.writeByte((Boolean) value ? TRUE : FALSE);
+		} else if (value instanceof Short) {
+			output.writeByte(SHORT);
+			output.writeVarLong(zigZag((Short) value));
+		} else if (value instanceof Byte) {
+			output.writeByte(BYTE);
+			output.writeByte((Byte) value);
+		} else {
+			output.writeByte(DATE);
+			output.writeVarLong(zigZag(((Date) value).getTime()));
+		}
+	}
+
+	private static Object readValue(Input input) throws IOException {
+		byte tag = input.readByte();
+		switch (tag) {
+		case NULL:
+			return null;
+		case STRING:
+			return input.readString();
+		case LONG:
+			return unZigZag(input.readVarLong());
+		case INTEGER:
+			return (int) unZigZag(input.readVarLong());
+		case DOUBLE:
+			return Double.longBitsToDouble(input.readFixedLong());
+		case FLOAT:
+			return Float.intBitsToFloat((int) input.readVarLong());
+		case TRUE:
+			return Boolean.TRUE;
+		case FALSE:
+			return Boolean.FALSE;
+		case SHORT:
+			return (short) unZigZag(input.readVarLong());
+		case BYTE:
+			return input.readByte();
+		case DATE:
+			return new Date(unZigZag(input.readVarLong()));
+		default:
+			throw new IOException("Unknown type tag in binary execution context: " + tag);
+		}
+	}
+
+	private static long zigZag(long value) {
+		return (value << 1) ^ (value >> 63);
+	}
+
+	private static long unZigZag(long value) {
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	private static byte[] deflate(byte[] payload) {
+		Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+		try {
+			deflater.setInput(payload);
+			deflater.finish();
+			byte[] buffer = new byte[payload.length];
+			int length = 0;
+			while (!deflater.finished() && length < buffer.length) {
+				length += deflater.deflate(buffer, length, buffer.length - length);
+			}
+			// not smaller than the payload, written uncompressed by the caller
+			return deflater.finished() ? Arrays.copyOf(buffer, length) : payload;
+		} finally {
+			deflater.end();
+		}
+	}
+
+	private static byte[] inflate(byte[] payload) throws IOException {
+		Inflater inflater = new Inflater();
+		try {
+			inflater.setInput(payload);
+			byte[] buffer = new byte[payload.length * 4];
+			int length = 0;
+			while (!inflater.finished()) {
+				if (length == buffer.length) {
+					buffer = Arrays.copyOf(buffer, buffer.length * 2);
+				}
+				int inflated = inflater.inflate(buffer, length, buffer.length - length);
+				if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+					throw new IOException("Truncated binary execution context");
+				}
+				length += inflated;
+			}
+			return Arrays.copyOf(buffer, length);
+		} catch (DataFormatException e) {
+			throw new IOException("Malformed binary execution context", e);
+		} finally {
+			inflater.end();
+		}
+	}
+
+	/**
+	 * Growing byte array, not synchronized like a ByteArrayOutputStream.
+	 */
+	private static final class Output {
+
+		private byte[] buffer;
+
+		private int length;
+
+		private Output(int capacity) {
+			this.buffer = new byte[capacity];
+		}
+
+		private void ensureCapacity(int additional) {
+			if (length + additional > buffer.length) {
+				buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + additional));
+			}
+		}
+
+		private void writeByte(int value) {
+			ensureCapacity(1);
+			buffer[length++] = (byte) value;
+		}
+
+		private void writeVarLong(long value) {
+			ensureCapacity(10);
+			while ((value & ~0x7FL) != 0) {
+				buffer[length++] = (byte) ((value & 0x7F) | 0x80);
+				value >>>= 7;
+			}
+			buffer[length++] = (byte) value;
+		}
+
+		private void writeFixedLong(long value) {
+			ensureCapacity(8);
+			for (int shift = 56; shift >= 0; shift -= 8) {
+				buffer[length++] = (byte) (value >>> shift);
+			}
+		}
+
+		private void writeString(String value) {
+			byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+			writeVarLong(bytes.length);
+			ensureCapacity(bytes.length);
+			System.arraycopy(bytes, 0, buffer, length, bytes.length);
+			length += bytes.length;
+		}
+
+		private byte[] toByteArray() {
+			return Arrays.copyOf(buffer, length);
+		}
+
+	}
+
+	private static final class Input {
+
+		private final byte[] buffer;
+
+		private int position;
+
+		private Input(byte[] buffer) {
+			this.buffer = buffer;
+		}
+
+		private void require(int bytes) throws IOException {
+			if (position + bytes > buffer.length) {
+				throw new IOException("Truncated binary execution context");
+			}
+		}
+
+		private byte readByte() throws IOException {
+			require(1);
+			return buffer[position++];
+		}
+
+		private long readVarLong() throws IOException {
+			long value = 0;
+			for (int shift = 0; shift < 64; shift += 7) {
+				byte b = readByte();
+				value |= (long) (b & 0x7F) << shift;
+				if ((b & 0x80) == 0) {
+					return value;
+				}
+			}
+			throw new IOException("Malformed variable length number in binary execution context");
+		}
+
+		private long readFixedLong() throws IOException {
+			require(8);
+			long value = 0;
+			for (int i = 0; i < 8; i++) {
+				value = (value << 8) | (buffer[position++] & 0xFF);
+			}
+			return value;
+		}
+
+		private String readString() throws IOException {
+			int length = (int) readVarLong();
+			require(length);
+			String value = new String(buffer, position, length, StandardCharsets.UTF_8);
+			position += length;
+			return value;
+		}
+
+	}
+
+}
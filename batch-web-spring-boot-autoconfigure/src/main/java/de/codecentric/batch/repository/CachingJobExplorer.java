@@ -0,0 +1,227 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.codecentric.batch.repository;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.sql.DataSource;
+
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobInstance;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.explore.JobExplorer;
+import org.springframework.batch.core.launch.NoSuchJobException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * {@link JobExplorer} decorator caching job executions that are completed, failed or abandoned, because they don't
+ * change anymore. The only exception is abandoning a failed job execution, which is visible after the time to live at
+ * the latest. The cache holds at most maxSize job executions, the least recently used ones are evicted first.
+ * <p>
+ * {@link #getJobExecutionStatus(Long)} reads only the status and exit code of a job execution with a single query, if a
+ * DataSource is given, and caches them for terminal job executions as well, so polling the status of a job execution
+ * is answered from memory once it has finished.
+ * <p>
+ * The cached job executions are shared by all callers and must not be modified, so this explorer is only used for
+ * reading, and not as the JobExplorer of the JobOperator, which updates the job executions it reads when abandoning
+ * them.
+ */
+public class CachingJobExplorer implements JobExplorer {
+
+	private final JobExplorer delegate;
+
+	private final JdbcTemplate jdbcTemplate;
+
+	private final String statusQuery;
+
+	private final Cache<JobExecution> jobExecutions;
+
+	private final Cache<JobExecutionStatus> statuses;
+
+	/**
+	 * @param dataSource
+	 *            used for reading the status of job executions, via the delegate if null
+	 * @param tablePrefix
+	 *            prefix of the Spring Batch meta data tables
+	 */
+	public CachingJobExplorer(JobExplorer delegate, DataSource dataSource, String tablePrefix, int maxSize,
+			Duration timeToLive) {
+		this.delegate = delegate;
+		this.jdbcTemplate = dataSource != null ? new JdbcTemplate(dataSource) : null;
+		this.statusQuery = "SELECT STATUS, EXIT_CODE FROM " + tablePrefix + "JOB_EXECUTION WHERE JOB_EXECUTION_ID = ?";
+		this.jobExecutions = new Cache<>(maxSize, timeToLive.toMillis());
+		this.statuses = new Cache<>(maxSize, timeToLive.toMillis());
+	}
+
+	@Override
+	public JobExecution getJobExecution(Long executionId) {
+		if (executionId == null) {
+			return null;
+		}
+		JobExecution jobExecution = jobExecutions.get(executionId);
+		if (jobExecution == null) {
+			jobExecution = delegate.getJobExecution(executionId);
+			if (jobExecution != null && JobExecutionStatus.of(jobExecution).isTerminal()) {
+				jobExecutions.put(executionId, jobExecution);
+			}
+		}
+		return jobExecution;
+	}
+
+	/**
+	 * @return the cached job execution, or null if it isn't cached, without reading it
+	 */
+	public JobExecution getCachedJobExecution(Long executionId) {
+		return executionId != null ? jobExecutions.get(executionId) : null;
+	}
+
+	/**
+	 * @return the status of the job execution or null if there is none with the given id
+	 */
+	public JobExecutionStatus getJobExecutionStatus(Long executionId) {
+		JobExecutionStatus status = statuses.get(executionId);
+		if (status != null) {
+			return status;
+		}
+		JobExecution jobExecution = jobExecutions.get(executionId);
+		if (jobExecution != null) {
+			status = JobExecutionStatus.of(jobExecution);
+		} else if (jdbcTemplate != null) {
+			List<JobExecutionStatus> result = jdbcTemplate.query(statusQuery,
+					(rs, rowNum) -> new JobExecutionStatus(BatchStatus.valueOf(rs.getString(1)), rs.getString(2)),
+					executionId);
+			status = result.isEmpty() ? null : result.get(0);
+		} else {
+			jobExecution = delegate.getJobExecution(executionId);
+			status = jobExecution != null ? JobExecutionStatus.of(jobExecution) : null;
+		}
+		if (status != null && status.isTerminal()) {
+			statuses.put(executionId, status);
+		}
+		return status;
+	}
+
+	@Override
+	public List<JobInstance> getJobInstances(String jobName, int start, int count) {
+		return delegate.getJobInstances(jobName, start, count);
+	}
+
+	@Override
+	public JobInstance getLastJobInstance(String jobName) {
+		return delegate.getLastJobInstance(jobName);
+	}
+
+	@Override
+	public StepExecution getStepExecution(Long jobExecutionId, Long stepExecutionId) {
+		return delegate.getStepExecution(jobExecutionId, stepExecutionId);
+	}
+
+	@Override
+	public JobInstance getJobInstance(Long instanceId) {
+		return delegate.getJobInstance(instanceId);
+	}
+
+	@Override
+	public List<JobExecution> getJobExecutions(JobInstance jobInstance) {
+		return delegate.getJobExecutions(jobInstance);
+	}
+
+	@Override
+	public JobExecution getLastJobExecution(JobInstance jobInstance) {
+		return delegate.getLastJobExecution(jobInstance);
+	}
+
+	@Override
+	public Set<JobExecution> findRunningJobExecutions(String jobName) {
+		return delegate.findRunningJobExecutions(jobName);
+	}
+
+	@Override
+	public List<String> getJobNames() {
+		return delegate.getJobNames();
+	}
+
+	@Override
+	public List<JobInstance> findJobInstancesByJobName(String jobName, int start, int count) {
+		return delegate.findJobInstancesByJobName(jobName, start, count);
+	}
+
+	@Override
+	public int getJobInstanceCount(String jobName) throws NoSuchJobException {
+		return delegate.getJobInstanceCount(jobName);
+	}
+
+	/**
+	 * Least recently used cache with a time to live, synchronized because it is small and cheap to access.
+	 */
+	private static final class Cache<V> {
+
+		private final long timeToLiveMillis;
+
+		private final Map<Long, Entry<V>> entries;
+
+		private Cache(int maxSize, long timeToLiveMillis) {
+			this.timeToLiveMillis = timeToLiveMillis;
+			this.entries = new LinkedHashMap<Long, Entry<V>>(16, 0.75f, true) {
+
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<Long, Entry<V>> eldest) {
+					return size() > maxSize;
+				}
+
+			};
+		}
+
+		private synchronized V get(Long key) {
+			Entry<V> entry = entries.get(key);
+			if (entry == null) {
+				return null;
+			}
+			if (System.currentTimeMillis() - entry.created > timeToLiveMillis) {
+				entries.remove(key);
+				return null;
+			}
+			return entry.value;
+		}
+
+		private synchronized void put(Long key, V value) {
+			entries.put(key, new Entry<>(value, System.currentTimeMillis()));
+		}
+
+	}
+
+	private static final class Entry<V> {
+
+		private final V value;
+
+		private final long created;
+
+		private Entry(V value, long created) {
+			this.value = value;
+			this.created = created;
+		}
+
+	}
+
+}
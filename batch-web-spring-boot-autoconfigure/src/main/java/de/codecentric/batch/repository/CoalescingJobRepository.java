@@ -0,0 +1,203 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.codecentric.batch.repository;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobInstance;
+import org.springframework.batch.core.JobParameters;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.repository.JobExecutionAlreadyRunningException;
+import org.springframework.batch.core.repository.JobInstanceAlreadyCompleteException;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.batch.core.repository.JobRestartException;
+
+/**
+ * {@link JobRepository} decorator that coalesces the updates of running step executions. A chunk oriented step updates
+ * its StepExecution and its ExecutionContext in the repository on every commit. This repository only passes every
+ * commits-th of these updates to the delegate, or the first one after interval has elapsed since the last one that was
+ * passed. Updates of step executions that aren't in status STARTED, like the ones at the start and the end of a step,
+ * are always passed, so the repository is up to date once a step has finished, successfully or not.
+ * <p>
+ * This trades restartability for fewer repository statements:
+ * <ul>
+ * <li>When the process dies, the repository contains the ExecutionContext of up to commits - 1 chunks before the last
+ * committed one. A restart continues from there and processes these chunks again, so only use it with writers that
+ * can handle items being written twice, for example by upserting.</li>
+ * <li>The counts of running step executions seen by other processes and the monitoring endpoints lag behind.</li>
+ * <li>A stop requested via the JobOperator is only noticed with the next update passed to the delegate, because that's
+ * where the status of the JobExecution is synchronized.</li>
+ * </ul>
+ * Failing steps are not affected: the ExecutionContext of the last successful commit is written on step end, because
+ * the ExecutionContext is only changed on a successful commit.
+ */
+public class CoalescingJobRepository implements JobRepository {
+
+	private final JobRepository delegate;
+
+	private final int commits;
+
+	private final long intervalMillis;
+
+	private final Map<Long, Updates> stepUpdates = new ConcurrentHashMap<>();
+
+	private final Map<Long, Updates> contextUpdates = new ConcurrentHashMap<>();
+
+	private final AtomicLong coalescedUpdates = new AtomicLong();
+
+	/**
+	 * @param commits
+	 *            every commits-th update of a running step execution is written
+	 * @param interval
+	 *            the first update of a running step execution after this time since the last write is written
+	 */
+	public CoalescingJobRepository(JobRepository delegate, int commits, Duration interval) {
+		this.delegate = delegate;
+		this.commits = commits;
+		this.intervalMillis = interval.toMillis();
+	}
+
+	@Override
+	public void update(StepExecution stepExecution) {
+		if (shouldWrite(stepUpdates, stepExecution)) {
+			delegate.update(stepExecution);
+		}
+	}
+
+	@Override
+	public void updateExecutionContext(StepExecution stepExecution) {
+		if (shouldWrite(contextUpdates, stepExecution)) {
+			delegate.updateExecutionContext(stepExecution);
+		}
+	}
+
+	private boolean shouldWrite(Map<Long, Updates> updates, StepExecution stepExecution) {
+		Long id = stepExecution.getId();
+		if (id == null || stepExecution.getStatus() != BatchStatus.STARTED || stepExecution.isTerminateOnly()) {
+			if (id != null) {
+				updates.remove(id);
+			}
+			return true;
+		}
+		Updates stepExecutionUpdates = updates.get(id);
+		if (stepExecutionUpdates == null) {
+			updates.put(id, new Updates(System.currentTimeMillis()));
+			return true;
+		}
+		if (stepExecutionUpdates.next(commits, intervalMillis)) {
+			return true;
+		}
+		coalescedUpdates.incrementAndGet();
+		return false;
+	}
+
+	/**
+	 * Number of updates that weren't passed to the delegate.
+	 */
+	public long getCoalescedUpdates() {
+		return coalescedUpdates.get();
+	}
+
+	@Override
+	public boolean isJobInstanceExists(String jobName, JobParameters jobParameters) {
+		return delegate.isJobInstanceExists(jobName, jobParameters);
+	}
+
+	@Override
+	public JobInstance createJobInstance(String jobName, JobParameters jobParameters) {
+		return delegate.createJobInstance(jobName, jobParameters);
+	}
+
+	@Override
+	public JobExecution createJobExecution(JobInstance jobInstance, JobParameters jobParameters,
+			String jobConfigurationLocation) {
+		return delegate.createJobExecution(jobInstance, jobParameters, jobConfigurationLocation);
+	}
+
+	@Override
+	public JobExecution createJobExecution(String jobName, JobParameters jobParameters)
+			throws JobExecutionAlreadyRunningException, JobRestartException, JobInstanceAlreadyCompleteException {
+		return delegate.createJobExecution(jobName, jobParameters);
+	}
+
+	@Override
+	public void update(JobExecution jobExecution) {
+		delegate.update(jobExecution);
+	}
+
+	@Override
+	public void add(StepExecution stepExecution) {
+		delegate.add(stepExecution);
+	}
+
+	@Override
+	public void addAll(Collection<StepExecution> stepExecutions) {
+		delegate.addAll(stepExecutions);
+	}
+
+	@Override
+	public void updateExecutionContext(JobExecution jobExecution) {
+		delegate.updateExecutionContext(jobExecution);
+	}
+
+	@Override
+	public StepExecution getLastStepExecution(JobInstance jobInstance, String stepName) {
+		return delegate.getLastStepExecution(jobInstance, stepName);
+	}
+
+	@Override
+	public int getStepExecutionCount(JobInstance jobInstance, String stepName) {
+		return delegate.getStepExecutionCount(jobInstance, stepName);
+	}
+
+	@Override
+	public JobExecution getLastJobExecution(String jobName, JobParameters jobParameters) {
+		return delegate.getLastJobExecution(jobName, jobParameters);
+	}
+
+	/**
+	 * Updates of one step execution since the last one that was written.
+	 */
+	private static final class Updates {
+
+		private int pending;
+
+		private long lastWrite;
+
+		private Updates(long lastWrite) {
+			this.lastWrite = lastWrite;
+		}
+
+		private synchronized boolean next(int commits, long intervalMillis) {
+			long now = System.currentTimeMillis();
+			if (++pending >= commits || now - lastWrite >= intervalMillis) {
+				pending = 0;
+				lastWrite = now;
+				return true;
+			}
+			return false;
+		}
+
+	}
+
+}
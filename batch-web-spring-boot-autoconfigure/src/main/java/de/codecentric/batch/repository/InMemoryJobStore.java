@@ -0,0 +1,680 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.codecentric.batch.repository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import org.springframework.batch.core.DefaultJobKeyGenerator;
+import org.springframework.batch.core.Entity;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobInstance;
+import org.springframework.batch.core.JobKeyGenerator;
+import org.springframework.batch.core.JobParameters;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.explore.JobExplorer;
+import org.springframework.batch.core.explore.support.SimpleJobExplorer;
+import org.springframework.batch.core.launch.NoSuchJobException;
+import org.springframework.batch.core.repository.JobExecutionAlreadyRunningException;
+import org.springframework.batch.core.repository.JobInstanceAlreadyCompleteException;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.batch.core.repository.JobRestartException;
+import org.springframework.batch.core.repository.dao.ExecutionContextDao;
+import org.springframework.batch.core.repository.dao.JobExecutionDao;
+import org.springframework.batch.core.repository.dao.JobInstanceDao;
+import org.springframework.batch.core.repository.dao.NoSuchObjectException;
+import org.springframework.batch.core.repository.dao.StepExecutionDao;
+import org.springframework.batch.core.repository.support.SimpleJobRepository;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.util.Assert;
+
+/**
+ * Concurrent in-memory storage of the batch meta data, replacing the Map based JobRepository of Spring Batch. It
+ * provides a {@link JobRepository} and a {@link JobExplorer} sharing the same data, built from the
+ * {@link SimpleJobRepository} and {@link SimpleJobExplorer} of Spring Batch like the JDBC based ones, so they behave
+ * the same way:
+ * <ul>
+ * <li>Creating a job execution is locked per job instance, using a fixed number of locks the job keys are spread over,
+ * so jobs with different parameters are started in parallel, but a job instance is never created or started twice.</li>
+ * <li>Job and step executions and their ExecutionContexts are stored as snapshots that are replaced on every update
+ * and never modified. Readers get a copy of a snapshot, so updates don't block them. The ExecutionContexts are copied
+ * shallowly, so their values must not be modified after they have been put into a context.</li>
+ * <li>At most maxFinishedExecutions finished job executions are retained, the oldest ones are removed with their step
+ * executions. A job instance is removed with its last job execution, so a completed job instance may be started again
+ * once its job executions have been removed.</li>
+ * </ul>
+ */
+public class InMemoryJobStore {
+
+	private static final int LOCK_STRIPES = 64;
+
+	private final JobKeyGenerator<JobParameters> jobKeyGenerator = new DefaultJobKeyGenerator();
+
+	private final Object[] locks = new Object[LOCK_STRIPES];
+
+	private final AtomicLong jobInstanceIds = new AtomicLong();
+
+	private final AtomicLong jobExecutionIds = new AtomicLong();
+
+	private final AtomicLong stepExecutionIds = new AtomicLong();
+
+	private final Map<String, JobInstance> jobInstancesByKey = new ConcurrentHashMap<>();
+
+	private final Map<Long, JobInstance> jobInstances = new ConcurrentHashMap<>();
+
+	private final Map<Long, JobExecution> jobExecutions = new ConcurrentHashMap<>();
+
+	private final Map<Long, NavigableSet<Long>> jobExecutionIdsByInstance = new ConcurrentHashMap<>();
+
+	private final Map<Long, StepExecution> stepExecutions = new ConcurrentHashMap<>();
+
+	private final Map<Long, NavigableSet<Long>> stepExecutionIdsByExecution = new ConcurrentHashMap<>();
+
+	private final Map<Long, ExecutionContext> jobExecutionContexts = new ConcurrentHashMap<>();
+
+	private final Map<Long, ExecutionContext> stepExecutionContexts = new ConcurrentHashMap<>();
+
+	private final int maxFinishedExecutions;
+
+	private final ConcurrentLinkedQueue<Long> finishedExecutionIds = new ConcurrentLinkedQueue<>();
+
+	private final AtomicInteger finishedExecutionCount = new AtomicInteger();
+
+	private final JobRepository jobRepository;
+
+	private final JobExplorer jobExplorer;
+
+	public InMemoryJobStore(int maxFinishedExecutions) {
+		this.maxFinishedExecutions = maxFinishedExecutions;
+		for (int i = 0; i < LOCK_STRIPES; i++) {
+			locks[i] = new Object();
+		}
+		JobInstanceDao jobInstanceDao = new InMemoryJobInstanceDao();
+		JobExecutionDao jobExecutionDao = new InMemoryJobExecutionDao();
+		StepExecutionDao stepExecutionDao = new InMemoryStepExecutionDao();
+		ExecutionContextDao executionContextDao = new InMemoryExecutionContextDao();
+		this.jobRepository = new SimpleJobRepository(jobInstanceDao, jobExecutionDao, stepExecutionDao,
+				executionContextDao) {
+
+			@Override
+			public JobExecution createJobExecution(String jobName, JobParameters jobParameters)
+					throws JobExecutionAlreadyRunningException, JobRestartException,
+					JobInstanceAlreadyCompleteException {
+				synchronized (lockFor(jobKey(jobName, jobParameters))) {
+					return super.createJobExecution(jobName, jobParameters);
+				}
+			}
+
+		};
+		this.jobExplorer = new SimpleJobExplorer(jobInstanceDao, jobExecutionDao, stepExecutionDao,
+				executionContextDao);
+	}
+
+	public JobRepository getJobRepository() {
+		return jobRepository;
+	}
+
+	public JobExplorer getJobExplorer() {
+		return jobExplorer;
+	}
+
+	/**
+	 * Called with every job instance created. This and the following methods allow subclasses to persist the stored
+	 * data. They are called once the change is visible in the store, so {@link #storeAll()} never misses it. Updates of
+	 * the same execution made by different threads may be passed on out of order, the one with the highest version is
+	 * the latest. The snapshots must not be modified.
+	 */
+	protected void stored(JobInstance jobInstance, String jobKey) {
+	}
+
+	protected void stored(JobExecution jobExecution) {
+	}
+
+	/**
+	 * @param stepExecution
+	 *            snapshot, only the id of its job execution is set
+	 */
+	protected void stored(StepExecution stepExecution) {
+	}
+
+	protected void storedJobExecutionContext(Long jobExecutionId, ExecutionContext executionContext) {
+	}
+
+	protected void storedStepExecutionContext(Long stepExecutionId, ExecutionContext executionContext) {
+	}
+
+	/**
+	 * Called when a finished job execution has been removed with its step executions and ExecutionContexts.
+	 */
+	protected void removed(Long jobExecutionId) {
+	}
+
+	/**
+	 * Passes all stored data to the methods above, the job executions ordered by their id.
+	 */
+	protected void storeAll() {
+		jobInstancesByKey.forEach((jobKey, jobInstance) -> stored(jobInstance, jobKey));
+		jobExecutions.values().stream().sorted(Comparator.comparing(JobExecution::getId)).forEach(this::stored);
+		stepExecutions.values().forEach(this::stored);
+		jobExecutionContexts.forEach(this::storedJobExecutionContext);
+		stepExecutionContexts.forEach(this::storedStepExecutionContext);
+	}
+
+	/**
+	 * Adds a job instance read by a subclass, before the job repository is used.
+	 */
+	protected void restore(JobInstance jobInstance, String jobKey) {
+		jobInstancesByKey.put(jobKey, jobInstance);
+		jobInstances.put(jobInstance.getId(), jobInstance);
+		jobInstanceIds.accumulateAndGet(jobInstance.getId(), Math::max);
+	}
+
+	/**
+	 * Adds or replaces a job execution read by a subclass, its job instance has to be restored first. An older version
+	 * than the one restored before is ignored.
+	 */
+	protected void restore(Long jobInstanceId, JobExecution jobExecution) {
+		Long id = jobExecution.getId();
+		if (isOlder(jobExecution.getVersion(), jobExecutions.get(id))) {
+			return;
+		}
+		jobExecution.setJobInstance(jobInstances.get(jobInstanceId));
+		JobExecution previous = jobExecutions.put(id, jobExecution);
+		jobExecutionIdsByInstance.computeIfAbsent(jobInstanceId, key -> new ConcurrentSkipListSet<>()).add(id);
+		jobExecutionIds.accumulateAndGet(id, Math::max);
+		if ((previous == null || previous.getEndTime() == null) && jobExecution.getEndTime() != null) {
+			finished(id);
+		}
+	}
+
+	/**
+	 * Adds or replaces a step execution read by a subclass, only the id of its job execution has to be set. An older
+	 * version than the one restored before is ignored.
+	 */
+	protected void restore(StepExecution stepExecution) {
+		if (isOlder(stepExecution.getVersion(), stepExecutions.get(stepExecution.getId()))) {
+			return;
+		}
+		stepExecutions.put(stepExecution.getId(), stepExecution);
+		stepExecutionIdsByExecution
+				.computeIfAbsent(stepExecution.getJobExecutionId(), key -> new ConcurrentSkipListSet<>())
+				.add(stepExecution.getId());
+		stepExecutionIds.accumulateAndGet(stepExecution.getId(), Math::max);
+	}
+
+	protected void restoreJobExecutionContext(Long jobExecutionId, ExecutionContext executionContext) {
+		jobExecutionContexts.put(jobExecutionId, executionContext);
+	}
+
+	protected void restoreStepExecutionContext(Long stepExecutionId, ExecutionContext executionContext) {
+		stepExecutionContexts.put(stepExecutionId, executionContext);
+	}
+
+	protected void restoreRemoval(Long jobExecutionId) {
+		remove(jobExecutionId);
+	}
+
+	private static boolean isOlder(Integer version, Entity restored) {
+		return restored != null && restored.getVersion() != null && version != null && version < restored.getVersion();
+	}
+
+	private String jobKey(String jobName, JobParameters jobParameters) {
+		return jobName + "|" + jobKeyGenerator.generateKey(jobParameters);
+	}
+
+	private Object lockFor(String jobKey) {
+		return locks[(jobKey.hashCode() & Integer.MAX_VALUE) % LOCK_STRIPES];
+	}
+
+	private void finished(Long jobExecutionId) {
+		finishedExecutionIds.add(jobExecutionId);
+		if (finishedExecutionCount.incrementAndGet() > maxFinishedExecutions) {
+			Long oldest = finishedExecutionIds.poll();
+			if (oldest != null) {
+				finishedExecutionCount.decrementAndGet();
+				remove(oldest);
+			}
+		}
+	}
+
+	private void remove(Long jobExecutionId) {
+		JobExecution jobExecution = jobExecutions.get(jobExecutionId);
+		if (jobExecution == null) {
+			return;
+		}
+		JobInstance jobInstance = jobExecution.getJobInstance();
+		String jobKey = jobKey(jobInstance.getJobName(), jobExecution.getJobParameters());
+		// the same lock as for creating a job execution, so a restart doesn't see a half removed job instance
+		synchronized (lockFor(jobKey)) {
+			jobExecutions.remove(jobExecutionId);
+			jobExecutionContexts.remove(jobExecutionId);
+			Set<Long> stepExecutionIds = stepExecutionIdsByExecution.remove(jobExecutionId);
+			if (stepExecutionIds != null) {
+				for (Long stepExecutionId : stepExecutionIds) {
+					stepExecutions.remove(stepExecutionId);
+					stepExecutionContexts.remove(stepExecutionId);
+				}
+			}
+			NavigableSet<Long> jobExecutionIds = jobExecutionIdsByInstance.get(jobInstance.getId());
+			jobExecutionIds.remove(jobExecutionId);
+			if (jobExecutionIds.isEmpty()) {
+				jobExecutionIdsByInstance.remove(jobInstance.getId());
+				jobInstances.remove(jobInstance.getId());
+				jobInstancesByKey.remove(jobKey);
+			}
+			removed(jobExecutionId);
+		}
+	}
+
+	private static JobExecution copy(JobExecution original, JobInstance jobInstance) {
+		JobExecution copy = new JobExecution(jobInstance, original.getId(), original.getJobParameters(),
+				original.getJobConfigurationName());
+		copy.setVersion(original.getVersion());
+		copy.setStatus(original.getStatus());
+		copy.setExitStatus(original.getExitStatus());
+		copy.setCreateTime(original.getCreateTime());
+		copy.setStartTime(original.getStartTime());
+		copy.setEndTime(original.getEndTime());
+		copy.setLastUpdated(original.getLastUpdated());
+		return copy;
+	}
+
+	/**
+	 * The copy is added to the step executions of the given job execution unless it is a snapshot.
+	 */
+	private static StepExecution copy(StepExecution original, JobExecution jobExecution, boolean snapshot) {
+		StepExecution copy = snapshot ? new StepExecution(original.getStepName(), jobExecution)
+				: new StepExecution(original.getStepName(), jobExecution, original.getId());
+		copy.setId(original.getId());
+		copy.setVersion(original.getVersion());
+		copy.setStatus(original.getStatus());
+		copy.setExitStatus(original.getExitStatus());
+		copy.setReadCount(original.getReadCount());
+		copy.setWriteCount(original.getWriteCount());
+		copy.setFilterCount(original.getFilterCount());
+		copy.setCommitCount(original.getCommitCount());
+		copy.setRollbackCount(original.getRollbackCount());
+		copy.setReadSkipCount(original.getReadSkipCount());
+		copy.setProcessSkipCount(original.getProcessSkipCount());
+		copy.setWriteSkipCount(original.getWriteSkipCount());
+		copy.setStartTime(original.getStartTime());
+		copy.setEndTime(original.getEndTime());
+		copy.setLastUpdated(original.getLastUpdated());
+		return copy;
+	}
+
+	private static <T> List<T> page(List<T> list, int start, int count) {
+		if (start >= list.size()) {
+			return Collections.emptyList();
+		}
+		return new ArrayList<>(list.subList(start, Math.min(list.size(), start + count)));
+	}
+
+	private class InMemoryJobInstanceDao implements JobInstanceDao {
+
+		@Override
+		public JobInstance createJobInstance(String jobName, JobParameters jobParameters) {
+			JobInstance jobInstance = new JobInstance(jobInstanceIds.incrementAndGet(), jobName);
+			jobInstance.incrementVersion();
+			if (jobInstancesByKey.putIfAbsent(jobKey(jobName, jobParameters), jobInstance) != null) {
+				throw new IllegalStateException("JobInstance must not already exist");
+			}
+			jobInstances.put(jobInstance.getId(), jobInstance);
+			stored(jobInstance, jobKey(jobName, jobParameters));
+			return jobInstance;
+		}
+
+		@Override
+		public JobInstance getJobInstance(String jobName, JobParameters jobParameters) {
+			return jobInstancesByKey.get(jobKey(jobName, jobParameters));
+		}
+
+		@Override
+		public JobInstance getJobInstance(Long instanceId) {
+			return jobInstances.get(instanceId);
+		}
+
+		@Override
+		public JobInstance getJobInstance(JobExecution jobExecution) {
+			JobExecution snapshot = jobExecutions.get(jobExecution.getId());
+			return snapshot != null ? snapshot.getJobInstance() : null;
+		}
+
+		@Override
+		public List<JobInstance> getJobInstances(String jobName, int start, int count) {
+			return page(findJobInstances(instance -> instance.getJobName().equals(jobName)), start, count);
+		}
+
+		@Override
+		public JobInstance getLastJobInstance(String jobName) {
+			List<JobInstance> jobInstances = getJobInstances(jobName, 0, 1);
+			return jobInstances.isEmpty() ? null : jobInstances.get(0);
+		}
+
+		@Override
+		public List<String> getJobNames() {
+			return jobInstances.values().stream().map(JobInstance::getJobName).distinct().sorted()
+					.collect(Collectors.toList());
+		}
+
+		@Override
+		public List<JobInstance> findJobInstancesByName(String jobName, int start, int count) {
+			// like the JDBC DAO, * is a wildcard
+			Pattern pattern = Pattern.compile(Pattern.quote(jobName).replace("*", "\\E.*\\Q"));
+			return page(findJobInstances(instance -> pattern.matcher(instance.getJobName()).matches()), start,
+					count);
+		}
+
+		@Override
+		public int getJobInstanceCount(String jobName) throws NoSuchJobException {
+			int count = (int) jobInstances.values().stream().filter(instance -> instance.getJobName().equals(jobName))
+					.count();
+			if (count == 0) {
+				throw new NoSuchJobException("No job instances for job name " + jobName + " were found");
+			}
+			return count;
+		}
+
+		private List<JobInstance> findJobInstances(Predicate<JobInstance> filter) {
+			return jobInstances.values().stream().filter(filter)
+					.sorted(Comparator.comparing(JobInstance::getId).reversed()).collect(Collectors.toList());
+		}
+
+	}
+
+	private class InMemoryJobExecutionDao implements JobExecutionDao {
+
+		@Override
+		public void saveJobExecution(JobExecution jobExecution) {
+			Assert.isNull(jobExecution.getId(), "JobExecution is already saved");
+			jobExecution.setId(jobExecutionIds.incrementAndGet());
+			jobExecution.incrementVersion();
+			jobExecutionIdsByInstance
+					.computeIfAbsent(jobExecution.getJobInstance().getId(), id -> new ConcurrentSkipListSet<>())
+					.add(jobExecution.getId());
+			JobExecution snapshot = copy(jobExecution, jobExecution.getJobInstance());
+			jobExecutions.put(jobExecution.getId(), snapshot);
+			stored(snapshot);
+		}
+
+		@Override
+		public void updateJobExecution(JobExecution jobExecution) {
+			Long id = jobExecution.getId();
+			Assert.notNull(id, "JobExecution ID cannot be null. JobExecution must be saved before it can be updated");
+			Assert.notNull(jobExecution.getVersion(), "JobExecution version cannot be null");
+			JobExecution[] previous = new JobExecution[1];
+			JobExecution updated = jobExecutions.compute(id, (key, snapshot) -> {
+				if (snapshot == null) {
+					throw new NoSuchObjectException("Invalid JobExecution, ID " + id + " not found.");
+				}
+				if (!snapshot.getVersion().equals(jobExecution.getVersion())) {
+					throw new OptimisticLockingFailureException("Attempt to update job execution id=" + id
+							+ " with wrong version (" + jobExecution.getVersion() + "), where current version is "
+							+ snapshot.getVersion());
+				}
+				previous[0] = snapshot;
+				jobExecution.incrementVersion();
+				return copy(jobExecution, snapshot.getJobInstance());
+			});
+			stored(updated);
+			if (previous[0].getEndTime() == null && jobExecution.getEndTime() != null) {
+				finished(id);
+			}
+		}
+
+		@Override
+		public List<JobExecution> findJobExecutions(JobInstance jobInstance) {
+			NavigableSet<Long> ids = jobExecutionIdsByInstance.get(jobInstance.getId());
+			if (ids == null) {
+				return Collections.emptyList();
+			}
+			List<JobExecution> result = new ArrayList<>();
+			for (Long id : ids.descendingSet()) {
+				JobExecution jobExecution = getJobExecution(id);
+				if (jobExecution != null) {
+					result.add(jobExecution);
+				}
+			}
+			return result;
+		}
+
+		@Override
+		public JobExecution getLastJobExecution(JobInstance jobInstance) {
+			List<JobExecution> jobExecutions = findJobExecutions(jobInstance);
+			return jobExecutions.isEmpty() ? null : jobExecutions.get(0);
+		}
+
+		@Override
+		public Set<JobExecution> findRunningJobExecutions(String jobName) {
+			return jobExecutions.values().stream()
+					.filter(snapshot -> snapshot.getJobInstance().getJobName().equals(jobName)
+							&& snapshot.getStartTime() != null && snapshot.getEndTime() == null)
+					.sorted(Comparator.comparing(JobExecution::getId).reversed())
+					.map(snapshot -> copy(snapshot, snapshot.getJobInstance()))
+					.collect(Collectors.toCollection(LinkedHashSet::new));
+		}
+
+		@Override
+		public JobExecution getJobExecution(Long executionId) {
+			JobExecution snapshot = jobExecutions.get(executionId);
+			return snapshot != null ? copy(snapshot, snapshot.getJobInstance()) : null;
+		}
+
+		@Override
+		public void synchronizeStatus(JobExecution jobExecution) {
+			JobExecution snapshot = jobExecutions.get(jobExecution.getId());
+			if (snapshot != null && !snapshot.getVersion().equals(jobExecution.getVersion())) {
+				jobExecution.upgradeStatus(snapshot.getStatus());
+				jobExecution.setVersion(snapshot.getVersion());
+			}
+		}
+
+	}
+
+	private class InMemoryStepExecutionDao implements StepExecutionDao {
+
+		@Override
+		public void saveStepExecution(StepExecution stepExecution) {
+			Assert.isNull(stepExecution.getId(), "StepExecution is already saved");
+			stepExecution.setId(stepExecutionIds.incrementAndGet());
+			stepExecution.incrementVersion();
+			stepExecutionIdsByExecution
+					.computeIfAbsent(stepExecution.getJobExecutionId(), id -> new ConcurrentSkipListSet<>())
+					.add(stepExecution.getId());
+			// the snapshot only needs the id of its job execution
+			StepExecution snapshot = copy(stepExecution, stepExecution.getJobExecution(), true);
+			stepExecutions.put(stepExecution.getId(), snapshot);
+			stored(snapshot);
+		}
+
+		@Override
+		public void saveStepExecutions(Collection<StepExecution> stepExecutions) {
+			for (StepExecution stepExecution : stepExecutions) {
+				saveStepExecution(stepExecution);
+			}
+		}
+
+		@Override
+		public void updateStepExecution(StepExecution stepExecution) {
+			Long id = stepExecution.getId();
+			Assert.notNull(id, "StepExecution ID cannot be null. StepExecution must be saved before it can be updated");
+			Assert.notNull(stepExecution.getVersion(), "StepExecution version cannot be null");
+			StepExecution updated = stepExecutions.compute(id, (key, snapshot) -> {
+				if (snapshot == null) {
+					throw new NoSuchObjectException("Invalid StepExecution, ID " + id + " not found.");
+				}
+				if (!snapshot.getVersion().equals(stepExecution.getVersion())) {
+					throw new OptimisticLockingFailureException("Attempt to update step execution id=" + id
+							+ " with wrong version (" + stepExecution.getVersion() + "), where current version is "
+							+ snapshot.getVersion());
+				}
+				stepExecution.incrementVersion();
+				return copy(stepExecution, snapshot.getJobExecution(), true);
+			});
+			stored(updated);
+		}
+
+		@Override
+		public StepExecution getStepExecution(JobExecution jobExecution, Long stepExecutionId) {
+			StepExecution snapshot = stepExecutions.get(stepExecutionId);
+			if (snapshot == null || !snapshot.getJobExecutionId().equals(jobExecution.getId())) {
+				return null;
+			}
+			return copy(snapshot, jobExecution, false);
+		}
+
+		@Override
+		public StepExecution getLastStepExecution(JobInstance jobInstance, String stepName) {
+			Set<Long> jobExecutionIds = jobExecutionIdsByInstance.get(jobInstance.getId());
+			if (jobExecutionIds == null) {
+				return null;
+			}
+			StepExecution last = null;
+			for (Long jobExecutionId : jobExecutionIds) {
+				for (StepExecution snapshot : findStepExecutions(jobExecutionId)) {
+					if (snapshot.getStepName().equals(stepName) && (last == null || isLater(snapshot, last))) {
+						last = snapshot;
+					}
+				}
+			}
+			if (last == null) {
+				return null;
+			}
+			JobExecution jobExecution = jobExecutions.get(last.getJobExecutionId());
+			return jobExecution != null ? copy(last, copy(jobExecution, jobExecution.getJobInstance()), false)
+					: null;
+		}
+
+		@Override
+		public void addStepExecutions(JobExecution jobExecution) {
+			for (StepExecution snapshot : findStepExecutions(jobExecution.getId())) {
+				copy(snapshot, jobExecution, false);
+			}
+		}
+
+		@Override
+		public int countStepExecutions(JobInstance jobInstance, String stepName) {
+			Set<Long> jobExecutionIds = jobExecutionIdsByInstance.get(jobInstance.getId());
+			if (jobExecutionIds == null) {
+				return 0;
+			}
+			int count = 0;
+			for (Long jobExecutionId : jobExecutionIds) {
+				for (StepExecution snapshot : findStepExecutions(jobExecutionId)) {
+					if (snapshot.getStepName().equals(stepName)) {
+						count++;
+					}
+				}
+			}
+			return count;
+		}
+
+		private List<StepExecution> findStepExecutions(Long jobExecutionId) {
+			Set<Long> ids = stepExecutionIdsByExecution.get(jobExecutionId);
+			if (ids == null) {
+				return Collections.emptyList();
+			}
+			List<StepExecution> result = new ArrayList<>(ids.size());
+			for (Long id : ids) {
+				StepExecution snapshot = stepExecutions.get(id);
+				if (snapshot != null) {
+					result.add(snapshot);
+				}
+			}
+			return result;
+		}
+
+		/**
+		 * Ordered by start time and id, like the JDBC DAO.
+		 */
+		private boolean isLater(StepExecution stepExecution, StepExecution other) {
+			if (stepExecution.getStartTime() == null || other.getStartTime() == null
+					|| stepExecution.getStartTime().equals(other.getStartTime())) {
+				return stepExecution.getId() > other.getId();
+			}
+			return stepExecution.getStartTime().after(other.getStartTime());
+		}
+
+	}
+
+	private class InMemoryExecutionContextDao implements ExecutionContextDao {
+
+		@Override
+		public ExecutionContext getExecutionContext(JobExecution jobExecution) {
+			return read(jobExecutionContexts, jobExecution.getId());
+		}
+
+		@Override
+		public ExecutionContext getExecutionContext(StepExecution stepExecution) {
+			return read(stepExecutionContexts, stepExecution.getId());
+		}
+
+		@Override
+		public void saveExecutionContext(JobExecution jobExecution) {
+			ExecutionContext snapshot = new ExecutionContext(jobExecution.getExecutionContext());
+			jobExecutionContexts.put(jobExecution.getId(), snapshot);
+			storedJobExecutionContext(jobExecution.getId(), snapshot);
+		}
+
+		@Override
+		public void saveExecutionContext(StepExecution stepExecution) {
+			ExecutionContext snapshot = new ExecutionContext(stepExecution.getExecutionContext());
+			stepExecutionContexts.put(stepExecution.getId(), snapshot);
+			storedStepExecutionContext(stepExecution.getId(), snapshot);
+		}
+
+		@Override
+		public void saveExecutionContexts(Collection<StepExecution> stepExecutions) {
+			for (StepExecution stepExecution : stepExecutions) {
+				saveExecutionContext(stepExecution);
+			}
+		}
+
+		@Override
+		public void updateExecutionContext(JobExecution jobExecution) {
+			saveExecutionContext(jobExecution);
+		}
+
+		@Override
+		public void updateExecutionContext(StepExecution stepExecution) {
+			saveExecutionContext(stepExecution);
+		}
+
+		private ExecutionContext read(Map<Long, ExecutionContext> executionContexts, Long id) {
+			ExecutionContext snapshot = executionContexts.get(id);
+			return snapshot != null ? new ExecutionContext(snapshot) : new ExecutionContext();
+		}
+
+	}
+
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.codecentric.batch.repository;
+
+import javax.sql.DataSource;
+
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.repository.ExecutionContextSerializer;
+import org.springframework.batch.core.repository.dao.JdbcExecutionContextDao;
+import org.springframework.batch.core.repository.dao.JdbcJobExecutionDao;
+import org.springframework.batch.core.repository.dao.JdbcJobInstanceDao;
+import org.springframework.batch.core.repository.dao.JdbcStepExecutionDao;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Reads a job execution from the Spring Batch meta data tables like the JobExplorer, but without the ExecutionContexts
+ * of its step executions. They can be read one by one with {@link #getExecutionContext(StepExecution)}, so a job
+ * execution with lots of step executions having large contexts can be processed without holding all of the contexts
+ * in memory.
+ * <p>
+ * If a replica is given, job executions are read from it like the {@link RoutingJobExplorer} does, and from the primary
+ * if they are missing or not finished in the replica.
+ */
+public class JdbcJobExecutionReader {
+
+	private final Daos primary;
+
+	private final Daos replica;
+
+	/**
+	 * @param serializer
+	 *            the serializer the contexts were written with
+	 */
+	public JdbcJobExecutionReader(DataSource dataSource, String tablePrefix, ExecutionContextSerializer serializer) {
+		this(dataSource, null, tablePrefix, serializer);
+	}
+
+	/**
+	 * @param replica
+	 *            replica of the primary DataSource the job executions are read from if they are finished, may be null
+	 */
+	public JdbcJobExecutionReader(DataSource primary, DataSource replica, String tablePrefix,
+			ExecutionContextSerializer serializer) {
+		this.primary = new Daos(primary, tablePrefix, serializer);
+		this.replica = replica != null ? new Daos(replica, tablePrefix, serializer) : null;
+	}
+
+	/**
+	 * @return the job execution with its JobInstance, ExecutionContext and step executions with empty ExecutionContexts,
+	 *         or null if there is none with the given id
+	 */
+	public JobExecution getJobExecution(Long executionId) {
+		if (replica != null) {
+			JobExecution jobExecution = replica.getJobExecution(executionId);
+			if (jobExecution != null && JobExecutionStatus.of(jobExecution).isTerminal()) {
+				return jobExecution;
+			}
+		}
+		return primary.getJobExecution(executionId);
+	}
+
+	/**
+	 * Reads from the replica if the job execution of the step execution is finished, and from the primary if the
+	 * replica doesn't contain the ExecutionContext yet. The replica may still contain an older version of it, if the
+	 * job execution has just finished.
+	 */
+	public ExecutionContext getExecutionContext(StepExecution stepExecution) {
+		if (replica != null && JobExecutionStatus.of(stepExecution.getJobExecution()).isTerminal()) {
+			ExecutionContext executionContext = replica.executionContextDao.getExecutionContext(stepExecution);
+			if (!executionContext.isEmpty()) {
+				return executionContext;
+			}
+		}
+		return primary.executionContextDao.getExecutionContext(stepExecution);
+	}
+
+	private static class Daos {
+
+		private final JdbcJobExecutionDao jobExecutionDao = new JdbcJobExecutionDao();
+
+		private final JdbcJobInstanceDao jobInstanceDao = new JdbcJobInstanceDao();
+
+		private final JdbcStepExecutionDao stepExecutionDao = new JdbcStepExecutionDao();
+
+		private final JdbcExecutionContextDao executionContextDao = new JdbcExecutionContextDao();
+
+		private Daos(DataSource dataSource, String tablePrefix, ExecutionContextSerializer serializer) {
+			JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+			// the DAOs are only used for reading, so they don't need incrementers
+			jobExecutionDao.setJdbcTemplate(jdbcTemplate);
+			jobExecutionDao.setTablePrefix(tablePrefix);
+			jobInstanceDao.setJdbcTemplate(jdbcTemplate);
+			jobInstanceDao.setTablePrefix(tablePrefix);
+			stepExecutionDao.setJdbcTemplate(jdbcTemplate);
+			stepExecutionDao.setTablePrefix(tablePrefix);
+			executionContextDao.setJdbcTemplate(jdbcTemplate);
+			executionContextDao.setTablePrefix(tablePrefix);
+			executionContextDao.setSerializer(serializer);
+		}
+
+		private JobExecution getJobExecution(Long executionId) {
+			JobExecution jobExecution = jobExecutionDao.getJobExecution(executionId);
+			if (jobExecution == null) {
+				return null;
+			}
+			jobExecution.setJobInstance(jobInstanceDao.getJobInstance(jobExecution));
+			jobExecution.setExecutionContext(executionContextDao.getExecutionContext(jobExecution));
+			stepExecutionDao.addStepExecutions(jobExecution);
+			return jobExecution;
+		}
+
+	}
+
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.codecentric.batch.repository;
+
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.JobExecution;
+
+/**
+ * Status and exit code of a job execution, read by {@link CachingJobExplorer#getJobExecutionStatus(Long)} without its
+ * step executions and contexts.
+ */
+public class JobExecutionStatus {
+
+	private final BatchStatus status;
+
+	private final String exitCode;
+
+	public JobExecutionStatus(BatchStatus status, String exitCode) {
+		this.status = status;
+		this.exitCode = exitCode;
+	}
+
+	public static JobExecutionStatus of(JobExecution jobExecution) {
+		return new JobExecutionStatus(jobExecution.getStatus(), jobExecution.getExitStatus().getExitCode());
+	}
+
+	public BatchStatus getStatus() {
+		return status;
+	}
+
+	public String getExitCode() {
+		return exitCode;
+	}
+
+	/**
+	 * Whether the job execution won't change anymore, because it is completed, failed or abandoned.
+	 */
+	public boolean isTerminal() {
+		return status == BatchStatus.COMPLETED || status == BatchStatus.FAILED || status == BatchStatus.ABANDONED;
+	}
+
+}
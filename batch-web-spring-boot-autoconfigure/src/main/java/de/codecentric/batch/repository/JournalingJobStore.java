@@ -0,0 +1,490 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.codecentric.batch.repository;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobInstance;
+import org.springframework.batch.core.JobParameter;
+import org.springframework.batch.core.JobParameter.ParameterType;
+import org.springframework.batch.core.JobParameters;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.repository.ExecutionContextSerializer;
+import org.springframework.batch.item.ExecutionContext;
+
+/**
+ * {@link InMemoryJobStore} that appends every change to a journal file, so the batch meta data survives a restart of
+ * the application and failed jobs can be restarted. The journal is a sequence of segment files in the given directory.
+ * Each change is appended to the current segment as a record with its length and checksum. On startup the segments are
+ * read into memory, a record that has only been written partially when the application crashed is ignored, and all
+ * data is written to a new segment, which replaces the old ones. The same compaction is done while running once the
+ * current segment has grown beyond the compaction threshold and twice its size after the last compaction.
+ * <p>
+ * The records are written to the operating system with every change, so they survive a crash of the application.
+ * With sync, every record is forced to the disk as well, so they survive a crash of the operating system, at the cost
+ * of a much higher write latency. The ExecutionContexts are written with the given serializer.
+ */
+public class JournalingJobStore extends InMemoryJobStore implements Closeable {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(JournalingJobStore.class);
+
+	private static final String SEGMENT_PREFIX = "journal-";
+
+	private static final String SEGMENT_SUFFIX = ".log";
+
+	private static final byte JOB_INSTANCE = 'I';
+
+	private static final byte JOB_EXECUTION = 'J';
+
+	private static final byte STEP_EXECUTION = 'S';
+
+	private static final byte JOB_EXECUTION_CONTEXT = 'C';
+
+	private static final byte STEP_EXECUTION_CONTEXT = 'X';
+
+	private static final byte REMOVAL = 'R';
+
+	private final Path directory;
+
+	private final ExecutionContextSerializer serializer;
+
+	private final long compactionThreshold;
+
+	private final boolean sync;
+
+	private FileChannel channel;
+
+	private long segment;
+
+	private long compactedSize;
+
+	private boolean compacting;
+
+	/**
+	 * Reads the existing segments in the directory.
+	 *
+	 * @param compactionThreshold
+	 *            size of the current segment in bytes above which it is compacted
+	 */
+	public JournalingJobStore(int maxFinishedExecutions, Path directory, ExecutionContextSerializer serializer,
+			long compactionThreshold, boolean sync) throws IOException {
+		super(maxFinishedExecutions);
+		this.directory = directory;
+		this.serializer = serializer;
+		this.compactionThreshold = compactionThreshold;
+		this.sync = sync;
+		Files.createDirectories(directory);
+		List<Long> segments = findSegments();
+		for (Long existing : segments) {
+			replay(segmentPath(existing));
+		}
+		segment = segments.isEmpty() ? 0 : segments.get(segments.size() - 1);
+		synchronized (this) {
+			compact();
+		}
+		LOGGER.info("Read {} journal segments from {}", segments.size(), directory);
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		if (channel != null) {
+			channel.force(true);
+			channel.close();
+			channel = null;
+		}
+	}
+
+	@Override
+	protected void stored(JobInstance jobInstance, String jobKey) {
+		append(JOB_INSTANCE, out -> {
+			out.writeLong(jobInstance.getId());
+			writeString(out, jobInstance.getJobName());
+			writeString(out, jobKey);
+		});
+	}
+
+	@Override
+	protected void stored(JobExecution jobExecution) {
+		append(JOB_EXECUTION, out -> {
+			out.writeLong(jobExecution.getId());
+			out.writeLong(jobExecution.getJobInstance().getId());
+			out.writeInt(jobExecution.getVersion());
+			writeString(out, jobExecution.getStatus().name());
+			writeExitStatus(out, jobExecution.getExitStatus());
+			writeDate(out, jobExecution.getCreateTime());
+			writeDate(out, jobExecution.getStartTime());
+			writeDate(out, jobExecution.getEndTime());
+			writeDate(out, jobExecution.getLastUpdated());
+			writeString(out, jobExecution.getJobConfigurationName());
+			writeJobParameters(out, jobExecution.getJobParameters());
+		});
+	}
+
+	@Override
+	protected void stored(StepExecution stepExecution) {
+		append(STEP_EXECUTION, out -> {
+			out.writeLong(stepExecution.getId());
+			out.writeLong(stepExecution.getJobExecutionId());
+			writeString(out, stepExecution.getStepName());
+			out.writeInt(stepExecution.getVersion());
+			writeString(out, stepExecution.getStatus().name());
+			writeExitStatus(out, stepExecution.getExitStatus());
+			out.writeInt(stepExecution.getReadCount());
+			out.writeInt(stepExecution.getWriteCount());
+			out.writeInt(stepExecution.getFilterCount());
+			out.writeInt(stepExecution.getCommitCount());
+			out.writeInt(stepExecution.getRollbackCount());
+			out.writeInt(stepExecution.getReadSkipCount());
+			out.writeInt(stepExecution.getProcessSkipCount());
+			out.writeInt(stepExecution.getWriteSkipCount());
+			writeDate(out, stepExecution.getStartTime());
+			writeDate(out, stepExecution.getEndTime());
+			writeDate(out, stepExecution.getLastUpdated());
+		});
+	}
+
+	@Override
+	protected void storedJobExecutionContext(Long jobExecutionId, ExecutionContext executionContext) {
+		append(JOB_EXECUTION_CONTEXT, out -> {
+			out.writeLong(jobExecutionId);
+			writeExecutionContext(out, executionContext);
+		});
+	}
+
+	@Override
+	protected void storedStepExecutionContext(Long stepExecutionId, ExecutionContext executionContext) {
+		append(STEP_EXECUTION_CONTEXT, out -> {
+			out.writeLong(stepExecutionId);
+			writeExecutionContext(out, executionContext);
+		});
+	}
+
+	@Override
+	protected void removed(Long jobExecutionId) {
+		append(REMOVAL, out -> out.writeLong(jobExecutionId));
+	}
+
+	private synchronized void append(byte type, RecordWriter writer) {
+		if (channel == null) {
+			// replaying or closed
+			return;
+		}
+		try {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+			DataOutputStream out = new DataOutputStream(bytes);
+			out.writeByte(type);
+			writer.write(out);
+			byte[] record = bytes.toByteArray();
+			CRC32 crc = new CRC32();
+			crc.update(record, 0, record.length);
+			ByteBuffer buffer = ByteBuffer.allocate(record.length + 12);
+			buffer.putInt(record.length).putLong(crc.getValue()).put(record).flip();
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+			if (sync) {
+				channel.force(false);
+			}
+			long size = channel.position();
+			if (!compacting && size > compactionThreshold && size > 2 * compactedSize) {
+				compact();
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException("Could not write the batch meta data to " + directory, e);
+		}
+	}
+
+	/**
+	 * Writes all data to a new segment and deletes the older ones, called while holding the lock for appending.
+	 */
+	private void compact() throws IOException {
+		compacting = true;
+		try {
+			FileChannel previous = channel;
+			segment++;
+			channel = FileChannel.open(segmentPath(segment), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+			storeAll();
+			channel.force(true);
+			compactedSize = channel.position();
+			if (previous != null) {
+				previous.close();
+			}
+			for (Long older : findSegments()) {
+				if (older < segment) {
+					Files.delete(segmentPath(older));
+				}
+			}
+		} finally {
+			compacting = false;
+		}
+	}
+
+	private void replay(Path path) throws IOException {
+		long remaining = Files.size(path);
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+			while (remaining >= 12) {
+				int length = in.readInt();
+				long checksum = in.readLong();
+				remaining -= 12;
+				if (length < 0 || length > remaining) {
+					// written partially when the application crashed
+					break;
+				}
+				byte[] record = new byte[length];
+				in.readFully(record);
+				remaining -= length;
+				CRC32 crc = new CRC32();
+				crc.update(record, 0, record.length);
+				if (crc.getValue() != checksum) {
+					break;
+				}
+				apply(new DataInputStream(new ByteArrayInputStream(record)));
+			}
+		}
+		if (remaining > 0) {
+			LOGGER.warn("Ignoring the incomplete end of the journal segment {}", path);
+		}
+	}
+
+	private void apply(DataInputStream in) throws IOException {
+		byte type = in.readByte();
+		switch (type) {
+		case JOB_INSTANCE:
+			JobInstance jobInstance = new JobInstance(in.readLong(), readString(in));
+			jobInstance.incrementVersion();
+			restore(jobInstance, readString(in));
+			break;
+		case JOB_EXECUTION:
+			long jobExecutionId = in.readLong();
+			long jobInstanceId = in.readLong();
+			int version = in.readInt();
+			BatchStatus status = BatchStatus.valueOf(readString(in));
+			ExitStatus exitStatus = readExitStatus(in);
+			Date createTime = readDate(in);
+			Date startTime = readDate(in);
+			Date endTime = readDate(in);
+			Date lastUpdated = readDate(in);
+			String jobConfigurationName = readString(in);
+			JobExecution jobExecution = new JobExecution(null, jobExecutionId, readJobParameters(in),
+					jobConfigurationName);
+			jobExecution.setVersion(version);
+			jobExecution.setStatus(status);
+			jobExecution.setExitStatus(exitStatus);
+			jobExecution.setCreateTime(createTime);
+			jobExecution.setStartTime(startTime);
+			jobExecution.setEndTime(endTime);
+			jobExecution.setLastUpdated(lastUpdated);
+			restore(jobInstanceId, jobExecution);
+			break;
+		case STEP_EXECUTION:
+			long stepExecutionId = in.readLong();
+			// like the snapshots, only the id of the job execution is needed
+			JobExecution owner = new JobExecution(in.readLong());
+			StepExecution stepExecution = new StepExecution(readString(in), owner);
+			stepExecution.setId(stepExecutionId);
+			stepExecution.setVersion(in.readInt());
+			stepExecution.setStatus(BatchStatus.valueOf(readString(in)));
+			stepExecution.setExitStatus(readExitStatus(in));
+			stepExecution.setReadCount(in.readInt());
+			stepExecution.setWriteCount(in.readInt());
+			stepExecution.setFilterCount(in.readInt());
+			stepExecution.setCommitCount(in.readInt());
+			stepExecution.setRollbackCount(in.readInt());
+			stepExecution.setReadSkipCount(in.readInt());
+			stepExecution.setProcessSkipCount(in.readInt());
+			stepExecution.setWriteSkipCount(in.readInt());
+			stepExecution.setStartTime(readDate(in));
+			stepExecution.setEndTime(readDate(in));
+			stepExecution.setLastUpdated(readDate(in));
+			restore(stepExecution);
+			break;
+		case JOB_EXECUTION_CONTEXT:
+			restoreJobExecutionContext(in.readLong(), readExecutionContext(in));
+			break;
+		case STEP_EXECUTION_CONTEXT:
+			restoreStepExecutionContext(in.readLong(), readExecutionContext(in));
+			break;
+		case REMOVAL:
+			restoreRemoval(in.readLong());
+			break;
+		default:
+			throw new IOException("Unknown record type " + type);
+		}
+	}
+
+	private List<Long> findSegments() throws IOException {
+		try (Stream<Path> files = Files.list(directory)) {
+			return files.map(file -> file.getFileName().toString())
+					.filter(name -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX))
+					.map(name -> Long.valueOf(
+							name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())))
+					.sorted().collect(Collectors.toList());
+		}
+	}
+
+	private Path segmentPath(long number) {
+		return directory.resolve(SEGMENT_PREFIX + number + SEGMENT_SUFFIX);
+	}
+
+	private void writeExecutionContext(DataOutputStream out, ExecutionContext executionContext) throws IOException {
+		Map<String, Object> map = new HashMap<>();
+		for (Map.Entry<String, Object> entry : executionContext.entrySet()) {
+			map.put(entry.getKey(), entry.getValue());
+		}
+		ByteArrayOutputStream serialized = new ByteArrayOutputStream();
+		serializer.serialize(map, serialized);
+		out.writeInt(serialized.size());
+		serialized.writeTo(out);
+	}
+
+	private ExecutionContext readExecutionContext(DataInputStream in) throws IOException {
+		byte[] serialized = new byte[in.readInt()];
+		in.readFully(serialized);
+		return new ExecutionContext(serializer.deserialize(new ByteArrayInputStream(serialized)));
+	}
+
+	private static void writeJobParameters(DataOutputStream out, JobParameters jobParameters) throws IOException {
+		Map<String, JobParameter> parameters = jobParameters.getParameters();
+		out.writeInt(parameters.size());
+		for (Map.Entry<String, JobParameter> entry : parameters.entrySet()) {
+			JobParameter parameter = entry.getValue();
+			writeString(out, entry.getKey());
+			writeString(out, parameter.getType().name());
+			out.writeBoolean(parameter.isIdentifying());
+			Object value = parameter.getValue();
+			out.writeBoolean(value != null);
+			if (value == null) {
+				continue;
+			}
+			switch (parameter.getType()) {
+			case STRING:
+				writeString(out, (String) value);
+				break;
+			case DATE:
+				out.writeLong(((Date) value).getTime());
+				break;
+			case LONG:
+				out.writeLong((Long) value);
+				break;
+			default:
+				out.writeDouble((Double) value);
+			}
+		}
+	}
+
+	private static JobParameters readJobParameters(DataInputStream in) throws IOException {
+		int size = in.readInt();
+		Map<String, JobParameter> parameters = new LinkedHashMap<>();
+		for (int i = 0; i < size; i++) {
+			String name = readString(in);
+			ParameterType type = ParameterType.valueOf(readString(in));
+			boolean identifying = in.readBoolean();
+			boolean present = in.readBoolean();
+			JobParameter parameter;
+			switch (type) {
+			case STRING:
+				parameter = new JobParameter(present ? readString(in) : null, identifying);
+				break;
+			case DATE:
+				parameter = new JobParameter(present ? new Date(in.readLong()) : null, identifying);
+				break;
+			case LONG:
+				parameter = new JobParameter(present ? in.readLong() : null, identifying);
+				break;
+			default:
+				parameter = new JobParameter(present ? in.readDouble() : null, identifying);
+			}
+			parameters.put(name, parameter);
+		}
+		return new JobParameters(parameters);
+	}
+
+	private static void writeExitStatus(DataOutputStream out, ExitStatus exitStatus) throws IOException {
+		writeString(out, exitStatus.getExitCode());
+		writeString(out, exitStatus.getExitDescription());
+	}
+
+	private static ExitStatus readExitStatus(DataInputStream in) throws IOException {
+		return new ExitStatus(readString(in), readString(in));
+	}
+
+	private static void writeDate(DataOutputStream out, Date date) throws IOException {
+		out.writeLong(date != null ? date.getTime() : Long.MIN_VALUE);
+	}
+
+	private static Date readDate(DataInputStream in) throws IOException {
+		long time = in.readLong();
+		return time != Long.MIN_VALUE ? new Date(time) : null;
+	}
+
+	/**
+	 * Unlike writeUTF, without a limit on the length.
+	 */
+	private static void writeString(DataOutputStream out, String value) throws IOException {
+		if (value == null) {
+			out.writeInt(-1);
+			return;
+		}
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	private static String readString(DataInputStream in) throws IOException {
+		int length = in.readInt();
+		if (length < 0) {
+			return null;
+		}
+		byte[] bytes = new byte[length];
+		in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	@FunctionalInterface
+	private interface RecordWriter {
+
+		void write(DataOutputStream out) throws IOException;
+
+	}
+
+}
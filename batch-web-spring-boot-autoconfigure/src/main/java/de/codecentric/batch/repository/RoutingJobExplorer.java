@@ -0,0 +1,113 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.codecentric.batch.repository;
+
+import java.util.List;
+import java.util.Set;
+
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobInstance;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.explore.JobExplorer;
+import org.springframework.batch.core.launch.NoSuchJobException;
+
+/**
+ * {@link JobExplorer} reading from a replica of the batch meta data, so monitoring doesn't put load on the primary
+ * database the job repository writes to. The replica may lag behind, so job executions that aren't completed, failed
+ * or abandoned there, or not there at all, are read from the primary, as well as the running job executions. Job
+ * instances and job names are read from the replica only, so a job instance that has just been created may be missing
+ * for a moment. That's why it's only meant for read-only consumers like the monitoring endpoint, and not for starting the
+ * next job instance.
+ */
+public class RoutingJobExplorer implements JobExplorer {
+
+	private final JobExplorer primary;
+
+	private final JobExplorer replica;
+
+	public RoutingJobExplorer(JobExplorer primary, JobExplorer replica) {
+		this.primary = primary;
+		this.replica = replica;
+	}
+
+	@Override
+	public JobExecution getJobExecution(Long executionId) {
+		JobExecution jobExecution = replica.getJobExecution(executionId);
+		return isFinal(jobExecution) ? jobExecution : primary.getJobExecution(executionId);
+	}
+
+	@Override
+	public StepExecution getStepExecution(Long jobExecutionId, Long stepExecutionId) {
+		StepExecution stepExecution = replica.getStepExecution(jobExecutionId, stepExecutionId);
+		return stepExecution != null && isFinal(stepExecution.getJobExecution()) ? stepExecution
+				: primary.getStepExecution(jobExecutionId, stepExecutionId);
+	}
+
+	@Override
+	public List<JobExecution> getJobExecutions(JobInstance jobInstance) {
+		List<JobExecution> jobExecutions = replica.getJobExecutions(jobInstance);
+		// the last one is the only one that may still be running
+		return !jobExecutions.isEmpty() && isFinal(jobExecutions.get(0)) ? jobExecutions
+				: primary.getJobExecutions(jobInstance);
+	}
+
+	@Override
+	public JobExecution getLastJobExecution(JobInstance jobInstance) {
+		JobExecution jobExecution = replica.getLastJobExecution(jobInstance);
+		return isFinal(jobExecution) ? jobExecution : primary.getLastJobExecution(jobInstance);
+	}
+
+	@Override
+	public Set<JobExecution> findRunningJobExecutions(String jobName) {
+		return primary.findRunningJobExecutions(jobName);
+	}
+
+	@Override
+	public List<JobInstance> getJobInstances(String jobName, int start, int count) {
+		return replica.getJobInstances(jobName, start, count);
+	}
+
+	@Override
+	public JobInstance getLastJobInstance(String jobName) {
+		return replica.getLastJobInstance(jobName);
+	}
+
+	@Override
+	public JobInstance getJobInstance(Long instanceId) {
+		return replica.getJobInstance(instanceId);
+	}
+
+	@Override
+	public List<String> getJobNames() {
+		return replica.getJobNames();
+	}
+
+	@Override
+	public List<JobInstance> findJobInstancesByJobName(String jobName, int start, int count) {
+		return replica.findJobInstancesByJobName(jobName, start, count);
+	}
+
+	@Override
+	public int getJobInstanceCount(String jobName) throws NoSuchJobException {
+		return replica.getJobInstanceCount(jobName);
+	}
+
+	private static boolean isFinal(JobExecution jobExecution) {
+		return jobExecution != null && JobExecutionStatus.of(jobExecution).isTerminal();
+	}
+
+}
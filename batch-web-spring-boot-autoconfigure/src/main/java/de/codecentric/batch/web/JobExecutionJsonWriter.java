@@ -0,0 +1,172 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.codecentric.batch.web;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.Function;
+
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.item.ExecutionContext;
+
+import com.fasterxml.jackson.annotation.JsonFilter;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.PropertyWriter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+
+/**
+ * Writes a {@link JobExecution} as JSON like Jackson does, with optional projections:
+ * <ul>
+ * <li>fields selects the properties to write. Names without a dot select properties of the job execution, names
+ * starting with "stepExecutions." select properties of the step executions. If only properties of the step executions
+ * are selected, all properties of the job execution are written, and vice versa.</li>
+ * <li>Without executionContext, the ExecutionContexts of the job execution and its step executions are omitted.</li>
+ * </ul>
+ * The step executions are written one after another directly to the output stream. If a loader for their
+ * ExecutionContexts is given, each context is loaded right before its step execution is written and released right
+ * after, so only one of them is held in memory at a time.
+ */
+public class JobExecutionJsonWriter {
+
+	private static final String FILTER_ID = "jobExecutionProjection";
+
+	private static final String STEP_EXECUTIONS = "stepExecutions";
+
+	private static final String STEP_EXECUTIONS_PREFIX = STEP_EXECUTIONS + ".";
+
+	private static final String EXECUTION_CONTEXT = "executionContext";
+
+	private final ObjectMapper objectMapper;
+
+	/**
+	 * @param objectMapper
+	 *            copied, so the configuration of the application's ObjectMapper is used for the properties
+	 */
+	public JobExecutionJsonWriter(ObjectMapper objectMapper) {
+		this.objectMapper = objectMapper.copy().addMixIn(JobExecution.class, JobExecutionMixIn.class)
+				.addMixIn(StepExecution.class, StepExecutionMixIn.class)
+				.disable(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+	}
+
+	/**
+	 * @param fields
+	 *            comma separated names of the properties to write, all if null or empty
+	 * @param executionContext
+	 *            whether the ExecutionContexts are written
+	 * @param executionContextLoader
+	 *            loads the ExecutionContext of a step execution, null if they are contained in the step executions
+	 */
+	public void write(JobExecution jobExecution, String fields, boolean executionContext,
+			Function<StepExecution, ExecutionContext> executionContextLoader, OutputStream out) throws IOException {
+		Projection projection = new Projection(fields, executionContext, executionContextLoader);
+		ObjectWriter writer = objectMapper.writer(new SimpleFilterProvider().addFilter(FILTER_ID, projection));
+		try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+			generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+			writer.writeValue(generator, jobExecution);
+		}
+	}
+
+	@JsonFilter(FILTER_ID)
+	private abstract static class JobExecutionMixIn {
+
+	}
+
+	@JsonFilter(FILTER_ID)
+	private abstract static class StepExecutionMixIn {
+
+		@JsonIgnore
+		abstract JobExecution getJobExecution();
+
+	}
+
+	private static class Projection extends SimpleBeanPropertyFilter {
+
+		private final Set<String> jobExecutionFields = new HashSet<>();
+
+		private final Set<String> stepExecutionFields = new HashSet<>();
+
+		private final boolean executionContext;
+
+		private final Function<StepExecution, ExecutionContext> executionContextLoader;
+
+		private Projection(String fields, boolean executionContext,
+				Function<StepExecution, ExecutionContext> executionContextLoader) {
+			this.executionContext = executionContext;
+			this.executionContextLoader = executionContextLoader;
+			for (String field : fields != null ? Arrays.asList(fields.split(",")) : Collections.<String> emptyList()) {
+				field = field.trim();
+				if (field.startsWith(STEP_EXECUTIONS_PREFIX)) {
+					jobExecutionFields.add(STEP_EXECUTIONS);
+					stepExecutionFields.add(field.substring(STEP_EXECUTIONS_PREFIX.length()));
+				} else if (!field.isEmpty()) {
+					jobExecutionFields.add(field);
+				}
+			}
+		}
+
+		@Override
+		public void serializeAsField(Object pojo, JsonGenerator generator, SerializerProvider provider,
+				PropertyWriter writer) throws Exception {
+			String name = writer.getName();
+			if (name.equals(EXECUTION_CONTEXT) && !executionContext) {
+				return;
+			}
+			if (pojo instanceof StepExecution) {
+				if (stepExecutionFields.isEmpty() || stepExecutionFields.contains(name)) {
+					writer.serializeAsField(pojo, generator, provider);
+				}
+			} else if (jobExecutionFields.isEmpty() || jobExecutionFields.contains(name)) {
+				if (name.equals(STEP_EXECUTIONS)) {
+					writeStepExecutions((JobExecution) pojo, generator, provider);
+				} else {
+					writer.serializeAsField(pojo, generator, provider);
+				}
+			}
+		}
+
+		private void writeStepExecutions(JobExecution jobExecution, JsonGenerator generator,
+				SerializerProvider provider) throws IOException {
+			generator.writeFieldName(STEP_EXECUTIONS);
+			generator.writeStartArray();
+			for (StepExecution stepExecution : jobExecution.getStepExecutions()) {
+				boolean loadExecutionContext = executionContextLoader != null && executionContext
+						&& (stepExecutionFields.isEmpty() || stepExecutionFields.contains(EXECUTION_CONTEXT));
+				if (loadExecutionContext) {
+					stepExecution.setExecutionContext(executionContextLoader.apply(stepExecution));
+				}
+				provider.defaultSerializeValue(stepExecution, generator);
+				if (loadExecutionContext) {
+					stepExecution.setExecutionContext(new ExecutionContext());
+				}
+			}
+			generator.writeEndArray();
+		}
+
+	}
+
+}
@@ -19,25 +19,40 @@ package de.codecentric.batch.web;
 import java.io.IOException;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.function.Function;
+
+import javax.servlet.http.HttpServletResponse;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.StepExecution;
 import org.springframework.batch.core.explore.JobExplorer;
 import org.springframework.batch.core.launch.JobOperator;
 import org.springframework.batch.core.launch.NoSuchJobExecutionException;
+import org.springframework.batch.item.ExecutionContext;
 import org.springframework.core.io.Resource;
 import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
 import org.springframework.core.io.support.ResourcePatternResolver;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
 
+import de.codecentric.batch.monitoring.JobStatistics;
+import de.codecentric.batch.monitoring.ProtocolStore;
 import de.codecentric.batch.monitoring.RunningExecutionTracker;
+import de.codecentric.batch.repository.CachingJobExplorer;
+import de.codecentric.batch.repository.JdbcJobExecutionReader;
+import de.codecentric.batch.repository.JobExecutionStatus;
 
 /**
  * Controller for delivering monitoring information, like
@@ -49,7 +64,7 @@ import de.codecentric.batch.monitoring.RunningExecutionTracker;
  * <p>
  * The base url can be set via property batch.web.monitoring.base, its default is /batch/monitoring.
  * 
- * There are four endpoints available:
+ * There are five endpoints available:
  * 
  * <ol>
  * <li>Retrieving the names of deployed jobs<br>
@@ -66,11 +81,19 @@ import de.codecentric.batch.monitoring.RunningExecutionTracker;
  * specified job.</li>
  * 
  * <li>Retrieving the JobExecution<br>
- * {base_url}/jobs/executions/{executionId} / GET<br>
+ * {base_url}/jobs/executions/{executionId}?fields={fields}&amp;executionContext={executionContext} / GET<br>
  * On success, it returns a JSON representation of the JobExecution specified by the id. This representation contains
  * everything you need to know about that job, from job name and BatchStatus to the number of processed items and time
- * used and so on.<br>
+ * used and so on. The optional fields restrict it to the given comma separated properties, like
+ * status,stepExecutions.stepName,stepExecutions.readCount, and executionContext=false omits all ExecutionContexts, see
+ * {@link JobExecutionJsonWriter}.<br>
  * If the JobExecution cannot be found, a HTTP response code 404 is returned.</li>
+ * 
+ * <li>Retrieving statistics of the last runs of a job<br>
+ * {base_url}/jobs/{jobName}/statistics?runs={runs} / GET<br>
+ * On success, it returns a JSON representation of {@link JobStatistics} over the last runs (default 100) of the job,
+ * like the p50 and p99 of the job and step durations. They are computed from the {@link ProtocolStore}, if it is not
+ * enabled via batch.protocol-store.enabled, a HTTP response code 404 is returned.</li>
  * </ol>
  * 
  * 
@@ -89,12 +112,24 @@ public class JobMonitoringController {
 
 	private RunningExecutionTracker runningExecutionTracker;
 
+	private ProtocolStore protocolStore;
+
+	private JobExecutionJsonWriter jobExecutionJsonWriter = new JobExecutionJsonWriter(new ObjectMapper());
+
+	private JdbcJobExecutionReader jobExecutionReader;
+
 	public JobMonitoringController(JobOperator jobOperator, JobExplorer jobExplorer,
 			RunningExecutionTracker runningExecutionTracker) {
+		this(jobOperator, jobExplorer, runningExecutionTracker, null);
+	}
+
+	public JobMonitoringController(JobOperator jobOperator, JobExplorer jobExplorer,
+			RunningExecutionTracker runningExecutionTracker, ProtocolStore protocolStore) {
 		super();
 		this.jobOperator = jobOperator;
 		this.jobExplorer = jobExplorer;
 		this.runningExecutionTracker = runningExecutionTracker;
+		this.protocolStore = protocolStore;
 	}
 
 	@RequestMapping(value = "/jobs", method = RequestMethod.GET)
@@ -119,8 +154,11 @@ public class JobMonitoringController {
 		return runningExecutionTracker.getRunningExecutionIdsForJobName(jobName);
 	}
 
-	@RequestMapping(value = "/jobs/executions/{executionId}", method = RequestMethod.GET)
-	public JobExecution findExecution(@PathVariable long executionId) throws NoSuchJobExecutionException {
+	/**
+	 * Reads the complete JobExecution, for callers of the controller. The endpoint streams it with
+	 * {@link #writeExecution(HttpServletResponse, long, String, boolean)} instead.
+	 */
+	public JobExecution findExecution(long executionId) throws NoSuchJobExecutionException {
 		JobExecution jobExecution = jobExplorer.getJobExecution(executionId);
 		if (jobExecution == null) {
 			throw new NoSuchJobExecutionException("JobExecution with id " + executionId + " not found.");
@@ -128,6 +166,61 @@ public class JobMonitoringController {
 		return jobExecution;
 	}
 
+	@RequestMapping(value = "/jobs/executions/{executionId}", method = RequestMethod.GET)
+	public void writeExecution(HttpServletResponse response, @PathVariable long executionId,
+			@RequestParam(required = false) String fields,
+			@RequestParam(defaultValue = "true") boolean executionContext)
+			throws NoSuchJobExecutionException, IOException {
+		JobExecution jobExecution = null;
+		Function<StepExecution, ExecutionContext> executionContextReader = null;
+		if (jobExplorer instanceof CachingJobExplorer) {
+			// finished job executions are read completely once and then served from the cache
+			CachingJobExplorer cachingJobExplorer = (CachingJobExplorer) jobExplorer;
+			jobExecution = cachingJobExplorer.getCachedJobExecution(executionId);
+			if (jobExecution == null) {
+				JobExecutionStatus status = cachingJobExplorer.getJobExecutionStatus(executionId);
+				if (status != null && status.isTerminal()) {
+					jobExecution = cachingJobExplorer.getJobExecution(executionId);
+				}
+			}
+		}
+		if (jobExecution == null && jobExecutionReader != null) {
+			// the reader leaves out the contexts of the step executions, they are loaded one by one while writing
+			jobExecution = jobExecutionReader.getJobExecution(executionId);
+			executionContextReader = jobExecutionReader::getExecutionContext;
+		} else if (jobExecution == null) {
+			jobExecution = jobExplorer.getJobExecution(executionId);
+		}
+		if (jobExecution == null) {
+			throw new NoSuchJobExecutionException("JobExecution with id " + executionId + " not found.");
+		}
+		response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+		jobExecutionJsonWriter.write(jobExecution, fields, executionContext, executionContextReader,
+				response.getOutputStream());
+		response.flushBuffer();
+	}
+
+	@RequestMapping(value = "/jobs/{jobName}/statistics", method = RequestMethod.GET)
+	public JobStatistics findStatistics(@PathVariable String jobName,
+			@RequestParam(defaultValue = "100") int runs) throws IOException {
+		if (runs < 1) {
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "runs must be at least 1.");
+		}
+		if (protocolStore == null) {
+			throw new ResponseStatusException(HttpStatus.NOT_FOUND,
+					"Job statistics need the protocol store, enable it with batch.protocol-store.enabled.");
+		}
+		return protocolStore.getStatistics(jobName, runs);
+	}
+
+	public void setJobExecutionJsonWriter(JobExecutionJsonWriter jobExecutionJsonWriter) {
+		this.jobExecutionJsonWriter = jobExecutionJsonWriter;
+	}
+
+	public void setJobExecutionReader(JdbcJobExecutionReader jobExecutionReader) {
+		this.jobExecutionReader = jobExecutionReader;
+	}
+
 	@ResponseStatus(HttpStatus.NOT_FOUND)
 	@ExceptionHandler(NoSuchJobExecutionException.class)
 	public String handleNotFound(Exception ex) {
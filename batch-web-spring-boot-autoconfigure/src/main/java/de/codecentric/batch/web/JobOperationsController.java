@@ -17,10 +17,9 @@
 package de.codecentric.batch.web;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.InputStream;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -60,8 +59,9 @@ import org.springframework.batch.support.PropertiesConverter;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.core.io.Resource;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.format.annotation.DateTimeFormat.ISO;
 import org.springframework.http.HttpStatus;
-import org.springframework.util.FileCopyUtils;
 import org.springframework.util.MultiValueMap;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -73,6 +73,10 @@ import org.springframework.web.bind.annotation.RestController;
 
 import de.codecentric.batch.logging.DefaultJobLogFileNameCreator;
 import de.codecentric.batch.logging.JobLogFileNameCreator;
+import de.codecentric.batch.logging.JobLogPath;
+import de.codecentric.batch.logging.JobLogReader;
+import de.codecentric.batch.repository.CachingJobExplorer;
+import de.codecentric.batch.repository.JobExecutionStatus;
 
 /**
  * Very simple REST-API for starting and stopping jobs and keeping track of its status. Made for script interaction.
@@ -110,6 +114,9 @@ import de.codecentric.batch.logging.JobLogFileNameCreator;
  * {base_url}/jobs/executions/{executionId}/log / GET<br>
  * On success, it returns the log file belonging to the run of the JobExecution specified by the executionId as a plain
  * string.<br>
+ * Job logs compressed by the {@link de.codecentric.batch.logging.AsyncJobLogAppender} may be filtered with the request
+ * params 'step', 'from' and 'to', the latter two in ISO format like 2018-06-01T10:15:30.000+02:00. Only the log events
+ * matching the filter are returned, see {@link JobLogReader}.<br>
  * On failure, it returns the message of the Exception as a plain string. There are different failure possibilities:
  * <ul>
  * <li>HTTP response code 404 (NOT_FOUND): the log file cannot be found.</li>
@@ -154,11 +161,15 @@ public class JobOperationsController {
 
 	private JsrJobOperator jsrJobOperator;
 
+	private CachingJobExplorer statusJobExplorer;
+
 	@Autowired
 	private JobParametersConverter jobParametersConverter;
 
 	private JobLogFileNameCreator jobLogFileNameCreator = new DefaultJobLogFileNameCreator();
 
+	private final JobLogReader jobLogReader = new JobLogReader();
+
 	public JobOperationsController(JobOperator jobOperator, JobExplorer jobExplorer, JobRegistry jobRegistry,
 			JobRepository jobRepository, JobLauncher jobLauncher, JsrJobOperator jsrJobOperator) {
 		super();
@@ -256,6 +267,14 @@ public class JobOperationsController {
 		if (LOG.isDebugEnabled()) {
 			LOG.debug("Get ExitCode for JobExecution with id: {} ", executionId);
 		}
+		if (statusJobExplorer != null) {
+			// reads just the status, and only once for finished job executions
+			JobExecutionStatus status = statusJobExplorer.getJobExecutionStatus(executionId);
+			if (status != null) {
+				return status.getExitCode();
+			}
+			throw new NoSuchJobExecutionException("JobExecution with id " + executionId + " not found.");
+		}
 		JobExecution jobExecution = jobExplorer.getJobExecution(executionId);
 		if (jobExecution != null) {
 			return jobExecution.getExitStatus().getExitCode();
@@ -265,7 +284,10 @@ public class JobOperationsController {
 	}
 
 	@RequestMapping(value = "/jobs/executions/{executionId}/log", method = RequestMethod.GET)
-	public void getLogFile(HttpServletResponse response, @PathVariable long executionId)
+	public void getLogFile(HttpServletResponse response, @PathVariable long executionId,
+			@RequestParam(required = false) String step,
+			@RequestParam(required = false) @DateTimeFormat(iso = ISO.DATE_TIME) Date from,
+			@RequestParam(required = false) @DateTimeFormat(iso = ISO.DATE_TIME) Date to)
 			throws NoSuchJobExecutionException, IOException {
 		if (LOG.isDebugEnabled()) {
 			LOG.debug("Get log file for job with executionId: {}", executionId);
@@ -276,19 +298,12 @@ public class JobOperationsController {
 			throw new NoSuchJobExecutionException("JobExecution with id " + executionId + " not found.");
 		}
 		File downloadFile = new File(loggingPath + jobLogFileNameCreator.getName(jobExecution));
-		InputStream is = new FileInputStream(downloadFile);
-		FileCopyUtils.copy(is, response.getOutputStream());
+		jobLogReader.copy(downloadFile, step, from, to, response.getOutputStream());
 		response.flushBuffer();
 	}
 
 	private String createLoggingPath() {
-		String loggingPath = System.getProperty("LOG_PATH");
-		if (loggingPath == null) {
-			loggingPath = System.getProperty("java.io.tmpdir");
-		}
-		if (loggingPath == null) {
-			loggingPath = "/tmp";
-		}
+		String loggingPath = JobLogPath.resolve();
 		if (!loggingPath.endsWith("/")) {
 			loggingPath = loggingPath + "/";
 		}
@@ -360,4 +375,12 @@ public class JobOperationsController {
 	public void setJobLogFileNameCreator(JobLogFileNameCreator jobLogFileNameCreator) {
 		this.jobLogFileNameCreator = jobLogFileNameCreator;
 	}
+
+	/**
+	 * Answers the status of finished job executions from its cache. The JobExplorer of the application isn't cached,
+	 * because the JobOperator modifies the job executions it reads.
+	 */
+	public void setStatusJobExplorer(CachingJobExplorer statusJobExplorer) {
+		this.statusJobExplorer = statusJobExplorer;
+	}
 }
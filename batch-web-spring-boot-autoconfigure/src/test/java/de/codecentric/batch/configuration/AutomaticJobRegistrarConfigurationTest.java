@@ -0,0 +1,77 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.codecentric.batch.configuration;
+
+import static org.hamcrest.CoreMatchers.everyItem;
+import static org.hamcrest.CoreMatchers.hasItems;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.startsWith;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import de.codecentric.batch.jobs.DelayJobConfiguration;
+import de.codecentric.batch.jobs.SimpleJobConfiguration;
+
+public class AutomaticJobRegistrarConfigurationTest {
+
+	private static final String PACKAGE = "de.codecentric.batch.jobs";
+
+	@TempDir
+	Path directory;
+
+	private final AutomaticJobRegistrarConfiguration configuration = new AutomaticJobRegistrarConfiguration();
+
+	@Test
+	public void findsConfigurationClassesByScanningThePackage() throws Exception {
+		// When
+		List<String> classNames = configuration.findConfigurationClassNames(PACKAGE, getClass().getClassLoader());
+		// Then
+		assertThat(classNames, hasItems(SimpleJobConfiguration.class.getName(), DelayJobConfiguration.class.getName()));
+		assertThat(classNames, everyItem(startsWith(PACKAGE + ".")));
+	}
+
+	@Test
+	public void findsConfigurationClassesInTheComponentIndex() throws Exception {
+		// Given
+		Path index = directory.resolve("META-INF/spring.components");
+		Files.createDirectories(index.getParent());
+		Files.write(index, Arrays.asList( //
+				SimpleJobConfiguration.class.getName() + "=org.springframework.stereotype.Component", //
+				DelayJobConfiguration.class.getName() + "=org.springframework.stereotype.Component"),
+				StandardCharsets.ISO_8859_1);
+		// When
+		List<String> classNames;
+		try (URLClassLoader classLoader = new URLClassLoader(new URL[] { directory.toUri().toURL() },
+				getClass().getClassLoader())) {
+			classNames = configuration.findConfigurationClassNames(PACKAGE, classLoader);
+		}
+		// Then
+		assertThat(classNames,
+				is(Arrays.asList(DelayJobConfiguration.class.getName(), SimpleJobConfiguration.class.getName())));
+	}
+
+}
@@ -0,0 +1,215 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.codecentric.batch.listener;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.core.ChunkListener;
+import org.springframework.batch.core.JobExecutionListener;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.StepExecutionListener;
+import org.springframework.batch.core.job.SimpleJob;
+import org.springframework.batch.core.job.flow.FlowStep;
+import org.springframework.batch.core.job.flow.support.SimpleFlow;
+import org.springframework.batch.core.job.flow.support.StateTransition;
+import org.springframework.batch.core.job.flow.support.state.StepState;
+import org.springframework.batch.core.listener.ChunkListenerSupport;
+import org.springframework.batch.core.listener.StepExecutionListenerSupport;
+import org.springframework.batch.core.partition.support.PartitionStep;
+import org.springframework.batch.core.partition.support.TaskExecutorPartitionHandler;
+import org.springframework.batch.core.step.AbstractStep;
+import org.springframework.batch.core.step.tasklet.TaskletStep;
+import org.springframework.core.Ordered;
+
+import de.codecentric.batch.configuration.ListenerProvider;
+import de.codecentric.batch.monitoring.RunningExecutionTracker;
+
+public class AddListenerToJobServiceTest {
+
+	@Test
+	public void addListenersToNestedSteps() throws Exception {
+		// Given
+		RecordingStep flowWorkerStep = new RecordingStep("flowWorkerStep");
+		SimpleFlow flow = new SimpleFlow("flow");
+		flow.setStateTransitions(Collections.singletonList(
+				StateTransition.createEndStateTransition(new StepState(flowWorkerStep))));
+		flow.afterPropertiesSet();
+		RecordingStep flowStep = new RecordingStep("flowStep");
+		FlowStep outerFlowStep = new FlowStep();
+		outerFlowStep.setName("outerFlowStep");
+		outerFlowStep.setFlow(flow);
+		RecordingStep partitionWorkerStep = new RecordingStep("partitionWorkerStep");
+		TaskExecutorPartitionHandler partitionHandler = new TaskExecutorPartitionHandler();
+		partitionHandler.setStep(partitionWorkerStep);
+		PartitionStep partitionStep = new PartitionStep();
+		partitionStep.setName("partitionStep");
+		partitionStep.setPartitionHandler(partitionHandler);
+		SimpleJob job = new SimpleJob("job");
+		job.setSteps(Arrays.asList(flowStep, outerFlowStep, partitionStep));
+		CountingListenerProvider listenerProvider = new CountingListenerProvider();
+		AddListenerToJobService service = createService(listenerProvider);
+		// When
+		service.addListenerToJob(job);
+		service.addListenerToJob(new SimpleJob("otherJob"));
+		// Then
+		assertThat(listenerProvider.calls, is(2));
+		assertThat(flowStep.listeners, contains(listenerProvider.secondListener, listenerProvider.firstListener));
+		assertThat(flowWorkerStep.listeners,
+				contains(listenerProvider.secondListener, listenerProvider.firstListener));
+		assertThat(partitionWorkerStep.listeners,
+				contains(listenerProvider.secondListener, listenerProvider.firstListener));
+	}
+
+	@Test
+	public void handleStepSharedByJobsOnce() throws Exception {
+		// Given
+		RecordingStep sharedStep = new RecordingStep("sharedStep");
+		SimpleJob job = new SimpleJob("job");
+		job.setSteps(Collections.singletonList(sharedStep));
+		SimpleJob otherJob = new SimpleJob("otherJob");
+		otherJob.setSteps(Collections.singletonList(sharedStep));
+		StepExecutionListener unorderedListener = new StepExecutionListenerSupport();
+		StepExecutionListener orderedListener = new OrderedStepListener(1);
+		AddListenerToJobService service = createService(new CountingListenerProvider() {
+
+			@Override
+			public Set<StepExecutionListener> stepExecutionListeners() {
+				return new LinkedHashSet<>(Arrays.asList(unorderedListener, orderedListener));
+			}
+
+		});
+		// When
+		service.addListenerToJob(job);
+		service.addListenerToJob(otherJob);
+		// Then
+		assertThat(sharedStep.listeners, contains(unorderedListener, orderedListener));
+	}
+
+	@Test
+	public void addChunkListenersToTaskletSteps() throws Exception {
+		// Given
+		RecordingTaskletStep taskletStep = new RecordingTaskletStep("taskletStep");
+		RecordingStep otherStep = new RecordingStep("otherStep");
+		SimpleJob job = new SimpleJob("job");
+		job.setSteps(Arrays.asList(taskletStep, otherStep));
+		ChunkListener chunkListener = new ChunkListenerSupport();
+		AddListenerToJobService service = createService(new CountingListenerProvider() {
+
+			@Override
+			public Set<ChunkListener> chunkListeners() {
+				return Collections.singleton(chunkListener);
+			}
+
+		});
+		// When
+		service.addListenerToJob(job);
+		// Then
+		assertThat(taskletStep.chunkListeners, contains(chunkListener));
+		assertThat(otherStep.listeners.size(), is(2));
+	}
+
+	private AddListenerToJobService createService(ListenerProvider listenerProvider) {
+		AddListenerToJobService service = new AddListenerToJobService(false, false, null,
+				new RunningExecutionTrackerListener(new RunningExecutionTracker()), null, null);
+		service.setListenerProviders(Collections.singleton(listenerProvider));
+		return service;
+	}
+
+	private static class RecordingStep extends AbstractStep {
+
+		private final List<StepExecutionListener> listeners = new ArrayList<>();
+
+		RecordingStep(String name) {
+			super(name);
+		}
+
+		@Override
+		public void registerStepExecutionListener(StepExecutionListener listener) {
+			listeners.add(listener);
+			super.registerStepExecutionListener(listener);
+		}
+
+		@Override
+		protected void doExecute(StepExecution stepExecution) {
+		}
+
+	}
+
+	private static class RecordingTaskletStep extends TaskletStep {
+
+		private final List<ChunkListener> chunkListeners = new ArrayList<>();
+
+		RecordingTaskletStep(String name) {
+			super(name);
+		}
+
+		@Override
+		public void registerChunkListener(ChunkListener listener) {
+			chunkListeners.add(listener);
+			super.registerChunkListener(listener);
+		}
+
+	}
+
+	private static class OrderedStepListener extends StepExecutionListenerSupport implements Ordered {
+
+		private final int order;
+
+		OrderedStepListener(int order) {
+			this.order = order;
+		}
+
+		@Override
+		public int getOrder() {
+			return order;
+		}
+
+	}
+
+	private static class CountingListenerProvider implements ListenerProvider {
+
+		private final StepExecutionListener firstListener = new OrderedStepListener(1);
+
+		private final StepExecutionListener secondListener = new OrderedStepListener(2);
+
+		private int calls;
+
+		@Override
+		public Set<JobExecutionListener> jobExecutionListeners() {
+			calls++;
+			return Collections.emptySet();
+		}
+
+		@Override
+		public Set<StepExecutionListener> stepExecutionListeners() {
+			calls++;
+			return new LinkedHashSet<>(Arrays.asList(secondListener, firstListener));
+		}
+
+	}
+
+}
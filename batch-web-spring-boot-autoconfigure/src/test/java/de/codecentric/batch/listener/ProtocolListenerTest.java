@@ -23,6 +23,44 @@ public class ProtocolListenerTest {
 	@Test
 	public void createProtocol(CapturedOutput output) throws Exception {
 		// Given
+		JobExecution jobExecution = createJobExecution();
+		ProtocolListener protocolListener = new ProtocolListener();
+		// When
+		protocolListener.afterJob(jobExecution);
+		// Then
+		assertThat(output.getOut(), containsString("Protocol for test-job"));
+		assertThat(output.getOut(), containsString("COMPLETED_WITH_ERRORS"));
+	}
+
+	@Test
+	public void waitForAsyncProtocolBeforeClosingJobLog(CapturedOutput output) throws Exception {
+		// Given
+		ProtocolListener protocolListener = new ProtocolListener(new ProtocolWriter() {
+
+			@Override
+			public String writeSummary(JobExecution jobExecution) {
+				try {
+					Thread.sleep(200);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				return super.writeSummary(jobExecution);
+			}
+
+		});
+		protocolListener.setAsync(true);
+		LoggingListener loggingListener = new LoggingListener();
+		loggingListener.setProtocolListener(protocolListener);
+		JobExecution jobExecution = createJobExecution();
+		// When
+		protocolListener.afterJob(jobExecution);
+		loggingListener.afterJob(jobExecution);
+		// Then
+		assertThat(output.getOut(), containsString("Protocol for test-job"));
+		protocolListener.destroy();
+	}
+
+	private JobExecution createJobExecution() {
 		JobExecution jobExecution = new JobExecution(1L,
 				new JobParametersBuilder().addString("test", "value").toJobParameters());
 		jobExecution.setJobInstance(new JobInstance(1L, "test-job"));
@@ -33,11 +71,6 @@ public class ProtocolListenerTest {
 		jobExecution.getExecutionContext().put("jobCounter", 1);
 		StepExecution stepExecution = jobExecution.createStepExecution("test-step-1");
 		stepExecution.getExecutionContext().put("stepCounter", 1);
-		ProtocolListener protocolListener = new ProtocolListener();
-		// When
-		protocolListener.afterJob(jobExecution);
-		// Then
-		assertThat(output.getOut(), containsString("Protocol for test-job"));
-		assertThat(output.getOut(), containsString("COMPLETED_WITH_ERRORS"));
+		return jobExecution;
 	}
 }
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.codecentric.batch.listener;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.util.Date;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobInstance;
+import org.springframework.batch.core.JobParametersBuilder;
+import org.springframework.batch.core.StepExecution;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import de.codecentric.batch.listener.ProtocolWriter.Format;
+
+public class ProtocolWriterTest {
+
+	@Test
+	public void limitSteps() {
+		// Given
+		JobExecution jobExecution = createJobExecution(10);
+		jobExecution.getStepExecutions().stream().filter(stepExecution -> stepExecution.getStepName().equals("step7"))
+				.forEach(stepExecution -> stepExecution.setStatus(BatchStatus.FAILED));
+		ProtocolWriter protocolWriter = new ProtocolWriter(Format.TEXT, 2, 1, 5);
+		// When
+		String protocol = protocolWriter.writeSummary(jobExecution);
+		// Then
+		assertThat(protocol, containsString("Step step7 \n"));
+		assertThat(protocol, containsString("Step step9 \n"));
+		assertThat(protocol, not(containsString("Step step0 \n")));
+		assertThat(protocol, containsString("8 more steps\n  ReadCount:    80\n"));
+		assertThat(protocol, containsString("=12345...\n  ... 1 more entries\n"));
+	}
+
+	@Test
+	public void writeUnboundedProtocolByDefault() {
+		// Given
+		JobExecution jobExecution = createJobExecution(1);
+		jobExecution.getStepExecutions().iterator().next().getExecutionContext().remove("other");
+		String dashLine = "--------------------------------------------------------------------------------\n";
+		String starLine = "********************************************************************************\n";
+		// When
+		String protocol = new ProtocolWriter().writeSummary(jobExecution);
+		// Then
+		assertThat(protocol, is("\n" + starLine + dashLine + "Protocol for test-job \n" + "  Started:      "
+				+ new Date(0) + "\n" + "  Finished:     " + new Date(100_000) + "\n" + "  Exit-Code:    COMPLETED\n"
+				+ "  Exit-Descr:   \n" + "  Status:       COMPLETED\n" + "  Content of Job-ExecutionContext:\n"
+				+ "  Job-Parameter: \n" + "  test=value\n" + dashLine + "Step step0 \n" + "  ReadCount:    10\n"
+				+ "  WriteCount:   0\n" + "  Commits:      0\n" + "  SkipCount:    0\n" + "  Rollbacks:    0\n"
+				+ "  Filter:       0\n" + "  Content of Step-ExecutionContext:\n" + "  counter=1234567890\n" + dashLine
+				+ starLine));
+	}
+
+	@Test
+	public void writeJson() throws Exception {
+		// Given
+		JobExecution jobExecution = createJobExecution(3);
+		ProtocolWriter protocolWriter = new ProtocolWriter(Format.JSON, 1, -1, -1);
+		// When
+		String protocol = protocolWriter.writeSummary(jobExecution);
+		// Then
+		assertThat(protocol, not(containsString("\n")));
+		JsonNode json = new ObjectMapper().readTree(protocol);
+		assertThat(json.get("job").asText(), is("test-job"));
+		assertThat(json.get("status").asText(), is("COMPLETED"));
+		assertThat(json.get("parameters").get("test").asText(), is("value"));
+		assertThat(json.get("steps").size(), is(1));
+		assertThat(json.get("steps").get(0).get("executionContext").get("counter").asText(), is("1234567890"));
+		assertThat(json.get("omittedSteps").get("count").asInt(), is(2));
+	}
+
+	private JobExecution createJobExecution(int stepExecutions) {
+		JobExecution jobExecution = new JobExecution(1L,
+				new JobParametersBuilder().addString("test", "value").toJobParameters());
+		jobExecution.setJobInstance(new JobInstance(1L, "test-job"));
+		jobExecution.setStartTime(new Date(0));
+		jobExecution.setEndTime(new Date(100_000));
+		jobExecution.setStatus(BatchStatus.COMPLETED);
+		jobExecution.setExitStatus(ExitStatus.COMPLETED);
+		for (int i = 0; i < stepExecutions; i++) {
+			StepExecution stepExecution = jobExecution.createStepExecution("step" + i);
+			stepExecution.setStatus(BatchStatus.COMPLETED);
+			stepExecution.setStartTime(new Date(0));
+			stepExecution.setEndTime(new Date(i * 1000));
+			stepExecution.setReadCount(10);
+			stepExecution.getExecutionContext().putString("counter", "1234567890");
+			stepExecution.getExecutionContext().putString("other", "1234500000");
+		}
+		return jobExecution;
+	}
+
+}
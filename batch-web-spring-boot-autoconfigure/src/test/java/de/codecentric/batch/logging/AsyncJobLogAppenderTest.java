@@ -0,0 +1,268 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.codecentric.batch.logging;
+
+import static org.hamcrest.CoreMatchers.hasItem;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.LoggingEvent;
+
+public class AsyncJobLogAppenderTest {
+
+	@TempDir
+	File directory;
+
+	private LoggerContext loggerContext;
+
+	private Logger logger;
+
+	private AsyncJobLogAppender appender;
+
+	@BeforeEach
+	public void setUp() {
+		loggerContext = new LoggerContext();
+		logger = loggerContext.getLogger(AsyncJobLogAppenderTest.class);
+		PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+		encoder.setContext(loggerContext);
+		encoder.setPattern("%msg%n");
+		encoder.start();
+		appender = new AsyncJobLogAppender();
+		appender.setContext(loggerContext);
+		appender.setEncoder(encoder);
+		appender.setDirectory(directory.getAbsolutePath());
+	}
+
+	@AfterEach
+	public void tearDown() {
+		appender.stop();
+	}
+
+	@Test
+	public void writesEventsToTheJobLogOfTheMdcValue() throws Exception {
+		// Given
+		appender.start();
+		// When
+		appender.doAppend(event("first", Level.INFO, "batch-job-1"));
+		appender.doAppend(event("second", Level.INFO, "batch-job-2"));
+		appender.doAppend(event("third", Level.INFO, null));
+		AsyncJobLogAppender.closeJobLog("batch-job-1");
+		AsyncJobLogAppender.closeJobLog("batch-job-2");
+		AsyncJobLogAppender.closeJobLog("batch-default");
+		// Then
+		assertThat(lines("batch-job-1.log"), is(Arrays.asList("first")));
+		assertThat(lines("batch-job-2.log"), is(Arrays.asList("second")));
+		assertThat(lines("batch-default.log"), is(Arrays.asList("third")));
+	}
+
+	@Test
+	public void reopensClosedJobLogInAppendMode() throws Exception {
+		// Given
+		appender.start();
+		appender.doAppend(event("first", Level.INFO, "batch-job-1"));
+		AsyncJobLogAppender.closeJobLog("batch-job-1");
+		// When
+		appender.doAppend(event("late", Level.INFO, "batch-job-1"));
+		AsyncJobLogAppender.closeJobLog("batch-job-1");
+		// Then
+		assertThat(lines("batch-job-1.log"), is(Arrays.asList("first", "late")));
+	}
+
+	@Test
+	public void blocksWhenTheQueueIsFull() throws Exception {
+		// Given
+		appender.setQueueSize(1);
+		appender.start();
+		// When
+		for (int i = 0; i < 1000; i++) {
+			appender.doAppend(event("message " + i, Level.INFO, "batch-job-1"));
+		}
+		AsyncJobLogAppender.closeJobLog("batch-job-1");
+		// Then
+		assertThat(lines("batch-job-1.log").size(), is(1000));
+	}
+
+	@Test
+	public void dropsEventsBelowWarnWhenTheQueueIsFull() throws Exception {
+		// Given
+		appender.setQueueSize(1);
+		appender.setOverflowPolicy(AsyncJobLogAppender.OverflowPolicy.DROP);
+		appender.start();
+		// When
+		for (int i = 0; i < 1000; i++) {
+			appender.doAppend(event("message " + i, Level.INFO, "batch-job-1"));
+		}
+		appender.doAppend(event("warning", Level.WARN, "batch-job-1"));
+		AsyncJobLogAppender.closeJobLog("batch-job-1");
+		// Then
+		assertThat(lines("batch-job-1.log"), hasItem("warning"));
+	}
+
+	@Test
+	public void closesJobLogsOnStop() throws Exception {
+		// Given
+		appender.start();
+		appender.doAppend(event("first", Level.INFO, "batch-job-1"));
+		// When
+		appender.stop();
+		// Then
+		assertThat(lines("batch-job-1.log"), is(Arrays.asList("first")));
+	}
+
+	@Test
+	public void compressesJobLogIntoBlocksPerStep() throws Exception {
+		// Given
+		appender.setCompression(AsyncJobLogAppender.Compression.GZIP);
+		appender.setMinBlockSize(1);
+		appender.start();
+		// When
+		appender.doAppend(event("first", Level.INFO, "batch-job-1", "step1"));
+		appender.doAppend(event("second", Level.INFO, "batch-job-1", "step1"));
+		appender.doAppend(event("third", Level.INFO, "batch-job-1", "step2"));
+		AsyncJobLogAppender.closeJobLog("batch-job-1");
+		// Then
+		File file = new File(directory, "batch-job-1.log");
+		assertThat(file.exists(), is(false));
+		List<JobLogBlock> blocks = new JobLogReader().readIndex(new File(directory, "batch-job-1.log.idx"));
+		assertThat(blocks.size(), is(2));
+		assertThat(blocks.get(0).getSteps(), hasItem("step1"));
+		assertThat(blocks.get(1).getSteps(), hasItem("step2"));
+		assertThat(read(file, null), is(Arrays.asList("first", "second", "third")));
+		assertThat(read(file, "step1"), is(Arrays.asList("first", "second")));
+		assertThat(read(file, "step2"), is(Arrays.asList("third")));
+	}
+
+	@Test
+	public void rollsCompressedJobLogAtMaxBlockSize() throws Exception {
+		// Given
+		appender.setCompression(AsyncJobLogAppender.Compression.GZIP);
+		appender.setMaxBlockSize(100);
+		appender.start();
+		// When
+		for (int i = 0; i < 100; i++) {
+			appender.doAppend(event("message " + i, Level.INFO, "batch-job-1", "step1"));
+		}
+		AsyncJobLogAppender.closeJobLog("batch-job-1");
+		// Then
+		File file = new File(directory, "batch-job-1.log");
+		List<JobLogBlock> blocks = new JobLogReader().readIndex(new File(directory, "batch-job-1.log.idx"));
+		assertThat(blocks.size() > 1, is(true));
+		assertThat(read(file, "step1").size(), is(100));
+	}
+
+	@Test
+	public void returnsOnlyMatchingEventsOfSharedBlock() throws Exception {
+		// Given
+		appender.setCompression(AsyncJobLogAppender.Compression.GZIP);
+		appender.start();
+		// When
+		appender.doAppend(event("first", Level.INFO, "batch-job-1", "step1", 1000));
+		appender.doAppend(event("second", Level.INFO, "batch-job-1", "step2", 2000));
+		appender.doAppend(event("third", Level.INFO, "batch-job-1", "step1", 3000));
+		appender.doAppend(event("fourth", Level.INFO, "batch-job-1", "step2", 4000));
+		AsyncJobLogAppender.closeJobLog("batch-job-1");
+		// Then
+		File file = new File(directory, "batch-job-1.log");
+		assertThat(new JobLogReader().readIndex(new File(directory, "batch-job-1.log.idx")).size(), is(1));
+		assertThat(read(file, "step1"), is(Arrays.asList("first", "third")));
+		assertThat(read(file, "step2"), is(Arrays.asList("second", "fourth")));
+		assertThat(read(file, null, new Date(2000), new Date(3000)), is(Arrays.asList("second", "third")));
+		assertThat(read(file, "step2", new Date(3000), null), is(Arrays.asList("fourth")));
+	}
+
+	@Test
+	public void reopenedJobLogWaitsForTheClosingWorker() throws Exception {
+		// Given
+		appender.setCompression(AsyncJobLogAppender.Compression.GZIP);
+		appender.setMaxBlockSize(1000);
+		appender.setMaxFlushTime(1);
+		appender.start();
+		List<String> expected = new ArrayList<>();
+		for (int i = 0; i < 5000; i++) {
+			appender.doAppend(event("message " + i, Level.INFO, "batch-job-1"));
+			expected.add("message " + i);
+		}
+		// returns before the worker has written all events
+		AsyncJobLogAppender.closeJobLog("batch-job-1");
+		// When
+		appender.doAppend(event("late", Level.INFO, "batch-job-1"));
+		appender.setMaxFlushTime(10000);
+		AsyncJobLogAppender.closeJobLog("batch-job-1");
+		// Then
+		expected.add("late");
+		assertThat(read(new File(directory, "batch-job-1.log"), null), is(expected));
+	}
+
+	private LoggingEvent event(String message, Level level, String jobLogName) {
+		return event(message, level, jobLogName, null);
+	}
+
+	private LoggingEvent event(String message, Level level, String jobLogName, String stepName) {
+		LoggingEvent event = new LoggingEvent(Logger.class.getName(), logger, level, message, null, null);
+		Map<String, String> mdc = new HashMap<>();
+		if (jobLogName != null) {
+			mdc.put("jobLogFileName", jobLogName);
+		}
+		if (stepName != null) {
+			mdc.put("jobLogStepName", stepName);
+		}
+		event.setMDCPropertyMap(mdc);
+		return event;
+	}
+
+	private LoggingEvent event(String message, Level level, String jobLogName, String stepName, long timestamp) {
+		LoggingEvent event = event(message, level, jobLogName, stepName);
+		event.setTimeStamp(timestamp);
+		return event;
+	}
+
+	private List<String> read(File file, String step) throws IOException {
+		return read(file, step, null, null);
+	}
+
+	private List<String> read(File file, String step, Date from, Date to) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		new JobLogReader().copy(file, step, from, to, out);
+		return Arrays.asList(new String(out.toByteArray(), StandardCharsets.UTF_8).split("\\R"));
+	}
+
+	private List<String> lines(String fileName) throws IOException {
+		return Files.readAllLines(new File(directory, fileName).toPath(), StandardCharsets.UTF_8);
+	}
+
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.codecentric.batch.logging;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.Date;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobInstance;
+
+import de.codecentric.batch.logging.DefaultJobLogFileNameCreator.Sharding;
+import de.codecentric.batch.monitoring.RunningExecutionTracker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class JobLogHousekeepingTest {
+
+	private static final long NOW = System.currentTimeMillis();
+
+	@TempDir
+	Path directory;
+
+	private RunningExecutionTracker runningExecutionTracker;
+
+	private SimpleMeterRegistry meterRegistry;
+
+	@BeforeEach
+	public void setUp() {
+		runningExecutionTracker = new RunningExecutionTracker();
+		meterRegistry = new SimpleMeterRegistry();
+	}
+
+	@Test
+	public void deletesJobLogsOlderThanMaxAge() throws Exception {
+		// Given
+		Path old = createJobLog("batch-job-1.log", Duration.ofDays(10), 10);
+		Path oldCompressed = createJobLog("batch-job-1.log.gz", Duration.ofDays(10), 10);
+		Path young = createJobLog("batch-job-2.log", Duration.ofDays(1), 10);
+		Path foreign = createJobLog("application.log", Duration.ofDays(10), 10);
+		JobLogHousekeeping housekeeping = housekeeping(Sharding.NONE);
+		housekeeping.setMaxAge(Duration.ofDays(7));
+		// When
+		housekeeping.run();
+		// Then
+		assertThat(Files.exists(old), is(false));
+		assertThat(Files.exists(oldCompressed), is(false));
+		assertThat(Files.exists(young), is(true));
+		assertThat(Files.exists(foreign), is(true));
+		assertThat(meterRegistry.counter("batch.joblog.housekeeping.deleted.files").count(), is(2.0));
+		assertThat(meterRegistry.counter("batch.joblog.housekeeping.deleted.bytes").count(), is(20.0));
+		assertThat(meterRegistry.get("batch.joblog.housekeeping.files").gauge().value(), is(1.0));
+	}
+
+	@Test
+	public void keepsNewestJobLogsPerJob() throws Exception {
+		// Given
+		Path oldest = createJobLog("batch-job-1.log", Duration.ofHours(3), 10);
+		Path older = createJobLog("batch-job-2.log", Duration.ofHours(2), 10);
+		Path newest = createJobLog("batch-job-3.log", Duration.ofHours(1), 10);
+		Path otherJob = createJobLog("batch-other-job-4.log", Duration.ofHours(4), 10);
+		JobLogHousekeeping housekeeping = housekeeping(Sharding.NONE);
+		housekeeping.setMaxFilesPerJob(2);
+		housekeeping.setBatchSize(1);
+		housekeeping.setPause(Duration.ofMillis(1));
+		// When
+		housekeeping.run();
+		// Then
+		assertThat(Files.exists(oldest), is(false));
+		assertThat(Files.exists(older), is(true));
+		assertThat(Files.exists(newest), is(true));
+		assertThat(Files.exists(otherJob), is(true));
+	}
+
+	@Test
+	public void deletesOldestJobLogsAboveMaxTotalSizeButNotRunningOnes() throws Exception {
+		// Given
+		Path running = createJobLog("batch-job-1.log", Duration.ofHours(4), 100);
+		Path oldest = createJobLog("batch-job-2.log", Duration.ofHours(3), 100);
+		Path older = createJobLog("batch-job-3.log", Duration.ofHours(2), 100);
+		Path newest = createJobLog("batch-job-4.log", Duration.ofHours(1), 100);
+		runningExecutionTracker.addRunningExecution("job", 1L);
+		JobLogHousekeeping housekeeping = housekeeping(Sharding.NONE);
+		housekeeping.setMaxTotalSize(150L);
+		// When
+		housekeeping.run();
+		// Then
+		assertThat(Files.exists(running), is(true));
+		assertThat(Files.exists(oldest), is(false));
+		assertThat(Files.exists(older), is(false));
+		assertThat(Files.exists(newest), is(true));
+	}
+
+	@Test
+	public void deletesShardDirectoriesOnceEmpty() throws Exception {
+		// Given
+		Path old = createJobLog("2018-01-01/batch-job-1.log", Duration.ofDays(10), 10);
+		Path young = createJobLog("2018-01-02/batch-job-2.log", Duration.ofDays(1), 10);
+		JobLogHousekeeping housekeeping = housekeeping(Sharding.DATE);
+		housekeeping.setMaxAge(Duration.ofDays(7));
+		// When
+		housekeeping.run();
+		// Then
+		assertThat(Files.exists(old.getParent()), is(false));
+		assertThat(Files.exists(young), is(true));
+	}
+
+	@Test
+	public void shardsJobLogsByJobOrDate() {
+		// Given
+		JobExecution jobExecution = new JobExecution(new JobInstance(1L, "job"), 42L, null, null);
+		jobExecution.setCreateTime(new Date());
+		// When
+		String byJob = new DefaultJobLogFileNameCreator(Sharding.JOB).getName(jobExecution);
+		String byDate = new DefaultJobLogFileNameCreator(Sharding.DATE).getName(jobExecution);
+		// Then
+		assertThat(byJob, is("job/batch-job-42.log"));
+		assertThat(byDate.matches("\\d{4}-\\d{2}-\\d{2}/batch-job-42\\.log"), is(true));
+		assertThat(new DefaultJobLogFileNameCreator().getName(jobExecution), is("batch-job-42.log"));
+	}
+
+	private JobLogHousekeeping housekeeping(Sharding sharding) {
+		return new JobLogHousekeeping(directory, new DefaultJobLogFileNameCreator(sharding), runningExecutionTracker,
+				meterRegistry);
+	}
+
+	private Path createJobLog(String name, Duration age, int size) throws IOException {
+		Path file = directory.resolve(name);
+		Files.createDirectories(file.getParent());
+		Files.write(file, new byte[size]);
+		Files.setLastModifiedTime(file, FileTime.fromMillis(NOW - age.toMillis()));
+		return file;
+	}
+
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.codecentric.batch.logging;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+public class JobLogPathTest {
+
+	private final String jobLogPath = System.getProperty("JOB_LOG_PATH");
+
+	@AfterEach
+	public void restoreJobLogPath() {
+		if (jobLogPath == null) {
+			System.clearProperty("JOB_LOG_PATH");
+		} else {
+			System.setProperty("JOB_LOG_PATH", jobLogPath);
+		}
+	}
+
+	@Test
+	public void preferJobLogPath() {
+		// Given
+		System.setProperty("JOB_LOG_PATH", "/var/log/batch/");
+		// When
+		String path = JobLogPath.resolve();
+		// Then
+		assertThat(path, is("/var/log/batch/"));
+		assertThat(new JobLogPathPropertyDefiner().getPropertyValue(), is(path));
+	}
+
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.codecentric.batch.metrics;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobInstance;
+
+public class AsyncMetricsExporterTest {
+
+	@Test
+	public void exportInBatchesDespiteFailingExporter() throws Exception {
+		// Given
+		CountDownLatch entered = new CountDownLatch(1);
+		CountDownLatch blocked = new CountDownLatch(1);
+		List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<>());
+		MetricsExporter failingExporter = snapshots -> {
+			entered.countDown();
+			blocked.await();
+			throw new IllegalStateException("sink not available");
+		};
+		MetricsExporter recordingExporter = snapshots -> batchSizes.add(snapshots.size());
+		AsyncMetricsExporter exporter = new AsyncMetricsExporter(Arrays.asList(failingExporter, recordingExporter),
+				100, 3);
+		// When
+		exporter.export(Collections.singletonList(snapshot(1L)));
+		entered.await();
+		for (long id = 2; id <= 6; id++) {
+			exporter.export(Collections.singletonList(snapshot(id)));
+		}
+		blocked.countDown();
+		exporter.close();
+		// Then
+		assertThat(batchSizes, is(Arrays.asList(1, 3, 2)));
+		assertThat(exporter.getDroppedCount(), is(0L));
+	}
+
+	@Test
+	public void dropSnapshotsWhenQueueIsFull() throws Exception {
+		// Given
+		CountDownLatch entered = new CountDownLatch(1);
+		CountDownLatch blocked = new CountDownLatch(1);
+		List<Long> exported = Collections.synchronizedList(new ArrayList<>());
+		AsyncMetricsExporter exporter = new AsyncMetricsExporter(Collections.singletonList(snapshots -> {
+			entered.countDown();
+			blocked.await();
+			snapshots.forEach(snapshot -> exported.add(snapshot.getJobExecutionId()));
+		}), 2, 10);
+		exporter.export(Collections.singletonList(snapshot(1L)));
+		entered.await();
+		// When
+		exporter.export(Arrays.asList(snapshot(2L), snapshot(3L), snapshot(4L)));
+		blocked.countDown();
+		exporter.close();
+		// Then
+		assertThat(exported, is(Arrays.asList(1L, 2L, 3L)));
+		assertThat(exporter.getDroppedCount(), is(1L));
+	}
+
+	private JobMetricsSnapshot snapshot(Long jobExecutionId) {
+		return new JobMetricsSnapshot(new JobExecution(new JobInstance(1L, "job"), jobExecutionId, null, null),
+				Collections.emptyList());
+	}
+
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.codecentric.batch.metrics;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.util.Date;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobInstance;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.item.support.ListItemReader;
+
+import de.codecentric.batch.metrics.BatchMeters.Layout;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class BatchMetersTest {
+
+	private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+	@Test
+	public void exportStepWithSeparateTags() {
+		// Given
+		BatchMeters batchMeters = new BatchMeters(meterRegistry, Layout.V2, 100);
+		batchMeters.setMethodPercentiles(0.5, 0.99);
+		StepExecution stepExecution = new StepExecution("step",
+				new JobExecution(new JobInstance(1L, "job"), 1L, null, null));
+		stepExecution.setStartTime(new Date());
+		stepExecution.setStatus(BatchStatus.COMPLETED);
+		stepExecution.setWriteCount(40);
+		stepExecution.setWriteSkipCount(2);
+		stepExecution.getExecutionContext().putLong("businesscounter", 7L);
+		// When
+		new MetricsListener(batchMeters, null).afterStep(stepExecution);
+		batchMeters.methodTimer("job", "step", ListItemReader.class, "read").record(() -> {
+		});
+		// Then
+		assertThat(meterRegistry.get(BatchMeters.STEP_ITEMS).tag("job", "job").tag("step", "step")
+				.tag("status", "COMPLETED").gauge().value(), is(42.0));
+		assertThat(meterRegistry.get(BatchMeters.STEP_METRIC).tag("job", "job").tag("step", "step")
+				.tag("metric", "businesscounter").gauge().value(), is(7.0));
+		assertThat(meterRegistry.get(BatchMeters.ITEM_READ).tag("method", "ListItemReader.read").timer().count(),
+				is(1L));
+		assertThat(meterRegistry.get(BatchMeters.ITEM_READ).timer().takeSnapshot().percentileValues().length, is(2));
+		assertThat(meterRegistry.find(MetricsListener.METRIC_NAME).gauge(), is(nullValue()));
+	}
+
+	@Test
+	public void rollUpPartitionsOfManagerStep() {
+		// Given
+		BatchMeters batchMeters = new BatchMeters(meterRegistry, Layout.V2, 2);
+		MetricsListener metricsListener = new MetricsListener(batchMeters, null);
+		JobExecution jobExecution = new JobExecution(new JobInstance(1L, "job"), 1L, null, null);
+		StepExecution manager = jobExecution.createStepExecution("managerStep");
+		manager.setStartTime(new Date(1000));
+		long[] durations = { 100, 200, 300, 900 };
+		for (int i = 0; i < durations.length; i++) {
+			StepExecution partition = jobExecution.createStepExecution("workerStep:partition" + i);
+			partition.setStartTime(new Date(2000));
+			partition.setWriteCount(10);
+			partition.getExecutionContext().putLong("businesscounter", i);
+			// When
+			metricsListener.afterStep(partition);
+			partition.setEndTime(new Date(2000 + durations[i]));
+		}
+		metricsListener.afterStep(manager);
+		// Then
+		assertThat(meterRegistry.find(BatchMeters.PARTITION_ITEMS).gauges().size(), is(3));
+		assertThat(meterRegistry.get(BatchMeters.PARTITION_ITEMS).tag("step", "workerStep")
+				.tag("partition", "partition0").gauge().value(), is(10.0));
+		assertThat(partitionsGauge(BatchMeters.PARTITIONS_COUNT), is(4.0));
+		assertThat(partitionsGauge(BatchMeters.PARTITIONS_ITEMS), is(40.0));
+		assertThat(partitionsGauge(BatchMeters.PARTITIONS_DURATION_MAX), is(900.0));
+		assertThat(partitionsGauge(BatchMeters.PARTITIONS_DURATION_MEDIAN), is(250.0));
+		assertThat(partitionsGauge(BatchMeters.PARTITIONS_SKEW), is(3.6));
+		assertThat(meterRegistry.get(BatchMeters.STEP_METRIC).tag("step", "workerStep").tag("metric", "businesscounter")
+				.gauge().value(), is(6.0));
+		assertThat(batchMeters.snapshot(jobExecution).getMeters().size(), is(15));
+	}
+
+	@Test
+	public void capDistinctTagValues() {
+		// Given
+		BatchMeters batchMeters = new BatchMeters(meterRegistry, Layout.V2, 2);
+		// When
+		for (int i = 0; i < 5; i++) {
+			batchMeters.stepMetric("job", "partition" + i, "counter").set(i);
+		}
+		// Then
+		assertThat(meterRegistry.find(BatchMeters.STEP_METRIC).gauges().size(), is(3));
+		assertThat(meterRegistry.get(BatchMeters.STEP_METRIC).tag("step", "partition1").gauge().value(), is(1.0));
+		assertThat(meterRegistry.get(BatchMeters.STEP_METRIC).tag("step", BatchMeters.OTHER_TAG_VALUE).gauge().value(),
+				is(4.0));
+	}
+
+	private double partitionsGauge(String name) {
+		return meterRegistry.get(name).tag("job", "job").tag("step", "workerStep").gauge().value();
+	}
+
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.codecentric.batch.metrics;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobInstance;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+
+import de.codecentric.batch.metrics.BatchMeters.Layout;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class HttpMetricsExporterTest {
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+	private HttpServer server;
+
+	private volatile List<String> lines;
+
+	@BeforeEach
+	public void startServer() throws Exception {
+		server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		server.createContext("/metrics", exchange -> {
+			try (BufferedReader reader = new BufferedReader(
+					new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8))) {
+				lines = reader.lines().collect(Collectors.toList());
+			}
+			exchange.sendResponseHeaders(204, -1);
+			exchange.close();
+		});
+		server.start();
+	}
+
+	@AfterEach
+	public void stopServer() {
+		server.stop(0);
+	}
+
+	@Test
+	public void pushMetricsOfTheJobExecutionsAsJsonLines() throws Exception {
+		// Given
+		MeterRegistry meterRegistry = new SimpleMeterRegistry();
+		BatchMeters batchMeters = new BatchMeters(meterRegistry, Layout.V2, 100);
+		JobExecution jobExecution = jobExecution(1L, "job");
+		jobExecution.createStepExecution("step");
+		batchMeters.stepMetric("job", "step", "businesscounter").set(7L);
+		batchMeters.stepMetric("job", "otherStep", "businesscounter").set(8L);
+		batchMeters.stepMetric("otherJob", "step", "businesscounter").set(9L);
+		batchMeters.jobDuration("job", "COMPLETED").set(1000L);
+		HttpMetricsExporter exporter = new HttpMetricsExporter(
+				new URL("http://localhost:" + server.getAddress().getPort() + "/metrics"), Duration.ofSeconds(5),
+				objectMapper);
+		// When
+		exporter.export(Arrays.asList(batchMeters.snapshot(jobExecution),
+				batchMeters.snapshot(jobExecution(2L, "otherJob"))));
+		// Then
+		assertThat(lines.size(), is(2));
+		JsonNode first = objectMapper.readTree(lines.get(0));
+		assertThat(first.get("jobExecutionId").asLong(), is(1L));
+		assertThat(first.get("status").asText(), is("COMPLETED"));
+		assertThat(first.get("meters").size(), is(2));
+		assertThat(first.get("meters").get(0).get("name").asText(), is(BatchMeters.JOB_DURATION));
+		assertThat(first.get("meters").get(1).get("values").get("value").asDouble(), is(7.0));
+		assertThat(objectMapper.readTree(lines.get(1)).get("meters").size(), is(0));
+	}
+
+	private JobExecution jobExecution(Long id, String jobName) {
+		JobExecution jobExecution = new JobExecution(new JobInstance(id, jobName), id, null, null);
+		jobExecution.setStatus(BatchStatus.COMPLETED);
+		return jobExecution;
+	}
+
+}
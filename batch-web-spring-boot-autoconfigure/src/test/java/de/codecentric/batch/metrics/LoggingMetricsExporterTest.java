@@ -0,0 +1,74 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.codecentric.batch.metrics;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobInstance;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class LoggingMetricsExporterTest {
+
+	@Test
+	public void logValuesOfSnapshot() throws Exception {
+		// Given
+		MeterRegistry meterRegistry = new SimpleMeterRegistry();
+		AtomicInteger items = new AtomicInteger(7);
+		Gauge gauge = Gauge.builder("batch.step.items", items, AtomicInteger::get).tag("step", "step")
+				.register(meterRegistry);
+		Timer timer = meterRegistry.timer("batch.step.chunk.latency", "step", "step");
+		timer.record(2, TimeUnit.SECONDS);
+		JobMetricsSnapshot snapshot = new JobMetricsSnapshot(
+				new JobExecution(new JobInstance(1L, "job"), 1L, null, null), Arrays.asList(gauge, timer));
+		items.set(42);
+		timer.record(3, TimeUnit.SECONDS);
+		Logger logger = (Logger) LoggerFactory.getLogger(MetricsListener.class);
+		ListAppender<ILoggingEvent> appender = new ListAppender<>();
+		appender.start();
+		logger.addAppender(appender);
+		// When
+		try {
+			new LoggingMetricsExporter().export(Collections.singletonList(snapshot));
+		} finally {
+			logger.detachAppender(appender);
+		}
+		// Then
+		assertThat(appender.list.size(), is(1));
+		String message = appender.list.get(0).getFormattedMessage();
+		assertThat(message, containsString("Gauge [batch.step.items{step=step}]: 7.0"));
+		assertThat(message, containsString("Timer [batch.step.chunk.latency{step=step}]: totalTime=2.0 seconds"));
+		assertThat(message, not(containsString("42")));
+	}
+
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.codecentric.batch.metrics;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobExecutionListener;
+import org.springframework.batch.core.JobParameters;
+import org.springframework.batch.core.StepExecutionListener;
+import org.springframework.batch.core.job.SimpleJob;
+import org.springframework.batch.core.launch.support.SimpleJobLauncher;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.batch.core.step.builder.StepBuilder;
+import org.springframework.batch.item.ItemProcessor;
+import org.springframework.batch.item.support.ListItemReader;
+import org.springframework.batch.item.support.ListItemWriter;
+import org.springframework.batch.support.transaction.ResourcelessTransactionManager;
+
+import de.codecentric.batch.configuration.ItemDecorator;
+import de.codecentric.batch.configuration.ListenerProvider;
+import de.codecentric.batch.listener.AddListenerToJobService;
+import de.codecentric.batch.listener.RunningExecutionTrackerListener;
+import de.codecentric.batch.metrics.BatchMeters.Layout;
+import de.codecentric.batch.monitoring.RunningExecutionTracker;
+import de.codecentric.batch.repository.InMemoryJobStore;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class ProfilingItemDecoratorTest {
+
+	private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+	@Test
+	public void profileItemsThatAreNoBeans() throws Exception {
+		// Given
+		JobRepository jobRepository = new InMemoryJobStore(10).getJobRepository();
+		SimpleJob job = new SimpleJob("job");
+		job.setJobRepository(jobRepository);
+		job.addStep(new StepBuilder("step").repository(jobRepository)
+				.transactionManager(new ResourcelessTransactionManager()).<String, String>chunk(2)
+				.reader(new ListItemReader<>(Arrays.asList("a", "b", "c")))
+				.processor((ItemProcessor<String, String>) String::toUpperCase).writer(new ListItemWriter<>())
+				.build());
+		AddListenerToJobService service = createService(new ProfilingItemDecorator(
+				new BatchMeters(meterRegistry, Layout.V2, 100)));
+		// When
+		service.addListenerToJob(job);
+		service.addListenerToJob(job);
+		SimpleJobLauncher jobLauncher = new SimpleJobLauncher();
+		jobLauncher.setJobRepository(jobRepository);
+		jobLauncher.afterPropertiesSet();
+		JobExecution jobExecution = jobLauncher.run(job, new JobParameters());
+		// Then
+		assertThat(jobExecution.getStatus(), is(BatchStatus.COMPLETED));
+		assertThat(meterRegistry.get(BatchMeters.ITEM_READ).tag("job", "job").tag("step", "step")
+				.tag("method", "ListItemReader.read").timer().count(), is(4L));
+		assertThat(meterRegistry.get(BatchMeters.ITEM_PROCESS).timer().count(), is(3L));
+		assertThat(meterRegistry.get(BatchMeters.ITEM_WRITE).tag("method", "ListItemWriter.write").timer().count(),
+				is(2L));
+	}
+
+	private AddListenerToJobService createService(ItemDecorator itemDecorator) {
+		AddListenerToJobService service = new AddListenerToJobService(false, false, null,
+				new RunningExecutionTrackerListener(new RunningExecutionTracker()), null, null);
+		service.setListenerProviders(Collections.singleton(new ListenerProvider() {
+
+			@Override
+			public Set<JobExecutionListener> jobExecutionListeners() {
+				return Collections.emptySet();
+			}
+
+			@Override
+			public Set<StepExecutionListener> stepExecutionListeners() {
+				return Collections.emptySet();
+			}
+
+			@Override
+			public Set<ItemDecorator> itemDecorators() {
+				return Collections.singleton(itemDecorator);
+			}
+
+		}));
+		return service;
+	}
+
+}
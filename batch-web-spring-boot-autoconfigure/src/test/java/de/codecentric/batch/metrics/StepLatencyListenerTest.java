@@ -0,0 +1,96 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.codecentric.batch.metrics;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.JobParameters;
+import org.springframework.batch.core.job.builder.JobBuilder;
+import org.springframework.batch.core.launch.support.SimpleJobLauncher;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.batch.core.step.builder.StepBuilder;
+import org.springframework.batch.item.support.ListItemReader;
+import org.springframework.batch.support.transaction.ResourcelessTransactionManager;
+
+import de.codecentric.batch.metrics.BatchMeters.Layout;
+import de.codecentric.batch.repository.InMemoryJobStore;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class StepLatencyListenerTest {
+
+	private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+	@Test
+	public void recordChunkLatencies() throws Exception {
+		// Given
+		BatchMeters batchMeters = new BatchMeters(meterRegistry, Layout.V2, 100);
+		StepLatencyListener listener = new StepLatencyListener(batchMeters, 0.5, 0.99);
+		// When
+		BatchStatus status = runJob(listener, 25, 10, 1);
+		// Then
+		assertThat(status, is(BatchStatus.COMPLETED));
+		Timer chunkLatency = meterRegistry.get(BatchMeters.STEP_CHUNK_LATENCY).tag("job", "job").tag("step", "step")
+				.timer();
+		assertThat(chunkLatency.count(), is(3L));
+		ValueAtPercentile[] percentiles = chunkLatency.takeSnapshot().percentileValues();
+		assertThat(percentiles.length, is(2));
+		assertThat(percentiles[1].value(TimeUnit.MILLISECONDS), greaterThanOrEqualTo(1.0));
+		assertThat(meterRegistry.find("batch.step.item.latency").timer(), is(nullValue()));
+	}
+
+	@Test
+	public void useMetricNamePrefixInV1Layout() throws Exception {
+		// Given
+		StepLatencyListener listener = new StepLatencyListener(new BatchMeters(meterRegistry), 0.95);
+		// When
+		runJob(listener, 5, 5, 0);
+		// Then
+		assertThat(meterRegistry.get(MetricsListener.METRIC_NAME + ".chunk.latency").tag("context", "job.step").timer()
+				.count(), is(2L));
+		assertThat(new BatchMeters(meterRegistry).search().timers().size(), is(1));
+	}
+
+	private BatchStatus runJob(StepLatencyListener listener, int itemCount, int chunkSize, long writeMillis)
+			throws Exception {
+		JobRepository jobRepository = new InMemoryJobStore(10).getJobRepository();
+		List<Integer> items = new ArrayList<>();
+		for (int i = 0; i < itemCount; i++) {
+			items.add(i);
+		}
+		SimpleJobLauncher jobLauncher = new SimpleJobLauncher();
+		jobLauncher.setJobRepository(jobRepository);
+		jobLauncher.afterPropertiesSet();
+		return jobLauncher.run(new JobBuilder("job").repository(jobRepository)
+				.start(new StepBuilder("step").repository(jobRepository)
+						.transactionManager(new ResourcelessTransactionManager()).<Integer, Integer> chunk(chunkSize)
+						.reader(new ListItemReader<>(items)).writer(chunk -> Thread.sleep(writeMillis))
+						.listener(listener).build())
+				.build(), new JobParameters()).getStatus();
+	}
+
+}
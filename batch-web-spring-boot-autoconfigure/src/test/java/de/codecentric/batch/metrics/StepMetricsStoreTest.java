@@ -0,0 +1,82 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.codecentric.batch.metrics;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.time.Duration;
+import java.util.Date;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobInstance;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.scope.context.StepSynchronizationManager;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class StepMetricsStoreTest {
+
+	private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+	private StepExecution stepExecution;
+
+	@BeforeEach
+	public void beforeTest() {
+		stepExecution = new StepExecution("step", new JobExecution(new JobInstance(1L, "job"), 1L, null, null));
+		stepExecution.setStartTime(new Date());
+		StepSynchronizationManager.register(stepExecution);
+	}
+
+	@AfterEach
+	public void afterTest() {
+		StepSynchronizationManager.close();
+	}
+
+	@Test
+	public void checkpointAtStepEnd() {
+		// Given
+		StepMetricsStore store = new StepMetricsStore(meterRegistry, null);
+		BatchMetricsImpl batchMetrics = new BatchMetricsImpl(store);
+		// When
+		batchMetrics.increment("counter", 2L);
+		batchMetrics.increment("counter", 3L);
+		batchMetrics.submit("gauge", 1.5);
+		// Then
+		assertThat(stepExecution.getExecutionContext().containsKey("counter"), is(false));
+		assertThat(meterRegistry.get(MetricsListener.METRIC_NAME).tag("context", "job.step").tag("name", "counter")
+				.gauge().value(), is(5.0));
+		new MetricsListener(meterRegistry, store).afterStep(stepExecution);
+		assertThat(stepExecution.getExecutionContext().getLong("counter"), is(5L));
+		assertThat(stepExecution.getExecutionContext().getDouble("gauge"), is(1.5));
+	}
+
+	@Test
+	public void checkpointAfterInterval() {
+		// Given
+		stepExecution.getExecutionContext().putLong("counter", 10L);
+		BatchMetricsImpl batchMetrics = new BatchMetricsImpl(new StepMetricsStore(meterRegistry, Duration.ZERO));
+		// When
+		batchMetrics.increment("counter", 1L);
+		// Then
+		assertThat(stepExecution.getExecutionContext().getLong("counter"), is(11L));
+	}
+
+}
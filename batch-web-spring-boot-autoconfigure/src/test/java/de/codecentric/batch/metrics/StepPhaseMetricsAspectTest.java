@@ -0,0 +1,98 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.codecentric.batch.metrics;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobInstance;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.scope.context.StepSynchronizationManager;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemReader;
+import org.springframework.batch.item.ItemStreamSupport;
+import org.springframework.batch.item.support.ListItemReader;
+
+import de.codecentric.batch.metrics.BatchMeters.Layout;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class StepPhaseMetricsAspectTest {
+
+	private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+	@AfterEach
+	public void releaseStep() {
+		StepSynchronizationManager.close();
+	}
+
+	@Test
+	public void recordPhasesOfTheCurrentStep() throws Exception {
+		// Given
+		ListItemStreamReader reader = proxy(new ListItemStreamReader());
+		StepSynchronizationManager
+				.register(new StepExecution("step", new JobExecution(new JobInstance(1L, "job"), 1L, null, null)));
+		// When
+		reader.open(new ExecutionContext());
+		reader.read();
+		reader.read();
+		reader.update(new ExecutionContext());
+		// Then
+		assertThat(phaseTimerCount(StepPhaseMetricsAspect.READ), is(2L));
+		assertThat(phaseTimerCount(StepPhaseMetricsAspect.STREAM), is(2L));
+	}
+
+	@Test
+	public void ignoreCallsOutsideOfSteps() throws Exception {
+		// Given
+		ListItemStreamReader reader = proxy(new ListItemStreamReader());
+		// When
+		reader.read();
+		// Then
+		assertThat(meterRegistry.find(BatchMeters.STEP_PHASE).timer(), is(nullValue()));
+	}
+
+	private ListItemStreamReader proxy(ListItemStreamReader reader) {
+		AspectJProxyFactory proxyFactory = new AspectJProxyFactory(reader);
+		proxyFactory.setProxyTargetClass(true);
+		proxyFactory.addAspect(new StepPhaseMetricsAspect(new BatchMeters(meterRegistry, Layout.V2, 100)));
+		return proxyFactory.getProxy();
+	}
+
+	private long phaseTimerCount(String phase) {
+		return meterRegistry.get(BatchMeters.STEP_PHASE).tag("job", "job").tag("step", "step").tag("phase", phase)
+				.timer().count();
+	}
+
+	private static class ListItemStreamReader extends ItemStreamSupport implements ItemReader<String> {
+
+		private final ListItemReader<String> delegate = new ListItemReader<>(Arrays.asList("a", "b"));
+
+		@Override
+		public String read() {
+			return delegate.read();
+		}
+
+	}
+
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.codecentric.batch.monitoring;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Collections;
+import java.util.Date;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobInstance;
+import org.springframework.batch.core.JobParameters;
+import org.springframework.batch.core.StepExecution;
+
+public class ProtocolStoreTest {
+
+	@TempDir
+	Path directory;
+
+	@Test
+	public void computeStatisticsOfLastRuns() throws Exception {
+		// Given
+		ProtocolStore protocolStore = new ProtocolStore(directory, Collections.singletonList("fileName"),
+				Clock.fixed(Instant.parse("2018-06-01T10:00:00Z"), ZoneOffset.UTC));
+		for (long id = 1; id <= 100; id++) {
+			protocolStore.write(createJobExecution(id, "testJob", id * 10, id == 100 ? BatchStatus.FAILED
+					: BatchStatus.COMPLETED));
+		}
+		protocolStore.write(createJobExecution(101, "otherJob", 100_000, BatchStatus.COMPLETED));
+		protocolStore.close();
+		// When
+		JobStatistics statistics = protocolStore.getStatistics("testJob", 50);
+		// Then
+		assertThat(statistics.getRuns(), is(50));
+		assertThat(statistics.getFailedRuns(), is(1));
+		assertThat(statistics.getDuration().getMax(), is(1000L));
+		assertThat(statistics.getSteps().get("step").getExecutions(), is(50));
+		assertThat(statistics.getSteps().get("step").getDuration().getP50(), is(750L));
+		assertThat(statistics.getSteps().get("step").getDuration().getP99(), is(1000L));
+		assertThat(statistics.getSteps().get("step").getReadCount().getP50(), is(10L));
+		String protocol = new String(Files.readAllBytes(directory.resolve("protocol-2018-06-01.csv")),
+				StandardCharsets.UTF_8);
+		assertThat(protocol, containsString("STEP,1,testJob,step,0,10,COMPLETED,COMPLETED,10,10,1,0,0,0,"
+				+ "\"fileName=a,b.csv\"\n"));
+	}
+
+	@Test
+	public void deleteExpiredFiles() throws Exception {
+		// Given
+		Files.createFile(directory.resolve("protocol-2018-05-01.csv"));
+		Files.createFile(directory.resolve("protocol-2018-05-30.csv"));
+		ProtocolStore protocolStore = new ProtocolStore(directory, Collections.emptyList(),
+				Clock.fixed(Instant.parse("2018-06-01T10:00:00Z"), ZoneOffset.UTC));
+		protocolStore.setRetention(Duration.ofDays(7));
+		// When
+		protocolStore.write(createJobExecution(1, "testJob", 10, BatchStatus.COMPLETED));
+		protocolStore.close();
+		// Then
+		assertThat(Files.exists(directory.resolve("protocol-2018-05-01.csv")), is(false));
+		assertThat(Files.exists(directory.resolve("protocol-2018-05-30.csv")), is(true));
+		assertThat(Files.exists(directory.resolve("protocol-2018-06-01.csv")), is(true));
+	}
+
+	private JobExecution createJobExecution(long id, String jobName, long duration, BatchStatus status) {
+		JobExecution jobExecution = new JobExecution(id, new JobParameters());
+		jobExecution.setJobInstance(new JobInstance(id, jobName));
+		jobExecution.setStartTime(new Date(0));
+		jobExecution.setEndTime(new Date(duration));
+		jobExecution.setStatus(status);
+		jobExecution.setExitStatus(new ExitStatus(status.name()));
+		StepExecution stepExecution = jobExecution.createStepExecution("step");
+		stepExecution.setStartTime(new Date(0));
+		stepExecution.setEndTime(new Date(duration));
+		stepExecution.setStatus(status);
+		stepExecution.setExitStatus(new ExitStatus(status.name()));
+		stepExecution.setReadCount(10);
+		stepExecution.setWriteCount(10);
+		stepExecution.setCommitCount(1);
+		stepExecution.getExecutionContext().putString("fileName", "a,b.csv");
+		return jobExecution;
+	}
+
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.codecentric.batch.registry;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.JobParameters;
+import org.springframework.batch.core.Step;
+import org.springframework.batch.core.configuration.annotation.JobBuilderFactory;
+import org.springframework.batch.core.job.SimpleJob;
+import org.springframework.batch.core.launch.support.SimpleJobLauncher;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.batch.core.step.builder.StepBuilder;
+import org.springframework.batch.repeat.RepeatStatus;
+import org.springframework.batch.support.transaction.ResourcelessTransactionManager;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.core.io.ByteArrayResource;
+
+import de.codecentric.batch.jobs.DelayJobConfiguration;
+import de.codecentric.batch.jobs.SimpleJobConfiguration;
+import de.codecentric.batch.repository.InMemoryJobStore;
+
+public class LazyJobRegistrarTest {
+
+	private static final String BEANS = "<beans xmlns='http://www.springframework.org/schema/beans'"
+			+ " xmlns:batch='http://www.springframework.org/schema/batch'>%s</beans>";
+
+	private final LazyJobRegistrar lazyJobRegistrar = new LazyJobRegistrar(null, new GenericApplicationContext(),
+			null, job -> {
+			});
+
+	@Test
+	public void findJobNamesOfXmlConfiguration() throws Exception {
+		// When
+		String jobNames = String.join(",", lazyJobRegistrar.findJobNames(xml("<batch:job id='xmlJob'/>"
+				+ "<bean id='reader' class='org.springframework.batch.item.support.ListItemReader'/>")));
+		// Then
+		assertThat(jobNames, is("xmlJob"));
+	}
+
+	@Test
+	public void leaveXmlConfigurationWithUnknownJobsToEagerRegistration() throws Exception {
+		// When
+		boolean withImport = lazyJobRegistrar
+				.findJobNames(xml("<batch:job id='xmlJob'/><import resource='other-job.xml'/>")).isEmpty();
+		boolean withJobBean = lazyJobRegistrar.findJobNames(xml(
+				"<batch:job id='xmlJob'/><bean id='beanJob' class='org.springframework.batch.core.job.SimpleJob'/>"))
+				.isEmpty();
+		// Then
+		assertThat(withImport, is(true));
+		assertThat(withJobBean, is(true));
+	}
+
+	@Test
+	public void findJobNamesOfImportedConfigurations() throws Exception {
+		// When
+		LinkedHashSet<String> jobNames = new LinkedHashSet<>(
+				lazyJobRegistrar.findJobNames(ImportingJobConfiguration.class));
+		// Then
+		assertThat(jobNames, is(new LinkedHashSet<>(Arrays.asList("simpleJob", "delayJob"))));
+	}
+
+	@Test
+	public void leaveComputedJobNamesToEagerRegistration() throws Exception {
+		// When
+		boolean empty = lazyJobRegistrar.findJobNames(ComputedNameJobConfiguration.class).isEmpty();
+		// Then
+		assertThat(empty, is(true));
+	}
+
+	@Test
+	public void rejectTtlThatIsNotPositive() {
+		// When
+		// Then
+		assertThrows(IllegalArgumentException.class, () -> lazyJobRegistrar.setTtl(Duration.ZERO));
+		assertThrows(IllegalArgumentException.class, () -> lazyJobRegistrar.setTtl(Duration.ofSeconds(-1)));
+	}
+
+	@Test
+	public void keepContextOfHandedOutJobUntilItHasFinished() throws Exception {
+		// Given
+		JobRepository jobRepository = new InMemoryJobStore(10).getJobRepository();
+		LazyJobContext jobContext = new LazyJobContext(() -> {
+			SimpleJob job = new SimpleJob("job");
+			job.setJobRepository(jobRepository);
+			job.addStep(new StepBuilder("step").repository(jobRepository)
+					.transactionManager(new ResourcelessTransactionManager())
+					.tasklet((contribution, chunkContext) -> RepeatStatus.FINISHED).build());
+			GenericApplicationContext context = new GenericApplicationContext();
+			context.registerBean("job", Job.class, () -> job);
+			context.refresh();
+			return context;
+		}, Collections.singleton("job"), job -> {
+		});
+		long idleSince = System.currentTimeMillis() + 1000;
+		// When
+		Job job = jobContext.getJob("job");
+		boolean evictedWhileHandedOut = jobContext.evictIfIdle(idleSince, jobName -> false);
+		SimpleJobLauncher jobLauncher = new SimpleJobLauncher();
+		jobLauncher.setJobRepository(jobRepository);
+		jobLauncher.afterPropertiesSet();
+		BatchStatus status = jobLauncher.run(job, new JobParameters()).getStatus();
+		boolean evictedWhenFinished = jobContext.evictIfIdle(idleSince, jobName -> false);
+		// Then
+		assertThat(status, is(BatchStatus.COMPLETED));
+		assertThat(evictedWhileHandedOut, is(false));
+		assertThat(evictedWhenFinished, is(true));
+	}
+
+	private ByteArrayResource xml(String content) {
+		return new ByteArrayResource(String.format(BEANS, content).getBytes(StandardCharsets.UTF_8));
+	}
+
+	@Configuration
+	@Import({ SimpleJobConfiguration.class, DelayJobConfiguration.class })
+	static class ImportingJobConfiguration {
+
+	}
+
+	@Configuration
+	static class ComputedNameJobConfiguration {
+
+		@Autowired
+		private JobBuilderFactory jobBuilderFactory;
+
+		private String prefix = "computed";
+
+		@Bean
+		public Job computedJob() {
+			return jobBuilderFactory.get(prefix + "Job").start(step()).build();
+		}
+
+		@Bean
+		public Step step() {
+			return null;
+		}
+
+	}
+
+}
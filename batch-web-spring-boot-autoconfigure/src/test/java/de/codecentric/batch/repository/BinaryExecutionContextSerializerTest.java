@@ -0,0 +1,93 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.codecentric.batch.repository;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.startsWith;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.core.repository.ExecutionContextSerializer;
+import org.springframework.batch.core.repository.dao.Jackson2ExecutionContextStringSerializer;
+
+public class BinaryExecutionContextSerializerTest {
+
+	@Test
+	public void roundTrip() throws IOException {
+		// Given
+		Map<String, Object> context = new HashMap<>();
+		context.put("string", "Grüße");
+		context.put("long", -123456789012L);
+		context.put("int", 42);
+		context.put("double", 1.5d);
+		context.put("float", 2.5f);
+		context.put("boolean", true);
+		context.put("short", (short) -7);
+		context.put("byte", (byte) 3);
+		context.put("date", new Date(1_500_000_000_000L));
+		for (int i = 0; i < 200; i++) {
+			context.put("counter" + i, (long) i);
+		}
+		BinaryExecutionContextSerializer serializer = new BinaryExecutionContextSerializer(100);
+		// When
+		String serialized = serialize(serializer, context);
+		Map<String, Object> deserialized = deserialize(serializer, serialized);
+		// Then
+		assertThat(serialized, startsWith("BIN1D"));
+		assertThat(deserialized, is(context));
+	}
+
+	@Test
+	public void readAndWriteJson() throws IOException {
+		// Given
+		Map<String, Object> context = new HashMap<>();
+		context.put("count", 5L);
+		String json = serialize(new Jackson2ExecutionContextStringSerializer(), context);
+		BinaryExecutionContextSerializer serializer = new BinaryExecutionContextSerializer();
+		Map<String, Object> unsupported = new HashMap<>();
+		unsupported.put("list", new ArrayList<>());
+		// When
+		Map<String, Object> deserialized = deserialize(serializer, json);
+		String serialized = serialize(serializer, unsupported);
+		// Then
+		assertThat(deserialized, is(context));
+		assertThat(serialized, startsWith("{"));
+		assertThat(deserialize(serializer, serialized), is(unsupported));
+	}
+
+	private String serialize(ExecutionContextSerializer serializer, Map<String, Object> context)
+			throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		serializer.serialize(context, out);
+		return new String(out.toByteArray(), StandardCharsets.UTF_8);
+	}
+
+	private Map<String, Object> deserialize(BinaryExecutionContextSerializer serializer, String serialized)
+			throws IOException {
+		return serializer.deserialize(new ByteArrayInputStream(serialized.getBytes(StandardCharsets.UTF_8)));
+	}
+
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.codecentric.batch.repository;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobParameters;
+import org.springframework.batch.core.explore.JobExplorer;
+import org.springframework.batch.core.explore.support.JobExplorerFactoryBean;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.batch.core.repository.support.JobRepositoryFactoryBean;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+public class CachingJobExplorerTest {
+
+	private final AtomicInteger delegateCalls = new AtomicInteger();
+
+	private EmbeddedDatabase database;
+
+	private JobRepository jobRepository;
+
+	private CachingJobExplorer cachingJobExplorer;
+
+	@BeforeEach
+	public void setUp() throws Exception {
+		database = new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.HSQL).generateUniqueName(true)
+				.addScript("classpath:org/springframework/batch/core/schema-hsqldb.sql").build();
+		JobRepositoryFactoryBean jobRepositoryFactory = new JobRepositoryFactoryBean();
+		jobRepositoryFactory.setDataSource(database);
+		jobRepositoryFactory.setTransactionManager(new DataSourceTransactionManager(database));
+		jobRepositoryFactory.afterPropertiesSet();
+		jobRepository = jobRepositoryFactory.getObject();
+		JobExplorerFactoryBean jobExplorerFactory = new JobExplorerFactoryBean();
+		jobExplorerFactory.setDataSource(database);
+		jobExplorerFactory.afterPropertiesSet();
+		JobExplorer jobExplorer = jobExplorerFactory.getObject();
+		JobExplorer countingJobExplorer = (JobExplorer) Proxy.newProxyInstance(getClass().getClassLoader(),
+				new Class<?>[] { JobExplorer.class }, (proxy, method, args) -> {
+					delegateCalls.incrementAndGet();
+					try {
+						return method.invoke(jobExplorer, args);
+					} catch (InvocationTargetException e) {
+						throw e.getTargetException();
+					}
+				});
+		cachingJobExplorer = new CachingJobExplorer(countingJobExplorer, database, "BATCH_", 10,
+				Duration.ofMinutes(1));
+	}
+
+	@AfterEach
+	public void tearDown() {
+		database.shutdown();
+	}
+
+	@Test
+	public void cacheFinishedJobExecutions() throws Exception {
+		// Given
+		JobExecution jobExecution = jobRepository.createJobExecution("job", new JobParameters());
+		// When
+		cachingJobExplorer.getJobExecution(jobExecution.getId());
+		finish(jobExecution);
+		JobExecution firstRead = cachingJobExplorer.getJobExecution(jobExecution.getId());
+		JobExecution secondRead = cachingJobExplorer.getJobExecution(jobExecution.getId());
+		// Then
+		assertThat(delegateCalls.get(), is(2));
+		assertThat(firstRead.getStatus(), is(BatchStatus.COMPLETED));
+		assertThat(secondRead, is(sameInstance(firstRead)));
+	}
+
+	@Test
+	public void readStatusWithoutDelegate() throws Exception {
+		// Given
+		JobExecution jobExecution = jobRepository.createJobExecution("job", new JobParameters());
+		// When
+		JobExecutionStatus running = cachingJobExplorer.getJobExecutionStatus(jobExecution.getId());
+		finish(jobExecution);
+		JobExecutionStatus finished = cachingJobExplorer.getJobExecutionStatus(jobExecution.getId());
+		JobExecutionStatus notFound = cachingJobExplorer.getJobExecutionStatus(-1L);
+		// answered from the cache only
+		database.shutdown();
+		JobExecutionStatus cached = cachingJobExplorer.getJobExecutionStatus(jobExecution.getId());
+		// Then
+		assertThat(delegateCalls.get(), is(0));
+		assertThat(running.getStatus(), is(BatchStatus.STARTING));
+		assertThat(finished.getExitCode(), is("COMPLETED"));
+		assertThat(cached, is(sameInstance(finished)));
+		assertThat(notFound, is(nullValue()));
+	}
+
+	private void finish(JobExecution jobExecution) {
+		jobExecution.setStatus(BatchStatus.COMPLETED);
+		jobExecution.setExitStatus(ExitStatus.COMPLETED);
+		jobRepository.update(jobExecution);
+	}
+
+}
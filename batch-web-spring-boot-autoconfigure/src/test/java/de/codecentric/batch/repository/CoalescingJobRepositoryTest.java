@@ -0,0 +1,82 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.codecentric.batch.repository;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.repository.JobRepository;
+
+public class CoalescingJobRepositoryTest {
+
+	private final List<String> calls = new ArrayList<>();
+
+	private final JobRepository delegate = (JobRepository) Proxy.newProxyInstance(getClass().getClassLoader(),
+			new Class<?>[] { JobRepository.class }, (proxy, method, args) -> {
+				calls.add(method.getName());
+				return null;
+			});
+
+	@Test
+	public void writeEveryNthCommitAndStepEnd() {
+		// Given
+		CoalescingJobRepository repository = new CoalescingJobRepository(delegate, 3, Duration.ofHours(1));
+		StepExecution stepExecution = createStepExecution();
+		// When
+		for (int i = 0; i < 7; i++) {
+			repository.updateExecutionContext(stepExecution);
+			repository.update(stepExecution);
+		}
+		stepExecution.setStatus(BatchStatus.COMPLETED);
+		repository.updateExecutionContext(stepExecution);
+		repository.update(stepExecution);
+		// Then
+		// first commit, 4th, 7th and step end
+		assertThat(calls.size(), is(8));
+		assertThat(repository.getCoalescedUpdates(), is(8L));
+	}
+
+	@Test
+	public void writeAfterInterval() {
+		// Given
+		CoalescingJobRepository repository = new CoalescingJobRepository(delegate, 100, Duration.ZERO);
+		StepExecution stepExecution = createStepExecution();
+		// When
+		for (int i = 0; i < 5; i++) {
+			repository.update(stepExecution);
+		}
+		// Then
+		assertThat(calls.size(), is(5));
+		assertThat(repository.getCoalescedUpdates(), is(0L));
+	}
+
+	private StepExecution createStepExecution() {
+		StepExecution stepExecution = new StepExecution("step", new JobExecution(1L), 1L);
+		stepExecution.setStatus(BatchStatus.STARTED);
+		return stepExecution;
+	}
+
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.codecentric.batch.repository;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobParameters;
+import org.springframework.batch.core.JobParametersBuilder;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.explore.JobExplorer;
+import org.springframework.batch.core.repository.JobExecutionAlreadyRunningException;
+import org.springframework.batch.core.repository.JobRepository;
+
+public class InMemoryJobStoreTest {
+
+	@Test
+	public void startJobInstanceOnlyOnce() throws Exception {
+		// Given
+		InMemoryJobStore jobStore = new InMemoryJobStore(100);
+		JobRepository jobRepository = jobStore.getJobRepository();
+		JobParameters jobParameters = new JobParametersBuilder().addLong("run", 1L).toJobParameters();
+		AtomicInteger alreadyRunning = new AtomicInteger();
+		List<Callable<JobExecution>> launches = new ArrayList<>();
+		for (int i = 0; i < 8; i++) {
+			launches.add(() -> {
+				try {
+					JobExecution jobExecution = jobRepository.createJobExecution("job", jobParameters);
+					jobExecution.setStartTime(new Date());
+					jobRepository.update(jobExecution);
+					return jobExecution;
+				} catch (JobExecutionAlreadyRunningException e) {
+					alreadyRunning.incrementAndGet();
+					return null;
+				}
+			});
+		}
+		// When
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		JobExecution started = null;
+		for (Future<JobExecution> launch : executor.invokeAll(launches)) {
+			if (launch.get() != null) {
+				started = launch.get();
+			}
+		}
+		executor.shutdown();
+		StepExecution stepExecution = started.createStepExecution("step");
+		jobRepository.add(stepExecution);
+		stepExecution.getExecutionContext().putLong("count", 42L);
+		jobRepository.updateExecutionContext(stepExecution);
+		// Then
+		assertThat(alreadyRunning.get(), is(7));
+		JobExecution read = jobStore.getJobExplorer().getJobExecution(started.getId());
+		assertThat(read.getStepExecutions().size(), is(1));
+		assertThat(read.getStepExecutions().iterator().next().getExecutionContext().getLong("count"), is(42L));
+		assertThat(jobStore.getJobExplorer().findRunningJobExecutions("job").size(), is(1));
+	}
+
+	@Test
+	public void removeOldestFinishedJobExecutions() throws Exception {
+		// Given
+		InMemoryJobStore jobStore = new InMemoryJobStore(2);
+		JobExplorer jobExplorer = jobStore.getJobExplorer();
+		// When
+		List<JobExecution> jobExecutions = new ArrayList<>();
+		for (long run = 1; run <= 3; run++) {
+			jobExecutions.add(runJob(jobStore.getJobRepository(), run));
+		}
+		// Then
+		assertThat(jobExplorer.getJobExecution(jobExecutions.get(0).getId()), is(nullValue()));
+		assertThat(jobExplorer.getJobInstance(jobExecutions.get(0).getJobId()), is(nullValue()));
+		assertThat(jobExplorer.getJobExecution(jobExecutions.get(2).getId()).getStatus(), is(BatchStatus.COMPLETED));
+		assertThat(jobExplorer.getJobInstanceCount("job"), is(2));
+		// the removed job instance may be started again
+		assertThat(runJob(jobStore.getJobRepository(), 1), is(notNullValue()));
+	}
+
+	private JobExecution runJob(JobRepository jobRepository, long run) throws Exception {
+		JobExecution jobExecution = jobRepository.createJobExecution("job",
+				new JobParametersBuilder().addLong("run", run).toJobParameters());
+		jobExecution.setStartTime(new Date());
+		jobRepository.update(jobExecution);
+		StepExecution stepExecution = jobExecution.createStepExecution("step");
+		jobRepository.add(stepExecution);
+		stepExecution.setStatus(BatchStatus.COMPLETED);
+		jobRepository.update(stepExecution);
+		jobExecution.setStatus(BatchStatus.COMPLETED);
+		jobExecution.setEndTime(new Date());
+		jobRepository.update(jobExecution);
+		return jobExecution;
+	}
+
+}
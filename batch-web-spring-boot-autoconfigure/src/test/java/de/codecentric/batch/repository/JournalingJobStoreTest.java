@@ -0,0 +1,160 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.codecentric.batch.repository;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobParameters;
+import org.springframework.batch.core.JobParametersBuilder;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.batch.core.repository.dao.Jackson2ExecutionContextStringSerializer;
+
+public class JournalingJobStoreTest {
+
+	@TempDir
+	Path directory;
+
+	private final JobParameters jobParameters = new JobParametersBuilder().addString("file", "input.csv")
+			.addLong("attempt", 1L, false).toJobParameters();
+
+	@Test
+	public void restartFailedJobAfterReopening() throws Exception {
+		// Given
+		JobExecution failed;
+		try (JournalingJobStore jobStore = open(1024 * 1024)) {
+			failed = runJob(jobStore.getJobRepository(), BatchStatus.FAILED);
+		}
+		// When
+		try (JournalingJobStore jobStore = open(1024 * 1024)) {
+			JobExecution read = jobStore.getJobExplorer().getJobExecution(failed.getId());
+			JobExecution restarted = jobStore.getJobRepository().createJobExecution("job", jobParameters);
+			StepExecution lastStepExecution = jobStore.getJobRepository()
+					.getLastStepExecution(restarted.getJobInstance(), "step");
+			// Then
+			assertThat(read.getStatus(), is(BatchStatus.FAILED));
+			assertThat(read.getExitStatus().getExitDescription(), is("failed at item 42"));
+			assertThat(read.getJobParameters(), is(jobParameters));
+			assertThat(read.getStepExecutions().iterator().next().getReadCount(), is(42));
+			assertThat(restarted.getJobId(), is(failed.getJobId()));
+			assertThat(restarted.getId() > failed.getId(), is(true));
+			assertThat(lastStepExecution.getExecutionContext().getLong("read.count"), is(42L));
+		}
+	}
+
+	@Test
+	public void ignoreIncompleteRecordAndCompact() throws Exception {
+		// Given
+		JobExecution completed;
+		try (JournalingJobStore jobStore = open(512)) {
+			runJob(jobStore.getJobRepository(), BatchStatus.FAILED);
+			completed = runJob(jobStore.getJobRepository(), BatchStatus.COMPLETED);
+		}
+		List<Path> segments = segments();
+		// a record the application crashed while writing
+		Files.write(segments.get(0), new byte[] { 0, 0, 1, 0, 1, 2, 3 }, StandardOpenOption.APPEND);
+		// When
+		try (JournalingJobStore jobStore = open(512)) {
+			// Then
+			assertThat(segments.size(), is(1));
+			assertThat(segments().size(), is(1));
+			assertThat(segments().get(0).equals(segments.get(0)), is(false));
+			assertThat(jobStore.getJobExplorer().getJobExecution(completed.getId()).getStatus(),
+					is(BatchStatus.COMPLETED));
+			assertThat(jobStore.getJobExplorer().getJobExecutions(completed.getJobInstance()).size(), is(2));
+		}
+	}
+
+	@Test
+	public void keepUpdateThatTriggersCompaction() throws Exception {
+		// Given
+		JobExecution completed = null;
+		try (JournalingJobStore jobStore = open(1)) {
+			JobRepository jobRepository = jobStore.getJobRepository();
+			for (long run = 0; run < 100 && completed == null; run++) {
+				JobExecution jobExecution = jobRepository.createJobExecution("job",
+						new JobParametersBuilder().addLong("run", run).toJobParameters());
+				jobExecution.setStartTime(new Date());
+				jobRepository.update(jobExecution);
+				List<Path> segments = segments();
+				jobExecution.setStatus(BatchStatus.COMPLETED);
+				jobExecution.setExitStatus(ExitStatus.COMPLETED);
+				jobExecution.setEndTime(new Date());
+				jobRepository.update(jobExecution);
+				if (!segments().equals(segments)) {
+					completed = jobExecution;
+				}
+			}
+		}
+		assertThat(completed, is(notNullValue()));
+		// When
+		try (JournalingJobStore jobStore = open(1)) {
+			JobExecution read = jobStore.getJobExplorer().getJobExecution(completed.getId());
+			// Then
+			assertThat(read.getStatus(), is(BatchStatus.COMPLETED));
+			assertThat(read.getEndTime(), is(notNullValue()));
+		}
+	}
+
+	private JournalingJobStore open(long compactionThreshold) throws Exception {
+		return new JournalingJobStore(100, directory, new Jackson2ExecutionContextStringSerializer(),
+				compactionThreshold, false);
+	}
+
+	private List<Path> segments() throws Exception {
+		try (Stream<Path> files = Files.list(directory)) {
+			return files.collect(Collectors.toList());
+		}
+	}
+
+	private JobExecution runJob(JobRepository jobRepository, BatchStatus status) throws Exception {
+		JobExecution jobExecution = jobRepository.createJobExecution("job", jobParameters);
+		jobExecution.setStartTime(new Date());
+		jobRepository.update(jobExecution);
+		StepExecution stepExecution = jobExecution.createStepExecution("step");
+		jobRepository.add(stepExecution);
+		for (int i = 1; i <= 42; i++) {
+			stepExecution.setReadCount(i);
+			stepExecution.getExecutionContext().putLong("read.count", i);
+			jobRepository.update(stepExecution);
+			jobRepository.updateExecutionContext(stepExecution);
+		}
+		stepExecution.setStatus(status);
+		jobRepository.update(stepExecution);
+		jobExecution.setStatus(status);
+		jobExecution.setExitStatus(new ExitStatus(status.name(), "failed at item 42"));
+		jobExecution.setEndTime(new Date());
+		jobRepository.update(jobExecution);
+		return jobExecution;
+	}
+
+}
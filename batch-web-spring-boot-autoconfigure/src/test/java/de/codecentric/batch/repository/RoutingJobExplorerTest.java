@@ -0,0 +1,142 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.codecentric.batch.repository;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobParameters;
+import org.springframework.batch.core.explore.JobExplorer;
+import org.springframework.batch.core.explore.support.JobExplorerFactoryBean;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.batch.core.repository.support.JobRepositoryFactoryBean;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+/**
+ * Uses two HSQLDB instances, the replica is updated by the test instead of by replication.
+ */
+public class RoutingJobExplorerTest {
+
+	private final AtomicInteger primaryCalls = new AtomicInteger();
+
+	private EmbeddedDatabase primaryDatabase;
+
+	private EmbeddedDatabase replicaDatabase;
+
+	private JobRepository primary;
+
+	private JobRepository replica;
+
+	private RoutingJobExplorer routingJobExplorer;
+
+	@BeforeEach
+	public void setUp() throws Exception {
+		primaryDatabase = createDatabase();
+		replicaDatabase = createDatabase();
+		primary = createJobRepository(primaryDatabase);
+		replica = createJobRepository(replicaDatabase);
+		JobExplorer primaryJobExplorer = createJobExplorer(primaryDatabase);
+		JobExplorer countingJobExplorer = (JobExplorer) Proxy.newProxyInstance(getClass().getClassLoader(),
+				new Class<?>[] { JobExplorer.class }, (proxy, method, args) -> {
+					primaryCalls.incrementAndGet();
+					try {
+						return method.invoke(primaryJobExplorer, args);
+					} catch (InvocationTargetException e) {
+						throw e.getTargetException();
+					}
+				});
+		routingJobExplorer = new RoutingJobExplorer(countingJobExplorer, createJobExplorer(replicaDatabase));
+	}
+
+	@AfterEach
+	public void tearDown() {
+		primaryDatabase.shutdown();
+		replicaDatabase.shutdown();
+	}
+
+	@Test
+	public void readFinishedJobExecutionsFromReplica() throws Exception {
+		// Given
+		JobExecution jobExecution = primary.createJobExecution("job", new JobParameters());
+		finish(primary, jobExecution);
+		finish(replica, replica.createJobExecution("job", new JobParameters()));
+		// When
+		JobExecution read = routingJobExplorer.getJobExecution(jobExecution.getId());
+		int jobInstanceCount = routingJobExplorer.getJobInstanceCount("job");
+		// Then
+		assertThat(read.getStatus(), is(BatchStatus.COMPLETED));
+		assertThat(jobInstanceCount, is(1));
+		assertThat(primaryCalls.get(), is(0));
+	}
+
+	@Test
+	public void readRunningAndMissingJobExecutionsFromPrimary() throws Exception {
+		// Given
+		JobExecution jobExecution = primary.createJobExecution("job", new JobParameters());
+		finish(primary, jobExecution);
+		// the replica hasn't seen the end of the job execution yet
+		replica.createJobExecution("job", new JobParameters());
+		JobExecution notReplicated = primary.createJobExecution("otherJob", new JobParameters());
+		// When
+		JobExecution read = routingJobExplorer.getJobExecution(jobExecution.getId());
+		JobExecution readNotReplicated = routingJobExplorer.getJobExecution(notReplicated.getId());
+		// Then
+		assertThat(read.getStatus(), is(BatchStatus.COMPLETED));
+		assertThat(readNotReplicated.getJobInstance().getJobName(), is("otherJob"));
+		assertThat(primaryCalls.get(), is(2));
+	}
+
+	private EmbeddedDatabase createDatabase() {
+		return new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.HSQL).generateUniqueName(true)
+				.addScript("classpath:org/springframework/batch/core/schema-hsqldb.sql").build();
+	}
+
+	private JobRepository createJobRepository(EmbeddedDatabase database) throws Exception {
+		JobRepositoryFactoryBean jobRepositoryFactory = new JobRepositoryFactoryBean();
+		jobRepositoryFactory.setDataSource(database);
+		jobRepositoryFactory.setTransactionManager(new DataSourceTransactionManager(database));
+		jobRepositoryFactory.afterPropertiesSet();
+		return jobRepositoryFactory.getObject();
+	}
+
+	private JobExplorer createJobExplorer(EmbeddedDatabase database) throws Exception {
+		JobExplorerFactoryBean jobExplorerFactory = new JobExplorerFactoryBean();
+		jobExplorerFactory.setDataSource(database);
+		jobExplorerFactory.afterPropertiesSet();
+		return jobExplorerFactory.getObject();
+	}
+
+	private void finish(JobRepository jobRepository, JobExecution jobExecution) {
+		jobExecution.setStatus(BatchStatus.COMPLETED);
+		jobExecution.setExitStatus(ExitStatus.COMPLETED);
+		jobRepository.update(jobExecution);
+	}
+
+}
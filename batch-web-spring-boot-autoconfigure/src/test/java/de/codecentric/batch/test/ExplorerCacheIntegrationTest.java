@@ -0,0 +1,57 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.codecentric.batch.test;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.core.explore.JobExplorer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import de.codecentric.batch.TestApplication;
+import de.codecentric.batch.configuration.TaskExecutorBatchConfiguration;
+import de.codecentric.batch.repository.CachingJobExplorer;
+
+/**
+ * This test class starts the application with the explorer cache and checks that only the monitoring endpoint reads
+ * from it, while the JobExplorer of the application, which the JobOperator modifies job executions with, isn't cached.
+ */
+@SpringBootTest(classes = TestApplication.class, properties = { "spring.datasource.url=jdbc:hsqldb:mem:explorercache",
+		"spring.datasource.username=sa", "batch.repository.explorer-cache.enabled=true" })
+public class ExplorerCacheIntegrationTest {
+
+	@Autowired
+	private JobExplorer jobExplorer;
+
+	@Autowired
+	private TaskExecutorBatchConfiguration batchConfiguration;
+
+	@Test
+	public void cacheOnlyForMonitoring() throws Exception {
+		// Given
+		// When
+		JobExplorer monitoringJobExplorer = batchConfiguration.getMonitoringJobExplorer();
+		// Then
+		assertThat(jobExplorer, is(not(instanceOf(CachingJobExplorer.class))));
+		assertThat(batchConfiguration.getJobExplorer(), is(not(instanceOf(CachingJobExplorer.class))));
+		assertThat(monitoringJobExplorer, is(instanceOf(CachingJobExplorer.class)));
+	}
+
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.codecentric.batch.test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+
+import de.codecentric.batch.TestApplication;
+import de.codecentric.batch.registry.LazyJobRegistrar;
+
+/**
+ * This test class starts the application with lazily created job contexts, runs a job and checks that its context is
+ * created on the launch and closed again after the ttl.
+ */
+@SpringBootTest(classes = TestApplication.class, webEnvironment = WebEnvironment.RANDOM_PORT, properties = {
+		"batch.config.lazy.enabled=true", "batch.config.lazy.ttl=200ms" })
+public class LazyJobRegistrarIntegrationTest {
+
+	private TestRestTemplate restTemplate = new TestRestTemplate();
+
+	@Autowired
+	private LazyJobRegistrar lazyJobRegistrar;
+
+	@Value("${local.server.port}")
+	int port;
+
+	@Test
+	public void testRunLazyJob() throws InterruptedException {
+		// Given
+		@SuppressWarnings("unchecked")
+		List<String> jobNames = restTemplate.getForObject("http://localhost:" + port + "/batch/monitoring/jobs",
+				List.class);
+		assertThat(jobNames.contains("simpleJob"), is(true));
+		assertThat(jobNames.contains("flatFileJobXml"), is(true));
+		assertThat(lazyJobRegistrar.isLazy("simpleJob"), is(true));
+		assertThat(lazyJobRegistrar.getActiveContexts(), is(0L));
+		// When
+		Long executionId = restTemplate.postForObject("http://localhost:" + port + "/batch/operations/jobs/simpleJob",
+				"", Long.class);
+		while (!restTemplate
+				.getForObject("http://localhost:" + port + "/batch/operations/jobs/executions/{executionId}",
+						String.class, executionId)
+				.equals("COMPLETED")) {
+			Thread.sleep(100);
+		}
+		// Then
+		String log = restTemplate.getForObject(
+				"http://localhost:" + port + "/batch/operations/jobs/executions/{executionId}/log", String.class,
+				executionId);
+		assertThat(log.length() > 20, is(true));
+		for (int i = 0; i < 50 && lazyJobRegistrar.getActiveContexts() > 0; i++) {
+			Thread.sleep(100);
+		}
+		assertThat(lazyJobRegistrar.getActiveContexts(), is(0L));
+	}
+
+}
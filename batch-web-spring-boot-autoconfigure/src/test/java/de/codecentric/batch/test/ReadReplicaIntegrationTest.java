@@ -0,0 +1,58 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.codecentric.batch.test;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.core.explore.JobExplorer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import de.codecentric.batch.TestApplication;
+import de.codecentric.batch.configuration.TaskExecutorBatchConfiguration;
+import de.codecentric.batch.repository.RoutingJobExplorer;
+
+/**
+ * This test class starts the application with a read replica and checks that only the monitoring endpoint reads from
+ * it, while the JobExplorer of the application stays on the primary.
+ */
+@SpringBootTest(classes = TestApplication.class, properties = { "spring.datasource.url=jdbc:hsqldb:mem:replica",
+		"spring.datasource.username=sa", "batch.repository.read-datasource.url=jdbc:hsqldb:mem:replica",
+		"batch.repository.read-datasource.username=sa" })
+public class ReadReplicaIntegrationTest {
+
+	@Autowired
+	private JobExplorer jobExplorer;
+
+	@Autowired
+	private TaskExecutorBatchConfiguration batchConfiguration;
+
+	@Test
+	public void readFromReplicaOnlyForMonitoring() throws Exception {
+		// Given
+		// When
+		JobExplorer monitoringJobExplorer = batchConfiguration.getMonitoringJobExplorer();
+		// Then
+		assertThat(jobExplorer, is(not(instanceOf(RoutingJobExplorer.class))));
+		assertThat(batchConfiguration.getJobExplorer(), is(not(instanceOf(RoutingJobExplorer.class))));
+		assertThat(monitoringJobExplorer, is(instanceOf(RoutingJobExplorer.class)));
+	}
+
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.codecentric.batch.test.metrics;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+
+import de.codecentric.batch.MetricsTestApplication;
+import de.codecentric.batch.metrics.MetricsListener;
+import de.codecentric.batch.metrics.StepPhaseMetricsAspect;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.search.Search;
+
+/**
+ * This test class runs a job with profiled phases and checks that the time of its step is broken down into the phases.
+ * The reader, processor and writer of the job aren't ItemStreams, so there is no stream phase.
+ */
+@SpringBootTest(classes = MetricsTestApplication.class, webEnvironment = WebEnvironment.RANDOM_PORT, properties = {
+		"batch.metrics.enabled=true", "batch.metrics.profiling.phases.enabled=true" })
+public class StepPhaseMetricsIntegrationTest {
+
+	private TestRestTemplate restTemplate = new TestRestTemplate();
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@Value("${local.server.port}")
+	int port;
+
+	@Test
+	public void recordPhasesOfStep() throws InterruptedException {
+		// Given
+		// When
+		Long executionId = restTemplate.postForObject(
+				"http://localhost:" + port + "/batch/operations/jobs/simpleBatchMetricsJob", "", Long.class);
+		while (!restTemplate
+				.getForObject("http://localhost:" + port + "/batch/operations/jobs/executions/{executionId}",
+						String.class, executionId)
+				.equals("COMPLETED")) {
+			Thread.sleep(100);
+		}
+		// Then
+		for (String phase : new String[] { StepPhaseMetricsAspect.READ, StepPhaseMetricsAspect.PROCESS,
+				StepPhaseMetricsAspect.WRITE, StepPhaseMetricsAspect.COMMIT, StepPhaseMetricsAspect.REPOSITORY,
+				StepPhaseMetricsAspect.LISTENER }) {
+			Timer phaseTimer = phaseTimer(phase).timer();
+			assertThat(phase, phaseTimer, is(notNullValue()));
+			assertThat(phase, phaseTimer.count(), greaterThan(0L));
+		}
+		assertThat(phaseTimer(StepPhaseMetricsAspect.STREAM).timer(), is(nullValue()));
+	}
+
+	private Search phaseTimer(String phase) {
+		return meterRegistry.find(MetricsListener.METRIC_NAME + ".phase")//
+				.tag("context", "simpleBatchMetricsJob.simpleBatchMetricsStep")//
+				.tag("phase", phase);
+	}
+
+}
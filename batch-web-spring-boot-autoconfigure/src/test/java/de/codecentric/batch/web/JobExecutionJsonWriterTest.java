@@ -0,0 +1,100 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.codecentric.batch.web;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobInstance;
+import org.springframework.batch.core.JobParameters;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.item.ExecutionContext;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class JobExecutionJsonWriterTest {
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+	private final JobExecutionJsonWriter writer = new JobExecutionJsonWriter(objectMapper);
+
+	@Test
+	public void writeSelectedFieldsOnly() throws Exception {
+		// Given
+		JobExecution jobExecution = createJobExecution();
+		// When
+		JsonNode json = write(jobExecution, "status,stepExecutions.stepName", true);
+		// Then
+		assertThat(json.size(), is(2));
+		assertThat(json.get("status").asText(), is("COMPLETED"));
+		assertThat(json.get("stepExecutions").size(), is(2));
+		assertThat(json.get("stepExecutions").get(1).size(), is(1));
+		assertThat(json.get("stepExecutions").get(1).get("stepName").asText(), is("step2"));
+	}
+
+	@Test
+	public void loadExecutionContextsOneByOne() throws Exception {
+		// Given
+		JobExecution jobExecution = createJobExecution();
+		List<String> loaded = new ArrayList<>();
+		// When
+		JsonNode withoutContexts = write(jobExecution, null, false);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		writer.write(jobExecution, null, true, stepExecution -> {
+			loaded.add(stepExecution.getStepName());
+			ExecutionContext executionContext = new ExecutionContext();
+			executionContext.putString("loaded", stepExecution.getStepName());
+			return executionContext;
+		}, out);
+		JsonNode withContexts = objectMapper.readTree(out.toByteArray());
+		// Then
+		assertThat(withoutContexts.get("executionContext"), is(nullValue()));
+		assertThat(withoutContexts.get("stepExecutions").get(0).get("executionContext"), is(nullValue()));
+		assertThat(withoutContexts.get("stepExecutions").get(0).get("readCount").asInt(), is(5));
+		assertThat(loaded.size(), is(2));
+		assertThat(withContexts.get("stepExecutions").get(0).get("executionContext").get("empty").asBoolean(),
+				is(false));
+		// the loaded contexts are not kept
+		assertThat(jobExecution.getStepExecutions().iterator().next().getExecutionContext().isEmpty(), is(true));
+	}
+
+	private JsonNode write(JobExecution jobExecution, String fields, boolean executionContext) throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		writer.write(jobExecution, fields, executionContext, null, out);
+		return objectMapper.readTree(out.toByteArray());
+	}
+
+	private JobExecution createJobExecution() {
+		JobExecution jobExecution = new JobExecution(new JobInstance(1L, "job"), 2L, new JobParameters(), null);
+		jobExecution.setStatus(BatchStatus.COMPLETED);
+		jobExecution.getExecutionContext().putString("job", "context");
+		StepExecution step1 = jobExecution.createStepExecution("step1");
+		step1.setReadCount(5);
+		jobExecution.createStepExecution("step2");
+		return jobExecution;
+	}
+
+}
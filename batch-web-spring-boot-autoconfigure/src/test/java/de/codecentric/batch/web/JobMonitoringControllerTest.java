@@ -0,0 +1,103 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.codecentric.batch.web;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Collections;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobParameters;
+import org.springframework.batch.core.explore.support.JobExplorerFactoryBean;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.batch.core.repository.dao.Jackson2ExecutionContextStringSerializer;
+import org.springframework.batch.core.repository.support.JobRepositoryFactoryBean;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import de.codecentric.batch.monitoring.ProtocolStore;
+import de.codecentric.batch.repository.CachingJobExplorer;
+import de.codecentric.batch.repository.JdbcJobExecutionReader;
+
+public class JobMonitoringControllerTest {
+
+	@TempDir
+	Path directory;
+
+	@Test
+	public void rejectStatisticsOfLessThanOneRun() throws Exception {
+		// Given
+		MockMvc mockMvc = MockMvcBuilders.standaloneSetup(new JobMonitoringController(null, null, null,
+				new ProtocolStore(directory, Collections.emptyList())))
+				.addPlaceholderValue("batch.web.monitoring.base", "/batch/monitoring").build();
+		// When
+		for (String runs : new String[] { "0", "-1" }) {
+			// Then
+			mockMvc.perform(get("/batch/monitoring/jobs/simpleJob/statistics").param("runs", runs))
+					.andExpect(status().isBadRequest());
+		}
+		mockMvc.perform(get("/batch/monitoring/jobs/simpleJob/statistics").param("runs", "1")).andExpect(status().isOk());
+	}
+
+	@Test
+	public void serveFinishedJobExecutionFromExplorerCache() throws Exception {
+		// Given
+		EmbeddedDatabase database = new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.HSQL)
+				.generateUniqueName(true).addScript("classpath:org/springframework/batch/core/schema-hsqldb.sql")
+				.build();
+		JobRepositoryFactoryBean jobRepositoryFactory = new JobRepositoryFactoryBean();
+		jobRepositoryFactory.setDataSource(database);
+		jobRepositoryFactory.setTransactionManager(new DataSourceTransactionManager(database));
+		jobRepositoryFactory.afterPropertiesSet();
+		JobRepository jobRepository = jobRepositoryFactory.getObject();
+		JobExplorerFactoryBean jobExplorerFactory = new JobExplorerFactoryBean();
+		jobExplorerFactory.setDataSource(database);
+		jobExplorerFactory.afterPropertiesSet();
+		JobMonitoringController controller = new JobMonitoringController(null, new CachingJobExplorer(
+				jobExplorerFactory.getObject(), database, "BATCH_", 10, Duration.ofMinutes(1)), null);
+		controller.setJobExecutionReader(
+				new JdbcJobExecutionReader(database, "BATCH_", new Jackson2ExecutionContextStringSerializer()));
+		MockMvc mockMvc = MockMvcBuilders.standaloneSetup(controller)
+				.addPlaceholderValue("batch.web.monitoring.base", "/batch/monitoring").build();
+		JobExecution jobExecution = jobRepository.createJobExecution("job", new JobParameters());
+		jobExecution.setStatus(BatchStatus.COMPLETED);
+		jobExecution.setExitStatus(ExitStatus.COMPLETED);
+		jobRepository.update(jobExecution);
+		String url = "/batch/monitoring/jobs/executions/" + jobExecution.getId();
+		// When
+		mockMvc.perform(get(url)).andExpect(status().isOk());
+		// answered from the cache only
+		database.shutdown();
+		// Then
+		mockMvc.perform(get(url)).andExpect(status().isOk()).andExpect(jsonPath("$.status").value("COMPLETED"));
+		assertThat(controller.findExecution(jobExecution.getId()).getStatus(), is(BatchStatus.COMPLETED));
+	}
+
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.codecentric.batch.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobInstance;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.scope.context.StepSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import de.codecentric.batch.metrics.BatchMetricsImpl;
+
+/**
+ * Measures the cost of counting business metrics with {@link BatchMetricsImpl}, both directly and delayed until the
+ * commit of a chunk transaction.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BatchMetricsBenchmark {
+
+	/**
+	 * Number of increments done inside one chunk transaction.
+	 */
+	@Param({ "1", "100" })
+	private int incrementsPerTransaction;
+
+	private BatchMetricsImpl batchMetrics;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		batchMetrics = new BatchMetricsImpl();
+		StepSynchronizationManager
+				.register(new StepExecution("step", new JobExecution(new JobInstance(1L, "jobname"), 1L, null, null)));
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		StepSynchronizationManager.release();
+	}
+
+	@Benchmark
+	public void incrementNonTransactional() {
+		batchMetrics.incrementNonTransactional("counter.benchmark", 1L);
+	}
+
+	@Benchmark
+	public void incrementTransactional() {
+		TransactionSynchronizationManager.initSynchronization();
+		try {
+			for (int i = 0; i < incrementsPerTransaction; i++) {
+				batchMetrics.increment("counter.benchmark", 1L);
+			}
+			TransactionSynchronizationUtils.triggerAfterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+		} finally {
+			TransactionSynchronizationManager.clearSynchronization();
+		}
+	}
+
+}
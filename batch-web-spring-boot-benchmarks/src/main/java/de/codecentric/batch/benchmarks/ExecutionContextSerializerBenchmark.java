@@ -0,0 +1,103 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.codecentric.batch.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.batch.core.repository.ExecutionContextSerializer;
+import org.springframework.batch.core.repository.dao.Jackson2ExecutionContextStringSerializer;
+
+import de.codecentric.batch.repository.BinaryExecutionContextSerializer;
+
+/**
+ * Measures writing and reading a step ExecutionContext holding metric counters, like the ones of the BatchMetrics, and
+ * the state of an ItemStream with the Jackson serializer of Spring Batch and the
+ * {@link BinaryExecutionContextSerializer}. The size of the serialized context is printed on setup.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ExecutionContextSerializerBenchmark {
+
+	/**
+	 * JSON, BINARY with the default compression threshold or BINARY_UNCOMPRESSED.
+	 */
+	@Param({ "JSON", "BINARY", "BINARY_UNCOMPRESSED" })
+	private String serializerType;
+
+	/**
+	 * Number of metric counters in the ExecutionContext.
+	 */
+	@Param({ "10", "200" })
+	private int counters;
+
+	private ExecutionContextSerializer serializer;
+
+	private Map<String, Object> context;
+
+	private byte[] serialized;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		if (serializerType.equals("JSON")) {
+			serializer = new Jackson2ExecutionContextStringSerializer();
+		} else {
+			serializer = new BinaryExecutionContextSerializer(serializerType.equals("BINARY") ? 1024 : -1);
+		}
+		context = new HashMap<>();
+		context.put("FlatFileItemReader.read.count", 123456);
+		context.put("resource", "file:/tmp/input.csv");
+		for (int i = 0; i < counters; i++) {
+			context.put("batch.metrics.counter." + i, i * 1000L);
+		}
+		serialized = serialize();
+		System.out.println(serializerType + " with " + counters + " counters: " + serialized.length + " bytes");
+	}
+
+	@Benchmark
+	public byte[] serialize() throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		serializer.serialize(context, out);
+		return out.toByteArray();
+	}
+
+	@Benchmark
+	public Map<String, Object> deserialize() throws IOException {
+		return serializer.deserialize(new ByteArrayInputStream(serialized));
+	}
+
+}
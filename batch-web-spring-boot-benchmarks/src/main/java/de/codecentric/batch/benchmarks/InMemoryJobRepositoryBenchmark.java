@@ -0,0 +1,122 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.codecentric.batch.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.JobParametersBuilder;
+import org.springframework.batch.core.explore.JobExplorer;
+import org.springframework.batch.core.explore.support.MapJobExplorerFactoryBean;
+import org.springframework.batch.core.job.builder.JobBuilder;
+import org.springframework.batch.core.launch.support.SimpleJobLauncher;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.batch.core.repository.support.MapJobRepositoryFactoryBean;
+import org.springframework.batch.core.step.builder.StepBuilder;
+import org.springframework.batch.item.support.ListItemReader;
+import org.springframework.batch.support.transaction.ResourcelessTransactionManager;
+
+import de.codecentric.batch.repository.InMemoryJobStore;
+
+/**
+ * Runs jobs with a chunk oriented step from several threads against the Map based JobRepository of Spring Batch and
+ * the {@link InMemoryJobStore}, reading each finished job execution via the JobExplorer like the monitoring endpoint.
+ * The in-memory store keeps the last 1000 finished job executions, the Map based repository keeps all of them.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+@Fork(1)
+@State(Scope.Benchmark)
+public class InMemoryJobRepositoryBenchmark {
+
+	private static final int ITEMS = 100;
+
+	/**
+	 * MAP or IN_MEMORY.
+	 */
+	@Param({ "MAP", "IN_MEMORY" })
+	public String repository;
+
+	private final AtomicLong run = new AtomicLong();
+
+	private final ResourcelessTransactionManager transactionManager = new ResourcelessTransactionManager();
+
+	private JobRepository jobRepository;
+
+	private JobExplorer jobExplorer;
+
+	private SimpleJobLauncher jobLauncher;
+
+	private List<Integer> items;
+
+	@Setup
+	public void setup() throws Exception {
+		if (repository.equals("MAP")) {
+			MapJobRepositoryFactoryBean jobRepositoryFactory = new MapJobRepositoryFactoryBean(transactionManager);
+			jobRepositoryFactory.afterPropertiesSet();
+			jobRepository = jobRepositoryFactory.getObject();
+			MapJobExplorerFactoryBean jobExplorerFactory = new MapJobExplorerFactoryBean(jobRepositoryFactory);
+			jobExplorerFactory.afterPropertiesSet();
+			jobExplorer = jobExplorerFactory.getObject();
+		} else {
+			InMemoryJobStore jobStore = new InMemoryJobStore(1000);
+			jobRepository = jobStore.getJobRepository();
+			jobExplorer = jobStore.getJobExplorer();
+		}
+		jobLauncher = new SimpleJobLauncher();
+		jobLauncher.setJobRepository(jobRepository);
+		jobLauncher.afterPropertiesSet();
+		items = new ArrayList<>();
+		for (int i = 0; i < ITEMS; i++) {
+			items.add(i);
+		}
+	}
+
+	@Benchmark
+	public BatchStatus runJob() throws Exception {
+		// the ListItemReader consumes its items, so the job is built for every run
+		Job job = new JobBuilder("inMemoryJob").repository(jobRepository)
+				.start(new StepBuilder("inMemoryStep").repository(jobRepository).transactionManager(transactionManager)
+						.<Integer, Integer> chunk(10).reader(new ListItemReader<>(new ArrayList<>(items)))
+						.writer(chunk -> {
+						}).build())
+				.build();
+		Long executionId = jobLauncher
+				.run(job, new JobParametersBuilder().addLong("run", run.incrementAndGet()).toJobParameters()).getId();
+		return jobExplorer.getJobExecution(executionId).getStatus();
+	}
+
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.codecentric.batch.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.FileSystemUtils;
+
+import de.codecentric.batch.registry.LazyJobRegistrar;
+import de.codecentric.batch.registry.ParallelJobRegistrar;
+
+/**
+ * Measures the startup of an application with the given number of XML job configurations, each with a chunk oriented
+ * step, once with the job contexts created one after another by the AutomaticJobRegistrar, once created in parallel by
+ * the {@link ParallelJobRegistrar} and once registered by the {@link LazyJobRegistrar} without creating them.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+@State(Scope.Benchmark)
+public class JobContextRefreshBenchmark {
+
+	private static final String JOB_XML = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+			+ "<beans xmlns=\"http://www.springframework.org/schema/beans\"\n"
+			+ "	xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\"\n"
+			+ "	xmlns:batch=\"http://www.springframework.org/schema/batch\"\n"
+			+ "	xsi:schemaLocation=\"http://www.springframework.org/schema/beans https://www.springframework.org/schema/beans/spring-beans.xsd\n"
+			+ "		http://www.springframework.org/schema/batch https://www.springframework.org/schema/batch/spring-batch.xsd\">\n"
+			+ "	<batch:job id=\"%1$s\">\n" //
+			+ "		<batch:step id=\"%1$s.step\">\n" //
+			+ "			<batch:tasklet>\n" //
+			+ "				<batch:chunk reader=\"reader\" writer=\"writer\" commit-interval=\"10\" />\n"
+			+ "			</batch:tasklet>\n" //
+			+ "		</batch:step>\n" //
+			+ "	</batch:job>\n" //
+			+ "	<bean id=\"reader\" class=\"org.springframework.batch.item.support.ListItemReader\">\n"
+			+ "		<constructor-arg><list><value>item</value></list></constructor-arg>\n" //
+			+ "	</bean>\n" //
+			+ "	<bean id=\"writer\" class=\"org.springframework.batch.item.support.ListItemWriter\" />\n"
+			+ "</beans>\n";
+
+	@Param({ "50", "200", "500" })
+	private int jobs;
+
+	@Param({ "sequential", "parallel", "lazy" })
+	private String bootstrap;
+
+	private File directory;
+
+	private ConfigurableApplicationContext context;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		directory = Files.createTempDirectory("job-context-refresh").toFile();
+		for (int i = 0; i < jobs; i++) {
+			String jobName = "job" + i;
+			Files.write(new File(directory, jobName + ".xml").toPath(),
+					String.format(JOB_XML, jobName).getBytes(StandardCharsets.UTF_8));
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		FileSystemUtils.deleteRecursively(directory);
+	}
+
+	@TearDown(Level.Iteration)
+	public void closeApplication() {
+		if (context != null) {
+			context.close();
+			context = null;
+		}
+	}
+
+	@Benchmark
+	public ConfigurableApplicationContext start() {
+		context = new SpringApplicationBuilder(BenchmarkApplication.class).web(WebApplicationType.NONE).run(
+				"--batch.config.path-xml=" + directory.toURI() + "*.xml",
+				"--batch.config.package-javaconfig=de.codecentric.batch.benchmarks.nojobs",
+				"--batch.config.parallel-refresh.enabled=" + "parallel".equals(bootstrap),
+				"--batch.config.lazy.enabled=" + "lazy".equals(bootstrap), "--spring.main.banner-mode=off",
+				"--spring.batch.jdbc.initialize-schema=embedded");
+		return context;
+	}
+
+	@Configuration
+	@EnableAutoConfiguration
+	static class BenchmarkApplication {
+	}
+
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.codecentric.batch.benchmarks;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobParameters;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.explore.JobExplorer;
+import org.springframework.batch.core.explore.support.JobExplorerFactoryBean;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.batch.core.repository.dao.Jackson2ExecutionContextStringSerializer;
+import org.springframework.batch.core.repository.support.JobRepositoryFactoryBean;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import de.codecentric.batch.configuration.StepExecutionJacksonMixIn;
+import de.codecentric.batch.repository.JdbcJobExecutionReader;
+import de.codecentric.batch.web.JobExecutionJsonWriter;
+
+/**
+ * Measures reading a job execution with lots of step executions having large ExecutionContexts from the database and
+ * writing it as JSON, like JobMonitoringController.writeExecution does. FULL reads all contexts with the JobExplorer
+ * and writes the job execution with the ObjectMapper, like before the {@link JobExecutionJsonWriter}. STREAMING writes
+ * the same JSON, but loads the contexts one by one while writing. NO_CONTEXT doesn't load the step contexts at all,
+ * and FIELDS writes only the status of the job execution and the name and counts of the step executions. The size of
+ * the response is printed on setup.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class JobExecutionJsonBenchmark {
+
+	private static final String FIELDS = "status,stepExecutions.stepName,stepExecutions.readCount,stepExecutions.writeCount";
+
+	/**
+	 * FULL, STREAMING, NO_CONTEXT or FIELDS.
+	 */
+	@Param({ "FULL", "STREAMING", "NO_CONTEXT", "FIELDS" })
+	private String mode;
+
+	/**
+	 * Number of step executions, like the partitions of a partitioned step.
+	 */
+	@Param({ "500" })
+	private int steps;
+
+	private EmbeddedDatabase database;
+
+	private JobExplorer jobExplorer;
+
+	private JdbcJobExecutionReader jobExecutionReader;
+
+	private ObjectMapper objectMapper;
+
+	private JobExecutionJsonWriter jobExecutionJsonWriter;
+
+	private Long executionId;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		database = new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.HSQL).generateUniqueName(true)
+				.addScript("classpath:org/springframework/batch/core/schema-hsqldb.sql").build();
+		JobRepositoryFactoryBean jobRepositoryFactory = new JobRepositoryFactoryBean();
+		jobRepositoryFactory.setDataSource(database);
+		jobRepositoryFactory.setTransactionManager(new DataSourceTransactionManager(database));
+		jobRepositoryFactory.afterPropertiesSet();
+		JobRepository jobRepository = jobRepositoryFactory.getObject();
+		JobExplorerFactoryBean jobExplorerFactory = new JobExplorerFactoryBean();
+		jobExplorerFactory.setDataSource(database);
+		jobExplorerFactory.afterPropertiesSet();
+		jobExplorer = jobExplorerFactory.getObject();
+		jobExecutionReader = new JdbcJobExecutionReader(database, "BATCH_",
+				new Jackson2ExecutionContextStringSerializer());
+		objectMapper = new ObjectMapper().addMixIn(StepExecution.class, StepExecutionJacksonMixIn.class);
+		jobExecutionJsonWriter = new JobExecutionJsonWriter(objectMapper);
+
+		JobExecution jobExecution = jobRepository.createJobExecution("job", new JobParameters());
+		List<StepExecution> stepExecutions = new ArrayList<>();
+		for (int i = 0; i < steps; i++) {
+			StepExecution stepExecution = jobExecution.createStepExecution("step:partition" + i);
+			stepExecution.setReadCount(1000);
+			stepExecution.setWriteCount(1000);
+			for (int j = 0; j < 50; j++) {
+				stepExecution.getExecutionContext().putLong("batch.metrics.counter." + j, j * 1000L);
+			}
+			stepExecutions.add(stepExecution);
+		}
+		jobRepository.addAll(stepExecutions);
+		for (StepExecution stepExecution : stepExecutions) {
+			jobRepository.updateExecutionContext(stepExecution);
+		}
+		jobExecution.setStatus(BatchStatus.COMPLETED);
+		jobRepository.update(jobExecution);
+		executionId = jobExecution.getId();
+
+		CountingOutputStream out = new CountingOutputStream();
+		findExecution(out);
+		System.out.println(mode + " with " + steps + " step executions: " + out.count + " bytes");
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		database.shutdown();
+	}
+
+	@Benchmark
+	public long findExecution() throws IOException {
+		CountingOutputStream out = new CountingOutputStream();
+		findExecution(out);
+		return out.count;
+	}
+
+	private void findExecution(OutputStream out) throws IOException {
+		switch (mode) {
+		case "FULL":
+			objectMapper.writeValue(out, jobExplorer.getJobExecution(executionId));
+			break;
+		case "STREAMING":
+			jobExecutionJsonWriter.write(jobExecutionReader.getJobExecution(executionId), null, true,
+					jobExecutionReader::getExecutionContext, out);
+			break;
+		case "NO_CONTEXT":
+			jobExecutionJsonWriter.write(jobExecutionReader.getJobExecution(executionId), null, false,
+					jobExecutionReader::getExecutionContext, out);
+			break;
+		default:
+			jobExecutionJsonWriter.write(jobExecutionReader.getJobExecution(executionId), FIELDS, true,
+					jobExecutionReader::getExecutionContext, out);
+		}
+	}
+
+	private static class CountingOutputStream extends OutputStream {
+
+		private long count;
+
+		@Override
+		public void write(int b) {
+			count++;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) {
+			count += len;
+		}
+
+	}
+
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.codecentric.batch.benchmarks;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.configuration.annotation.JobBuilderFactory;
+import org.springframework.batch.core.configuration.annotation.StepBuilderFactory;
+import org.springframework.batch.core.configuration.support.MapJobRegistry;
+import org.springframework.batch.core.configuration.support.ReferenceJobFactory;
+import org.springframework.batch.core.converter.DefaultJobParametersConverter;
+import org.springframework.batch.core.explore.JobExplorer;
+import org.springframework.batch.core.explore.support.JobExplorerFactoryBean;
+import org.springframework.batch.core.explore.support.MapJobExplorerFactoryBean;
+import org.springframework.batch.core.launch.support.SimpleJobLauncher;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.batch.core.repository.support.JobRepositoryFactoryBean;
+import org.springframework.batch.core.repository.support.MapJobRepositoryFactoryBean;
+import org.springframework.batch.repeat.RepeatStatus;
+import org.springframework.batch.support.transaction.ResourcelessTransactionManager;
+import org.springframework.beans.DirectFieldAccessor;
+import org.springframework.core.task.SyncTaskExecutor;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+
+import de.codecentric.batch.web.JobOperationsController;
+
+/**
+ * Measures starting a job through {@link JobOperationsController#launch(String, MultiValueMap)}, including the lookup
+ * in the JobRegistry, the parameter conversion, the creation of the JobExecution in the JobRepository and the execution
+ * of a job with a single no-op step. The job is run synchronously, so the whole round trip through the repository is
+ * measured, once against the Map based repository and once against an embedded HSQLDB.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class JobOperationsControllerBenchmark {
+
+	private static final String JOB_NAME = "benchmarkJob";
+
+	@Param({ "map", "hsqldb" })
+	private String repository;
+
+	private EmbeddedDatabase database;
+
+	private JobOperationsController controller;
+
+	private long runId;
+
+	@Setup(Level.Iteration)
+	@SuppressWarnings("deprecation")
+	public void setUp() throws Exception {
+		PlatformTransactionManager transactionManager;
+		JobRepository jobRepository;
+		JobExplorer jobExplorer;
+		if ("map".equals(repository)) {
+			transactionManager = new ResourcelessTransactionManager();
+			MapJobRepositoryFactoryBean jobRepositoryFactory = new MapJobRepositoryFactoryBean(transactionManager);
+			jobRepositoryFactory.afterPropertiesSet();
+			jobRepository = jobRepositoryFactory.getObject();
+			MapJobExplorerFactoryBean jobExplorerFactory = new MapJobExplorerFactoryBean(jobRepositoryFactory);
+			jobExplorerFactory.afterPropertiesSet();
+			jobExplorer = jobExplorerFactory.getObject();
+		} else {
+			database = new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.HSQL)
+					.setName(UUID.randomUUID().toString())
+					.addScript("classpath:org/springframework/batch/core/schema-hsqldb.sql").build();
+			transactionManager = new DataSourceTransactionManager(database);
+			JobRepositoryFactoryBean jobRepositoryFactory = new JobRepositoryFactoryBean();
+			jobRepositoryFactory.setDataSource(database);
+			jobRepositoryFactory.setTransactionManager(transactionManager);
+			jobRepositoryFactory.afterPropertiesSet();
+			jobRepository = jobRepositoryFactory.getObject();
+			JobExplorerFactoryBean jobExplorerFactory = new JobExplorerFactoryBean();
+			jobExplorerFactory.setDataSource(database);
+			jobExplorerFactory.afterPropertiesSet();
+			jobExplorer = jobExplorerFactory.getObject();
+		}
+
+		SimpleJobLauncher jobLauncher = new SimpleJobLauncher();
+		jobLauncher.setJobRepository(jobRepository);
+		jobLauncher.setTaskExecutor(new SyncTaskExecutor());
+		jobLauncher.afterPropertiesSet();
+
+		MapJobRegistry jobRegistry = new MapJobRegistry();
+		jobRegistry.register(new ReferenceJobFactory(createJob(jobRepository, transactionManager)));
+
+		controller = new JobOperationsController(null, jobExplorer, jobRegistry, jobRepository, jobLauncher, null);
+		new DirectFieldAccessor(controller).setPropertyValue("jobParametersConverter",
+				new DefaultJobParametersConverter());
+	}
+
+	@TearDown(Level.Iteration)
+	public void tearDown() {
+		if (database != null) {
+			database.shutdown();
+			database = null;
+		}
+	}
+
+	@Benchmark
+	public String launch() throws Exception {
+		MultiValueMap<String, String> payload = new LinkedMultiValueMap<>();
+		payload.add(JobOperationsController.JOB_PARAMETERS, "run.id(long)=" + (++runId));
+		return controller.launch(JOB_NAME, payload);
+	}
+
+	private static Job createJob(JobRepository jobRepository, PlatformTransactionManager transactionManager) {
+		StepBuilderFactory steps = new StepBuilderFactory(jobRepository, transactionManager);
+		JobBuilderFactory jobs = new JobBuilderFactory(jobRepository);
+		return jobs.get(JOB_NAME)
+				.start(steps.get("step").tasklet((contribution, chunkContext) -> RepeatStatus.FINISHED).build())
+				.build();
+	}
+
+}
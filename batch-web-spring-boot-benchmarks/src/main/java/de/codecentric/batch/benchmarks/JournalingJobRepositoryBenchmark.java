@@ -0,0 +1,149 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.codecentric.batch.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.JobParametersBuilder;
+import org.springframework.batch.core.job.builder.JobBuilder;
+import org.springframework.batch.core.launch.support.SimpleJobLauncher;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.batch.core.repository.dao.Jackson2ExecutionContextStringSerializer;
+import org.springframework.batch.core.repository.support.JobRepositoryFactoryBean;
+import org.springframework.batch.core.step.builder.StepBuilder;
+import org.springframework.batch.item.support.ListItemReader;
+import org.springframework.batch.support.transaction.ResourcelessTransactionManager;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import de.codecentric.batch.repository.JournalingJobStore;
+
+/**
+ * Runs a job with a chunk oriented step against a {@link JournalingJobStore} with and without sync, and against a JDBC
+ * repository on a file based HSQLDB, the embedded SQL database alternative for keeping the batch meta data on a node
+ * without a shared database.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JournalingJobRepositoryBenchmark {
+
+	private static final int ITEMS = 1000;
+
+	/**
+	 * JOURNAL, JOURNAL_SYNC or HSQLDB_FILE.
+	 */
+	@Param({ "JOURNAL", "JOURNAL_SYNC", "HSQLDB_FILE" })
+	public String repository;
+
+	private Path directory;
+
+	private JournalingJobStore jobStore;
+
+	private DriverManagerDataSource dataSource;
+
+	private JobRepository jobRepository;
+
+	private PlatformTransactionManager transactionManager;
+
+	private SimpleJobLauncher jobLauncher;
+
+	private List<Integer> items;
+
+	private long run;
+
+	@Setup
+	public void setup() throws Exception {
+		directory = Files.createTempDirectory("journal-benchmark");
+		if (repository.equals("HSQLDB_FILE")) {
+			dataSource = new DriverManagerDataSource("jdbc:hsqldb:file:" + directory.resolve("db"), "sa", "");
+			new ResourceDatabasePopulator(new ClassPathResource("org/springframework/batch/core/schema-hsqldb.sql"))
+					.execute(dataSource);
+			transactionManager = new DataSourceTransactionManager(dataSource);
+			JobRepositoryFactoryBean factory = new JobRepositoryFactoryBean();
+			factory.setDataSource(dataSource);
+			factory.setTransactionManager(transactionManager);
+			factory.afterPropertiesSet();
+			jobRepository = factory.getObject();
+		} else {
+			jobStore = new JournalingJobStore(1000, directory, new Jackson2ExecutionContextStringSerializer(),
+					16 * 1024 * 1024, repository.equals("JOURNAL_SYNC"));
+			transactionManager = new ResourcelessTransactionManager();
+			jobRepository = jobStore.getJobRepository();
+		}
+		jobLauncher = new SimpleJobLauncher();
+		jobLauncher.setJobRepository(jobRepository);
+		jobLauncher.afterPropertiesSet();
+		items = new ArrayList<>();
+		for (int i = 0; i < ITEMS; i++) {
+			items.add(i);
+		}
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		if (jobStore != null) {
+			jobStore.close();
+		} else {
+			new ResourceDatabasePopulator(new ClassPathResource("org/springframework/batch/core/schema-drop-hsqldb.sql"))
+					.execute(dataSource);
+		}
+		try (Stream<Path> files = Files.walk(directory)) {
+			files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+		}
+	}
+
+	@Benchmark
+	public BatchStatus runJob() throws Exception {
+		// the ListItemReader consumes its items, so the job is built for every run
+		Job job = new JobBuilder("journalJob").repository(jobRepository)
+				.start(new StepBuilder("journalStep").repository(jobRepository).transactionManager(transactionManager)
+						.<Integer, Integer> chunk(10).reader(new ListItemReader<>(new ArrayList<>(items)))
+						.writer(chunk -> {
+						}).build())
+				.build();
+		return jobLauncher.run(job, new JobParametersBuilder().addLong("run", run++).toJobParameters()).getStatus();
+	}
+
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.codecentric.batch.benchmarks;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import de.codecentric.batch.scheduling.concurrent.MdcThreadPoolTaskExecutor;
+
+/**
+ * Measures wrapping and running a task with {@link MdcThreadPoolTaskExecutor#wrap(Runnable, Map)}, which copies the MDC
+ * into and out of the executing thread.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MdcThreadPoolTaskExecutorBenchmark {
+
+	/**
+	 * Number of entries in the MDC handed over to the task.
+	 */
+	@Param({ "1", "10" })
+	private int contextSize;
+
+	private Map<String, String> context;
+
+	private Runnable task;
+
+	@Setup(Level.Trial)
+	public void setUp(Blackhole blackhole) {
+		context = new HashMap<>();
+		for (int i = 0; i < contextSize; i++) {
+			context.put("key" + i, "value" + i);
+		}
+		task = () -> blackhole.consume(context);
+	}
+
+	@Benchmark
+	public void runDirect() {
+		task.run();
+	}
+
+	@Benchmark
+	public void wrapAndRun() {
+		MdcThreadPoolTaskExecutor.wrap(task, context).run();
+	}
+
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.codecentric.batch.benchmarks;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobInstance;
+import org.springframework.batch.core.JobParametersBuilder;
+import org.springframework.batch.core.StepExecution;
+
+import de.codecentric.batch.listener.ProtocolListener;
+import de.codecentric.batch.listener.ProtocolWriter;
+import de.codecentric.batch.listener.ProtocolWriter.Format;
+
+/**
+ * Measures rendering the job protocol written by the {@link ProtocolListener} with the {@link ProtocolWriter} in both
+ * formats, once with the default limits and once without limits.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ProtocolListenerBenchmark {
+
+	/**
+	 * Number of step executions, a high number resembles a partitioned step.
+	 */
+	@Param({ "1", "100", "2000" })
+	private int stepExecutions;
+
+	/**
+	 * Number of entries in each ExecutionContext.
+	 */
+	@Param({ "10" })
+	private int contextEntries;
+
+	@Param({ "TEXT", "JSON" })
+	private Format format;
+
+	/**
+	 * Whether the default limits for steps, context entries and value lengths apply.
+	 */
+	@Param({ "true", "false" })
+	private boolean bounded;
+
+	private ProtocolWriter protocolWriter;
+
+	private JobExecution jobExecution;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		protocolWriter = bounded ? new ProtocolWriter(format, 100, 50, 500)
+				: new ProtocolWriter(format, -1, -1, -1);
+		jobExecution = createJobExecution(stepExecutions, contextEntries);
+	}
+
+	@Benchmark
+	public String beforeJob() {
+		return protocolWriter.writeHeader(jobExecution);
+	}
+
+	@Benchmark
+	public String afterJob() {
+		return protocolWriter.writeSummary(jobExecution);
+	}
+
+	static JobExecution createJobExecution(int stepExecutions, int contextEntries) {
+		JobExecution jobExecution = new JobExecution(1L,
+				new JobParametersBuilder().addString("pathToFile", "file:/tmp/input.csv").addLong("run.id", 1L)
+						.toJobParameters());
+		jobExecution.setJobInstance(new JobInstance(1L, "benchmarkJob"));
+		jobExecution.setCreateTime(new Date());
+		jobExecution.setStartTime(new Date());
+		jobExecution.setEndTime(new Date());
+		jobExecution.setExitStatus(ExitStatus.COMPLETED);
+		for (int i = 0; i < contextEntries; i++) {
+			jobExecution.getExecutionContext().putLong("job.counter." + i, i);
+		}
+		for (int s = 0; s < stepExecutions; s++) {
+			StepExecution stepExecution = jobExecution.createStepExecution("step:partition" + s);
+			stepExecution.setId((long) s);
+			stepExecution.setStartTime(new Date());
+			stepExecution.setEndTime(new Date());
+			stepExecution.setReadCount(1000);
+			stepExecution.setWriteCount(990);
+			stepExecution.setCommitCount(100);
+			stepExecution.setFilterCount(10);
+			for (int i = 0; i < contextEntries; i++) {
+				stepExecution.getExecutionContext().putLong("step.counter." + i, i);
+			}
+		}
+		return jobExecution;
+	}
+
+}
@@ -0,0 +1,182 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.codecentric.batch.benchmarks;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobParametersBuilder;
+import org.springframework.batch.core.job.builder.JobBuilder;
+import org.springframework.batch.core.launch.support.SimpleJobLauncher;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.batch.core.repository.support.JobRepositoryFactoryBean;
+import org.springframework.batch.core.step.builder.StepBuilder;
+import org.springframework.batch.item.support.ListItemReader;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+import de.codecentric.batch.repository.CoalescingJobRepository;
+
+/**
+ * Runs a job with a chunk oriented step against a JDBC repository on an embedded HSQLDB, with and without the
+ * {@link CoalescingJobRepository}, and counts the JDBC statements prepared for one job execution.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 20)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RepositoryWriteBehindBenchmark {
+
+	private static final int ITEMS = 1000;
+
+	@Param({ "1", "10" })
+	public int commitInterval;
+
+	@Param({ "false", "true" })
+	public boolean writeBehind;
+
+	private final AtomicLong statements = new AtomicLong();
+
+	private EmbeddedDatabase database;
+
+	private JobRepository jobRepository;
+
+	private DataSourceTransactionManager transactionManager;
+
+	private SimpleJobLauncher jobLauncher;
+
+	private List<Integer> items;
+
+	private long run;
+
+	@Setup
+	public void setup() throws Exception {
+		database = new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.HSQL).generateUniqueName(true)
+				.addScript("classpath:org/springframework/batch/core/schema-hsqldb.sql").build();
+		CountingDataSource dataSource = new CountingDataSource(database, statements);
+		transactionManager = new DataSourceTransactionManager(dataSource);
+		JobRepositoryFactoryBean factory = new JobRepositoryFactoryBean();
+		factory.setDataSource(dataSource);
+		factory.setTransactionManager(transactionManager);
+		factory.afterPropertiesSet();
+		jobRepository = factory.getObject();
+		if (writeBehind) {
+			jobRepository = new CoalescingJobRepository(jobRepository, 10, Duration.ofSeconds(1));
+		}
+		jobLauncher = new SimpleJobLauncher();
+		jobLauncher.setJobRepository(jobRepository);
+		jobLauncher.afterPropertiesSet();
+		items = new ArrayList<>();
+		for (int i = 0; i < ITEMS; i++) {
+			items.add(i);
+		}
+	}
+
+	@TearDown
+	public void tearDown() {
+		database.shutdown();
+	}
+
+	@Benchmark
+	public BatchStatus runJob(Statements counter) throws Exception {
+		// the ListItemReader consumes its items, so the job is built for every run
+		Job job = new JobBuilder("writeBehindJob").repository(jobRepository)
+				.start(new StepBuilder("writeBehindStep").repository(jobRepository)
+						.transactionManager(transactionManager).<Integer, Integer> chunk(commitInterval)
+						.reader(new ListItemReader<>(new ArrayList<>(items))).writer(chunk -> {
+						}).build())
+				.build();
+		statements.set(0);
+		JobExecution jobExecution = jobLauncher.run(job,
+				new JobParametersBuilder().addLong("run", run++).toJobParameters());
+		counter.statements += statements.get();
+		return jobExecution.getStatus();
+	}
+
+	@AuxCounters(AuxCounters.Type.EVENTS)
+	@State(Scope.Thread)
+	public static class Statements {
+
+		public long statements;
+
+		@Setup(Level.Iteration)
+		public void reset() {
+			statements = 0;
+		}
+
+	}
+
+	/**
+	 * Counts the statements prepared on its connections.
+	 */
+	private static class CountingDataSource extends DelegatingDataSource {
+
+		private final AtomicLong statements;
+
+		CountingDataSource(EmbeddedDatabase database, AtomicLong statements) {
+			super(database);
+			this.statements = statements;
+		}
+
+		@Override
+		public Connection getConnection() throws SQLException {
+			Connection connection = super.getConnection();
+			return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(),
+					new Class<?>[] { Connection.class }, (proxy, method, args) -> {
+						if (method.getName().equals("prepareStatement") || method.getName().equals("createStatement")) {
+							statements.incrementAndGet();
+						}
+						try {
+							return method.invoke(connection, args);
+						} catch (InvocationTargetException e) {
+							throw e.getTargetException();
+						}
+					});
+		}
+
+	}
+
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.codecentric.batch.benchmarks;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.codecentric.batch.monitoring.RunningExecutionTracker;
+
+/**
+ * Measures the queries of the {@link RunningExecutionTracker} used by the monitoring endpoint, and the registration of
+ * executions done by every job start and end.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RunningExecutionTrackerBenchmark {
+
+	/**
+	 * Number of executions running on this node.
+	 */
+	@Param({ "10", "1000" })
+	private int runningExecutions;
+
+	/**
+	 * Number of distinct jobs the running executions belong to.
+	 */
+	private static final int JOBS = 10;
+
+	private RunningExecutionTracker tracker;
+
+	private final AtomicLong executionIds = new AtomicLong(Long.MAX_VALUE / 2);
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		tracker = new RunningExecutionTracker();
+		for (long i = 0; i < runningExecutions; i++) {
+			tracker.addRunningExecution("job" + (i % JOBS), i);
+		}
+	}
+
+	@Benchmark
+	public Set<Long> allRunningExecutionIds() {
+		return tracker.getAllRunningExecutionIds();
+	}
+
+	@Benchmark
+	public Set<Long> runningExecutionIdsForJobName() {
+		return tracker.getRunningExecutionIdsForJobName("job1");
+	}
+
+	@Benchmark
+	@Threads(4)
+	public void addAndRemoveExecution() {
+		Long executionId = executionIds.incrementAndGet();
+		tracker.addRunningExecution("job1", executionId);
+		tracker.removeRunningExecution(executionId);
+	}
+
+}
@@ -0,0 +1,298 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.codecentric.batch.benchmarks.throughput;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.sql.DataSource;
+
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.util.FileSystemUtils;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.util.StringUtils;
+import org.springframework.web.client.RestTemplate;
+
+import de.codecentric.batch.filetodb.Application;
+
+/**
+ * End-to-end throughput benchmark importing generated partner files with the flatfileJob of the file-to-db sample.
+ * For every {@link Scenario} the sample application is started with the starter features of the scenario, and then the
+ * job is started via the operations endpoint for every combination of row count, commit interval and thread count.
+ * With more than one thread, the rows are split into one file per thread and imported by job executions running in
+ * parallel.
+ * <p>
+ * For each run the throughput in items per second, the time spent in garbage collection pauses and the allocation rate
+ * of all threads are reported on the console and written as CSV to throughput-result.csv. The console output of the
+ * application is formatted, but discarded while the benchmark runs, the log files and job logs are written to the work
+ * directory and deleted after each run.
+ * <p>
+ * The benchmark is configured with the following system properties:
+ * <ul>
+ * <li>throughput.rows: comma separated row counts, default 1000000,10000000,50000000</li>
+ * <li>throughput.commitIntervals: comma separated commit intervals, default 3,100,1000</li>
+ * <li>throughput.threads: comma separated numbers of parallel job executions, default 1,4</li>
+ * <li>throughput.scenarios: comma separated scenarios, default all of them</li>
+ * <li>throughput.warmupRows: rows imported before the measured runs of each scenario, default 100000</li>
+ * <li>throughput.directory: work directory for the generated files, the job logs and the results, default
+ * target/throughput</li>
+ * </ul>
+ * Note that the sample imports into an in-memory HSQLDB, the PARTNER table is truncated before each run, but the heap
+ * has to be big enough to hold all rows of a run.
+ */
+public class FileToDbThroughputBenchmark {
+
+	private static final String JOB_NAME = "flatfileJob";
+
+	private static final long POLL_INTERVAL_MILLIS = 50;
+
+	private final PrintStream out;
+
+	private final File directory;
+
+	private final File logDirectory;
+
+	private final File inputDirectory;
+
+	private final PartnerFileGenerator fileGenerator;
+
+	private final RestTemplate restTemplate = new RestTemplate();
+
+	private final AtomicLong runIds = new AtomicLong(System.currentTimeMillis());
+
+	private final List<ThroughputResult> results = new ArrayList<>();
+
+	public FileToDbThroughputBenchmark(PrintStream out, File directory) {
+		this.out = out;
+		this.directory = directory;
+		this.logDirectory = new File(directory, "logs");
+		this.inputDirectory = new File(directory, "input");
+		this.fileGenerator = new PartnerFileGenerator(inputDirectory);
+	}
+
+	public static void main(String[] args) throws Exception {
+		List<Long> rows = getLongs("throughput.rows", "1000000,10000000,50000000");
+		List<Long> commitIntervals = getLongs("throughput.commitIntervals", "3,100,1000");
+		List<Long> threads = getLongs("throughput.threads", "1,4");
+		List<Scenario> scenarios = new ArrayList<>();
+		for (String scenario : StringUtils.commaDelimitedListToStringArray(
+				System.getProperty("throughput.scenarios", "baseline,protocol,logfile-separation,metrics,profiling,all"))) {
+			scenarios.add(Scenario.fromDisplayName(scenario));
+		}
+		long warmupRows = Long.getLong("throughput.warmupRows", 100000L);
+		File directory = new File(System.getProperty("throughput.directory", "target/throughput")).getAbsoluteFile();
+
+		FileToDbThroughputBenchmark benchmark = new FileToDbThroughputBenchmark(System.out, directory);
+		benchmark.run(scenarios, rows, commitIntervals, threads, warmupRows);
+	}
+
+	public void run(List<Scenario> scenarios, List<Long> rows, List<Long> commitIntervals, List<Long> threads,
+			long warmupRows) throws Exception {
+		// Generating the files is not part of the measurement
+		out.println("Generating input files in " + inputDirectory);
+		for (Long rowCount : rows) {
+			for (Long threadCount : threads) {
+				fileGenerator.getFiles(rowCount, threadCount.intValue());
+			}
+		}
+		int maxThreads = Collections.max(threads).intValue();
+		for (Scenario scenario : scenarios) {
+			out.println("Starting scenario " + scenario.getDisplayName() + " " + scenario.getProperties());
+			PrintStream console = System.out;
+			System.setOut(new PrintStream(new DiscardingOutputStream()));
+			ConfigurableApplicationContext context = startApplication(scenario, maxThreads);
+			try {
+				if (warmupRows > 0) {
+					runJobs(context, scenario, warmupRows, commitIntervals.get(0).intValue(), 1);
+				}
+				for (Long rowCount : rows) {
+					for (Long commitInterval : commitIntervals) {
+						for (Long threadCount : threads) {
+							ThroughputResult result = runJobs(context, scenario, rowCount, commitInterval.intValue(),
+									threadCount.intValue());
+							out.println(result);
+							results.add(result);
+						}
+					}
+				}
+			} finally {
+				context.close();
+				System.setOut(console);
+			}
+		}
+		writeResults();
+	}
+
+	private ConfigurableApplicationContext startApplication(Scenario scenario, int maxThreads) {
+		// Command line arguments, because they override the application.properties of the sample
+		List<String> args = new ArrayList<>();
+		for (Map.Entry<String, Object> property : scenario.getProperties().entrySet()) {
+			args.add("--" + property.getKey() + "=" + property.getValue());
+		}
+		args.add("--server.port=0");
+		args.add("--logging.config=classpath:logback-throughput.xml");
+		args.add("--logging.file.path=" + logDirectory.getAbsolutePath() + File.separator);
+		args.add("--batch.task-executor.core-pool-size=" + maxThreads);
+		ConfigurableApplicationContext context = new SpringApplicationBuilder(Application.class)
+				.run(args.toArray(new String[0]));
+		// With the default two-phase locking of HSQLDB, parallel job executions deadlock on the meta data tables
+		new JdbcTemplate(context.getBean("dataSourcePartner", DataSource.class))
+				.execute("SET DATABASE TRANSACTION CONTROL MVCC");
+		return context;
+	}
+
+	private ThroughputResult runJobs(ConfigurableApplicationContext context, Scenario scenario, long rows,
+			int commitInterval, int threads) throws IOException, InterruptedException {
+		List<File> files = fileGenerator.getFiles(rows, threads);
+		JdbcTemplate jdbcTemplate = new JdbcTemplate(context.getBean("dataSourcePartner", DataSource.class));
+		jdbcTemplate.execute("TRUNCATE TABLE PARTNER");
+		String baseUrl = "http://localhost:" + ((WebServerApplicationContext) context).getWebServer().getPort()
+				+ "/batch/operations/jobs/";
+		System.gc();
+
+		long gcPauseMillis = getGcPauseMillis();
+		long gcCount = getGcCount();
+		long allocatedBytes = getAllocatedBytes();
+		long start = System.nanoTime();
+		List<String> jobExecutionIds = new ArrayList<>();
+		for (File file : files) {
+			MultiValueMap<String, String> payload = new LinkedMultiValueMap<>();
+			payload.add("jobParameters", "pathToFile=file:" + file.getAbsolutePath() + ",commitInterval(long)="
+					+ commitInterval + ",run.id(long)=" + runIds.incrementAndGet());
+			jobExecutionIds.add(restTemplate.postForObject(baseUrl + JOB_NAME, payload, String.class));
+		}
+		for (String jobExecutionId : jobExecutionIds) {
+			ExitStatus exitStatus = getExitStatus(baseUrl, jobExecutionId);
+			while (exitStatus.isRunning()) {
+				Thread.sleep(POLL_INTERVAL_MILLIS);
+				exitStatus = getExitStatus(baseUrl, jobExecutionId);
+			}
+			if (!ExitStatus.COMPLETED.getExitCode().equals(exitStatus.getExitCode())) {
+				throw new IllegalStateException("JobExecution " + jobExecutionId + " ended with " + exitStatus
+						+ ", see the job log in " + logDirectory);
+			}
+		}
+		long durationNanos = System.nanoTime() - start;
+		ThroughputResult result = new ThroughputResult(scenario, rows, commitInterval, threads, durationNanos,
+				getGcPauseMillis() - gcPauseMillis, getGcCount() - gcCount, getAllocatedBytes() - allocatedBytes);
+
+		Long importedRows = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM PARTNER", Long.class);
+		if (importedRows == null || importedRows != rows) {
+			throw new IllegalStateException("Expected " + rows + " imported rows, but found " + importedRows);
+		}
+		deleteJobLogs();
+		return result;
+	}
+
+	private ExitStatus getExitStatus(String baseUrl, String jobExecutionId) {
+		return new ExitStatus(restTemplate.getForObject(baseUrl + "executions/" + jobExecutionId, String.class));
+	}
+
+	private void deleteJobLogs() {
+		File[] logFiles = logDirectory.listFiles();
+		if (logFiles != null) {
+			for (File logFile : logFiles) {
+				// Files still opened by an appender are removed as well, their space is freed when it's closed
+				FileSystemUtils.deleteRecursively(logFile);
+			}
+		}
+	}
+
+	private void writeResults() throws IOException {
+		List<String> lines = new ArrayList<>();
+		lines.add(ThroughputResult.CSV_HEADER);
+		for (ThroughputResult result : results) {
+			lines.add(result.toCsv());
+		}
+		File resultFile = new File(directory, "throughput-result.csv");
+		Files.write(resultFile.toPath(), lines, StandardCharsets.UTF_8);
+		out.println("Results written to " + resultFile);
+	}
+
+	/**
+	 * Accumulated time of all collections. For the stop-the-world collectors of the JVM, like the young and old
+	 * generation collections of G1, this is the pause time.
+	 */
+	private static long getGcPauseMillis() {
+		long millis = 0;
+		for (GarbageCollectorMXBean garbageCollector : ManagementFactory.getGarbageCollectorMXBeans()) {
+			millis += Math.max(0, garbageCollector.getCollectionTime());
+		}
+		return millis;
+	}
+
+	private static long getGcCount() {
+		long count = 0;
+		for (GarbageCollectorMXBean garbageCollector : ManagementFactory.getGarbageCollectorMXBeans()) {
+			count += Math.max(0, garbageCollector.getCollectionCount());
+		}
+		return count;
+	}
+
+	/**
+	 * Bytes allocated by all live threads. The job executions run in the pooled threads of the starter's TaskExecutor,
+	 * so they are still alive when the run is measured.
+	 */
+	private static long getAllocatedBytes() {
+		java.lang.management.ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+		if (!(threadMXBean instanceof com.sun.management.ThreadMXBean)) {
+			return 0;
+		}
+		long bytes = 0;
+		for (long allocated : ((com.sun.management.ThreadMXBean) threadMXBean)
+				.getThreadAllocatedBytes(threadMXBean.getAllThreadIds())) {
+			bytes += Math.max(0, allocated);
+		}
+		return bytes;
+	}
+
+	private static List<Long> getLongs(String property, String defaultValue) {
+		List<Long> values = new ArrayList<>();
+		for (String value : StringUtils.commaDelimitedListToStringArray(System.getProperty(property, defaultValue))) {
+			values.add(Long.valueOf(value.trim()));
+		}
+		return values;
+	}
+
+	private static class DiscardingOutputStream extends OutputStream {
+
+		@Override
+		public void write(int b) {
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) {
+		}
+
+	}
+
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.codecentric.batch.benchmarks.throughput;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Generates input files in the format of the partner-import.csv of the file-to-db sample. The rows are split into one
+ * file per thread, so that every job execution running in parallel imports its own part. Files are generated once and
+ * reused by later runs, because writing 50 million rows takes a while.
+ */
+class PartnerFileGenerator {
+
+	private final File directory;
+
+	PartnerFileGenerator(File directory) {
+		this.directory = directory;
+	}
+
+	/**
+	 * Returns the files containing the given number of rows in total, split into the given number of parts.
+	 */
+	List<File> getFiles(long rows, int parts) throws IOException {
+		List<File> files = new ArrayList<>();
+		long rowsPerPart = rows / parts;
+		for (int part = 0; part < parts; part++) {
+			long from = part * rowsPerPart;
+			long to = part == parts - 1 ? rows : from + rowsPerPart;
+			files.add(getFile(rows, parts, part, from, to));
+		}
+		return files;
+	}
+
+	private File getFile(long rows, int parts, int part, long from, long to) throws IOException {
+		File file = new File(directory, "partner-" + rows + "-" + (part + 1) + "-of-" + parts + ".csv");
+		if (file.exists()) {
+			return file;
+		}
+		Files.createDirectories(directory.toPath());
+		// Written to a temporary file first, so that an aborted generation is not picked up by the next run
+		File tempFile = new File(directory, file.getName() + ".tmp");
+		try (BufferedWriter writer = new BufferedWriter(
+				new OutputStreamWriter(Files.newOutputStream(tempFile.toPath()), StandardCharsets.UTF_8), 1 << 16)) {
+			for (long row = from; row < to; row++) {
+				writer.write("Mustermann");
+				writer.write(Long.toString(row));
+				writer.write(",Max,max.mustermann");
+				writer.write(Long.toString(row));
+				writer.write("@codecentric.de,");
+				writer.write(row % 2 == 0 ? 'm' : 'w');
+				writer.newLine();
+			}
+		}
+		Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		return file;
+	}
+
+}
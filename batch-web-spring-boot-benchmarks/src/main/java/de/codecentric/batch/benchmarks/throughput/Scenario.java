@@ -0,0 +1,79 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.codecentric.batch.benchmarks.throughput;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Combination of starter features switched on for a run of the throughput benchmark. The baseline has all optional
+ * features switched off, every other scenario switches on exactly one of them, so that the difference to the baseline
+ * is the cost of that feature. The scenario all resembles an application using everything the starter offers.
+ */
+enum Scenario {
+
+	BASELINE(false, false, false, false),
+
+	PROTOCOL(true, false, false, false),
+
+	LOGFILE_SEPARATION(false, true, false, false),
+
+	METRICS(false, false, true, false),
+
+	PROFILING(false, false, true, true),
+
+	ALL(true, true, true, true);
+
+	private final boolean defaultProtocol;
+
+	private final boolean logfileSeparation;
+
+	private final boolean metrics;
+
+	private final boolean profiling;
+
+	Scenario(boolean defaultProtocol, boolean logfileSeparation, boolean metrics, boolean profiling) {
+		this.defaultProtocol = defaultProtocol;
+		this.logfileSeparation = logfileSeparation;
+		this.metrics = metrics;
+		this.profiling = profiling;
+	}
+
+	/**
+	 * The configuration properties of the starter switching the features of this scenario on and off.
+	 */
+	Map<String, Object> getProperties() {
+		Map<String, Object> properties = new LinkedHashMap<>();
+		properties.put("batch.default-protocol.enabled", defaultProtocol);
+		properties.put("batch.logfile-separation.enabled", logfileSeparation);
+		properties.put("batch.metrics.enabled", metrics);
+		properties.put("batch.metrics.profiling.readprocesswrite.enabled", profiling);
+		return properties;
+	}
+
+	/**
+	 * Name of the scenario as used in the system property throughput.scenarios and in the results, e.g.
+	 * logfile-separation.
+	 */
+	String getDisplayName() {
+		return name().toLowerCase().replace('_', '-');
+	}
+
+	static Scenario fromDisplayName(String displayName) {
+		return valueOf(displayName.trim().toUpperCase().replace('-', '_'));
+	}
+
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.codecentric.batch.benchmarks.throughput;
+
+import java.util.Locale;
+
+/**
+ * Measurements of a single run of the throughput benchmark.
+ */
+class ThroughputResult {
+
+	static final String CSV_HEADER = "scenario,rows,commitInterval,threads,durationMillis,itemsPerSecond,gcPauseMillis,gcCount,allocatedMegabytes,allocationMegabytesPerSecond";
+
+	private final Scenario scenario;
+
+	private final long rows;
+
+	private final int commitInterval;
+
+	private final int threads;
+
+	private final long durationNanos;
+
+	private final long gcPauseMillis;
+
+	private final long gcCount;
+
+	private final long allocatedBytes;
+
+	ThroughputResult(Scenario scenario, long rows, int commitInterval, int threads, long durationNanos,
+			long gcPauseMillis, long gcCount, long allocatedBytes) {
+		this.scenario = scenario;
+		this.rows = rows;
+		this.commitInterval = commitInterval;
+		this.threads = threads;
+		this.durationNanos = durationNanos;
+		this.gcPauseMillis = gcPauseMillis;
+		this.gcCount = gcCount;
+		this.allocatedBytes = allocatedBytes;
+	}
+
+	double getItemsPerSecond() {
+		return rows / getDurationSeconds();
+	}
+
+	double getAllocationMegabytesPerSecond() {
+		return getAllocatedMegabytes() / getDurationSeconds();
+	}
+
+	private double getAllocatedMegabytes() {
+		return allocatedBytes / (1024d * 1024d);
+	}
+
+	private double getDurationSeconds() {
+		return durationNanos / 1_000_000_000d;
+	}
+
+	String toCsv() {
+		return String.format(Locale.ROOT, "%s,%d,%d,%d,%d,%.1f,%d,%d,%.1f,%.1f", scenario.getDisplayName(), rows,
+				commitInterval, threads, durationNanos / 1_000_000, getItemsPerSecond(), gcPauseMillis, gcCount,
+				getAllocatedMegabytes(), getAllocationMegabytesPerSecond());
+	}
+
+	@Override
+	public String toString() {
+		return String.format(Locale.ROOT,
+				"%-18s rows=%-9d commitInterval=%-5d threads=%-2d %10.1f items/s  gc pauses %6d ms (%d)  allocation %8.1f MB/s",
+				scenario.getDisplayName(), rows, commitInterval, threads, getItemsPerSecond(), gcPauseMillis, gcCount,
+				getAllocationMegabytesPerSecond());
+	}
+
+}